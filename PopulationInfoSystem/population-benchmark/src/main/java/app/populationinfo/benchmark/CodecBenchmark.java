@@ -0,0 +1,135 @@
+package app.populationinfo.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.codec.PersonDecoder;
+import app.populationinfo.codec.PersonEncoder;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Benchmarks for encoding and decoding a batch of persons with the binary person codec and as
+ * JSON. The sizes of the encoded batches are printed by {@link #main(String[])}.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    private static final long SEED = 27012023l;
+    
+    @Param({ "10000" })
+    private int size;
+    
+    private List<Person> population;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private String json;
+    private byte[] jsonBytes;
+    
+    /**
+     * Generates the population and encodes it both ways for the decoding benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        List<Address> addresses = generator.createAddresses(size / 4, size / 100);
+        population = generator.createPopulation(size, 5, addresses);
+        generator.linkGenerations(population, 4);
+        
+        buffer = ByteBuffer.allocate(size * 1024);
+        encoded = encodeBinary().flip();
+        json = JsonPersonFormat.write(population);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Prints the sizes of the batches encoded both ways.
+     * 
+     * @param args batch size, optional.
+     */
+    public static void main(String[] args) {
+        CodecBenchmark benchmark = new CodecBenchmark();
+        benchmark.size = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        benchmark.setUp();
+        System.out.println("Binary: " + benchmark.encoded.remaining() + " bytes, JSON: "
+                + benchmark.jsonBytes.length + " bytes");
+    }
+    
+    /**
+     * Encodes the batch with the binary codec.
+     * 
+     * @return encoded batch.
+     */
+    @Benchmark
+    public ByteBuffer encodeBinary() {
+        buffer.clear();
+        PersonEncoder encoder = new PersonEncoder();
+        for (Person person : population) {
+            encoder.encode(person, buffer);
+        }
+        
+        return buffer;
+    }
+    
+    /**
+     * Decodes the batch with the binary codec.
+     * 
+     * @return decoded persons.
+     */
+    @Benchmark
+    public List<Person> decodeBinary() {
+        ByteBuffer input = encoded.duplicate();
+        PersonDecoder decoder = new PersonDecoder();
+        List<Person> persons = new ArrayList<>(size);
+        for (Person person = decoder.decode(input); person != null; person = decoder.decode(input)) {
+            persons.add(person);
+        }
+        
+        return persons;
+    }
+    
+    /**
+     * Encodes the batch as JSON in UTF-8.
+     * 
+     * @return encoded batch.
+     */
+    @Benchmark
+    public byte[] encodeJson() {
+        return JsonPersonFormat.write(population).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Decodes the batch from JSON in UTF-8.
+     * 
+     * @return decoded persons.
+     */
+    @Benchmark
+    public List<Person> decodeJson() {
+        return JsonPersonFormat.read(new String(jsonBytes, StandardCharsets.UTF_8), new AddressPool());
+    }
+}
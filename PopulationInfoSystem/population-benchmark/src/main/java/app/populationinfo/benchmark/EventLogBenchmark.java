@@ -0,0 +1,106 @@
+package app.populationinfo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.event.EventLog;
+import app.populationinfo.event.EventRecorder;
+import app.populationinfo.event.PopulationEvent;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Benchmarks for appending moves to the event log, directly and through a recorded person. The
+ * results are events per second on a single thread.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLogBenchmark {
+    private static final long SEED = 27012023l;
+    
+    @Param({ "256", "4096" })
+    private int syncInterval;
+    
+    private Path directory;
+    private EventLog log;
+    private List<Address> addresses;
+    private Person person;
+    private LocalDate moveInDate;
+    private int next;
+    
+    /**
+     * Opens an empty log for the iteration.
+     * 
+     * @throws IOException if the log can't be opened.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        addresses = generator.createAddresses(1024, 10);
+        person = generator.createPerson(0);
+        moveInDate = person.getTimeOfBirth();
+        
+        directory = Files.createTempDirectory("events");
+        log = new EventLog(directory, syncInterval, EventLog.DEFAULT_SEGMENT_SIZE);
+        new EventRecorder(log).record(person);
+    }
+    
+    /**
+     * Closes the log and removes its files.
+     * 
+     * @throws IOException if the log can't be closed or removed.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+    
+    @Benchmark
+    public long appendMove() throws IOException {
+        Address address = addresses.get(next++ & 1023);
+        
+        return log.append(new PopulationEvent.AddressAdded(person.getIdentityCode(), address.getName(),
+                address.getAreaCode(), moveInDate));
+    }
+    
+    @Benchmark
+    public Object recordMove() {
+        moveInDate = moveInDate.plusDays(1l);
+        
+        return person.addAddress(addresses.get(next++ & 1023), moveInDate);
+    }
+}
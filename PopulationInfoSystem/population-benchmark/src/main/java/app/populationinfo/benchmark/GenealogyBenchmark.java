@@ -0,0 +1,89 @@
+package app.populationinfo.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.genealogy.GenealogyGraph;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Benchmarks for building the genealogy graph of a population linked into generations and for
+ * querying it.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenealogyBenchmark {
+    private static final long SEED = 27012023l;
+    private static final int GENERATIONS = 6;
+    
+    @Param({ "10000", "1000000" })
+    private int populationSize;
+    
+    private List<Person> population;
+    private GenealogyGraph graph;
+    private int first;
+    private int second;
+    private int root;
+    
+    /**
+     * Creates the population and its graph.
+     */
+    @Setup
+    public void setUp() {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        population = generator.createPopulation(populationSize, 0, List.of());
+        generator.linkGenerations(population, GENERATIONS);
+        graph = GenealogyGraph.of(population);
+        
+        first = graph.findId(population.get(populationSize - 1).getIdentityCode());
+        second = graph.findId(population.get(populationSize - 2).getIdentityCode());
+        root = graph.findId(population.get(0).getIdentityCode());
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public GenealogyGraph buildGraph() {
+        return GenealogyGraph.of(population);
+    }
+    
+    @Benchmark
+    public int[] findAncestors() {
+        return graph.findAncestors(first);
+    }
+    
+    @Benchmark
+    public int[] findDescendants() {
+        return graph.findDescendants(root);
+    }
+    
+    @Benchmark
+    public int findKinship() {
+        return graph.findKinship(first, second);
+    }
+    
+    @Benchmark
+    public int findLineageLowestCommonAncestor() {
+        return graph.findLineageLowestCommonAncestor(first, second, 0);
+    }
+}
@@ -0,0 +1,151 @@
+package app.populationinfo.benchmark;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.model.IdentityCode;
+import app.populationinfo.model.IdentityCodeMap;
+
+/**
+ * Benchmarks for validating identity codes, looking values up by them and sorting them, packed
+ * and as strings. The codes are valid personal identity codes. Lookups read the codes from a
+ * character buffer in random order, as when parsing input: the primitive map packs the characters
+ * in place, the hash map needs a string for each code.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentityCodeBenchmark {
+    private static final long SEED = 27012023l;
+    private static final int CODES = 100000;
+    private static final int SORTED = 10000;
+    private static final String CHECK_CHARACTERS = "0123456789ABCDEFHJKLMNPRSTUVWXY";
+    
+    private String[] codes;
+    private IdentityCode[] identityCodes;
+    private IdentityCodeMap<String> packedMap;
+    private Map<String, String> stringMap;
+    private char[] input;
+    private CharBuffer inputCode;
+    private int next;
+    
+    /**
+     * Generates the codes, fills the maps and writes the codes to the input in random order.
+     */
+    @Setup
+    public void setUp() {
+        codes = new String[CODES];
+        identityCodes = new IdentityCode[CODES];
+        packedMap = new IdentityCodeMap<>(CODES);
+        stringMap = new HashMap<>(CODES * 2);
+        for (int i = 0; i < CODES; i++) {
+            int number = (1 + i % 28) * 10000000 + (1 + i / 28 % 12) * 100000 + i / 336 % 100 * 1000 + 2 + i / 33600;
+            codes[i] = String.format("%06d-%03d%c", number / 1000, number % 1000, CHECK_CHARACTERS.charAt(number % 31));
+            identityCodes[i] = IdentityCode.of(codes[i]);
+            packedMap.putIfAbsent(identityCodes[i], codes[i]);
+            stringMap.put(codes[i], codes[i]);
+        }
+        
+        Random random = new Random(SEED);
+        for (int i = CODES - 1; i > 0; i--) {
+            int other = random.nextInt(i + 1);
+            String code = codes[i];
+            codes[i] = codes[other];
+            codes[other] = code;
+            IdentityCode identityCode = identityCodes[i];
+            identityCodes[i] = identityCodes[other];
+            identityCodes[other] = identityCode;
+        }
+        
+        input = String.join("", codes).toCharArray();
+        inputCode = CharBuffer.wrap(input);
+    }
+    
+    /**
+     * Validates a personal identity code.
+     * 
+     * @return true if the code was valid.
+     */
+    @Benchmark
+    public boolean validate() {
+        return IdentityCode.isValid(codes[next()]);
+    }
+    
+    /**
+     * Finds a value from the primitive map by a code in the input.
+     * 
+     * @return found value.
+     */
+    @Benchmark
+    public String findPacked() {
+        int start = next() * IdentityCode.PERSONAL_LENGTH;
+        inputCode.limit(start + IdentityCode.PERSONAL_LENGTH).position(start);
+        
+        return packedMap.get(inputCode);
+    }
+    
+    /**
+     * Finds a value from a hash map keyed by strings by a code in the input.
+     * 
+     * @return found value.
+     */
+    @Benchmark
+    public String findString() {
+        return stringMap.get(new String(input, next() * IdentityCode.PERSONAL_LENGTH, IdentityCode.PERSONAL_LENGTH));
+    }
+    
+    /**
+     * Sorts packed codes.
+     * 
+     * @return sorted codes.
+     */
+    @Benchmark
+    public IdentityCode[] sortPacked() {
+        IdentityCode[] sorted = Arrays.copyOf(identityCodes, SORTED);
+        Arrays.sort(sorted, Comparator.naturalOrder());
+        
+        return sorted;
+    }
+    
+    /**
+     * Sorts code strings.
+     * 
+     * @return sorted codes.
+     */
+    @Benchmark
+    public String[] sortStrings() {
+        String[] sorted = Arrays.copyOf(codes, SORTED);
+        Arrays.sort(sorted, Comparator.naturalOrder());
+        
+        return sorted;
+    }
+    
+    private int next() {
+        next = (next + 1) % CODES;
+        
+        return next;
+    }
+}
@@ -0,0 +1,196 @@
+package app.populationinfo.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.Person;
+
+/**
+ * JSON format of persons used as the baseline of the codec benchmarks, written the way a generic
+ * JSON mapper writes the objects: a person is an object with its fields, dates as ISO strings,
+ * parents as identity codes and each address info as an object with a nested address object.
+ * Parsing goes through a tree of maps and lists, like a mapper reading into a generic tree first.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class JsonPersonFormat {
+    private final String text;
+    private int position;
+    
+    private JsonPersonFormat(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * Writes persons as a JSON array.
+     * 
+     * @param persons persons to be written.
+     * @return JSON text.
+     */
+    static String write(List<Person> persons) {
+        StringBuilder json = new StringBuilder();
+        json.append('[');
+        for (int i = 0; i < persons.size(); i++) {
+            Person person = persons.get(i);
+            json.append(i > 0 ? ",{" : "{");
+            json.append("\"identityCode\":");
+            string(json, person.getIdentityCode());
+            json.append(",\"firstName\":");
+            string(json, person.getFirstName());
+            json.append(",\"lastName\":");
+            string(json, person.getLastName());
+            json.append(",\"timeOfBirth\":");
+            string(json, person.getTimeOfBirth() != null ? person.getTimeOfBirth().toString() : null);
+            json.append(",\"timeOfDeath\":");
+            string(json, person.getTimeOfDeath() != null ? person.getTimeOfDeath().toString() : null);
+            json.append(",\"parents\":[");
+            List<Person> parents = person.getParents();
+            for (int j = 0; j < parents.size(); j++) {
+                json.append(j > 0 ? "," : "");
+                string(json, parents.get(j).getIdentityCode());
+            }
+            json.append("],\"addresses\":[");
+            List<AddressInfo> addresses = person.getAddresses();
+            for (int j = 0; j < addresses.size(); j++) {
+                AddressInfo addressInfo = addresses.get(j);
+                json.append(j > 0 ? ",{" : "{");
+                json.append("\"address\":{\"name\":");
+                string(json, addressInfo.getAddress().getName());
+                json.append(",\"areaCode\":");
+                string(json, addressInfo.getAddress().getAreaCode());
+                json.append("},\"moveInDate\":");
+                string(json, addressInfo.getMoveInDate().toString());
+                json.append(",\"moveOutDate\":");
+                string(json, addressInfo.getMoveOutDate() != null ? addressInfo.getMoveOutDate().toString() : null);
+                json.append('}');
+            }
+            json.append("]}");
+        }
+        
+        return json.append(']').toString();
+    }
+    
+    /**
+     * Reads persons from a JSON array written with {@link #write(List)}. Parents are looked up among
+     * the persons read before.
+     * 
+     * @param json JSON text.
+     * @param pool pool for the addresses.
+     * @return persons read.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Person> read(String json, AddressPool pool) {
+        List<Object> tree = (List<Object>) new JsonPersonFormat(json).value();
+        List<Person> persons = new ArrayList<>(tree.size());
+        Map<String, Person> byIdentityCode = new HashMap<>();
+        for (Object element : tree) {
+            Map<String, Object> object = (Map<String, Object>) element;
+            List<Person> parents = new ArrayList<>(2);
+            for (Object parent : (List<Object>) object.get("parents")) {
+                parents.add(byIdentityCode.computeIfAbsent((String) parent, c -> new Person(c, null, null, null, null)));
+            }
+            
+            Person person = new Person((String) object.get("identityCode"), (String) object.get("firstName"),
+                    (String) object.get("lastName"), date(object.get("timeOfBirth")), date(object.get("timeOfDeath")), parents);
+            List<AddressInfo> addresses = new ArrayList<>();
+            for (Object item : (List<Object>) object.get("addresses")) {
+                Map<String, Object> addressInfo = (Map<String, Object>) item;
+                Map<String, Object> address = (Map<String, Object>) addressInfo.get("address");
+                addresses.add(new AddressInfo(pool.intern((String) address.get("name"), (String) address.get("areaCode")),
+                        person, date(addressInfo.get("moveInDate")), date(addressInfo.get("moveOutDate"))));
+            }
+            person.setAddresses(addresses);
+            
+            byIdentityCode.put(person.getIdentityCode(), person);
+            persons.add(person);
+        }
+        
+        return persons;
+    }
+    
+    private static LocalDate date(Object value) {
+        return value != null ? LocalDate.parse((String) value) : null;
+    }
+    
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+    
+    private Object value() {
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': {
+                Map<String, Object> object = new LinkedHashMap<>();
+                position++;
+                while (text.charAt(position) != '}') {
+                    String key = (String) value();
+                    position++;
+                    object.put(key, value());
+                    if (text.charAt(position) == ',') {
+                        position++;
+                    }
+                }
+                position++;
+                
+                return object;
+            }
+            case '[': {
+                List<Object> array = new ArrayList<>();
+                position++;
+                while (text.charAt(position) != ']') {
+                    array.add(value());
+                    if (text.charAt(position) == ',') {
+                        position++;
+                    }
+                }
+                position++;
+                
+                return array;
+            }
+            case '"': {
+                StringBuilder value = new StringBuilder();
+                position++;
+                for (char d = text.charAt(position++); d != '"'; d = text.charAt(position++)) {
+                    if (d == '\\') {
+                        d = text.charAt(position++);
+                        if (d == 'u') {
+                            d = (char) Integer.parseInt(text, position, position + 4, 16);
+                            position += 4;
+                        }
+                    }
+                    value.append(d);
+                }
+                
+                return value.toString();
+            }
+            default:
+                position += 4;
+                
+                return null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package app.populationinfo.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.model.Person;
+import app.populationinfo.query.NameSearchIndex;
+
+/**
+ * Benchmarks for finding persons by misspelled names with the name search index and by scanning
+ * the population. Names are built from Finnish syllables and suffixes, giving tens of thousands of
+ * distinct last names, and the searched names are names of the population with one letter changed.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class NameSearchBenchmark {
+    private static final long SEED = 27012023l;
+    private static final String[] SYLLABLES = { "ko", "hei", "mä", "vir", "lai", "nie", "sal", "ta", "ru", "pek",
+        "kal", "jär", "tuo", "lu", "haa", "mi", "ran", "sep", "vä", "oks", "kan", "pel", "ahl", "sil" };
+    private static final String[] SUFFIXES = { "nen", "la", "lä", "mäki", "aho", "salo", "vaara", "niemi", "järvi", "o" };
+    private static final LocalDate BIRTH_TIME = LocalDate.of(1980, 1, 1);
+    private static final int LIMIT = 10;
+    private static final int QUERIES = 1000;
+    
+    @Param({ "1000000" })
+    private int size;
+    
+    private List<Person> population;
+    private NameSearchIndex index;
+    private String[] queries;
+    private int next;
+    
+    /**
+     * Generates the population, indexes it and generates the misspelled names.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        population = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String lastName = capitalize(SYLLABLES[random.nextInt(SYLLABLES.length)]
+                    + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                    + (random.nextBoolean() ? SYLLABLES[random.nextInt(SYLLABLES.length)] : "")
+                    + SUFFIXES[random.nextInt(SUFFIXES.length)]);
+            String firstName = capitalize(SYLLABLES[random.nextInt(SYLLABLES.length)]
+                    + SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            population.add(new Person(String.format("%08d-AAAA", i), firstName, lastName, BIRTH_TIME, null));
+        }
+        
+        index = NameSearchIndex.of(population);
+        
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            char[] name = population.get(random.nextInt(size)).getLastName().toCharArray();
+            name[1 + random.nextInt(name.length - 1)] = "aeiklnorstuv".charAt(random.nextInt(12));
+            queries[i] = new String(name);
+        }
+    }
+    
+    /**
+     * Finds the persons with the closest last names with the index.
+     * 
+     * @return found persons.
+     */
+    @Benchmark
+    public List<Person> findIndexed() {
+        return index.findByLastName(queries[next()], LIMIT);
+    }
+    
+    /**
+     * Finds the persons with the closest last names by computing the edit distance to the last
+     * name of every person.
+     * 
+     * @return found persons.
+     */
+    @Benchmark
+    public List<Person> findScan() {
+        String query = queries[next()].toLowerCase();
+        List<Person> found = new ArrayList<>();
+        for (int distance = 0; distance <= 2 && found.size() < LIMIT; distance++) {
+            for (Person person : population) {
+                if (levenshtein(query, person.getLastName().toLowerCase()) == distance) {
+                    found.add(person);
+                }
+            }
+        }
+        
+        return found.subList(0, Math.min(LIMIT, found.size()));
+    }
+    
+    private int next() {
+        next = (next + 1) % QUERIES;
+        
+        return next;
+    }
+    
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+    
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                current[j] = Math.min(previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(previous[j], current[j - 1]) + 1);
+            }
+            
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,126 @@
+package app.populationinfo.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Benchmarks for the business logic of a single person with address histories of different lengths.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonBenchmark {
+    private static final long SEED = 27012023l;
+    private static final int ADDRESS_COUNT = 1000;
+    
+    @Param({ "1", "10", "100", "10000" })
+    private int historySize;
+    
+    private List<Address> addresses;
+    private Person person;
+    private Person copy;
+    private Address oldestAddress;
+    private AddressInfo currentAddressInfo;
+    private LocalDate middleDate;
+    
+    /**
+     * Creates a person with the configured number of moves.
+     */
+    @Setup
+    public void setUp() {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        addresses = generator.createAddresses(ADDRESS_COUNT, 100);
+        person = generator.createPerson(0);
+        generator.addAddresses(person, historySize, addresses);
+        copy = Person.copyOf(person);
+        
+        List<AddressInfo> history = person.getAddresses();
+        oldestAddress = history.get(history.size() - 1).getAddress();
+        currentAddressInfo = person.findCurrentAddress();
+        middleDate = history.get(history.size() / 2).getMoveInDate();
+    }
+    
+    /**
+     * Replays the whole address history of a new person, one move at a time.
+     * 
+     * @return the person with the replayed history.
+     */
+    @Benchmark
+    public Person replayHistory() {
+        Person replayed = new Person(person.getIdentityCode(), person.getFirstName(), person.getLastName(),
+                person.getTimeOfBirth(), new ArrayList<>());
+        List<AddressInfo> history = person.getAddresses();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            AddressInfo addressInfo = history.get(i);
+            replayed.addAddress(addressInfo.getAddress(), addressInfo.getMoveInDate());
+        }
+        
+        return replayed;
+    }
+    
+    @Benchmark
+    public AddressInfo findCurrentAddress() {
+        return person.findCurrentAddress();
+    }
+    
+    @Benchmark
+    public AddressInfo findAddressInfoByAddress() {
+        return person.findAddressInfoByAddress(oldestAddress);
+    }
+    
+    @Benchmark
+    public AddressInfo findAddressOn() {
+        return person.findAddressOn(middleDate);
+    }
+    
+    @Benchmark
+    public Person copyPerson() {
+        return Person.copyOf(person);
+    }
+    
+    @Benchmark
+    public AddressInfo copyAddressInfo() {
+        return AddressInfo.copyOf(currentAddressInfo);
+    }
+    
+    @Benchmark
+    public Address copyAddress() {
+        return Address.copyOf(oldestAddress);
+    }
+    
+    @Benchmark
+    public boolean equalsPerson() {
+        return person.equals(copy);
+    }
+    
+    @Benchmark
+    public boolean equalsAddressInfo() {
+        return currentAddressInfo.equals(AddressInfo.copyOf(currentAddressInfo));
+    }
+}
@@ -0,0 +1,107 @@
+package app.populationinfo.benchmark;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.aggregate.Demographics;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.registry.PopulationRegistry;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Benchmarks for operations over a whole population of different sizes.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulationBenchmark {
+    private static final long SEED = 27012023l;
+    private static final int MOVES_PER_PERSON = 5;
+    
+    @Param({ "1000", "100000" })
+    private int populationSize;
+    
+    private List<Address> addresses;
+    private List<Person> population;
+    private PopulationRegistry registry;
+    private String identityCode;
+    private Address address;
+    private LocalDate date;
+    
+    /**
+     * Creates the population and a registry holding it.
+     */
+    @Setup
+    public void setUp() {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        addresses = generator.createAddresses(populationSize / 2, 100);
+        population = generator.createPopulation(populationSize, MOVES_PER_PERSON, addresses);
+        registry = new PopulationRegistry(populationSize);
+        registry.addPersons(population);
+        
+        Person person = population.get(populationSize / 2);
+        identityCode = person.getIdentityCode();
+        address = person.findCurrentAddress().getAddress();
+        date = person.findCurrentAddress().getMoveInDate();
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PopulationRegistry loadRegistry() {
+        PopulationRegistry loaded = new PopulationRegistry(populationSize);
+        loaded.addPersons(population);
+        
+        return loaded;
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<Person> deduplicatePersons() {
+        return new HashSet<>(population);
+    }
+    
+    @Benchmark
+    public Person findPerson() {
+        return registry.findPerson(identityCode);
+    }
+    
+    @Benchmark
+    public List<Person> residentsOf() {
+        return registry.residentsOf(address, date);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Demographics computeDemographics() {
+        return Demographics.of(population, date);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Demographics computeDemographicsSequentially() {
+        return population.stream().collect(Demographics.collector(date));
+    }
+}
@@ -0,0 +1,114 @@
+package app.populationinfo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.repository.CachingPersonRepository;
+import app.populationinfo.repository.FilePersonRepository;
+import app.populationinfo.repository.InMemoryPersonRepository;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Benchmarks for looking up persons from a file-backed repository with and without a cache. Nine
+ * out of ten lookups go to the same thousand persons, the rest are spread over the population.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final long SEED = 27012023l;
+    private static final int POPULATION_SIZE = 100000;
+    private static final int HOT_PERSONS = 1000;
+    private static final int LOOKUPS = 1 << 16;
+    
+    private Path directory;
+    private FilePersonRepository fileRepository;
+    private CachingPersonRepository cachedFileRepository;
+    private InMemoryPersonRepository memoryRepository;
+    private String[] identityCodes;
+    private int next;
+    
+    /**
+     * Writes the population to a file and draws the identity codes to look up.
+     * 
+     * @throws IOException if the file can't be written.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        List<Address> addresses = generator.createAddresses(1000, 100);
+        List<Person> population = generator.createPopulation(POPULATION_SIZE, 5, addresses);
+        
+        directory = Files.createTempDirectory("repository-benchmark");
+        fileRepository = new FilePersonRepository(directory.resolve("persons.bin"));
+        memoryRepository = new InMemoryPersonRepository();
+        for (Person person : population) {
+            fileRepository.savePerson(person);
+            memoryRepository.savePerson(person);
+        }
+        fileRepository.flush();
+        cachedFileRepository = new CachingPersonRepository(fileRepository);
+        
+        Random random = new Random(SEED);
+        identityCodes = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int index = random.nextInt(10) < 9 ? random.nextInt(HOT_PERSONS) : random.nextInt(POPULATION_SIZE);
+            identityCodes[i] = population.get(index).getIdentityCode();
+        }
+    }
+    
+    /**
+     * Removes the file.
+     * 
+     * @throws IOException if the file can't be removed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("persons.bin"));
+        Files.deleteIfExists(directory);
+    }
+    
+    @Benchmark
+    public Person findFromFile() {
+        return fileRepository.findPerson(nextIdentityCode());
+    }
+    
+    @Benchmark
+    public Person findFromCachedFile() {
+        return cachedFileRepository.findPerson(nextIdentityCode());
+    }
+    
+    @Benchmark
+    public Person findFromMemory() {
+        return memoryRepository.findPerson(nextIdentityCode());
+    }
+    
+    private String nextIdentityCode() {
+        return identityCodes[next++ & (LOOKUPS - 1)];
+    }
+}
@@ -0,0 +1,253 @@
+package app.populationinfo.aggregate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+
+/**
+ * Demographic figures of a population on a given date: the population per area code, the number
+ * of persons by age and the deaths per year. Figures are computed with {@link #of(Collection, LocalDate)},
+ * which runs a parallel stream over the population, or collected from any stream with
+ * {@link #collector(LocalDate)}. The counts are kept in primitive arrays while collecting, and the
+ * partial results of the threads are merged by summing.
+ * 
+ * <p>The population of an area and the ages count the persons who were alive on the date. Deaths are
+ * counted for all persons, by year from {@link #FIRST_YEAR} to {@link #LAST_YEAR} and in a single
+ * count for any other years.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class Demographics {
+    /**
+     * First year that deaths are counted for.
+     */
+    public static final int FIRST_YEAR = 1800;
+    
+    /**
+     * Last year that deaths are counted for.
+     */
+    public static final int LAST_YEAR = 2199;
+    
+    /**
+     * Highest age counted separately, older persons are counted in it.
+     */
+    public static final int MAX_AGE = 120;
+    
+    /**
+     * Index of the deaths in other years in the death counts.
+     */
+    static final int OTHER_YEARS = LAST_YEAR - FIRST_YEAR + 1;
+    
+    private final LocalDate date;
+    private final Map<String, Long> populationByAreaCode;
+    private final long[] ageCounts;
+    private final long[] deathCounts;
+    
+    /**
+     * Constructor.
+     * 
+     * @param date date of the figures.
+     * @param populationByAreaCode population per area code.
+     * @param ageCounts number of persons by age.
+     * @param deathCounts number of deaths by year from {@link #FIRST_YEAR}, followed by the
+     * number of deaths in other years.
+     */
+    Demographics(LocalDate date, Map<String, Long> populationByAreaCode, long[] ageCounts, long[] deathCounts) {
+        this.date = date;
+        this.populationByAreaCode = Collections.unmodifiableMap(populationByAreaCode);
+        this.ageCounts = ageCounts;
+        this.deathCounts = deathCounts;
+    }
+    
+    /**
+     * Computes the figures of a population in parallel.
+     * 
+     * @param population persons to be counted.
+     * @param date date of the figures.
+     * @return figures of the population.
+     */
+    public static Demographics of(Collection<? extends Person> population, LocalDate date) {
+        return population.parallelStream().collect(collector(date));
+    }
+    
+    /**
+     * Creates a collector for the figures. The collector can be used with parallel streams.
+     * 
+     * @param date date of the figures.
+     * @return new collector.
+     */
+    public static Collector<Person, ?, Demographics> collector(LocalDate date) {
+        return Collector.of(() -> new Accumulator(date), Accumulator::add, Accumulator::merge,
+                Accumulator::toDemographics, Collector.Characteristics.UNORDERED);
+    }
+    
+    /**
+     * @return date of the figures.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    /**
+     * @param areaCode area code.
+     * @return number of living persons whose address was in the area on the date.
+     */
+    public long getPopulation(String areaCode) {
+        return populationByAreaCode.getOrDefault(areaCode, 0l);
+    }
+    
+    /**
+     * @return number of living persons per area code of their address on the date.
+     */
+    public Map<String, Long> getPopulationByAreaCode() {
+        return populationByAreaCode;
+    }
+    
+    /**
+     * @param age age in whole years.
+     * @return number of living persons of the age on the date.
+     */
+    public long getAgeCount(int age) {
+        return age >= 0 && age <= MAX_AGE ? ageCounts[age] : 0l;
+    }
+    
+    /**
+     * Counts the living persons in age groups, the age pyramid of the population.
+     * 
+     * @param groupYears number of years in a group, e.g. 5 for the groups 0-4, 5-9 and so on.
+     * @return number of persons in each group, youngest first.
+     */
+    public long[] getAgePyramid(int groupYears) {
+        if (groupYears < 1) {
+            throw new IllegalArgumentException("Group must be at least a year: " + groupYears);
+        }
+        
+        long[] groups = new long[MAX_AGE / groupYears + 1];
+        for (int age = 0; age <= MAX_AGE; age++) {
+            groups[age / groupYears] += ageCounts[age];
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * @param year year of death.
+     * @return number of persons who died in the year.
+     */
+    public long getDeaths(int year) {
+        return year >= FIRST_YEAR && year <= LAST_YEAR ? deathCounts[year - FIRST_YEAR] : 0l;
+    }
+    
+    /**
+     * @return number of deaths by year, only years with deaths included.
+     */
+    public SortedMap<Integer, Long> getDeathsByYear() {
+        SortedMap<Integer, Long> deaths = new TreeMap<>();
+        for (int i = 0; i < OTHER_YEARS; i++) {
+            if (deathCounts[i] > 0) {
+                deaths.put(FIRST_YEAR + i, deathCounts[i]);
+            }
+        }
+        
+        return deaths;
+    }
+    
+    /**
+     * @return number of persons who died before {@link #FIRST_YEAR} or after {@link #LAST_YEAR}.
+     */
+    public long getDeathsInOtherYears() {
+        return deathCounts[OTHER_YEARS];
+    }
+    
+    /**
+     * Counts the age of a person on a day in whole years.
+     * 
+     * @param birthDay epoch day of birth.
+     * @param day epoch day of the age.
+     * @return age, capped to {@link #MAX_AGE}.
+     */
+    static int ageOn(int birthDay, int day) {
+        return Math.min(EpochDay.yearsBetween(birthDay, day), MAX_AGE);
+    }
+    
+    /**
+     * Finds the index of a year of death in the death counts.
+     * 
+     * @param year year of death.
+     * @return index of the year, {@link #OTHER_YEARS} if the year has no count of its own.
+     */
+    static int deathIndex(int year) {
+        return year >= FIRST_YEAR && year <= LAST_YEAR ? year - FIRST_YEAR : OTHER_YEARS;
+    }
+    
+    /**
+     * Mutable partial result of a single thread.
+     */
+    private static final class Accumulator {
+        private final LocalDate date;
+        private final int day;
+        private final Map<String, long[]> populationByAreaCode = new HashMap<>();
+        private final long[] ageCounts = new long[MAX_AGE + 1];
+        private final long[] deathCounts = new long[OTHER_YEARS + 1];
+        
+        private Accumulator(LocalDate date) {
+            this.date = date;
+            this.day = Math.toIntExact(date.toEpochDay());
+        }
+        
+        private void add(Person person) {
+            int deathDay = person.getDeathDay();
+            if (deathDay != EpochDay.NONE) {
+                deathCounts[deathIndex(EpochDay.yearOf(deathDay))]++;
+            }
+            
+            // A missing time of birth is before any day, so it is checked separately.
+            int birthDay = person.getBirthDay();
+            if (birthDay == EpochDay.NONE || birthDay > day || (deathDay != EpochDay.NONE && deathDay < day)) {
+                return;
+            }
+            
+            ageCounts[ageOn(birthDay, day)]++;
+            AddressInfo addressInfo = person.findAddressOn(date);
+            if (addressInfo != null) {
+                populationByAreaCode.computeIfAbsent(addressInfo.getAddress().getAreaCode(), a -> new long[1])[0]++;
+            }
+        }
+        
+        private Accumulator merge(Accumulator other) {
+            for (Map.Entry<String, long[]> entry : other.populationByAreaCode.entrySet()) {
+                populationByAreaCode.computeIfAbsent(entry.getKey(), a -> new long[1])[0] += entry.getValue()[0];
+            }
+            
+            for (int i = 0; i < ageCounts.length; i++) {
+                ageCounts[i] += other.ageCounts[i];
+            }
+            
+            for (int i = 0; i < deathCounts.length; i++) {
+                deathCounts[i] += other.deathCounts[i];
+            }
+            
+            return this;
+        }
+        
+        private Demographics toDemographics() {
+            Map<String, Long> population = new HashMap<>(populationByAreaCode.size() * 4 / 3 + 1);
+            for (Map.Entry<String, long[]> entry : populationByAreaCode.entrySet()) {
+                population.put(entry.getKey(), entry.getValue()[0]);
+            }
+            
+            return new Demographics(date, population, ageCounts, deathCounts);
+        }
+    }
+}
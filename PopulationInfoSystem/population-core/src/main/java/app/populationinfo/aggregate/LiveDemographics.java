@@ -0,0 +1,265 @@
+package app.populationinfo.aggregate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Demographic figures that are kept up to date as persons move and die, so that they can be read at
+ * any time without going through the population. Persons are added with {@link #add(Person)} and
+ * listened to from then on.
+ * 
+ * <p>The figures describe the current state: the living persons per area code of their current
+ * address, the living persons by date of birth and the deaths per year. Every change of a person
+ * only adjusts the counters of the values that changed. Counters are updated atomically and read
+ * without locking.</p>
+ * 
+ * <p>Any dates are accepted. Deaths outside the years of {@link Demographics} are counted in its
+ * count of other years. Dates of birth before {@link Demographics#FIRST_YEAR} are counted on its
+ * first day and dates after {@link Demographics#LAST_YEAR} on its last day, which only changes the
+ * ages of snapshots dated within {@link Demographics#MAX_AGE} years of these limits.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class LiveDemographics implements PersonChangeListener {
+    private static final int NONE = -1;
+    private static final int FIRST_DAY = (int) LocalDate.of(Demographics.FIRST_YEAR, 1, 1).toEpochDay();
+    private static final int DAYS = (int) LocalDate.of(Demographics.LAST_YEAR + 1, 1, 1).toEpochDay() - FIRST_DAY;
+    
+    /**
+     * Counted values of a person.
+     */
+    private record Keys(boolean alive, String areaCode, int birthDay, int deathYear) {
+    }
+    
+    private static final Keys NOT_COUNTED = new Keys(false, null, NONE, NONE);
+    
+    private final Map<Person, Keys> counted = new IdentityHashMap<>();
+    private final Map<String, LongAdder> populationByAreaCode = new ConcurrentHashMap<>();
+    private final AtomicLongArray livingByBirthDay = new AtomicLongArray(DAYS);
+    private final AtomicLongArray deathsByYear = new AtomicLongArray(Demographics.OTHER_YEARS + 1);
+    private final LongAdder living = new LongAdder();
+    
+    /**
+     * Creates live figures of a population.
+     * 
+     * @param population persons to be counted.
+     * @return new figures.
+     */
+    public static LiveDemographics of(Collection<? extends Person> population) {
+        LiveDemographics demographics = new LiveDemographics();
+        for (Person person : population) {
+            demographics.add(person);
+        }
+        
+        return demographics;
+    }
+    
+    /**
+     * Counts a person and starts following the changes of the person.
+     * 
+     * @param person person to be counted.
+     */
+    public void add(Person person) {
+        synchronized (person) {
+            synchronized (this) {
+                if (counted.containsKey(person)) {
+                    return;
+                }
+                
+                recount(person);
+            }
+            
+            person.addChangeListener(this);
+        }
+    }
+    
+    /**
+     * Removes a person from the figures.
+     * 
+     * @param person person to be removed.
+     * @return true if the person was counted, otherwise false.
+     */
+    public boolean remove(Person person) {
+        synchronized (person) {
+            person.removeChangeListener(this);
+            synchronized (this) {
+                Keys keys = counted.remove(person);
+                if (keys == null) {
+                    return false;
+                }
+                
+                update(keys, NOT_COUNTED);
+                
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * @param areaCode area code.
+     * @return number of living persons whose current address is in the area.
+     */
+    public long getPopulation(String areaCode) {
+        LongAdder count = populationByAreaCode.get(areaCode);
+        
+        return count != null ? count.sum() : 0l;
+    }
+    
+    /**
+     * @return number of living persons per area code of their current address, areas without
+     * living persons left out.
+     */
+    public Map<String, Long> getPopulationByAreaCode() {
+        Map<String, Long> population = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : populationByAreaCode.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                population.put(entry.getKey(), count);
+            }
+        }
+        
+        return population;
+    }
+    
+    /**
+     * @return number of living persons.
+     */
+    public long getLivingCount() {
+        return living.sum();
+    }
+    
+    /**
+     * @param year year of death.
+     * @return number of persons who died in the year.
+     */
+    public long getDeaths(int year) {
+        return year >= Demographics.FIRST_YEAR && year <= Demographics.LAST_YEAR
+                ? deathsByYear.get(year - Demographics.FIRST_YEAR) : 0l;
+    }
+    
+    /**
+     * @return number of persons who died before {@link Demographics#FIRST_YEAR} or after
+     * {@link Demographics#LAST_YEAR}.
+     */
+    public long getDeathsInOtherYears() {
+        return deathsByYear.get(Demographics.OTHER_YEARS);
+    }
+    
+    /**
+     * Takes a snapshot of the figures. The ages of the living are counted on the given date, the
+     * population per area code is by the current addresses.
+     * 
+     * @param date date of the ages.
+     * @return snapshot of the figures.
+     */
+    public Demographics snapshot(LocalDate date) {
+        Map<String, Long> population = getPopulationByAreaCode();
+        
+        long[] ageCounts = new long[Demographics.MAX_AGE + 1];
+        int dateDay = Math.toIntExact(date.toEpochDay());
+        int lastDay = (int) Math.min((long) dateDay - FIRST_DAY, DAYS - 1l);
+        for (int day = 0; day <= lastDay; day++) {
+            long count = livingByBirthDay.get(day);
+            if (count > 0) {
+                ageCounts[Demographics.ageOn(FIRST_DAY + day, dateDay)] += count;
+            }
+        }
+        
+        long[] deathCounts = new long[deathsByYear.length()];
+        for (int i = 0; i < deathCounts.length; i++) {
+            deathCounts[i] = deathsByYear.get(i);
+        }
+        
+        return new Demographics(date, population, ageCounts, deathCounts);
+    }
+    
+    @Override
+    public void addressAdded(Person person, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+        recount(person);
+    }
+    
+    @Override
+    public void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        recount(addressInfo.getResident());
+    }
+    
+    @Override
+    public void addressesReplaced(Person person) {
+        recount(person);
+    }
+    
+    @Override
+    public void timeOfBirthChanged(Person person, LocalDate oldTimeOfBirth) {
+        recount(person);
+    }
+    
+    @Override
+    public void timeOfDeathChanged(Person person, LocalDate oldTimeOfDeath) {
+        recount(person);
+    }
+    
+    private synchronized void recount(Person person) {
+        int deathDay = person.getDeathDay();
+        int birthDay = person.getBirthDay();
+        AddressInfo current = person.findCurrentAddress();
+        boolean alive = deathDay == EpochDay.NONE;
+        Keys keys = new Keys(alive, alive && current != null ? current.getAddress().getAreaCode() : null,
+                alive && birthDay != EpochDay.NONE ? birthDayIndex(birthDay) : NONE,
+                alive ? NONE : Demographics.deathIndex(EpochDay.yearOf(deathDay)));
+        Keys old = counted.put(person, keys);
+        update(old != null ? old : NOT_COUNTED, keys);
+    }
+    
+    private void update(Keys old, Keys keys) {
+        if (old.alive() != keys.alive()) {
+            living.add(keys.alive() ? 1 : -1);
+        }
+        
+        if (old.areaCode() != null && !old.areaCode().equals(keys.areaCode())) {
+            populationByAreaCode.get(old.areaCode()).decrement();
+        }
+        
+        if (keys.areaCode() != null && !keys.areaCode().equals(old.areaCode())) {
+            populationByAreaCode.computeIfAbsent(keys.areaCode(), a -> new LongAdder()).increment();
+        }
+        
+        if (old.birthDay() != keys.birthDay()) {
+            if (old.birthDay() != NONE) {
+                livingByBirthDay.decrementAndGet(old.birthDay());
+            }
+            
+            if (keys.birthDay() != NONE) {
+                livingByBirthDay.incrementAndGet(keys.birthDay());
+            }
+        }
+        
+        if (old.deathYear() != keys.deathYear()) {
+            if (old.deathYear() != NONE) {
+                deathsByYear.decrementAndGet(old.deathYear());
+            }
+            
+            if (keys.deathYear() != NONE) {
+                deathsByYear.incrementAndGet(keys.deathYear());
+            }
+        }
+    }
+    
+    private static int birthDayIndex(int birthDay) {
+        long day = (long) birthDay - FIRST_DAY;
+        
+        return (int) Math.max(0l, Math.min(day, DAYS - 1l));
+    }
+}
@@ -0,0 +1,328 @@
+package app.populationinfo.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.Person;
+
+/**
+ * Imports persons and their address histories from an extract in bulk.
+ * 
+ * <p>The extract is read as a stream of lines by the calling thread and handed over in batches to
+ * parsers running on virtual threads. Parsed records are routed by identity code to partitions, so
+ * all records of a person end up in the same partition whatever their order in the extract. Once the
+ * extract has been read, each partition sorts the moves of every person once and builds the address
+ * history in one pass, instead of closing the previous address move by move.</p>
+ * 
+ * <p>All hand-overs go through bounded queues, so a slow stage blocks the stages before it and the
+ * memory used by batches in flight stays bounded whatever the size of the extract. Invalid records
+ * are rejected and counted without stopping the import.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class BulkImporter {
+    /**
+     * Maximum number of error descriptions kept in the result.
+     */
+    public static final int MAX_ERRORS = 100;
+    
+    /**
+     * Default number of lines in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    
+    /**
+     * Default number of batches that each queue holds.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    
+    private static final long OFFER_TIMEOUT_MILLIS = 100l;
+    private static final List<String> END_OF_LINES = new ArrayList<>(0);
+    private static final List<ImportRecord> END_OF_RECORDS = new ArrayList<>(0);
+    
+    private final RecordParser parser;
+    private final AddressPool addressPool;
+    private final int parsers;
+    private final int partitions;
+    private final int batchSize;
+    private final int queueCapacity;
+    
+    /**
+     * Constructor with the default settings. Uses a parser and a partition per processor.
+     * 
+     * @param parser parser for the lines of the extract.
+     */
+    public BulkImporter(RecordParser parser) {
+        this(parser, new AddressPool(), Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param parser parser for the lines of the extract.
+     * @param addressPool pool the addresses of the imported histories are interned to.
+     * @param parsers number of parsing threads.
+     * @param partitions number of partitions building the persons.
+     * @param batchSize number of lines in a batch.
+     * @param queueCapacity number of batches that each queue holds.
+     */
+    public BulkImporter(RecordParser parser, AddressPool addressPool, int parsers, int partitions, int batchSize,
+            int queueCapacity) {
+        if (parsers < 1 || partitions < 1 || batchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Parsers, partitions, batch size and queue capacity must be positive");
+        }
+        
+        this.parser = parser;
+        this.addressPool = addressPool;
+        this.parsers = parsers;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+    
+    /**
+     * Imports an extract file encoded in UTF-8.
+     * 
+     * @param file extract to be imported.
+     * @return result of the import.
+     * @throws IOException if reading the file fails.
+     */
+    public ImportResult importFrom(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader);
+        }
+    }
+    
+    /**
+     * Imports an extract from a reader. Blank lines are skipped.
+     * 
+     * @param reader reader of the extract.
+     * @return result of the import.
+     * @throws IOException if reading fails.
+     */
+    public ImportResult importFrom(BufferedReader reader) throws IOException {
+        Import current = new Import();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> parserTasks = new ArrayList<>(parsers);
+            for (int i = 0; i < parsers; i++) {
+                parserTasks.add(executor.submit(current::parse));
+            }
+            
+            List<Future<List<Person>>> partitionTasks = new ArrayList<>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                int partition = i;
+                partitionTasks.add(executor.submit(() -> current.build(partition)));
+            }
+            
+            long records = 0;
+            List<String> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                
+                batch.add(line);
+                records++;
+                if (batch.size() == batchSize) {
+                    current.put(current.lines, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            
+            if (!batch.isEmpty()) {
+                current.put(current.lines, batch);
+            }
+            
+            for (int i = 0; i < parsers; i++) {
+                current.put(current.lines, END_OF_LINES);
+            }
+            
+            for (Future<?> task : parserTasks) {
+                task.get();
+            }
+            
+            for (BlockingQueue<List<ImportRecord>> queue : current.records) {
+                current.put(queue, END_OF_RECORDS);
+            }
+            
+            List<Person> persons = new ArrayList<>();
+            for (Future<List<Person>> task : partitionTasks) {
+                persons.addAll(task.get());
+            }
+            
+            return new ImportResult(persons, records, current.rejected.get(), current.errors);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * State of a single import: the queues between the stages and the rejected records.
+     */
+    private final class Import {
+        private final BlockingQueue<List<String>> lines = new ArrayBlockingQueue<>(queueCapacity);
+        private final List<BlockingQueue<List<ImportRecord>>> records = new ArrayList<>(partitions);
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = new ArrayList<>();
+        private volatile Throwable failure;
+        
+        private Import() {
+            for (int i = 0; i < partitions; i++) {
+                records.add(new ArrayBlockingQueue<>(queueCapacity));
+            }
+        }
+        
+        private Void parse() throws InterruptedException {
+            try {
+                List<String> batch;
+                while ((batch = lines.take()) != END_OF_LINES) {
+                    List<List<ImportRecord>> routed = new ArrayList<>(partitions);
+                    for (int i = 0; i < partitions; i++) {
+                        routed.add(null);
+                    }
+                    
+                    for (String line : batch) {
+                        try {
+                            ImportRecord record = parser.parse(line);
+                            int partition = Math.floorMod(record.identityCode().hashCode(), partitions);
+                            if (routed.get(partition) == null) {
+                                routed.set(partition, new ArrayList<>(2 * batch.size() / partitions + 1));
+                            }
+                            routed.get(partition).add(record);
+                        } catch (IllegalArgumentException e) {
+                            reject(e.getMessage());
+                        }
+                    }
+                    
+                    for (int i = 0; i < partitions; i++) {
+                        if (routed.get(i) != null) {
+                            put(records.get(i), routed.get(i));
+                        }
+                    }
+                }
+                
+                return null;
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            }
+        }
+        
+        private List<Person> build(int partition) throws InterruptedException {
+            try {
+                Map<String, PendingPerson> pending = new HashMap<>();
+                List<ImportRecord> batch;
+                while ((batch = records.get(partition).take()) != END_OF_RECORDS) {
+                    for (ImportRecord record : batch) {
+                        PendingPerson pendingPerson = pending.computeIfAbsent(record.identityCode(), c -> new PendingPerson());
+                        switch (record) {
+                            case ImportRecord.PersonRecord p -> {
+                                if (pendingPerson.person != null) {
+                                    reject("Duplicate person: " + p.identityCode());
+                                } else {
+                                    pendingPerson.person = new Person(p.identityCode(), p.firstName(), p.lastName(),
+                                            p.timeOfBirth(), p.timeOfDeath(), new ArrayList<>(2));
+                                }
+                            }
+                            case ImportRecord.MoveRecord m -> pendingPerson.moves.add(m);
+                        }
+                    }
+                }
+                
+                List<Person> persons = new ArrayList<>(pending.size());
+                for (Map.Entry<String, PendingPerson> entry : pending.entrySet()) {
+                    PendingPerson pendingPerson = entry.getValue();
+                    if (pendingPerson.person == null) {
+                        for (int i = 0; i < pendingPerson.moves.size(); i++) {
+                            reject("Move of an unknown person: " + entry.getKey());
+                        }
+                    } else {
+                        pendingPerson.person.setAddresses(buildHistory(pendingPerson.person, pendingPerson.moves));
+                        persons.add(pendingPerson.person);
+                    }
+                }
+                
+                return persons;
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            }
+        }
+        
+        private List<AddressInfo> buildHistory(Person person, List<ImportRecord.MoveRecord> moves) {
+            moves.sort(Comparator.comparing(ImportRecord.MoveRecord::moveInDate));
+            
+            // Newest first, each address closed on the day before the next move unless the extract says otherwise.
+            List<AddressInfo> history = new ArrayList<>(moves.size());
+            LocalDate nextMoveInDate = null;
+            for (int i = moves.size() - 1; i >= 0; i--) {
+                ImportRecord.MoveRecord move = moves.get(i);
+                LocalDate moveOutDate = move.moveOutDate();
+                if (moveOutDate == null && nextMoveInDate != null) {
+                    moveOutDate = nextMoveInDate.minusDays(1l);
+                }
+                
+                history.add(new AddressInfo(addressPool.intern(move.addressName(), move.areaCode()), person,
+                        move.moveInDate(), moveOutDate));
+                nextMoveInDate = move.moveInDate();
+            }
+            
+            return history;
+        }
+        
+        private <T> void put(BlockingQueue<T> queue, T batch) throws InterruptedException {
+            while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure != null) {
+                    throw new IllegalStateException("Import failed", failure);
+                }
+            }
+        }
+        
+        private void reject(String error) {
+            rejected.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(error);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Records of a person collected by a partition.
+     */
+    private static final class PendingPerson {
+        private Person person;
+        private final List<ImportRecord.MoveRecord> moves = new ArrayList<>(4);
+    }
+}
@@ -0,0 +1,106 @@
+package app.populationinfo.bulk;
+
+import java.time.LocalDate;
+
+/**
+ * Parser for delimited extracts, such as CSV files. The first field of a line tells the type of
+ * the record:
+ * 
+ * <pre>
+ * P;identityCode;firstName;lastName;timeOfBirth;timeOfDeath
+ * A;identityCode;addressName;areaCode;moveInDate;moveOutDate
+ * </pre>
+ * 
+ * <p>Dates are written as yyyy-MM-dd or yyyyMMdd, and empty or missing trailing date fields are
+ * null. Fields are not quoted, so the delimiter must not appear in the values.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class DelimitedRecordParser implements RecordParser {
+    /**
+     * Default delimiter.
+     */
+    public static final char DEFAULT_DELIMITER = ';';
+    
+    private static final int MAX_FIELDS = 6;
+    
+    private final char delimiter;
+    
+    /**
+     * Constructor with the default delimiter.
+     */
+    public DelimitedRecordParser() {
+        this(DEFAULT_DELIMITER);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param delimiter delimiter between the fields.
+     */
+    public DelimitedRecordParser(char delimiter) {
+        this.delimiter = delimiter;
+    }
+    
+    @Override
+    public ImportRecord parse(String line) {
+        // Start indices of the fields, with the end of the line as the start of a field past the last one.
+        int[] starts = new int[MAX_FIELDS + 1];
+        int fields = 1;
+        for (int i = 0; i < line.length() && fields < MAX_FIELDS; i++) {
+            if (line.charAt(i) == delimiter) {
+                starts[fields++] = i + 1;
+            }
+        }
+        
+        int end = line.length();
+        for (int i = fields; i <= MAX_FIELDS; i++) {
+            starts[i] = end + 1;
+        }
+        
+        if (fields < 5) {
+            throw new IllegalArgumentException("Too few fields: " + line);
+        }
+        
+        String identityCode = field(line, starts, 1);
+        if (identityCode.isEmpty()) {
+            throw new IllegalArgumentException("Missing identity code: " + line);
+        }
+        
+        String type = field(line, starts, 0);
+        switch (type) {
+            case "P":
+                return new ImportRecord.PersonRecord(identityCode, field(line, starts, 2), field(line, starts, 3),
+                        date(line, starts, 4), date(line, starts, 5));
+            case "A":
+                return new ImportRecord.MoveRecord(identityCode, field(line, starts, 2), field(line, starts, 3),
+                        requireDate(date(line, starts, 4), line), date(line, starts, 5));
+            default:
+                throw new IllegalArgumentException("Unknown record type: " + line);
+        }
+    }
+    
+    private static String field(String line, int[] starts, int index) {
+        int start = Math.min(starts[index], line.length());
+        int end = Math.min(starts[index + 1] - 1, line.length());
+        
+        return line.substring(start, end);
+    }
+    
+    private static LocalDate date(String line, int[] starts, int index) {
+        int start = Math.min(starts[index], line.length());
+        int end = Math.min(starts[index + 1] - 1, line.length());
+        
+        return RecordParser.parseDate(line, start, end);
+    }
+    
+    static LocalDate requireDate(LocalDate date, String line) {
+        if (date == null) {
+            throw new IllegalArgumentException("Missing move in date: " + line);
+        }
+        
+        return date;
+    }
+}
@@ -0,0 +1,76 @@
+package app.populationinfo.bulk;
+
+import java.time.LocalDate;
+
+/**
+ * Parser for fixed-width extracts. The first character of a line tells the type of the record and
+ * the fields follow at fixed columns, padded with spaces:
+ * 
+ * <pre>
+ * P  identityCode 11, firstName 30, lastName 30, timeOfBirth 8, timeOfDeath 8
+ * A  identityCode 11, addressName 40, areaCode 5, moveInDate 8, moveOutDate 8
+ * </pre>
+ * 
+ * <p>Dates are written as yyyyMMdd, and blank dates are null. Trailing blank fields may be cut off.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class FixedWidthRecordParser implements RecordParser {
+    private static final int IDENTITY_CODE_WIDTH = 11;
+    private static final int NAME_WIDTH = 30;
+    private static final int ADDRESS_NAME_WIDTH = 40;
+    private static final int AREA_CODE_WIDTH = 5;
+    private static final int DATE_WIDTH = 8;
+    
+    @Override
+    public ImportRecord parse(String line) {
+        if (line.isEmpty()) {
+            throw new IllegalArgumentException("Empty line");
+        }
+        
+        int position = 1;
+        String identityCode = field(line, position, IDENTITY_CODE_WIDTH);
+        if (identityCode.isEmpty()) {
+            throw new IllegalArgumentException("Missing identity code: " + line);
+        }
+        
+        position += IDENTITY_CODE_WIDTH;
+        switch (line.charAt(0)) {
+            case 'P': {
+                String firstName = field(line, position, NAME_WIDTH);
+                position += NAME_WIDTH;
+                String lastName = field(line, position, NAME_WIDTH);
+                position += NAME_WIDTH;
+                
+                return new ImportRecord.PersonRecord(identityCode, firstName, lastName,
+                        date(line, position), date(line, position + DATE_WIDTH));
+            }
+            case 'A': {
+                String addressName = field(line, position, ADDRESS_NAME_WIDTH);
+                position += ADDRESS_NAME_WIDTH;
+                String areaCode = field(line, position, AREA_CODE_WIDTH);
+                position += AREA_CODE_WIDTH;
+                
+                return new ImportRecord.MoveRecord(identityCode, addressName, areaCode,
+                        DelimitedRecordParser.requireDate(date(line, position), line),
+                        date(line, position + DATE_WIDTH));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown record type: " + line);
+        }
+    }
+    
+    private static String field(String line, int start, int width) {
+        int end = Math.min(start + width, line.length());
+        
+        return start < end ? line.substring(start, end).strip() : "";
+    }
+    
+    private static LocalDate date(String line, int start) {
+        int end = Math.min(start + DATE_WIDTH, line.length());
+        
+        return start < end ? RecordParser.parseDate(line, start, end) : null;
+    }
+}
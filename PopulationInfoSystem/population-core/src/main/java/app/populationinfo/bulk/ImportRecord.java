@@ -0,0 +1,46 @@
+package app.populationinfo.bulk;
+
+import java.time.LocalDate;
+
+/**
+ * Parsed record of a population extract. An extract has one person record for every person and
+ * one move record for every address in the address histories, in any order.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public sealed interface ImportRecord {
+    
+    /**
+     * @return identity code of the person the record belongs to.
+     */
+    String identityCode();
+    
+    /**
+     * Record of a person.
+     * 
+     * @param identityCode identity code of the person.
+     * @param firstName first name of the person.
+     * @param lastName last name of the person.
+     * @param timeOfBirth date of birth.
+     * @param timeOfDeath date of death, null if the person is alive.
+     */
+    record PersonRecord(String identityCode, String firstName, String lastName,
+            LocalDate timeOfBirth, LocalDate timeOfDeath) implements ImportRecord {
+    }
+    
+    /**
+     * Record of a move to an address.
+     * 
+     * @param identityCode identity code of the person moving.
+     * @param addressName name of the address.
+     * @param areaCode area code of the address.
+     * @param moveInDate date of moving in.
+     * @param moveOutDate date of moving out, null if it is the day before the next move or the
+     * address is current.
+     */
+    record MoveRecord(String identityCode, String addressName, String areaCode,
+            LocalDate moveInDate, LocalDate moveOutDate) implements ImportRecord {
+    }
+}
@@ -0,0 +1,64 @@
+package app.populationinfo.bulk;
+
+import java.util.Collections;
+import java.util.List;
+
+import app.populationinfo.model.Person;
+
+/**
+ * Result of a bulk import.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ImportResult {
+    private final List<Person> persons;
+    private final long records;
+    private final long rejectedRecords;
+    private final List<String> errors;
+    
+    /**
+     * Constructor.
+     * 
+     * @param persons imported persons.
+     * @param records number of records read.
+     * @param rejectedRecords number of records that were not imported.
+     * @param errors descriptions of the first rejected records.
+     */
+    ImportResult(List<Person> persons, long records, long rejectedRecords, List<String> errors) {
+        this.persons = Collections.unmodifiableList(persons);
+        this.records = records;
+        this.rejectedRecords = rejectedRecords;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+    
+    /**
+     * @return imported persons with their address histories.
+     */
+    public List<Person> getPersons() {
+        return persons;
+    }
+    
+    /**
+     * @return number of records read.
+     */
+    public long getRecords() {
+        return records;
+    }
+    
+    /**
+     * @return number of records that were not imported because they were invalid, duplicates or
+     * moves of unknown persons.
+     */
+    public long getRejectedRecords() {
+        return rejectedRecords;
+    }
+    
+    /**
+     * @return descriptions of the first rejected records, at most {@link BulkImporter#MAX_ERRORS}.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
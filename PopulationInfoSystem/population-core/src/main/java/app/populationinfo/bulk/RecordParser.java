@@ -0,0 +1,78 @@
+package app.populationinfo.bulk;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Parser for the lines of a population extract. Parsers are stateless and shared by the parsing
+ * threads of the {@link BulkImporter}.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public interface RecordParser {
+    
+    /**
+     * Parses a line of an extract.
+     * 
+     * @param line line to be parsed.
+     * @return parsed record.
+     * @throws IllegalArgumentException if the line is not a valid record.
+     */
+    ImportRecord parse(String line);
+    
+    /**
+     * Parses a date from a part of a string. Both the ISO format yyyy-MM-dd and the compact
+     * format yyyyMMdd are accepted. Parsing the digits directly avoids the formatter machinery,
+     * which dominates the cost of parsing a record otherwise.
+     * 
+     * @param text text containing the date.
+     * @param start start index of the date.
+     * @param end end index of the date, exclusive.
+     * @return parsed date, null if the part is blank.
+     * @throws IllegalArgumentException if the part is not a valid date.
+     */
+    static LocalDate parseDate(String text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        
+        if (start == end) {
+            return null;
+        }
+        
+        int length = end - start;
+        boolean iso = length == 10 && text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-';
+        if (!iso && length != 8) {
+            throw new IllegalArgumentException("Invalid date: " + text.substring(start, end));
+        }
+        
+        int monthStart = iso ? start + 5 : start + 4;
+        int dayStart = iso ? start + 8 : start + 6;
+        try {
+            return LocalDate.of(parseDigits(text, start, start + 4), parseDigits(text, monthStart, monthStart + 2),
+                    parseDigits(text, dayStart, dayStart + 2));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + text.substring(start, end), e);
+        }
+    }
+    
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid date: " + text);
+            }
+            
+            value = value * 10 + digit;
+        }
+        
+        return value;
+    }
+}
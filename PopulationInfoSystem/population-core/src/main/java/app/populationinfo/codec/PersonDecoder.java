@@ -0,0 +1,174 @@
+package app.populationinfo.codec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+
+/**
+ * Decodes persons encoded with a {@link PersonEncoder}. Records are decoded straight from the
+ * buffer into persons and their address infos. The decoder must see the records of a stream in
+ * the order they were encoded, as they refer to the strings, addresses and persons of the earlier
+ * records.
+ * 
+ * <p>The decoder keeps the decoded persons for the parent references of the later records. The
+ * decoder is not thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class PersonDecoder {
+    private final AddressPool addressPool;
+    private final Function<String, Person> parents;
+    private final List<String> strings = new ArrayList<>();
+    private final List<Address> addresses = new ArrayList<>();
+    private final List<Person> persons = new ArrayList<>();
+    
+    /**
+     * Constructor. Addresses are interned in a pool of the decoder and parents outside the
+     * stream are references holding only the identity code.
+     */
+    public PersonDecoder() {
+        this(new AddressPool(), identityCode -> new Person(identityCode, null, null, null, null));
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param addressPool pool the decoded addresses are interned in.
+     * @param parents resolves the parents that were not encoded before their children, by identity code.
+     */
+    public PersonDecoder(AddressPool addressPool, Function<String, Person> parents) {
+        this.addressPool = addressPool;
+        this.parents = parents;
+    }
+    
+    /**
+     * Decodes the record at the position of the buffer. The position is moved past the record if
+     * the record is complete, otherwise it is left unchanged.
+     * 
+     * @param buffer buffer to read from.
+     * @return decoded person, null if the buffer ends before the record is complete.
+     * @throws IllegalArgumentException if the record is malformed.
+     */
+    public Person decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        int length = Varints.peekUnsigned(buffer, start);
+        if (length < 0 || buffer.remaining() - Varints.lengthOf(length) < length) {
+            return null;
+        }
+        
+        buffer.position(start + Varints.lengthOf(length));
+        int end = buffer.position() + length;
+        int limit = buffer.limit();
+        Person person;
+        try {
+            buffer.limit(end);
+            person = decodeBody(buffer);
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Malformed person record at " + start);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed person record at " + start, e);
+        } finally {
+            buffer.limit(limit);
+        }
+        
+        buffer.position(end);
+        persons.add(person);
+        
+        return person;
+    }
+    
+    /**
+     * @return number of records decoded so far.
+     */
+    public int size() {
+        return persons.size();
+    }
+    
+    private Person decodeBody(ByteBuffer buffer) {
+        String identityCode = Varints.getString(buffer);
+        String firstName = getReference(buffer);
+        String lastName = getReference(buffer);
+        int birthDay = Varints.getDay(buffer);
+        int deathDay = Varints.getDay(buffer);
+        
+        int parentCount = Varints.getUnsigned(buffer);
+        List<Person> personParents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            int id = Varints.getUnsigned(buffer);
+            personParents.add(id > 0 ? persons.get(id - 1) : parents.apply(Varints.getString(buffer)));
+        }
+        
+        Person person = new Person(identityCode, firstName, lastName, EpochDay.toLocalDate(birthDay),
+                EpochDay.toLocalDate(deathDay), personParents);
+        
+        int historySize = Varints.getUnsigned(buffer);
+        if (historySize > 0) {
+            Address[] historyAddresses = new Address[historySize];
+            int[] moveInDays = new int[historySize];
+            int[] moveOuts = new int[historySize];
+            int moveInDay = 0;
+            for (int i = 0; i < historySize; i++) {
+                historyAddresses[i] = getAddress(buffer);
+                moveInDay += Varints.getSigned(buffer);
+                moveInDays[i] = moveInDay;
+                moveOuts[i] = Varints.getUnsigned(buffer);
+            }
+            
+            AddressInfo[] history = new AddressInfo[historySize];
+            for (int i = 0; i < historySize; i++) {
+                int moveOutDay = switch (moveOuts[i]) {
+                    case 0 -> EpochDay.OPEN;
+                    case 1 -> i + 1 < historySize ? moveInDays[i + 1] - 1 : EpochDay.OPEN;
+                    default -> moveInDays[i] + (((moveOuts[i] - 2) >>> 1) ^ -((moveOuts[i] - 2) & 1));
+                };
+                history[historySize - 1 - i] = new AddressInfo(historyAddresses[i], person, moveInDays[i], moveOutDay);
+            }
+            person.setAddresses(List.of(history));
+        }
+        
+        return person;
+    }
+    
+    private String getReference(ByteBuffer buffer) {
+        int reference = Varints.getUnsigned(buffer);
+        if (reference == 0) {
+            return null;
+        }
+        
+        if (reference == 1) {
+            String value = Varints.getString(buffer);
+            strings.add(value);
+            
+            return value;
+        }
+        
+        return strings.get(reference - 2);
+    }
+    
+    private Address getAddress(ByteBuffer buffer) {
+        int id = Varints.getUnsigned(buffer);
+        if (id < addresses.size()) {
+            return addresses.get(id);
+        }
+        
+        if (id > addresses.size()) {
+            throw new IllegalArgumentException("Unknown address " + id);
+        }
+        
+        Address address = addressPool.intern(Varints.getString(buffer), getReference(buffer));
+        addresses.add(address);
+        
+        return address;
+    }
+}
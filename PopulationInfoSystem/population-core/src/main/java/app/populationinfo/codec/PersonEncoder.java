@@ -0,0 +1,198 @@
+package app.populationinfo.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+
+/**
+ * Encodes persons with their address histories into a compact binary stream, decoded with
+ * {@link PersonDecoder}. Every person is a record:
+ * 
+ * <pre>
+ * varint  length of the rest of the record
+ * string  identity code
+ * ref     first name
+ * ref     last name
+ * day     time of birth
+ * day     time of death
+ * varint  number of parents, each a reference to an earlier person of the stream
+ * varint  number of address infos, oldest first, each:
+ *   varint  address id
+ *   svarint move in day, as the difference to the previous move in day
+ *   varint  0 for no move out date, 1 for the day before the next move in day, otherwise
+ *           2 + the zigzag encoded difference of the move out and move in days
+ * </pre>
+ * 
+ * <p>Varints are described in {@link Varints}. A day is 0 for no date and the zigzag encoded
+ * epoch day plus one otherwise. A string is its UTF-8 length plus one followed by the bytes, null
+ * as 0.</p>
+ * 
+ * <p>Names and area codes are interned in a string table of the stream: a string reference is
+ * n + 2 for the nth string of the table, 1 followed by a string for a string added to the table,
+ * and 0 for null. Addresses are interned in an address table the same way, an address id one past
+ * the end of the table is followed by the name string and the area code reference of a new
+ * address. A parent is referred to by the position of its latest record in the stream plus one
+ * if it was encoded earlier, otherwise by 0 followed by its identity code. Every record takes a
+ * position, also a record of a person encoded again. The resident of an address info is the person of the record, so
+ * the back-references between persons and address infos are never written.</p>
+ * 
+ * <p>The tables grow with the stream, so an encoder must be paired with a single decoder that
+ * decodes the records in the same order. The encoder is not thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class PersonEncoder {
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringOrder = new ArrayList<>();
+    private final Map<Address, Integer> addresses = new HashMap<>();
+    private final List<Address> addressOrder = new ArrayList<>();
+    private final Map<Person, Integer> persons = new HashMap<>();
+    private int position;
+    
+    /**
+     * Encodes a person at the position of the buffer. The position is moved past the record.
+     * 
+     * @param person person to be encoded.
+     * @param buffer buffer to write to.
+     * @throws BufferOverflowException if the record doesn't fit into the buffer. The position of
+     * the buffer and the tables of the stream are left as they were, so the person can be encoded
+     * again into another buffer.
+     */
+    public void encode(Person person, ByteBuffer buffer) {
+        int start = buffer.position();
+        int stringCount = stringOrder.size();
+        int addressCount = addressOrder.size();
+        try {
+            if (!buffer.hasRemaining()) {
+                throw new BufferOverflowException();
+            }
+            
+            // Most records are shorter than 128 bytes and need a single byte for the length.
+            buffer.position(start + 1);
+            synchronized (person) {
+                encodeBody(person, buffer);
+            }
+            
+            int length = buffer.position() - start - 1;
+            int lengthLength = Varints.lengthOf(length);
+            if (lengthLength > 1) {
+                if (buffer.limit() - buffer.position() < lengthLength - 1) {
+                    throw new BufferOverflowException();
+                }
+                for (int i = buffer.position() - 1; i > start; i--) {
+                    buffer.put(i + lengthLength - 1, buffer.get(i));
+                }
+            }
+            
+            buffer.position(start);
+            Varints.putUnsigned(buffer, length);
+            buffer.position(start + lengthLength + length);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            rollback(stringCount, addressCount);
+            throw e;
+        }
+        
+        // Every record takes a position like in the decoder, also a person encoded again.
+        persons.put(person, position++);
+    }
+    
+    /**
+     * @return number of records encoded so far.
+     */
+    public int size() {
+        return position;
+    }
+    
+    private void encodeBody(Person person, ByteBuffer buffer) {
+        Varints.putString(buffer, person.getIdentityCode());
+        putReference(buffer, person.getFirstName());
+        putReference(buffer, person.getLastName());
+        Varints.putDay(buffer, person.getBirthDay());
+        Varints.putDay(buffer, person.getDeathDay());
+        
+        List<Person> parents = person.getParents();
+        Varints.putUnsigned(buffer, parents.size());
+        for (Person parent : parents) {
+            Integer id = persons.get(parent);
+            if (id != null) {
+                Varints.putUnsigned(buffer, id + 1);
+            } else {
+                buffer.put((byte) 0);
+                Varints.putString(buffer, parent.getIdentityCode());
+            }
+        }
+        
+        List<AddressInfo> history = person.getAddresses();
+        Varints.putUnsigned(buffer, history.size());
+        int previousMoveInDay = 0;
+        for (int i = history.size() - 1; i >= 0; i--) {
+            AddressInfo addressInfo = history.get(i);
+            putAddress(buffer, addressInfo.getAddress());
+            Varints.putSigned(buffer, addressInfo.getMoveInDay() - previousMoveInDay);
+            previousMoveInDay = addressInfo.getMoveInDay();
+            
+            int moveOutDay = addressInfo.getMoveOutDay();
+            if (moveOutDay == EpochDay.OPEN) {
+                buffer.put((byte) 0);
+            } else if (i > 0 && moveOutDay == history.get(i - 1).getMoveInDay() - 1) {
+                buffer.put((byte) 1);
+            } else {
+                int difference = moveOutDay - previousMoveInDay;
+                Varints.putUnsigned(buffer, ((difference << 1) ^ (difference >> 31)) + 2);
+            }
+        }
+    }
+    
+    private void putReference(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        
+        Integer id = strings.get(value);
+        if (id != null) {
+            Varints.putUnsigned(buffer, id + 2);
+            return;
+        }
+        
+        buffer.put((byte) 1);
+        Varints.putString(buffer, value);
+        strings.put(value, stringOrder.size());
+        stringOrder.add(value);
+    }
+    
+    private void putAddress(ByteBuffer buffer, Address address) {
+        Integer id = addresses.get(address);
+        if (id != null) {
+            Varints.putUnsigned(buffer, id);
+            return;
+        }
+        
+        Varints.putUnsigned(buffer, addressOrder.size());
+        Varints.putString(buffer, address.getName());
+        putReference(buffer, address.getAreaCode());
+        addresses.put(address, addressOrder.size());
+        addressOrder.add(address);
+    }
+    
+    private void rollback(int stringCount, int addressCount) {
+        while (stringOrder.size() > stringCount) {
+            strings.remove(stringOrder.remove(stringOrder.size() - 1));
+        }
+        
+        while (addressOrder.size() > addressCount) {
+            addresses.remove(addressOrder.remove(addressOrder.size() - 1));
+        }
+    }
+}
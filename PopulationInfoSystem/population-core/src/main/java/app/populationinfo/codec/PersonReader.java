@@ -0,0 +1,103 @@
+package app.populationinfo.codec;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import app.populationinfo.model.Person;
+
+/**
+ * Reads persons encoded with a {@link PersonEncoder} from a channel, one person at a time, so that
+ * large batches can be read without holding all of their bytes in memory. The channel is read in
+ * chunks into a buffer that grows only if a single record doesn't fit into it.
+ * 
+ * <p>Failures to read the channel are thrown as {@link UncheckedIOException}s, a stream ending in
+ * the middle of a record as one caused by an {@link EOFException}.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PersonReader implements Iterator<Person>, Closeable {
+    /**
+     * Default size of the read buffer in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final ReadableByteChannel channel;
+    private final PersonDecoder decoder;
+    private ByteBuffer buffer;
+    private Person next;
+    private boolean endOfStream;
+    
+    /**
+     * Constructor.
+     * 
+     * @param channel channel to read from.
+     * @param decoder decoder of the stream.
+     */
+    public PersonReader(ReadableByteChannel channel, PersonDecoder decoder) {
+        this.channel = channel;
+        this.decoder = decoder;
+        this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE).flip();
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            next = decoder.decode(buffer);
+            if (next != null) {
+                break;
+            }
+            
+            if (endOfStream) {
+                if (buffer.hasRemaining()) {
+                    throw new UncheckedIOException(new EOFException("Stream ends in the middle of a person record"));
+                }
+                
+                return false;
+            }
+            
+            fill();
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public Person next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        
+        Person person = next;
+        next = null;
+        
+        return person;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private void fill() {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+        }
+        
+        try {
+            endOfStream = channel.read(buffer) < 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package app.populationinfo.codec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import app.populationinfo.model.EpochDay;
+
+/**
+ * Variable length integers of the person codec. Values are written seven bits per byte, lowest
+ * bits first, with the high bit set on every byte but the last. Signed values are zigzag encoded
+ * first, so that small negative values stay short as well.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class Varints {
+    /**
+     * Maximum number of bytes of an encoded int.
+     */
+    static final int MAX_INT_LENGTH = 5;
+    
+    private Varints() {
+    }
+    
+    static void putUnsigned(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    static int getUnsigned(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        
+        throw new IllegalArgumentException("Malformed varint");
+    }
+    
+    /**
+     * Reads an unsigned value at an index without moving the position.
+     * 
+     * @return the value, -1 if the buffer ends before the value does.
+     */
+    static int peekUnsigned(ByteBuffer buffer, int index) {
+        int value = 0;
+        for (int shift = 0; shift < 35 && index < buffer.limit(); shift += 7) {
+            byte b = buffer.get(index++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        
+        if (index >= buffer.limit()) {
+            return -1;
+        }
+        
+        throw new IllegalArgumentException("Malformed varint");
+    }
+    
+    static int lengthOf(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+    
+    static void putSigned(ByteBuffer buffer, int value) {
+        putUnsigned(buffer, (value << 1) ^ (value >> 31));
+    }
+    
+    static int getSigned(ByteBuffer buffer) {
+        int value = getUnsigned(buffer);
+        
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /**
+     * Writes an epoch day, 0 for {@link EpochDay#NONE} and the zigzag encoded day plus one otherwise.
+     */
+    static void putDay(ByteBuffer buffer, int day) {
+        putUnsigned(buffer, day == EpochDay.NONE ? 0 : ((day << 1) ^ (day >> 31)) + 1);
+    }
+    
+    static int getDay(ByteBuffer buffer) {
+        int value = getUnsigned(buffer);
+        if (value == 0) {
+            return EpochDay.NONE;
+        }
+        
+        return ((value - 1) >>> 1) ^ -((value - 1) & 1);
+    }
+    
+    /**
+     * Writes a string as its UTF-8 length plus one followed by the UTF-8 bytes, null as 0.
+     */
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        
+        if (ascii) {
+            putUnsigned(buffer, length + 1);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putUnsigned(buffer, bytes.length + 1);
+            buffer.put(bytes);
+        }
+    }
+    
+    static String getString(ByteBuffer buffer) {
+        int length = getUnsigned(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        return value;
+    }
+}
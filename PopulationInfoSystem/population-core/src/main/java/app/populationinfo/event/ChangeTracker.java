@@ -0,0 +1,287 @@
+package app.populationinfo.event;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Tracks which persons and which parts of them have changed, so that consumers of the population
+ * can take only the changes since their previous export instead of the whole population.
+ * 
+ * <p>Every change of a tracked person gets the next version number of the tracker. The changed
+ * persons are kept in the order of their latest change, so {@link #export(long, Consumer)} walks
+ * back from the latest change and stops at the first person not changed since the asked version.
+ * Exporting costs time in proportion to the number of changed persons, not the population. A
+ * consumer stores the returned version as its watermark and asks for the changes since it the
+ * next time.</p>
+ * 
+ * <p>Deltas hold the state of the changed parts at export time. A change made during an export may
+ * already be in the exported deltas and is exported again since the returned version, so
+ * consumers see every change at least once. Changes up to the watermark of every consumer can be
+ * dropped with {@link #discard(long)}. The tracker is thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ChangeTracker implements PersonChangeListener {
+    
+    /**
+     * Versions of the changed parts of a person.
+     */
+    private static final class Dirty {
+        private final long[] versions = new long[PersonDelta.CHANGE_COUNT];
+        private final Map<AddressInfo, Long> addresses = new IdentityHashMap<>();
+        private long version;
+        
+        void mark(int change, long changeVersion) {
+            versions[Integer.numberOfTrailingZeros(change)] = changeVersion;
+            version = changeVersion;
+        }
+        
+        int changesSince(long sinceVersion) {
+            int changes = 0;
+            for (int i = 0; i < versions.length; i++) {
+                if (versions[i] > sinceVersion) {
+                    changes |= 1 << i;
+                }
+            }
+            
+            return changes;
+        }
+    }
+    
+    /**
+     * Changes of a person collected for an export.
+     */
+    private record Pending(Person person, long version, int changes, List<AddressInfo> addresses) {
+    }
+    
+    private final LinkedHashMap<Person, Dirty> dirty = new LinkedHashMap<>();
+    private long version;
+    private long discardedVersion;
+    
+    /**
+     * Starts tracking the changes of a person. The current state of the person is not a change.
+     * 
+     * @param person person to be tracked.
+     */
+    public void track(Person person) {
+        person.addChangeListener(this);
+    }
+    
+    /**
+     * Starts tracking the changes of a new person. The whole person is exported as a change.
+     * 
+     * @param person person to be tracked.
+     */
+    public void trackNew(Person person) {
+        synchronized (person) {
+            mark(person, PersonDelta.CREATED);
+            person.addChangeListener(this);
+        }
+    }
+    
+    /**
+     * Stops tracking the changes of a person. Changes already tracked are still exported.
+     * 
+     * @param person person to be left untracked.
+     * @return true if the person was tracked, otherwise false.
+     */
+    public boolean untrack(Person person) {
+        return person.removeChangeListener(this);
+    }
+    
+    /**
+     * @return version of the latest change.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    /**
+     * @return number of persons with changes that haven't been discarded.
+     */
+    public synchronized int size() {
+        return dirty.size();
+    }
+    
+    /**
+     * Exports the changes since a version, one delta per changed person in the order of their
+     * latest changes.
+     * 
+     * @param sinceVersion version of the previous export, 0 for all the changes.
+     * @param consumer consumer of the deltas.
+     * @return version of the latest exported change, to be given to the next export.
+     */
+    public long export(long sinceVersion, Consumer<? super PersonDelta> consumer) {
+        List<Pending> pending = new ArrayList<>();
+        long exportedVersion;
+        synchronized (this) {
+            exportedVersion = version;
+            sinceVersion = Math.max(sinceVersion, discardedVersion);
+            for (Map.Entry<Person, Dirty> entry : dirty.reversed().entrySet()) {
+                Dirty changes = entry.getValue();
+                if (changes.version <= sinceVersion) {
+                    break;
+                }
+                
+                List<AddressInfo> addresses = new ArrayList<>();
+                for (Map.Entry<AddressInfo, Long> address : changes.addresses.entrySet()) {
+                    if (address.getValue() > sinceVersion) {
+                        addresses.add(address.getKey());
+                    }
+                }
+                pending.add(new Pending(entry.getKey(), changes.version, changes.changesSince(sinceVersion), addresses));
+            }
+        }
+        
+        // Persons are read without holding the tracker, as changes lock the person before the tracker.
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            consumer.accept(toDelta(pending.get(i)));
+        }
+        
+        return exportedVersion;
+    }
+    
+    /**
+     * Drops the changes up to a version. Exports since an older version miss the dropped changes.
+     * 
+     * @param upToVersion version exported by every consumer.
+     */
+    public synchronized void discard(long upToVersion) {
+        Iterator<Dirty> iterator = dirty.values().iterator();
+        while (iterator.hasNext() && iterator.next().version <= upToVersion) {
+            iterator.remove();
+        }
+        
+        discardedVersion = Math.max(discardedVersion, upToVersion);
+    }
+    
+    @Override
+    public synchronized void addressAdded(Person person, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+        Dirty changes = markAddress(person, addressInfo);
+        if (closedAddressInfo != null) {
+            changes.addresses.put(closedAddressInfo, changes.version);
+        }
+    }
+    
+    @Override
+    public synchronized void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        markAddress(addressInfo.getResident(), addressInfo);
+    }
+    
+    @Override
+    public synchronized void addressesReplaced(Person person) {
+        mark(person, PersonDelta.ADDRESSES_REPLACED).addresses.clear();
+    }
+    
+    @Override
+    public synchronized void nameChanged(Person person, String oldFirstName, String oldLastName) {
+        mark(person, PersonDelta.NAME);
+    }
+    
+    @Override
+    public synchronized void timeOfBirthChanged(Person person, LocalDate oldTimeOfBirth) {
+        mark(person, PersonDelta.TIME_OF_BIRTH);
+    }
+    
+    @Override
+    public synchronized void timeOfDeathChanged(Person person, LocalDate oldTimeOfDeath) {
+        mark(person, PersonDelta.TIME_OF_DEATH);
+    }
+    
+    @Override
+    public synchronized void parentAdded(Person person, Person parent) {
+        mark(person, PersonDelta.PARENTS);
+    }
+    
+    @Override
+    public synchronized void parentRemoved(Person person, Person parent) {
+        mark(person, PersonDelta.PARENTS);
+    }
+    
+    @Override
+    public synchronized void parentsReplaced(Person person) {
+        mark(person, PersonDelta.PARENTS);
+    }
+    
+    private synchronized Dirty mark(Person person, int change) {
+        Dirty changes = dirty.get(person);
+        if (changes == null) {
+            changes = new Dirty();
+        }
+        
+        // Moving the person last keeps the persons in the order of their latest change.
+        dirty.putLast(person, changes);
+        changes.mark(change, ++version);
+        
+        return changes;
+    }
+    
+    private Dirty markAddress(Person person, AddressInfo addressInfo) {
+        Dirty changes = mark(person, PersonDelta.ADDRESSES);
+        // Discarding leaves the older address changes of persons changed again, they go here.
+        changes.addresses.values().removeIf(v -> v <= discardedVersion);
+        changes.addresses.put(addressInfo, changes.version);
+        
+        return changes;
+    }
+    
+    private static PersonDelta toDelta(Pending pending) {
+        Person person = pending.person();
+        int changes = pending.changes();
+        if ((changes & PersonDelta.CREATED) != 0) {
+            changes = PersonDelta.CREATED | PersonDelta.NAME | PersonDelta.TIME_OF_BIRTH | PersonDelta.TIME_OF_DEATH
+                    | PersonDelta.PARENTS | PersonDelta.ADDRESSES_REPLACED;
+        }
+        
+        synchronized (person) {
+            boolean name = (changes & PersonDelta.NAME) != 0;
+            List<String> parents = Collections.emptyList();
+            if ((changes & PersonDelta.PARENTS) != 0) {
+                parents = new ArrayList<>(2);
+                for (Person parent : person.getParents()) {
+                    parents.add(parent.getIdentityCode());
+                }
+            }
+            
+            List<PersonDelta.AddressChange> addresses = new ArrayList<>();
+            if ((changes & PersonDelta.ADDRESSES_REPLACED) != 0) {
+                changes &= ~PersonDelta.ADDRESSES;
+                List<AddressInfo> history = person.getAddresses();
+                for (int i = history.size() - 1; i >= 0; i--) {
+                    addresses.add(toAddressChange(history.get(i)));
+                }
+            } else {
+                List<AddressInfo> changed = new ArrayList<>(pending.addresses());
+                changed.sort((a, b) -> Integer.compare(a.getMoveInDay(), b.getMoveInDay()));
+                for (AddressInfo addressInfo : changed) {
+                    addresses.add(toAddressChange(addressInfo));
+                }
+            }
+            
+            return new PersonDelta(person.getIdentityCode(), pending.version(), changes,
+                    name ? person.getFirstName() : null,
+                    name ? person.getLastName() : null,
+                    (changes & PersonDelta.TIME_OF_BIRTH) != 0 ? person.getTimeOfBirth() : null,
+                    (changes & PersonDelta.TIME_OF_DEATH) != 0 ? person.getTimeOfDeath() : null,
+                    parents, addresses);
+        }
+    }
+    
+    private static PersonDelta.AddressChange toAddressChange(AddressInfo addressInfo) {
+        return new PersonDelta.AddressChange(addressInfo.getAddress().getName(), addressInfo.getAddress().getAreaCode(),
+                addressInfo.getMoveInDate(), addressInfo.getMoveOutDate());
+    }
+}
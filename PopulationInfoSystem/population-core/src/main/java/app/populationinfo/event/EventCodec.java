@@ -0,0 +1,260 @@
+package app.populationinfo.event;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of population events. Every event is written as a frame:
+ * 
+ * <pre>
+ * int   length of the payload
+ * byte  type of the event
+ * ...   payload
+ * int   CRC32C of the type and the payload
+ * </pre>
+ * 
+ * <p>Strings are written as an unsigned short length followed by UTF-8 bytes, null as length 0xFFFF.
+ * Dates are written as epoch day ints, null as {@link Integer#MIN_VALUE}. Lists are written as an
+ * int count followed by the elements.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class EventCodec {
+    /**
+     * Bytes of a frame in addition to the payload.
+     */
+    static final int FRAME_OVERHEAD = 9;
+    
+    private static final byte PERSON_ADDED = 1;
+    private static final byte ADDRESS_ADDED = 2;
+    private static final byte MOVE_OUT_DATE_CHANGED = 3;
+    private static final byte TIME_OF_DEATH_CHANGED = 4;
+    private static final byte PARENT_ADDED = 5;
+    private static final byte PARENT_REMOVED = 6;
+    private static final byte NAME_CHANGED = 7;
+    private static final byte TIME_OF_BIRTH_CHANGED = 8;
+    private static final byte ADDRESSES_REPLACED = 9;
+    private static final byte PARENTS_REPLACED = 10;
+    
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NULL_STRING = 0xFFFF;
+    
+    private EventCodec() {
+    }
+    
+    /**
+     * Encodes an event as a frame at the position of the buffer. The position is moved past the frame.
+     * 
+     * @param event event to be encoded.
+     * @param buffer buffer to write to.
+     * @throws java.nio.BufferOverflowException if the frame doesn't fit into the buffer. The
+     * position of the buffer is left unspecified.
+     */
+    static void encode(PopulationEvent event, ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 4) {
+            throw new BufferOverflowException();
+        }
+        buffer.position(start + 4);
+        switch (event) {
+            case PopulationEvent.PersonAdded e -> {
+                buffer.put(PERSON_ADDED);
+                putString(buffer, e.identityCode());
+                putString(buffer, e.firstName());
+                putString(buffer, e.lastName());
+                putDate(buffer, e.timeOfBirth());
+                putDate(buffer, e.timeOfDeath());
+            }
+            case PopulationEvent.AddressAdded e -> {
+                buffer.put(ADDRESS_ADDED);
+                putString(buffer, e.identityCode());
+                putString(buffer, e.addressName());
+                putString(buffer, e.areaCode());
+                putDate(buffer, e.moveInDate());
+            }
+            case PopulationEvent.MoveOutDateChanged e -> {
+                buffer.put(MOVE_OUT_DATE_CHANGED);
+                putString(buffer, e.identityCode());
+                putString(buffer, e.addressName());
+                putString(buffer, e.areaCode());
+                putDate(buffer, e.moveInDate());
+                putDate(buffer, e.moveOutDate());
+            }
+            case PopulationEvent.TimeOfDeathChanged e -> {
+                buffer.put(TIME_OF_DEATH_CHANGED);
+                putString(buffer, e.identityCode());
+                putDate(buffer, e.timeOfDeath());
+            }
+            case PopulationEvent.ParentAdded e -> {
+                buffer.put(PARENT_ADDED);
+                putString(buffer, e.identityCode());
+                putString(buffer, e.parentIdentityCode());
+            }
+            case PopulationEvent.ParentRemoved e -> {
+                buffer.put(PARENT_REMOVED);
+                putString(buffer, e.identityCode());
+                putString(buffer, e.parentIdentityCode());
+            }
+            case PopulationEvent.NameChanged e -> {
+                buffer.put(NAME_CHANGED);
+                putString(buffer, e.identityCode());
+                putString(buffer, e.firstName());
+                putString(buffer, e.lastName());
+            }
+            case PopulationEvent.TimeOfBirthChanged e -> {
+                buffer.put(TIME_OF_BIRTH_CHANGED);
+                putString(buffer, e.identityCode());
+                putDate(buffer, e.timeOfBirth());
+            }
+            case PopulationEvent.AddressesReplaced e -> {
+                buffer.put(ADDRESSES_REPLACED);
+                putString(buffer, e.identityCode());
+                buffer.putInt(e.addresses().size());
+                for (PopulationEvent.Stay stay : e.addresses()) {
+                    putString(buffer, stay.addressName());
+                    putString(buffer, stay.areaCode());
+                    putDate(buffer, stay.moveInDate());
+                    putDate(buffer, stay.moveOutDate());
+                }
+            }
+            case PopulationEvent.ParentsReplaced e -> {
+                buffer.put(PARENTS_REPLACED);
+                putString(buffer, e.identityCode());
+                buffer.putInt(e.parentIdentityCodes().size());
+                for (String parentIdentityCode : e.parentIdentityCodes()) {
+                    putString(buffer, parentIdentityCode);
+                }
+            }
+        }
+        
+        int end = buffer.position();
+        buffer.putInt(start, end - start - 5);
+        buffer.putInt((int) checksum(buffer, start + 4, end));
+    }
+    
+    /**
+     * Decodes the frame at the position of the buffer. The position is moved past the frame if
+     * the frame is complete and valid, otherwise it is left unchanged.
+     * 
+     * @param buffer buffer to read from.
+     * @return decoded event, null if the buffer ends before the frame is complete or the checksum
+     * of the frame doesn't match.
+     */
+    static PopulationEvent decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_OVERHEAD) {
+            return null;
+        }
+        
+        int length = buffer.getInt(start);
+        if (length < 0 || length > buffer.remaining() - FRAME_OVERHEAD) {
+            return null;
+        }
+        
+        int end = start + 5 + length;
+        if (buffer.getInt(end) != (int) checksum(buffer, start + 4, end)) {
+            return null;
+        }
+        
+        ByteBuffer frame = buffer.slice(start + 5, length);
+        PopulationEvent event = switch (buffer.get(start + 4)) {
+            case PERSON_ADDED -> new PopulationEvent.PersonAdded(getString(frame), getString(frame),
+                    getString(frame), getDate(frame), getDate(frame));
+            case ADDRESS_ADDED -> new PopulationEvent.AddressAdded(getString(frame), getString(frame),
+                    getString(frame), getDate(frame));
+            case MOVE_OUT_DATE_CHANGED -> new PopulationEvent.MoveOutDateChanged(getString(frame),
+                    getString(frame), getString(frame), getDate(frame), getDate(frame));
+            case TIME_OF_DEATH_CHANGED -> new PopulationEvent.TimeOfDeathChanged(getString(frame), getDate(frame));
+            case PARENT_ADDED -> new PopulationEvent.ParentAdded(getString(frame), getString(frame));
+            case PARENT_REMOVED -> new PopulationEvent.ParentRemoved(getString(frame), getString(frame));
+            case NAME_CHANGED -> new PopulationEvent.NameChanged(getString(frame), getString(frame), getString(frame));
+            case TIME_OF_BIRTH_CHANGED -> new PopulationEvent.TimeOfBirthChanged(getString(frame), getDate(frame));
+            case ADDRESSES_REPLACED -> new PopulationEvent.AddressesReplaced(getString(frame), getStays(frame));
+            case PARENTS_REPLACED -> new PopulationEvent.ParentsReplaced(getString(frame), getStrings(frame));
+            default -> throw new IllegalArgumentException("Unknown event type " + buffer.get(start + 4));
+        };
+        
+        buffer.position(end + 4);
+        
+        return event;
+    }
+    
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+        
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("String too long for an event: " + bytes.length + " bytes");
+        }
+        
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+    
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static List<PopulationEvent.Stay> getStays(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative number of stays: " + count);
+        }
+        
+        List<PopulationEvent.Stay> stays = new ArrayList<>(Math.min(count, buffer.remaining()));
+        for (int i = 0; i < count; i++) {
+            stays.add(new PopulationEvent.Stay(getString(buffer), getString(buffer), getDate(buffer), getDate(buffer)));
+        }
+        
+        return stays;
+    }
+    
+    private static List<String> getStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative number of strings: " + count);
+        }
+        
+        List<String> strings = new ArrayList<>(Math.min(count, buffer.remaining()));
+        for (int i = 0; i < count; i++) {
+            strings.add(getString(buffer));
+        }
+        
+        return strings;
+    }
+    
+    private static void putDate(ByteBuffer buffer, LocalDate date) {
+        buffer.putInt(date != null ? (int) date.toEpochDay() : NO_DATE);
+    }
+    
+    private static LocalDate getDate(ByteBuffer buffer) {
+        int day = buffer.getInt();
+        
+        return day != NO_DATE ? LocalDate.ofEpochDay(day) : null;
+    }
+    
+    private static long checksum(ByteBuffer buffer, int start, int end) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start, end - start));
+        
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,286 @@
+package app.populationinfo.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of population events. The log is a directory of segment files, each named by the
+ * offset of its first event. Offsets are sequence numbers of the events starting from 0, so a
+ * snapshot of the population only needs to store {@link #getNextOffset()} to be able to continue
+ * from the log with {@link #replay(long, Consumer)}.
+ * 
+ * <p>Appended events are collected into a buffer that is written to the current segment when it
+ * fills up. The segment is forced to the disk after every {@code syncInterval} events, so at most
+ * that many of the latest events can be lost in a crash. A torn frame at the end of the last
+ * segment is cut off when the log is opened.</p>
+ * 
+ * <p>The log is not thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class EventLog implements Closeable {
+    /**
+     * Default number of events between syncs.
+     */
+    public static final int DEFAULT_SYNC_INTERVAL = 4096;
+    
+    /**
+     * Default maximum size of a segment in bytes.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64l * 1024 * 1024;
+    
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    
+    private final Path directory;
+    private final int syncInterval;
+    private final long segmentSize;
+    private final ByteBuffer buffer;
+    private final List<Long> segmentOffsets;
+    
+    private FileChannel segment;
+    private long segmentPosition;
+    private long nextOffset;
+    private int unsyncedEvents;
+    
+    /**
+     * Opens the log in the given directory with the default settings. The directory is created if it
+     * doesn't exist.
+     * 
+     * @param directory directory of the log.
+     * @throws IOException if the log can't be opened.
+     */
+    public EventLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SYNC_INTERVAL, DEFAULT_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Opens the log in the given directory. The directory is created if it doesn't exist.
+     * 
+     * @param directory directory of the log.
+     * @param syncInterval number of appended events after which the log is forced to the disk.
+     * @param segmentSize size in bytes after which a new segment is started.
+     * @throws IOException if the log can't be opened.
+     */
+    public EventLog(Path directory, int syncInterval, long segmentSize) throws IOException {
+        if (syncInterval < 1) {
+            throw new IllegalArgumentException("Sync interval must be positive: " + syncInterval);
+        }
+        
+        if (segmentSize < BUFFER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + BUFFER_SIZE + " bytes");
+        }
+        
+        this.directory = directory;
+        this.syncInterval = syncInterval;
+        this.segmentSize = segmentSize;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.segmentOffsets = findSegments(Files.createDirectories(directory));
+        
+        if (segmentOffsets.isEmpty()) {
+            openSegment(0l);
+        } else {
+            recoverLastSegment();
+        }
+    }
+    
+    /**
+     * Appends an event to the log.
+     * 
+     * @param event event to be appended.
+     * @return offset of the event.
+     * @throws IOException if writing to the log fails.
+     */
+    public long append(PopulationEvent event) throws IOException {
+        int start = buffer.position();
+        try {
+            EventCodec.encode(event, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            flush();
+            start = buffer.position();
+            try {
+                EventCodec.encode(event, buffer);
+            } catch (BufferOverflowException tooLarge) {
+                buffer.clear();
+                throw new IllegalArgumentException("Event too large for the log: " + event.identityCode());
+            }
+        }
+        
+        if (segmentPosition + buffer.position() > segmentSize && segmentPosition > 0) {
+            // The event doesn't fit into the current segment, so the segment is closed before it.
+            int end = buffer.position();
+            buffer.limit(end).position(start);
+            ByteBuffer frame = ByteBuffer.allocate(end - start).put(buffer).flip();
+            buffer.clear().position(start);
+            rollSegment();
+            buffer.put(frame);
+        }
+        
+        if (++unsyncedEvents >= syncInterval) {
+            sync();
+        }
+        
+        return nextOffset++;
+    }
+    
+    /**
+     * Writes the buffered events to the current segment without forcing them to the disk.
+     * 
+     * @throws IOException if writing fails.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentPosition += segment.write(buffer);
+        }
+        
+        buffer.clear();
+    }
+    
+    /**
+     * Writes the buffered events and forces the current segment to the disk.
+     * 
+     * @throws IOException if writing fails.
+     */
+    public void sync() throws IOException {
+        flush();
+        segment.force(false);
+        unsyncedEvents = 0;
+    }
+    
+    /**
+     * Replays events from the log. Buffered events are flushed first so that they are included.
+     * 
+     * @param fromOffset offset of the first event to be replayed, e.g. the offset stored with a snapshot.
+     * @param consumer consumer of the events, called in the order of the log.
+     * @return offset following the last replayed event.
+     * @throws IOException if reading the log fails.
+     */
+    public long replay(long fromOffset, Consumer<? super PopulationEvent> consumer) throws IOException {
+        flush();
+        
+        int first = Collections.binarySearch(segmentOffsets, fromOffset);
+        if (first < 0) {
+            first = Math.max(0, -first - 2);
+        }
+        
+        long offset = segmentOffsets.get(first);
+        for (int i = first; i < segmentOffsets.size(); i++) {
+            offset = segmentOffsets.get(i);
+            ByteBuffer data = read(segmentPath(offset));
+            PopulationEvent event;
+            while ((event = EventCodec.decode(data)) != null) {
+                if (offset >= fromOffset) {
+                    consumer.accept(event);
+                }
+                
+                offset++;
+            }
+        }
+        
+        return Math.max(offset, fromOffset);
+    }
+    
+    /**
+     * @return offset that the next appended event will get.
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+    
+    /**
+     * @return directory of the log.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Syncs the buffered events and closes the log.
+     * 
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (segment.isOpen()) {
+            try {
+                sync();
+            } finally {
+                segment.close();
+            }
+        }
+    }
+    
+    private void recoverLastSegment() throws IOException {
+        long offset = segmentOffsets.get(segmentOffsets.size() - 1);
+        ByteBuffer data = read(segmentPath(offset));
+        while (EventCodec.decode(data) != null) {
+            offset++;
+        }
+        
+        segment = FileChannel.open(segmentPath(segmentOffsets.get(segmentOffsets.size() - 1)), StandardOpenOption.WRITE);
+        if (data.position() < segment.size()) {
+            // A torn frame from a crash during a write, the events in it were never synced.
+            segment.truncate(data.position());
+            segment.force(false);
+        }
+        
+        segmentPosition = data.position();
+        segment.position(segmentPosition);
+        nextOffset = offset;
+    }
+    
+    private void rollSegment() throws IOException {
+        sync();
+        segment.close();
+        openSegment(nextOffset);
+    }
+    
+    private void openSegment(long firstOffset) throws IOException {
+        segment = FileChannel.open(segmentPath(firstOffset), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (segmentOffsets.isEmpty() || segmentOffsets.get(segmentOffsets.size() - 1) != firstOffset) {
+            segmentOffsets.add(firstOffset);
+        }
+        
+        segmentPosition = 0;
+        nextOffset = firstOffset;
+    }
+    
+    private Path segmentPath(long firstOffset) {
+        return directory.resolve(String.format("%020d%s", firstOffset, SEGMENT_SUFFIX));
+    }
+    
+    private static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    private static List<Long> findSegments(Path directory) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                offsets.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        
+        Collections.sort(offsets);
+        
+        return offsets;
+    }
+}
@@ -0,0 +1,155 @@
+package app.populationinfo.event;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Records the changes of persons to an event log. A person is recorded with {@link #record(Person)},
+ * which writes the current state of the person as events and starts listening to the person, so
+ * that every later change is appended to the log as it happens.
+ * 
+ * <p>Failures to write the log are thrown from the changing methods of the person as
+ * {@link UncheckedIOException}s, after the change has been made.</p>
+ * 
+ * <p>Persons may be changed from several threads. Events are appended while holding the lock of
+ * the log, so other users of the log, like a thread flushing or closing it, must hold the lock of
+ * the log as well while the recorder is in use.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class EventRecorder implements PersonChangeListener {
+    private final EventLog log;
+    
+    /**
+     * Constructor.
+     * 
+     * @param log log the events are appended to.
+     */
+    public EventRecorder(EventLog log) {
+        this.log = log;
+    }
+    
+    /**
+     * Records the current state of a person and starts recording the changes of the person.
+     * Parents of the person must have been recorded before the person.
+     * 
+     * @param person person to be recorded.
+     */
+    public void record(Person person) {
+        // Holding the lock of the person keeps changes from slipping in between the state and the listener.
+        synchronized (person) {
+            String identityCode = person.getIdentityCode();
+            append(new PopulationEvent.PersonAdded(identityCode, person.getFirstName(), person.getLastName(),
+                    person.getTimeOfBirth(), person.getTimeOfDeath()));
+            
+            for (Person parent : person.getParents()) {
+                append(new PopulationEvent.ParentAdded(identityCode, parent.getIdentityCode()));
+            }
+            
+            // Replaying the moves closes each address on the day before the next move in date, so only
+            // the move out dates that differ from that need events of their own.
+            List<AddressInfo> addresses = person.getAddresses();
+            for (int i = addresses.size() - 1; i >= 0; i--) {
+                AddressInfo addressInfo = addresses.get(i);
+                Address address = addressInfo.getAddress();
+                append(new PopulationEvent.AddressAdded(identityCode, address.getName(), address.getAreaCode(),
+                        addressInfo.getMoveInDate()));
+            }
+            
+            for (int i = addresses.size() - 1; i >= 0; i--) {
+                AddressInfo addressInfo = addresses.get(i);
+                LocalDate replayedMoveOutDate = i > 0 ? addresses.get(i - 1).getMoveInDate().minusDays(1l) : null;
+                if (!Objects.equals(addressInfo.getMoveOutDate(), replayedMoveOutDate)) {
+                    moveOutDateChanged(addressInfo, replayedMoveOutDate);
+                }
+            }
+            
+            person.addChangeListener(this);
+        }
+    }
+    
+    @Override
+    public void addressAdded(Person person, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+        Address address = addressInfo.getAddress();
+        append(new PopulationEvent.AddressAdded(person.getIdentityCode(), address.getName(), address.getAreaCode(),
+                addressInfo.getMoveInDate()));
+    }
+    
+    @Override
+    public void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        Address address = addressInfo.getAddress();
+        append(new PopulationEvent.MoveOutDateChanged(addressInfo.getResident().getIdentityCode(),
+                address.getName(), address.getAreaCode(), addressInfo.getMoveInDate(),
+                addressInfo.getMoveOutDate()));
+    }
+    
+    @Override
+    public void addressesReplaced(Person person) {
+        List<AddressInfo> addresses = person.getAddresses();
+        List<PopulationEvent.Stay> stays = new ArrayList<>(addresses.size());
+        for (AddressInfo addressInfo : addresses) {
+            Address address = addressInfo.getAddress();
+            stays.add(new PopulationEvent.Stay(address.getName(), address.getAreaCode(), addressInfo.getMoveInDate(),
+                    addressInfo.getMoveOutDate()));
+        }
+        
+        append(new PopulationEvent.AddressesReplaced(person.getIdentityCode(), stays));
+    }
+    
+    @Override
+    public void nameChanged(Person person, String oldFirstName, String oldLastName) {
+        append(new PopulationEvent.NameChanged(person.getIdentityCode(), person.getFirstName(), person.getLastName()));
+    }
+    
+    @Override
+    public void timeOfBirthChanged(Person person, LocalDate oldTimeOfBirth) {
+        append(new PopulationEvent.TimeOfBirthChanged(person.getIdentityCode(), person.getTimeOfBirth()));
+    }
+    
+    @Override
+    public void timeOfDeathChanged(Person person, LocalDate oldTimeOfDeath) {
+        append(new PopulationEvent.TimeOfDeathChanged(person.getIdentityCode(), person.getTimeOfDeath()));
+    }
+    
+    @Override
+    public void parentAdded(Person person, Person parent) {
+        append(new PopulationEvent.ParentAdded(person.getIdentityCode(), parent.getIdentityCode()));
+    }
+    
+    @Override
+    public void parentRemoved(Person person, Person parent) {
+        append(new PopulationEvent.ParentRemoved(person.getIdentityCode(), parent.getIdentityCode()));
+    }
+    
+    @Override
+    public void parentsReplaced(Person person) {
+        List<String> parentIdentityCodes = new ArrayList<>(2);
+        for (Person parent : person.getParents()) {
+            parentIdentityCodes.add(parent.getIdentityCode());
+        }
+        
+        append(new PopulationEvent.ParentsReplaced(person.getIdentityCode(), parentIdentityCodes));
+    }
+    
+    private void append(PopulationEvent event) {
+        // Listeners of different persons are called concurrently, but the log is not thread-safe.
+        try {
+            synchronized (log) {
+                log.append(event);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package app.populationinfo.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Changes of a single person since a version of a {@link ChangeTracker}. Only the changed parts of
+ * the person are filled in, the rest are null or empty, and {@link #changes()} tells which parts
+ * changed. Changed parts hold the state of the person when the delta was exported, so applying
+ * the same delta twice gives the same result. Persons are referred to by identity code and
+ * addresses by name and area code, like in {@link PopulationEvent}s.
+ * 
+ * @param identityCode identity code of the person.
+ * @param version version of the latest change of the person included in the delta.
+ * @param changes changed parts as a combination of the change flags of this class.
+ * @param firstName first name if the name changed, otherwise null.
+ * @param lastName last name if the name changed, otherwise null.
+ * @param timeOfBirth time of birth if it changed, otherwise null.
+ * @param timeOfDeath time of death if it changed, otherwise null.
+ * @param parentIdentityCodes identity codes of all the parents if the parents changed, otherwise empty.
+ * @param addresses changed address infos, or the whole history if it was replaced, oldest first.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public record PersonDelta(String identityCode, long version, int changes, String firstName, String lastName,
+        LocalDate timeOfBirth, LocalDate timeOfDeath, List<String> parentIdentityCodes,
+        List<AddressChange> addresses) {
+    
+    /**
+     * The person is new, all parts of the person are in the delta.
+     */
+    public static final int CREATED = 1;
+    
+    /**
+     * The first or the last name changed.
+     */
+    public static final int NAME = 1 << 1;
+    
+    /**
+     * The time of birth changed.
+     */
+    public static final int TIME_OF_BIRTH = 1 << 2;
+    
+    /**
+     * The time of death changed.
+     */
+    public static final int TIME_OF_DEATH = 1 << 3;
+    
+    /**
+     * A parent was added or removed, or the parents were replaced.
+     */
+    public static final int PARENTS = 1 << 4;
+    
+    /**
+     * Address infos were added or their move out dates changed.
+     */
+    public static final int ADDRESSES = 1 << 5;
+    
+    /**
+     * The whole address history was replaced, the delta has all the address infos.
+     */
+    public static final int ADDRESSES_REPLACED = 1 << 6;
+    
+    /**
+     * Number of change flags.
+     */
+    static final int CHANGE_COUNT = 7;
+    
+    /**
+     * Checks if a part of the person changed.
+     * 
+     * @param change change flag of the part.
+     * @return true if the part is in the delta.
+     */
+    public boolean has(int change) {
+        return (changes & change) != 0;
+    }
+    
+    /**
+     * An added or changed address info.
+     * 
+     * @param addressName name of the address.
+     * @param areaCode area code of the address.
+     * @param moveInDate date of moving in.
+     * @param moveOutDate date of moving out, null for the current address.
+     */
+    public record AddressChange(String addressName, String areaCode, LocalDate moveInDate, LocalDate moveOutDate) {
+    }
+}
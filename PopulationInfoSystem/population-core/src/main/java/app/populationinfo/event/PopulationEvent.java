@@ -0,0 +1,150 @@
+package app.populationinfo.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Event describing a single change in the population. Events are written to an {@link EventLog}
+ * and replayed in the same order to rebuild the state. Persons are referred to by identity code and
+ * addresses by name and area code, so events don't hold references to domain objects.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public sealed interface PopulationEvent {
+    
+    /**
+     * @return identity code of the person the event concerns.
+     */
+    String identityCode();
+    
+    /**
+     * A person has been added to the population.
+     * 
+     * @param identityCode identity code of the person.
+     * @param firstName first name of the person.
+     * @param lastName last name of the person.
+     * @param timeOfBirth date of birth, may be null.
+     * @param timeOfDeath date of death, may be null.
+     */
+    record PersonAdded(String identityCode, String firstName, String lastName,
+            LocalDate timeOfBirth, LocalDate timeOfDeath) implements PopulationEvent {
+    }
+    
+    /**
+     * A person has moved to an address. The previous current address of the person is closed
+     * on the day before the move in date.
+     * 
+     * @param identityCode identity code of the person.
+     * @param addressName name of the address.
+     * @param areaCode area code of the address.
+     * @param moveInDate date of moving in.
+     */
+    record AddressAdded(String identityCode, String addressName, String areaCode,
+            LocalDate moveInDate) implements PopulationEvent {
+    }
+    
+    /**
+     * The move out date of an address info has been changed. The address info is identified by
+     * the address and the move in date.
+     * 
+     * @param identityCode identity code of the person.
+     * @param addressName name of the address.
+     * @param areaCode area code of the address.
+     * @param moveInDate move in date of the address info.
+     * @param moveOutDate new move out date, may be null.
+     */
+    record MoveOutDateChanged(String identityCode, String addressName, String areaCode,
+            LocalDate moveInDate, LocalDate moveOutDate) implements PopulationEvent {
+    }
+    
+    /**
+     * The time of death of a person has been changed.
+     * 
+     * @param identityCode identity code of the person.
+     * @param timeOfDeath new date of death, may be null.
+     */
+    record TimeOfDeathChanged(String identityCode, LocalDate timeOfDeath) implements PopulationEvent {
+    }
+    
+    /**
+     * A parent has been added for a person.
+     * 
+     * @param identityCode identity code of the person.
+     * @param parentIdentityCode identity code of the parent.
+     */
+    record ParentAdded(String identityCode, String parentIdentityCode) implements PopulationEvent {
+    }
+    
+    /**
+     * A parent has been removed from a person.
+     * 
+     * @param identityCode identity code of the person.
+     * @param parentIdentityCode identity code of the parent.
+     */
+    record ParentRemoved(String identityCode, String parentIdentityCode) implements PopulationEvent {
+    }
+    
+    /**
+     * The name of a person has been changed.
+     * 
+     * @param identityCode identity code of the person.
+     * @param firstName new first name.
+     * @param lastName new last name.
+     */
+    record NameChanged(String identityCode, String firstName, String lastName) implements PopulationEvent {
+    }
+    
+    /**
+     * The time of birth of a person has been changed.
+     * 
+     * @param identityCode identity code of the person.
+     * @param timeOfBirth new date of birth, may be null.
+     */
+    record TimeOfBirthChanged(String identityCode, LocalDate timeOfBirth) implements PopulationEvent {
+    }
+    
+    /**
+     * The whole address history of a person has been replaced.
+     * 
+     * @param identityCode identity code of the person.
+     * @param addresses new address history, newest first.
+     */
+    record AddressesReplaced(String identityCode, List<Stay> addresses) implements PopulationEvent {
+        
+        /**
+         * Constructor. The list of stays is copied.
+         */
+        public AddressesReplaced {
+            addresses = List.copyOf(addresses);
+        }
+    }
+    
+    /**
+     * The whole list of parents of a person has been replaced.
+     * 
+     * @param identityCode identity code of the person.
+     * @param parentIdentityCodes identity codes of the new parents.
+     */
+    record ParentsReplaced(String identityCode, List<String> parentIdentityCodes) implements PopulationEvent {
+        
+        /**
+         * Constructor. The list of identity codes is copied.
+         */
+        public ParentsReplaced {
+            parentIdentityCodes = List.copyOf(parentIdentityCodes);
+        }
+    }
+    
+    /**
+     * A stay of a person at an address in an {@link AddressesReplaced} event.
+     * 
+     * @param addressName name of the address.
+     * @param areaCode area code of the address.
+     * @param moveInDate date of moving in.
+     * @param moveOutDate date of moving out, may be null.
+     */
+    record Stay(String addressName, String areaCode, LocalDate moveInDate, LocalDate moveOutDate) {
+    }
+}
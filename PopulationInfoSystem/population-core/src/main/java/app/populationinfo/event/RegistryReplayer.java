@@ -0,0 +1,107 @@
+package app.populationinfo.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.registry.PopulationRegistry;
+
+/**
+ * Applies replayed events to a population registry. Used as the consumer of
+ * {@link EventLog#replay(long, Consumer)} to rebuild a registry, or to bring a registry loaded
+ * from a snapshot up to date.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class RegistryReplayer implements Consumer<PopulationEvent> {
+    private final PopulationRegistry registry;
+    
+    /**
+     * Constructor.
+     * 
+     * @param registry registry the events are applied to.
+     */
+    public RegistryReplayer(PopulationRegistry registry) {
+        this.registry = registry;
+    }
+    
+    /**
+     * Applies an event to the registry.
+     * 
+     * @param event event to be applied.
+     * @throws IllegalArgumentException if the event refers to a person or an address info that
+     * is not in the registry.
+     */
+    @Override
+    public void accept(PopulationEvent event) {
+        switch (event) {
+            case PopulationEvent.PersonAdded e -> {
+                registry.addPerson(new Person(e.identityCode(), e.firstName(), e.lastName(), e.timeOfBirth(),
+                        e.timeOfDeath(), new ArrayList<>(2)));
+            }
+            case PopulationEvent.AddressAdded e -> registry.moveTo(findPerson(e.identityCode()),
+                    new Address(e.addressName(), e.areaCode()), e.moveInDate());
+            case PopulationEvent.MoveOutDateChanged e -> {
+                Person person = findPerson(e.identityCode());
+                Address address = registry.findAddress(e.addressName(), e.areaCode());
+                AddressInfo addressInfo = null;
+                for (AddressInfo candidate : person.getAddresses()) {
+                    if (candidate.getAddress() == address && candidate.getMoveInDate().equals(e.moveInDate())) {
+                        addressInfo = candidate;
+                        break;
+                    }
+                }
+                if (addressInfo == null) {
+                    throw new IllegalArgumentException("No address info for " + e);
+                }
+                
+                registry.setMoveOutDate(addressInfo, e.moveOutDate());
+            }
+            case PopulationEvent.TimeOfDeathChanged e -> findPerson(e.identityCode()).setTimeOfDeath(e.timeOfDeath());
+            case PopulationEvent.ParentAdded e -> findPerson(e.identityCode()).addParent(findPerson(e.parentIdentityCode()));
+            case PopulationEvent.ParentRemoved e -> findPerson(e.identityCode()).removeParent(findPerson(e.parentIdentityCode()));
+            case PopulationEvent.ParentsReplaced e -> {
+                List<Person> parents = new ArrayList<>(e.parentIdentityCodes().size());
+                for (String parentIdentityCode : e.parentIdentityCodes()) {
+                    parents.add(findPerson(parentIdentityCode));
+                }
+                findPerson(e.identityCode()).setParents(parents);
+            }
+            case PopulationEvent.NameChanged e -> {
+                Person person = findPerson(e.identityCode());
+                person.setFirstName(e.firstName());
+                person.setLastName(e.lastName());
+            }
+            case PopulationEvent.TimeOfBirthChanged e -> findPerson(e.identityCode()).setTimeOfBirth(e.timeOfBirth());
+            case PopulationEvent.AddressesReplaced e -> {
+                // The person is removed and added again, so the registry indexes the new history.
+                Person person = registry.removePerson(e.identityCode());
+                if (person == null) {
+                    throw new IllegalArgumentException("Person not registered: " + e.identityCode());
+                }
+                
+                List<AddressInfo> addresses = new ArrayList<>(e.addresses().size());
+                for (PopulationEvent.Stay stay : e.addresses()) {
+                    addresses.add(new AddressInfo(new Address(stay.addressName(), stay.areaCode()), person,
+                            stay.moveInDate(), stay.moveOutDate()));
+                }
+                person.setAddresses(addresses);
+                registry.addPerson(person);
+            }
+        }
+    }
+    
+    private Person findPerson(String identityCode) {
+        Person person = registry.findPerson(identityCode);
+        if (person == null) {
+            throw new IllegalArgumentException("Person not registered: " + identityCode);
+        }
+        
+        return person;
+    }
+}
@@ -0,0 +1,494 @@
+package app.populationinfo.genealogy;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.populationinfo.model.Person;
+
+/**
+ * Index of the family links of a population. Persons get int ids in the order of their identity
+ * codes, and the links are kept in int arrays: two parent slots per person, and the children as
+ * back-references in a compressed adjacency array. The graph is immutable, so it can be queried
+ * from several threads, and it is built once from the parents of the persons.
+ * 
+ * <p>Ancestors and descendants are found with iterative breadth-first searches, so deep family
+ * trees don't use the call stack. Every person has a generation depth, the length of the longest
+ * known line of ancestors.</p>
+ * 
+ * <p>As a person has two parents, the family links form a directed acyclic graph and not a tree.
+ * Common ancestors and kinship are found from the ancestor sets of the two persons. Along a single
+ * lineage, following one parent slot, the links do form a tree, and binary lifting tables answer
+ * ancestor and lowest common ancestor queries in logarithmic time. The tables of a slot are
+ * built the first time the slot is queried.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class GenealogyGraph {
+    /**
+     * Id of an unknown person.
+     */
+    public static final int NONE = -1;
+    
+    private final String[] identityCodes;
+    private final int[] parents;
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] depths;
+    private final int[] topologicalOrder;
+    private final int[][][] lifting = new int[2][][];
+    private final int[][] lineageDepths = new int[2][];
+    
+    private GenealogyGraph(String[] identityCodes, int[] parents) {
+        this.identityCodes = identityCodes;
+        this.parents = parents;
+        
+        int size = identityCodes.length;
+        childOffsets = new int[size + 1];
+        for (int parent : parents) {
+            if (parent != NONE) {
+                childOffsets[parent + 1]++;
+            }
+        }
+        
+        for (int id = 0; id < size; id++) {
+            childOffsets[id + 1] += childOffsets[id];
+        }
+        
+        children = new int[childOffsets[size]];
+        int[] next = Arrays.copyOf(childOffsets, size);
+        for (int id = 0; id < size; id++) {
+            for (int slot = 0; slot < 2; slot++) {
+                int parent = parents[2 * id + slot];
+                if (parent != NONE) {
+                    children[next[parent]++] = id;
+                }
+            }
+        }
+        
+        depths = new int[size];
+        topologicalOrder = computeDepths(depths);
+    }
+    
+    /**
+     * Builds the graph from a population. Parents that are not part of the population are
+     * treated as unknown.
+     * 
+     * @param population persons of the graph.
+     * @return new graph.
+     * @throws IllegalArgumentException if an identity code is repeated or the parent links form a cycle.
+     */
+    public static GenealogyGraph of(Collection<? extends Person> population) {
+        Map<String, Person> persons = new HashMap<>(population.size() * 4 / 3 + 1);
+        for (Person person : population) {
+            if (persons.put(person.getIdentityCode(), person) != null) {
+                throw new IllegalArgumentException("Duplicate identity code: " + person.getIdentityCode());
+            }
+        }
+        
+        String[] identityCodes = persons.keySet().toArray(new String[0]);
+        Arrays.sort(identityCodes);
+        
+        int[] parents = new int[2 * identityCodes.length];
+        Arrays.fill(parents, NONE);
+        for (int id = 0; id < identityCodes.length; id++) {
+            List<Person> personParents = persons.get(identityCodes[id]).getParents();
+            for (int slot = 0; slot < Math.min(2, personParents.size()); slot++) {
+                int parent = Arrays.binarySearch(identityCodes, personParents.get(slot).getIdentityCode());
+                parents[2 * id + slot] = parent >= 0 ? parent : NONE;
+            }
+        }
+        
+        return new GenealogyGraph(identityCodes, parents);
+    }
+    
+    /**
+     * @return number of persons in the graph.
+     */
+    public int size() {
+        return identityCodes.length;
+    }
+    
+    /**
+     * Finds the id of a person.
+     * 
+     * @param identityCode identity code of the person.
+     * @return id of the person, {@link #NONE} if the person is not in the graph.
+     */
+    public int findId(String identityCode) {
+        int id = Arrays.binarySearch(identityCodes, identityCode);
+        
+        return id >= 0 ? id : NONE;
+    }
+    
+    /**
+     * @param id id of a person.
+     * @return identity code of the person.
+     */
+    public String getIdentityCode(int id) {
+        return identityCodes[id];
+    }
+    
+    /**
+     * @param id id of a person.
+     * @param slot parent slot, 0 or 1.
+     * @return id of the parent in the slot, {@link #NONE} if unknown.
+     */
+    public int getParent(int id, int slot) {
+        return parents[2 * id + checkSlot(slot)];
+    }
+    
+    /**
+     * @param id id of a person.
+     * @return ids of the children of the person.
+     */
+    public int[] getChildren(int id) {
+        return Arrays.copyOfRange(children, childOffsets[id], childOffsets[id + 1]);
+    }
+    
+    /**
+     * @param id id of a person.
+     * @return generation depth of the person, 0 if no parents are known.
+     */
+    public int getDepth(int id) {
+        return depths[id];
+    }
+    
+    /**
+     * Finds all known ancestors of a person.
+     * 
+     * @param id id of the person.
+     * @return ids of the ancestors, nearest generations first.
+     */
+    public int[] findAncestors(int id) {
+        IntQueue queue = new IntQueue();
+        BitSet visited = new BitSet();
+        queue.add(id);
+        visited.set(id);
+        for (int i = 0; i < queue.size; i++) {
+            int person = queue.get(i);
+            for (int slot = 0; slot < 2; slot++) {
+                int parent = parents[2 * person + slot];
+                if (parent != NONE && !visited.get(parent)) {
+                    visited.set(parent);
+                    queue.add(parent);
+                }
+            }
+        }
+        
+        return queue.toArray(1);
+    }
+    
+    /**
+     * Finds all descendants of a person.
+     * 
+     * @param id id of the person.
+     * @return ids of the descendants, nearest generations first.
+     */
+    public int[] findDescendants(int id) {
+        IntQueue queue = new IntQueue();
+        BitSet visited = new BitSet();
+        queue.add(id);
+        visited.set(id);
+        for (int i = 0; i < queue.size; i++) {
+            int person = queue.get(i);
+            for (int c = childOffsets[person]; c < childOffsets[person + 1]; c++) {
+                int child = children[c];
+                if (!visited.get(child)) {
+                    visited.set(child);
+                    queue.add(child);
+                }
+            }
+        }
+        
+        return queue.toArray(1);
+    }
+    
+    /**
+     * Finds the lowest common ancestors of two persons: the common ancestors none of whose children
+     * is a common ancestor as well. A person counts as an ancestor of itself, so if one person is
+     * an ancestor of the other, it is the only lowest common ancestor.
+     * 
+     * @param first id of the first person.
+     * @param second id of the second person.
+     * @return ids of the lowest common ancestors, empty if the persons are not related.
+     */
+    public int[] findLowestCommonAncestors(int first, int second) {
+        Map<Integer, Integer> common = findCommonAncestors(first, second);
+        IntQueue lowest = new IntQueue();
+        for (int ancestor : common.keySet()) {
+            boolean hasCommonChild = false;
+            for (int c = childOffsets[ancestor]; c < childOffsets[ancestor + 1] && !hasCommonChild; c++) {
+                hasCommonChild = common.containsKey(children[c]);
+            }
+            
+            if (!hasCommonChild) {
+                lowest.add(ancestor);
+            }
+        }
+        
+        int[] result = lowest.toArray(0);
+        Arrays.sort(result);
+        
+        return result;
+    }
+    
+    /**
+     * Counts the degree of kinship of two persons, the number of generations between them through
+     * their nearest common ancestor. A parent and a child are of the first degree, siblings and a
+     * grandparent and a grandchild of the second degree, and first cousins of the fourth degree.
+     * 
+     * @param first id of the first person.
+     * @param second id of the second person.
+     * @return degree of kinship, 0 for the same person and -1 if the persons are not related.
+     */
+    public int findKinship(int first, int second) {
+        if (first == second) {
+            return 0;
+        }
+        
+        // Bidirectional search upwards, a level at a time from the side with the smaller frontier.
+        // A common ancestor not found yet is beyond the level searched on at least one side, so it
+        // is at least the smaller level plus one away and can't be nearer than the degree found.
+        Map<Integer, Integer> firstDistances = new HashMap<>();
+        Map<Integer, Integer> secondDistances = new HashMap<>();
+        firstDistances.put(first, 0);
+        secondDistances.put(second, 0);
+        IntQueue firstFrontier = new IntQueue();
+        IntQueue secondFrontier = new IntQueue();
+        firstFrontier.add(first);
+        secondFrontier.add(second);
+        int firstLevel = 0;
+        int secondLevel = 0;
+        int degree = -1;
+        while (firstFrontier.size > 0 || secondFrontier.size > 0) {
+            if (degree >= 0 && degree <= Math.min(firstLevel, secondLevel) + 1) {
+                break;
+            }
+            
+            boolean expandFirst = secondFrontier.size == 0
+                    || (firstFrontier.size > 0 && firstFrontier.size <= secondFrontier.size);
+            IntQueue frontier = expandFirst ? firstFrontier : secondFrontier;
+            Map<Integer, Integer> distances = expandFirst ? firstDistances : secondDistances;
+            Map<Integer, Integer> otherDistances = expandFirst ? secondDistances : firstDistances;
+            int level = (expandFirst ? ++firstLevel : ++secondLevel);
+            IntQueue next = new IntQueue();
+            for (int i = 0; i < frontier.size; i++) {
+                int person = frontier.get(i);
+                for (int slot = 0; slot < 2; slot++) {
+                    int parent = parents[2 * person + slot];
+                    if (parent == NONE || distances.putIfAbsent(parent, level) != null) {
+                        continue;
+                    }
+                    
+                    next.add(parent);
+                    Integer otherDistance = otherDistances.get(parent);
+                    if (otherDistance != null && (degree < 0 || level + otherDistance < degree)) {
+                        degree = level + otherDistance;
+                    }
+                }
+            }
+            
+            if (expandFirst) {
+                firstFrontier = next;
+            } else {
+                secondFrontier = next;
+            }
+        }
+        
+        return degree;
+    }
+    
+    /**
+     * Finds the ancestor of a person the given number of generations up along one parent slot.
+     * 
+     * @param id id of the person.
+     * @param slot parent slot followed, 0 or 1.
+     * @param generations number of generations.
+     * @return id of the ancestor, {@link #NONE} if the lineage is not known that far.
+     */
+    public int findLineageAncestor(int id, int slot, int generations) {
+        int[][] up = lifting(checkSlot(slot));
+        if (generations > lineageDepths[slot][id]) {
+            return NONE;
+        }
+        
+        for (int level = 0; generations > 0; level++, generations >>>= 1) {
+            if ((generations & 1) != 0) {
+                id = up[level][id];
+            }
+        }
+        
+        return id;
+    }
+    
+    /**
+     * Finds the lowest common ancestor of two persons along one parent slot, where the links form
+     * a tree. Runs in logarithmic time to the depth of the lineage.
+     * 
+     * @param first id of the first person.
+     * @param second id of the second person.
+     * @param slot parent slot followed, 0 or 1.
+     * @return id of the lowest common ancestor, {@link #NONE} if the lineages don't meet.
+     */
+    public int findLineageLowestCommonAncestor(int first, int second, int slot) {
+        int[][] up = lifting(checkSlot(slot));
+        int[] depth = lineageDepths[slot];
+        if (depth[first] < depth[second]) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        
+        first = findLineageAncestor(first, slot, depth[first] - depth[second]);
+        if (first == second) {
+            return first;
+        }
+        
+        for (int level = up.length - 1; level >= 0; level--) {
+            if (up[level][first] != up[level][second]) {
+                first = up[level][first];
+                second = up[level][second];
+            }
+        }
+        
+        return up.length > 0 ? up[0][first] : NONE;
+    }
+    
+    /**
+     * Finds the common ancestors of two persons with the sum of their shortest distances to each.
+     */
+    private Map<Integer, Integer> findCommonAncestors(int first, int second) {
+        Map<Integer, Integer> firstDistances = findDistancesUp(first);
+        Map<Integer, Integer> secondDistances = findDistancesUp(second);
+        Map<Integer, Integer> common = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : firstDistances.entrySet()) {
+            Integer distance = secondDistances.get(entry.getKey());
+            if (distance != null) {
+                common.put(entry.getKey(), entry.getValue() + distance);
+            }
+        }
+        
+        return common;
+    }
+    
+    private Map<Integer, Integer> findDistancesUp(int id) {
+        Map<Integer, Integer> distances = new HashMap<>();
+        IntQueue queue = new IntQueue();
+        distances.put(id, 0);
+        queue.add(id);
+        for (int i = 0; i < queue.size; i++) {
+            int person = queue.get(i);
+            int distance = distances.get(person) + 1;
+            for (int slot = 0; slot < 2; slot++) {
+                int parent = parents[2 * person + slot];
+                if (parent != NONE && distances.putIfAbsent(parent, distance) == null) {
+                    queue.add(parent);
+                }
+            }
+        }
+        
+        return distances;
+    }
+    
+    /**
+     * Computes the generation depths in topological order from the persons without known parents.
+     * 
+     * @param depth array for the depths.
+     * @return ids in topological order, parents before their children.
+     */
+    private int[] computeDepths(int[] depth) {
+        int size = identityCodes.length;
+        int[] remainingParents = new int[size];
+        int[] order = new int[size];
+        int ordered = 0;
+        for (int id = 0; id < size; id++) {
+            remainingParents[id] = (parents[2 * id] != NONE ? 1 : 0) + (parents[2 * id + 1] != NONE ? 1 : 0);
+            if (remainingParents[id] == 0) {
+                order[ordered++] = id;
+            }
+        }
+        
+        for (int i = 0; i < ordered; i++) {
+            int person = order[i];
+            for (int c = childOffsets[person]; c < childOffsets[person + 1]; c++) {
+                int child = children[c];
+                depth[child] = Math.max(depth[child], depth[person] + 1);
+                if (--remainingParents[child] == 0) {
+                    order[ordered++] = child;
+                }
+            }
+        }
+        
+        if (ordered < size) {
+            throw new IllegalArgumentException("Parent links form a cycle");
+        }
+        
+        return order;
+    }
+    
+    private synchronized int[][] lifting(int slot) {
+        if (lifting[slot] == null) {
+            int size = identityCodes.length;
+            int[] depth = new int[size];
+            int maxDepth = 0;
+            for (int id : topologicalOrder) {
+                int parent = parents[2 * id + slot];
+                depth[id] = parent != NONE ? depth[parent] + 1 : 0;
+                maxDepth = Math.max(maxDepth, depth[id]);
+            }
+            
+            int levels = 32 - Integer.numberOfLeadingZeros(maxDepth);
+            int[][] up = new int[levels][];
+            for (int level = 0; level < levels; level++) {
+                up[level] = new int[size];
+                for (int id = 0; id < size; id++) {
+                    int half = level == 0 ? parents[2 * id + slot] : up[level - 1][id];
+                    up[level][id] = level == 0 || half == NONE ? half : up[level - 1][half];
+                }
+            }
+            
+            lineageDepths[slot] = depth;
+            lifting[slot] = up;
+        }
+        
+        return lifting[slot];
+    }
+    
+    private static int checkSlot(int slot) {
+        if (slot != 0 && slot != 1) {
+            throw new IllegalArgumentException("Parent slot must be 0 or 1: " + slot);
+        }
+        
+        return slot;
+    }
+    
+    /**
+     * Growable int array used as the queue of the searches.
+     */
+    private static final class IntQueue {
+        private int[] values = new int[16];
+        private int size;
+        
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            
+            values[size++] = value;
+        }
+        
+        private int get(int index) {
+            return values[index];
+        }
+        
+        private int[] toArray(int from) {
+            return Arrays.copyOfRange(values, Math.min(from, size), size);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package app.populationinfo.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of non-negative values, like latencies in nanoseconds. Values below 32
+ * are counted exactly, larger values in buckets of 32 per power of two, so a percentile is within
+ * about 3 % of the recorded value. Recording a value is a few bit operations and an atomic
+ * increment, and the histogram never grows.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0l);
+    
+    /**
+     * Records a value.
+     * 
+     * @param value the value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        long recorded = Math.max(value, 0l);
+        counts.incrementAndGet(bucketOf(recorded));
+        count.increment();
+        sum.add(recorded);
+        max.accumulate(recorded);
+    }
+    
+    /**
+     * @return number of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+    
+    /**
+     * @return largest recorded value, 0 if none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+    
+    /**
+     * @return mean of the recorded values, 0 if none.
+     */
+    public double getMean() {
+        long n = count.sum();
+        
+        return n > 0 ? (double) sum.sum() / n : 0.0;
+    }
+    
+    /**
+     * Finds the value below or at which the given percentage of the recorded values are.
+     * 
+     * @param percentile percentage from 0 to 100.
+     * @return highest value of the bucket of the percentile, 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be from 0 to 100: " + percentile);
+        }
+        
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        
+        long rank = Math.max(1l, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        
+        return 0l;
+    }
+    
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS
+                + (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+    
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        
+        return lowest + (1l << shift) - 1;
+    }
+}
@@ -0,0 +1,66 @@
+package app.populationinfo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recorder keeping the measurements in memory: a call count and a latency histogram per
+ * operation, and a histogram of address history lengths.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class InMemoryMetrics implements MetricsRecorder {
+    private final LongAdder[] counts = new LongAdder[Operation.values().length];
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+    private final Histogram historyLengths = new Histogram();
+    
+    /**
+     * Constructor.
+     */
+    public InMemoryMetrics() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            latencies[i] = new Histogram();
+        }
+    }
+    
+    @Override
+    public void recordLatency(Operation operation, long nanos) {
+        counts[operation.ordinal()].increment();
+        latencies[operation.ordinal()].record(nanos);
+    }
+    
+    @Override
+    public void recordCall(Operation operation) {
+        counts[operation.ordinal()].increment();
+    }
+    
+    @Override
+    public void recordHistoryLength(int length) {
+        historyLengths.record(length);
+    }
+    
+    /**
+     * @param operation the operation.
+     * @return number of calls of the operation.
+     */
+    public long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+    
+    /**
+     * @param operation a timed operation.
+     * @return latencies of the operation in nanoseconds.
+     */
+    public Histogram getLatencies(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+    
+    /**
+     * @return lengths of address histories after additions.
+     */
+    public Histogram getHistoryLengths() {
+        return historyLengths;
+    }
+}
@@ -0,0 +1,64 @@
+package app.populationinfo.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Recorder committing timed operations as flight recorder events, named
+ * app.populationinfo.ModelOperation. The event type is checked before creating an event, so
+ * nothing is allocated unless a recording has the events enabled. Counted operations and history lengths are passed on to another recorder, if any.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class JfrMetricsRecorder implements MetricsRecorder {
+    private static final EventType EVENT_TYPE = EventType.getEventType(ModelOperationEvent.class);
+    
+    private final MetricsRecorder next;
+    
+    /**
+     * Constructor.
+     */
+    public JfrMetricsRecorder() {
+        this(null);
+    }
+    
+    /**
+     * Constructor with a recorder that gets all the measurements as well.
+     * 
+     * @param next recorder getting the measurements after this one, null if none.
+     */
+    public JfrMetricsRecorder(MetricsRecorder next) {
+        this.next = next;
+    }
+    
+    @Override
+    public void recordLatency(Operation operation, long nanos) {
+        if (EVENT_TYPE.isEnabled()) {
+            ModelOperationEvent event = new ModelOperationEvent();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.nanos = nanos;
+                event.commit();
+            }
+        }
+        
+        if (next != null) {
+            next.recordLatency(operation, nanos);
+        }
+    }
+    
+    @Override
+    public void recordCall(Operation operation) {
+        if (next != null) {
+            next.recordCall(operation);
+        }
+    }
+    
+    @Override
+    public void recordHistoryLength(int length) {
+        if (next != null) {
+            next.recordHistoryLength(length);
+        }
+    }
+}
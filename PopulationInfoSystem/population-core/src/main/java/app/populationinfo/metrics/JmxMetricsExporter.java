@@ -0,0 +1,131 @@
+package app.populationinfo.metrics;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes in-memory measurements through JMX in the platform MBean server.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class JmxMetricsExporter implements MetricsMXBean, Closeable {
+    /**
+     * Default object name of the exporter.
+     */
+    public static final String DEFAULT_NAME = "app.populationinfo:type=ModelMetrics";
+    
+    private final InMemoryMetrics metrics;
+    private final ObjectName name;
+    
+    private JmxMetricsExporter(InMemoryMetrics metrics, ObjectName name) {
+        this.metrics = metrics;
+        this.name = name;
+    }
+    
+    /**
+     * Registers the measurements with the default name.
+     * 
+     * @param metrics measurements to be exposed.
+     * @return the registered exporter.
+     */
+    public static JmxMetricsExporter register(InMemoryMetrics metrics) {
+        return register(metrics, DEFAULT_NAME);
+    }
+    
+    /**
+     * Registers the measurements.
+     * 
+     * @param metrics measurements to be exposed.
+     * @param name object name of the exporter.
+     * @return the registered exporter.
+     * @throws IllegalArgumentException if the name is invalid.
+     * @throws IllegalStateException if the registration fails, e.g. the name is already in use.
+     */
+    public static JmxMetricsExporter register(InMemoryMetrics metrics, String name) {
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName(name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid object name: " + name, e);
+        }
+        
+        JmxMetricsExporter exporter = new JmxMetricsExporter(metrics, objectName);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(exporter, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics could not be registered as " + name, e);
+        }
+        
+        return exporter;
+    }
+    
+    /**
+     * @return object name of the exporter.
+     */
+    public ObjectName getName() {
+        return name;
+    }
+    
+    @Override
+    public Map<String, Long> getCounts() {
+        return byOperation(metrics::getCount);
+    }
+    
+    @Override
+    public Map<String, Long> getMedianLatencyNanos() {
+        return byOperation(operation -> metrics.getLatencies(operation).getValueAtPercentile(50.0));
+    }
+    
+    @Override
+    public Map<String, Long> getP99LatencyNanos() {
+        return byOperation(operation -> metrics.getLatencies(operation).getValueAtPercentile(99.0));
+    }
+    
+    @Override
+    public Map<String, Long> getMaxLatencyNanos() {
+        return byOperation(operation -> metrics.getLatencies(operation).getMax());
+    }
+    
+    @Override
+    public double getMeanHistoryLength() {
+        return metrics.getHistoryLengths().getMean();
+    }
+    
+    @Override
+    public long getMaxHistoryLength() {
+        return metrics.getHistoryLengths().getMax();
+    }
+    
+    /**
+     * Unregisters the exporter. Does nothing if it is not registered.
+     */
+    @Override
+    public void close() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics could not be unregistered: " + name, e);
+        }
+    }
+    
+    private static Map<String, Long> byOperation(ToLongFunction<Operation> value) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            values.put(operation.name(), value.applyAsLong(operation));
+        }
+        
+        return values;
+    }
+}
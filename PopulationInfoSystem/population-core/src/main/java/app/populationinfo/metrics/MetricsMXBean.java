@@ -0,0 +1,44 @@
+package app.populationinfo.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the model layer measurements. The maps are keyed by the names of the
+ * operations.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public interface MetricsMXBean {
+    
+    /**
+     * @return number of calls per operation.
+     */
+    Map<String, Long> getCounts();
+    
+    /**
+     * @return median latency per timed operation in nanoseconds.
+     */
+    Map<String, Long> getMedianLatencyNanos();
+    
+    /**
+     * @return 99th percentile latency per timed operation in nanoseconds.
+     */
+    Map<String, Long> getP99LatencyNanos();
+    
+    /**
+     * @return maximum latency per timed operation in nanoseconds.
+     */
+    Map<String, Long> getMaxLatencyNanos();
+    
+    /**
+     * @return mean length of address histories after additions.
+     */
+    double getMeanHistoryLength();
+    
+    /**
+     * @return maximum length of address histories.
+     */
+    long getMaxHistoryLength();
+}
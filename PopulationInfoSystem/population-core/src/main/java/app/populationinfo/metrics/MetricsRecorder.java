@@ -0,0 +1,38 @@
+package app.populationinfo.metrics;
+
+/**
+ * Receives the measurements of the model layer. Implementations are called on the hot paths of
+ * the model, often with the lock of a person held, so they must be fast, thread-safe and must not
+ * call back into the model.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public interface MetricsRecorder {
+    
+    /**
+     * Called when a timed operation completes.
+     * 
+     * @param operation the operation.
+     * @param nanos duration of the operation in nanoseconds.
+     */
+    default void recordLatency(Operation operation, long nanos) {
+    }
+    
+    /**
+     * Called when a counted operation is called.
+     * 
+     * @param operation the operation.
+     */
+    default void recordCall(Operation operation) {
+    }
+    
+    /**
+     * Called with the length of an address history after an address was added to it.
+     * 
+     * @param length number of address infos in the history.
+     */
+    default void recordHistoryLength(int length) {
+    }
+}
@@ -0,0 +1,28 @@
+package app.populationinfo.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a timed model operation.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+@Name("app.populationinfo.ModelOperation")
+@Label("Model Operation")
+@Category("Population Information System")
+@StackTrace(false)
+class ModelOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+    
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+}
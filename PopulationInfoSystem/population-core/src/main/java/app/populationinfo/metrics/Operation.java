@@ -0,0 +1,40 @@
+package app.populationinfo.metrics;
+
+/**
+ * Operations of the model layer that are measured.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public enum Operation {
+    /**
+     * Adding an address to a person, timed.
+     */
+    ADD_ADDRESS,
+    
+    /**
+     * Finding the current address of a person, timed.
+     */
+    FIND_CURRENT_ADDRESS,
+    
+    /**
+     * Finding an address info of a person by address, timed.
+     */
+    FIND_ADDRESS_INFO_BY_ADDRESS,
+    
+    /**
+     * Finding the address of a person on a date, timed.
+     */
+    FIND_ADDRESS_ON,
+    
+    /**
+     * Comparing persons for equality, counted.
+     */
+    PERSON_EQUALS,
+    
+    /**
+     * Comparing address infos for equality, counted.
+     */
+    ADDRESS_INFO_EQUALS
+}
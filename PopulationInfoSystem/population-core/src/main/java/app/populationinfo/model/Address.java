@@ -0,0 +1,101 @@
+package app.populationinfo.model;
+
+/**
+ * Class for holding address information and business logic. Addresses are immutable, so the same
+ * instance can be shared by any number of address infos. Use {@link AddressPool} to share them.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class Address {
+    private final String name;
+    private final String areaCode;
+    private final int hash;
+    
+    /**
+     * Constructor.
+     * 
+     * @param name name of the address.
+     * @param areaCode area code of the address.
+     */
+    public Address(String name, String areaCode) {
+        this.name = name;
+        this.areaCode = areaCode;
+        this.hash = hash(name, areaCode);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getAreaCode() {
+        return areaCode;
+    }
+    
+    /**
+     * Creates an address with a different name.
+     * 
+     * @param name name of the new address.
+     * @return address with the given name and the area code of this address.
+     */
+    public Address withName(String name) {
+        return new Address(name, areaCode);
+    }
+    
+    /**
+     * Creates an address with a different area code.
+     * 
+     * @param areaCode area code of the new address.
+     * @return address with the name of this address and the given area code.
+     */
+    public Address withAreaCode(String areaCode) {
+        return new Address(name, areaCode);
+    }
+    
+    /**
+     * Creates a copy of the address. As addresses are immutable, the address itself is returned.
+     * 
+     * @param address address to be copied.
+     * @return the original address.
+     */
+    public static Address copyOf(Address address) {
+        return address;
+    }
+    
+    @Override
+    public boolean equals(Object a2) {
+        if (this == a2) {
+            return true;
+        }
+        
+        if (!(a2 instanceof Address)) {
+            return false;
+        }
+        
+        Address address = (Address) a2;
+        return hash == address.hash && name.equals(address.name) && areaCode.equals(address.areaCode);
+    }
+    
+    /**
+     * Combines the hash codes of the name and the area code into one 64-bit value, the name in the
+     * high half and the area code in the low half, and mixes it with the 64-bit finalizer of
+     * MurmurHash3 so that every bit of both affects the returned bits.
+     */
+    private static int hash(String name, String areaCode) {
+        long hash = ((long) name.hashCode() << 32) | (areaCode.hashCode() & 0xffffffffl);
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdl;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53l;
+        
+        return (int) (hash ^ (hash >>> 33));
+    }
+    
+    /**
+     * Hash code is calculated from the name and the area code, the same fields that are used in equals.
+     * The value is calculated once when the address is created.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,443 @@
+package app.populationinfo.model;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Address history of a person. Entries are stored in the order they were added, but the list view
+ * exposes them newest first. Adding an entry, finding the current address and finding an entry by
+ * address all run in constant time. As long as entries are added in order of their move in dates,
+ * the address on a given date is found with a binary search.
+ * 
+ * <p>The history is append-only. Every append publishes a new immutable snapshot of the history
+ * through a volatile field, so reads never lock and always see a consistent history even while a
+ * move is being added. Iterators work on the snapshot that was current when they were created. As
+ * appends shift the indices of the list, a series of {@link #get(int)} calls should be replaced with
+ * an iteration or {@link #snapshot()} when the history may change in between. Appends must not run
+ * concurrently, {@link Person} serializes them with its own lock.</p>
+ * 
+ * <p>Copying a history for another person takes constant time: the copy borrows the entries of the
+ * original and only gets its own copy of the current entry. The rest of the entries are copied when
+ * the copy is first read through anything else than {@link #findCurrent()} or {@link #size()}, or
+ * when it is appended to. Until then, an entry that the original changes is first replaced in the
+ * borrowed entries with a copy holding its old values, so the copy keeps seeing the history as it
+ * was when it was made.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class AddressHistory extends AbstractList<AddressInfo> {
+    private static final int INITIAL_CAPACITY = 4;
+    
+    /**
+     * Snapshot of the history. The entries array is shared between snapshots: later snapshots only
+     * write past the size of the earlier ones, and the array is copied when it grows.
+     */
+    private record State(AddressInfo[] entries, int size, AddressInfo current, boolean chronological) {
+    }
+    
+    /**
+     * Set on a copy while its entries still belong to the original. The entry at the current index
+     * has been replaced by the own current entry of the copy.
+     */
+    private record Borrowed(Person resident, int currentIndex) {
+    }
+    
+    /**
+     * Entries lent to copies. Copies hold the array, so it is released once every copy has made
+     * its own entries.
+     */
+    private record Lent(WeakReference<AddressInfo[]> entries, int size) {
+    }
+    
+    private volatile State state = new State(new AddressInfo[INITIAL_CAPACITY], 0, null, true);
+    private volatile Map<Address, AddressInfo> byAddress;
+    private volatile Borrowed borrowed;
+    private List<Lent> lent;
+    
+    /**
+     * Constructor for an empty history.
+     */
+    public AddressHistory() {
+    }
+    
+    /**
+     * Constructor. Builds the history from a list ordered newest first, like the one returned by
+     * {@link Person#getAddresses()}.
+     * 
+     * @param addresses address infos, newest first.
+     */
+    public AddressHistory(List<AddressInfo> addresses) {
+        state = new State(new AddressInfo[Math.max(INITIAL_CAPACITY, addresses.size())], 0, null, true);
+        for (int i = addresses.size() - 1; i >= 0; i--) {
+            append(addresses.get(i));
+        }
+        
+        // The current address is the newest one without a move out date.
+        State built = state;
+        AddressInfo current = null;
+        for (int i = built.size() - 1; i >= 0 && current == null; i--) {
+            if (built.entries()[i].getMoveOutDay() == EpochDay.OPEN) {
+                current = built.entries()[i];
+            }
+        }
+        
+        state = new State(built.entries(), built.size(), current, built.chronological());
+    }
+    
+    /**
+     * Gets an entry. Index 0 is the newest entry.
+     */
+    @Override
+    public AddressInfo get(int index) {
+        State snapshot = ownState();
+        if (index < 0 || index >= snapshot.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + snapshot.size());
+        }
+        
+        return snapshot.entries()[snapshot.size() - 1 - index];
+    }
+    
+    @Override
+    public int size() {
+        return state.size();
+    }
+    
+    /**
+     * Iterates the entries newest first as they were at the time of the call.
+     */
+    @Override
+    public Iterator<AddressInfo> iterator() {
+        State snapshot = ownState();
+        
+        return new Iterator<>() {
+            private int next = snapshot.size() - 1;
+            
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+            
+            @Override
+            public AddressInfo next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                
+                return snapshot.entries()[next--];
+            }
+        };
+    }
+    
+    @Override
+    public ListIterator<AddressInfo> listIterator(int index) {
+        return snapshot().listIterator(index);
+    }
+    
+    /**
+     * Gets the entries as they were at the time of the call. Later appends don't change the
+     * returned list, so it can be iterated while the history keeps growing. The list is a view of
+     * the immutable snapshot of the history, so getting it doesn't copy the entries.
+     * 
+     * @return read-only list of address infos, newest first.
+     */
+    public List<AddressInfo> snapshot() {
+        State snapshot = ownState();
+        
+        return new AbstractList<>() {
+            @Override
+            public AddressInfo get(int index) {
+                if (index < 0 || index >= snapshot.size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + snapshot.size());
+                }
+                
+                return snapshot.entries()[snapshot.size() - 1 - index];
+            }
+            
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+        };
+    }
+    
+    /**
+     * Adds a new entry as the newest one and makes it the current address. Must not be called
+     * concurrently.
+     * 
+     * @param addressInfo address info to be added.
+     */
+    void append(AddressInfo addressInfo) {
+        State previous = ownState();
+        AddressInfo[] entries = previous.entries();
+        int size = previous.size();
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        
+        boolean chronological = previous.chronological()
+                && (size == 0 || addressInfo.getMoveInDay() >= entries[size - 1].getMoveInDay());
+        
+        entries[size] = addressInfo;
+        state = new State(entries, size + 1, addressInfo, chronological);
+        
+        if (byAddress == null) {
+            byAddress = new ConcurrentHashMap<>();
+        }
+        byAddress.put(addressInfo.getAddress(), addressInfo);
+    }
+    
+    /**
+     * Creates a copy of the history for another person in constant time. Must be called with the
+     * lock of the resident of this history.
+     * 
+     * @param resident resident of the copy.
+     * @return copy borrowing the entries of this history.
+     */
+    AddressHistory copyFor(Person resident) {
+        AddressHistory copy = new AddressHistory();
+        State snapshot = state;
+        if (snapshot.size() == 0) {
+            return copy;
+        }
+        
+        int currentIndex = -1;
+        AddressInfo current = null;
+        if (snapshot.current() != null) {
+            current = AddressInfo.copyOf(snapshot.current(), resident);
+            Borrowed source = borrowed;
+            currentIndex = source != null ? source.currentIndex() : indexOf(snapshot.entries(), snapshot.size(), snapshot.current());
+        }
+        
+        copy.state = new State(snapshot.entries(), snapshot.size(), current, snapshot.chronological());
+        copy.borrowed = new Borrowed(resident, currentIndex);
+        
+        // A copy of a copy borrows the same entries, which the original already keeps track of.
+        if (borrowed == null) {
+            lend(snapshot.entries(), snapshot.size());
+        }
+        
+        return copy;
+    }
+    
+    /**
+     * Makes the history keep track of the entries that the given history has lent to its copies.
+     * Used when the history replaces the given one, possibly with the same entries.
+     * 
+     * @param previous history replaced by this one.
+     */
+    void keepLent(AddressHistory previous) {
+        if (previous.lent != null) {
+            lent = new ArrayList<>(previous.lent);
+        }
+    }
+    
+    /**
+     * Called before an entry of this history is changed, with the lock of the resident. If the
+     * entry has been lent to copies, it is replaced in the lent entries with a copy holding its old
+     * values.
+     * 
+     * @param addressInfo entry about to change.
+     */
+    void beforeChange(AddressInfo addressInfo) {
+        if (lent == null) {
+            return;
+        }
+        
+        for (Iterator<Lent> iterator = lent.iterator(); iterator.hasNext();) {
+            Lent lentEntries = iterator.next();
+            AddressInfo[] entries = lentEntries.entries().get();
+            if (entries == null) {
+                iterator.remove();
+                continue;
+            }
+            
+            int index = indexOf(entries, lentEntries.size(), addressInfo);
+            if (index < 0) {
+                continue;
+            }
+            
+            // Move on to own entries before touching the lent ones.
+            State snapshot = state;
+            if (snapshot.entries() == entries) {
+                state = new State(entries.clone(), snapshot.size(), snapshot.current(), snapshot.chronological());
+            }
+            
+            entries[index] = AddressInfo.copyOf(addressInfo);
+        }
+        
+        if (lent.isEmpty()) {
+            lent = null;
+        }
+    }
+    
+    /**
+     * Finds the current address. The newest entry is current until it gets a move out date.
+     * 
+     * @return current address info, null if there is none.
+     */
+    public AddressInfo findCurrent() {
+        State snapshot = state;
+        while (true) {
+            AddressInfo addressInfo = snapshot.current();
+            if (addressInfo == null || addressInfo.getMoveOutDay() == EpochDay.OPEN) {
+                return addressInfo;
+            }
+            
+            // A move publishes the new entry before closing the old one, so a closed entry in a
+            // replaced snapshot means that the new entry can be read.
+            State newer = state;
+            if (newer == snapshot) {
+                return null;
+            }
+            snapshot = newer;
+        }
+    }
+    
+    /**
+     * Finds the newest entry for the given address.
+     * 
+     * @param address address to be looked for.
+     * @return address info if found, null if not.
+     */
+    public AddressInfo findByAddress(Address address) {
+        State snapshot = ownState();
+        Map<Address, AddressInfo> index = byAddress;
+        if (index == null) {
+            return null;
+        }
+        
+        AddressInfo addressInfo = index.get(address);
+        if (addressInfo == null || addressInfo.getAddress().equals(address)) {
+            return addressInfo;
+        }
+        
+        // The address of the entry has been changed after it was added, fall back to a scan.
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            if (snapshot.entries()[i].getAddress().equals(address)) {
+                return snapshot.entries()[i];
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Finds the entry that was valid on the given date. Both the move in and the move out dates
+     * are inclusive.
+     * 
+     * @param date date to be looked for.
+     * @return address info valid on the date, null if there is none.
+     */
+    public AddressInfo findOn(LocalDate date) {
+        int day = Math.toIntExact(date.toEpochDay());
+        State snapshot = ownState();
+        AddressInfo[] entries = snapshot.entries();
+        if (!snapshot.chronological()) {
+            for (int i = snapshot.size() - 1; i >= 0; i--) {
+                if (isValidOn(entries[i], day)) {
+                    return entries[i];
+                }
+            }
+            
+            return null;
+        }
+        
+        // Last entry moved in on or before the date.
+        int low = 0;
+        int high = snapshot.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].getMoveInDay() > day) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        
+        return high >= 0 && isValidOn(entries[high], day) ? entries[high] : null;
+    }
+    
+    private void lend(AddressInfo[] entries, int size) {
+        if (lent == null) {
+            lent = new ArrayList<>(1);
+        }
+        
+        // Entries lent again only grow, so the newer size covers the earlier copies too.
+        int last = lent.size() - 1;
+        if (last >= 0 && lent.get(last).entries().get() == entries) {
+            lent.set(last, new Lent(lent.get(last).entries(), size));
+        } else {
+            lent.add(new Lent(new WeakReference<>(entries), size));
+        }
+    }
+    
+    /**
+     * Gets the state of the history, copying the borrowed entries first if this is a copy that
+     * hasn't made its own entries yet.
+     */
+    private State ownState() {
+        Borrowed source = borrowed;
+        if (source == null) {
+            return state;
+        }
+        
+        synchronized (source.resident()) {
+            if (borrowed == null) {
+                return state;
+            }
+            
+            State snapshot = state;
+            AddressInfo[] lentEntries = snapshot.entries();
+            AddressInfo[] entries = new AddressInfo[Math.max(INITIAL_CAPACITY, snapshot.size())];
+            Map<Address, AddressInfo> index = new ConcurrentHashMap<>();
+            for (int i = 0; i < snapshot.size(); i++) {
+                entries[i] = i == source.currentIndex() ? snapshot.current() : copyLent(lentEntries, i, source.resident());
+                index.put(entries[i].getAddress(), entries[i]);
+            }
+            
+            State owned = new State(entries, snapshot.size(), snapshot.current(), snapshot.chronological());
+            state = owned;
+            byAddress = index;
+            borrowed = null;
+            
+            return owned;
+        }
+    }
+    
+    private static AddressInfo copyLent(AddressInfo[] lentEntries, int index, Person resident) {
+        Person owner = lentEntries[index].getResident();
+        if (owner == null) {
+            return AddressInfo.copyOf(lentEntries[index], resident);
+        }
+        
+        // The owner replaces a lent entry with its own lock before changing it.
+        synchronized (owner) {
+            return AddressInfo.copyOf(lentEntries[index], resident);
+        }
+    }
+    
+    private static int indexOf(AddressInfo[] entries, int size, AddressInfo addressInfo) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (entries[i] == addressInfo) {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+    
+    private static boolean isValidOn(AddressInfo addressInfo, int day) {
+        return addressInfo.getMoveInDay() <= day && addressInfo.getMoveOutDay() >= day;
+    }
+}
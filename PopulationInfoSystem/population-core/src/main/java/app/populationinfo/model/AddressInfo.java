@@ -0,0 +1,234 @@
+package app.populationinfo.model;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+import app.populationinfo.metrics.Metrics;
+import app.populationinfo.metrics.Operation;
+
+/**
+ * Class for holding persons address info.
+ * 
+ * <p>The dates are kept as epoch days, see {@link EpochDay}. The date getters and setters convert
+ * at the call, the day getters read the fields as is.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023 
+ *
+ */
+public class AddressInfo {
+    private volatile Address address;
+    private volatile Person resident;
+    private volatile int moveInDay;
+    private volatile int moveOutDay;
+    
+    /**
+     * Constructor.
+     * 
+     * @param address address attached to the info.
+     * @param resident current resident.
+     * @param moveInDate Date of moving in.
+     */
+    public AddressInfo(Address address, Person resident, LocalDate moveInDate) {
+        this(address, resident, EpochDay.of(moveInDate, EpochDay.NONE), EpochDay.OPEN);
+    }
+    
+    /**
+     * Constructor with moving out Date.
+     * 
+     * @param address address attached to the info.
+     * @param resident current resident.
+     * @param moveInDate Date of moving in.
+     * @param moveOutDate Date of moving out.
+     */
+    public AddressInfo(Address address, Person resident, LocalDate moveInDate, LocalDate moveOutDate) {
+        this(address, resident, EpochDay.of(moveInDate, EpochDay.NONE), EpochDay.of(moveOutDate, EpochDay.OPEN));
+    }
+    
+    /**
+     * Constructor with epoch days.
+     * 
+     * @param address address attached to the info.
+     * @param resident current resident.
+     * @param moveInDay day of moving in.
+     * @param moveOutDay day of moving out, {@link EpochDay#OPEN} if the address is current.
+     */
+    public AddressInfo(Address address, Person resident, int moveInDay, int moveOutDay) {
+        this.address = address;
+        this.resident = resident;
+        this.moveInDay = moveInDay;
+        this.moveOutDay = moveOutDay;
+    }
+    
+    public Address getAddress() {
+        return address;
+    }
+    
+    /**
+     * Sets the address. The listeners of the resident are notified with
+     * {@link PersonChangeListener#addressesReplaced(Person)} unless the new address is equal to
+     * the old one.
+     * 
+     * @param address the address.
+     */
+    public void setAddress(Address address) {
+        Person person = resident;
+        if (person == null) {
+            this.address = address;
+            return;
+        }
+        
+        synchronized (person) {
+            person.beforeAddressInfoChange(this);
+            boolean changed = !Objects.equals(this.address, address);
+            this.address = address;
+            if (changed) {
+                person.fireAddressesReplaced();
+            }
+        }
+    }
+    
+    public Person getResident() {
+        return resident;
+    }
+    
+    public void setResident(Person resident) {
+        Person person = this.resident;
+        if (person == null) {
+            this.resident = resident;
+            return;
+        }
+        
+        synchronized (person) {
+            person.beforeAddressInfoChange(this);
+            this.resident = resident;
+        }
+    }
+    
+    public LocalDate getMoveInDate() {
+        return EpochDay.toLocalDate(moveInDay);
+    }
+    
+    /**
+     * @return epoch day of moving in.
+     */
+    public int getMoveInDay() {
+        return moveInDay;
+    }
+    
+    /**
+     * Sets the move in date. The listeners of the resident are notified with
+     * {@link PersonChangeListener#addressesReplaced(Person)} if the date changes.
+     * 
+     * @param moveInDate date of moving in.
+     */
+    public void setMoveInDate(LocalDate moveInDate) {
+        int day = EpochDay.of(moveInDate, EpochDay.NONE);
+        Person person = resident;
+        if (person == null) {
+            this.moveInDay = day;
+            return;
+        }
+        
+        synchronized (person) {
+            person.beforeAddressInfoChange(this);
+            int oldMoveInDay = this.moveInDay;
+            this.moveInDay = day;
+            if (day != oldMoveInDay) {
+                person.fireAddressesReplaced();
+            }
+        }
+    }
+    
+    public LocalDate getMoveOutDate() {
+        return EpochDay.toLocalDate(moveOutDay);
+    }
+    
+    /**
+     * @return epoch day of moving out, {@link EpochDay#OPEN} if the address is current.
+     */
+    public int getMoveOutDay() {
+        return moveOutDay;
+    }
+    
+    /**
+     * Sets the move out date. The change is made with the lock of the resident, so it doesn't
+     * interleave with a move of the resident.
+     * 
+     * @param moveOutDate date of moving out, null if the address is current.
+     */
+    public void setMoveOutDate(LocalDate moveOutDate) {
+        int day = EpochDay.of(moveOutDate, EpochDay.OPEN);
+        Person person = resident;
+        if (person == null) {
+            this.moveOutDay = day;
+            return;
+        }
+        
+        synchronized (person) {
+            person.beforeAddressInfoChange(this);
+            int oldMoveOutDay = this.moveOutDay;
+            this.moveOutDay = day;
+            person.fireMoveOutDateChanged(this, EpochDay.toLocalDate(oldMoveOutDay));
+        }
+    }
+    
+    /**
+     * Sets the move out date without notifying the listeners of the resident. Used when the
+     * address is closed as a part of a move, which is notified as a whole.
+     * 
+     * @param moveOutDay epoch day of moving out.
+     */
+    void closeAt(int moveOutDay) {
+        this.moveOutDay = moveOutDay;
+    }
+    
+    /**
+     * Creates a copy of address info for the same resident. The address is shared, as addresses
+     * are immutable.
+     * 
+     * @param addressInfo address info object to be copied.
+     * @return copy of the address info object.
+     */
+    public static AddressInfo copyOf(AddressInfo addressInfo) {
+        return copyOf(addressInfo, addressInfo.getResident());
+    }
+    
+    /**
+     * Creates a copy of address info for another resident, like a copy of the original resident.
+     * 
+     * @param addressInfo address info object to be copied.
+     * @param resident resident of the copy.
+     * @return copy of the address info object.
+     */
+    public static AddressInfo copyOf(AddressInfo addressInfo, Person resident) {
+        return new AddressInfo(addressInfo.getAddress(),
+                resident,
+                addressInfo.getMoveInDay(),
+                addressInfo.getMoveOutDay());
+    }
+    
+    @Override
+    public boolean equals(Object a2) {
+        Metrics.recordCall(Operation.ADDRESS_INFO_EQUALS);
+        if (this == a2) {
+            return true;
+        }
+        
+        if (!(a2 instanceof AddressInfo)) {
+            return false;
+        }
+        
+        AddressInfo other = (AddressInfo) a2;
+        
+        return moveInDay == other.getMoveInDay() && moveOutDay == other.getMoveOutDay()
+                && address.equals(other.getAddress()) && resident.equals(other.getResident());
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(address) * 31 + Objects.hashCode(resident);
+        
+        return (hash * 31 + moveInDay) * 31 + moveOutDay;
+    }
+}
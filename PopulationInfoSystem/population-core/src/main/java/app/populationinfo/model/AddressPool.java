@@ -0,0 +1,78 @@
+package app.populationinfo.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of shared addresses. A city has far fewer distinct addresses than there are address infos
+ * pointing to them, so interning keeps only one instance of each address and of each area code
+ * string. Addresses coming from the same pool can mostly be compared by reference.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class AddressPool {
+    private final ConcurrentHashMap<Address, Address> addresses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> areaCodes = new ConcurrentHashMap<>();
+    
+    /**
+     * Gets the shared instance of an address.
+     * 
+     * @param name name of the address.
+     * @param areaCode area code of the address.
+     * @return shared address with the given name and area code.
+     */
+    public Address intern(String name, String areaCode) {
+        return intern(new Address(name, areaCode));
+    }
+    
+    /**
+     * Gets the shared instance of an address. If no equal address has been added to the pool yet,
+     * the given address becomes the shared instance.
+     * 
+     * @param address address to be interned.
+     * @return shared address equal to the given one.
+     */
+    public Address intern(Address address) {
+        Address interned = addresses.get(address);
+        if (interned != null) {
+            return interned;
+        }
+        
+        String areaCode = internAreaCode(address.getAreaCode());
+        Address candidate = areaCode == address.getAreaCode() ? address : new Address(address.getName(), areaCode);
+        interned = addresses.putIfAbsent(candidate, candidate);
+        
+        return interned != null ? interned : candidate;
+    }
+    
+    /**
+     * Finds the shared instance of an address without adding it to the pool.
+     * 
+     * @param name name of the address.
+     * @param areaCode area code of the address.
+     * @return shared address, null if not in the pool.
+     */
+    public Address find(String name, String areaCode) {
+        return addresses.get(new Address(name, areaCode));
+    }
+    
+    /**
+     * Gets the shared instance of an area code.
+     * 
+     * @param areaCode area code to be interned.
+     * @return shared area code string.
+     */
+    public String internAreaCode(String areaCode) {
+        String interned = areaCodes.putIfAbsent(areaCode, areaCode);
+        
+        return interned != null ? interned : areaCode;
+    }
+    
+    /**
+     * @return number of distinct addresses in the pool.
+     */
+    public int size() {
+        return addresses.size();
+    }
+}
@@ -0,0 +1,96 @@
+package app.populationinfo.model;
+
+import java.time.LocalDate;
+
+/**
+ * Dates as days from 1970-01-01, the representation persons and address infos keep their dates
+ * in. Dates that are not set and move out dates of current addresses have sentinels, so that
+ * comparisons don't need null checks. The year and age calculations work on the day numbers and
+ * don't create date objects.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class EpochDay {
+    /**
+     * Day of a date that is not set. Comes before any other day.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+    
+    /**
+     * Move out day of the current address. Comes after any other day.
+     */
+    public static final int OPEN = Integer.MAX_VALUE;
+    
+    private static final int DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_ERA = 146097;
+    
+    private EpochDay() {
+    }
+    
+    /**
+     * Converts a date to a day.
+     * 
+     * @param date the date.
+     * @param missing day to return if the date is null, {@link #NONE} or {@link #OPEN}.
+     * @return the day.
+     */
+    public static int of(LocalDate date, int missing) {
+        return date != null ? Math.toIntExact(date.toEpochDay()) : missing;
+    }
+    
+    /**
+     * Converts a day to a date.
+     * 
+     * @param day the day.
+     * @return the date, null if the day is {@link #NONE} or {@link #OPEN}.
+     */
+    public static LocalDate toLocalDate(int day) {
+        return day == NONE || day == OPEN ? null : LocalDate.ofEpochDay(day);
+    }
+    
+    /**
+     * @param day the day.
+     * @return year of the day.
+     */
+    public static int yearOf(int day) {
+        return (int) (civil(day) >> 9);
+    }
+    
+    /**
+     * Counts whole years from a day to another, like the age on the last day of a person born on
+     * the first day.
+     * 
+     * @param from the first day.
+     * @param to the last day, not before the first day.
+     * @return number of whole years.
+     */
+    public static int yearsBetween(int from, int to) {
+        long start = civil(from);
+        long end = civil(to);
+        int years = (int) ((end >> 9) - (start >> 9));
+        
+        return (end & 511) < (start & 511) ? years - 1 : years;
+    }
+    
+    /**
+     * Converts a day to the year, month and day of month of the proleptic Gregorian calendar,
+     * packed as year * 512 + month * 32 + day of month.
+     */
+    private static long civil(int day) {
+        long shifted = (long) day + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        long dayOfEra = shifted - era * DAYS_PER_ERA;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        
+        // Years start from March, so that the leap day is the last day of the year.
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        long dayOfMonth = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        long month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        
+        return year * 512 + month * 32 + dayOfMonth;
+    }
+}
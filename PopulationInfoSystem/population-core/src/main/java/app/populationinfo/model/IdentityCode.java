@@ -0,0 +1,292 @@
+package app.populationinfo.model;
+
+/**
+ * Identity code of a person, packed into two longs. Codes of up to 24 characters made of digits,
+ * capital letters, '+' and '-' are packed 12 characters per long in base 40, so that equality,
+ * hashing and ordering are integer operations. The unsigned order of the packed values is the
+ * same as the order of the code strings. Other codes are kept as strings only, and compared as
+ * strings.
+ * 
+ * <p>Any code is accepted as an identity code, as persons may come from sources with codes of their
+ * own. {@link #isValid(CharSequence)} and {@link #parse(String)} check that a code is a Finnish
+ * personal identity code: date of birth as DDMMYY, the century sign, a three digit individual
+ * number and the check character, which is the nine digit number formed by the date and the
+ * individual number modulo 31 looked up from {@value #CHECK_CHARACTERS}. The static methods work
+ * on the characters of the code and don't allocate.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class IdentityCode implements Comparable<IdentityCode> {
+    /**
+     * Packed value returned for codes that can't be packed. No code packs to it.
+     */
+    public static final long NOT_PACKED = -1l;
+    
+    /**
+     * Maximum length of codes that can be packed.
+     */
+    public static final int MAX_PACKED_LENGTH = 24;
+    
+    /**
+     * Length of a personal identity code.
+     */
+    public static final int PERSONAL_LENGTH = 11;
+    
+    static final String CHECK_CHARACTERS = "0123456789ABCDEFHJKLMNPRSTUVWXY";
+    
+    private static final int RADIX = 40;
+    private static final int CHARACTERS_PER_LONG = 12;
+    
+    private final long high;
+    private final long low;
+    private final String text;
+    
+    private IdentityCode(long high, long low, String text) {
+        this.high = high;
+        this.low = low;
+        this.text = text;
+    }
+    
+    /**
+     * Creates an identity code from any string.
+     * 
+     * @param identityCode the code.
+     * @return the identity code, null if the code is null.
+     */
+    public static IdentityCode of(String identityCode) {
+        if (identityCode == null) {
+            return null;
+        }
+        
+        long high = packHigh(identityCode);
+        
+        return new IdentityCode(high, high != NOT_PACKED ? packLow(identityCode) : NOT_PACKED, identityCode);
+    }
+    
+    /**
+     * Creates an identity code from a Finnish personal identity code.
+     * 
+     * @param identityCode the code.
+     * @return the identity code.
+     * @throws IllegalArgumentException if the code is not a valid personal identity code.
+     */
+    public static IdentityCode parse(String identityCode) {
+        if (!isValid(identityCode)) {
+            throw new IllegalArgumentException("Invalid personal identity code: " + identityCode);
+        }
+        
+        return of(identityCode);
+    }
+    
+    /**
+     * Checks if a code is a valid Finnish personal identity code, including the date and the
+     * check character.
+     * 
+     * @param identityCode the code.
+     * @return true if the code is valid, otherwise false.
+     */
+    public static boolean isValid(CharSequence identityCode) {
+        if (identityCode == null || identityCode.length() != PERSONAL_LENGTH) {
+            return false;
+        }
+        
+        int number = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 6) {
+                continue;
+            }
+            
+            char c = identityCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            number = number * 10 + (c - '0');
+        }
+        
+        int century = century(identityCode.charAt(6));
+        int day = number / 10000000;
+        int month = number / 100000 % 100;
+        int year = century + number / 1000 % 100;
+        int individual = number % 1000;
+        
+        return century > 0 && month >= 1 && month <= 12 && day >= 1 && day <= daysIn(month, year)
+                && individual >= 2 && identityCode.charAt(10) == CHECK_CHARACTERS.charAt(number % 31);
+    }
+    
+    /**
+     * Packs the first 12 characters of a code.
+     * 
+     * @param identityCode the code.
+     * @return packed characters, {@link #NOT_PACKED} if the code can't be packed.
+     */
+    public static long packHigh(CharSequence identityCode) {
+        int length = identityCode.length();
+        if (length > MAX_PACKED_LENGTH) {
+            return NOT_PACKED;
+        }
+        
+        // Checks the rest of the code as well, so that a code either packs as a whole or not at all.
+        for (int i = CHARACTERS_PER_LONG; i < length; i++) {
+            if (symbol(identityCode.charAt(i)) < 0) {
+                return NOT_PACKED;
+            }
+        }
+        
+        return pack(identityCode, 0);
+    }
+    
+    /**
+     * Packs the characters 12 to 23 of a code that can be packed.
+     * 
+     * @param identityCode the code, one for which {@link #packHigh(CharSequence)} didn't return
+     * {@link #NOT_PACKED}.
+     * @return packed characters.
+     */
+    public static long packLow(CharSequence identityCode) {
+        return pack(identityCode, CHARACTERS_PER_LONG);
+    }
+    
+    /**
+     * Mixes packed values into a hash code. Packed values of short codes end with zero digits, so
+     * every bit is mixed into the low bits that hash tables use.
+     * 
+     * @param high packed first characters.
+     * @param low packed last characters.
+     * @return hash code.
+     */
+    public static int hash(long high, long low) {
+        long hash = high * 31 + low;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdl;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53l;
+        
+        return (int) (hash ^ (hash >>> 33));
+    }
+    
+    /**
+     * @return packed first 12 characters, {@link #NOT_PACKED} if the code is not packed.
+     */
+    public long getHigh() {
+        return high;
+    }
+    
+    /**
+     * @return packed characters 12 to 23, {@link #NOT_PACKED} if the code is not packed.
+     */
+    public long getLow() {
+        return low;
+    }
+    
+    /**
+     * @return true if the code is packed, false if it is kept as a string only.
+     */
+    public boolean isPacked() {
+        return high != NOT_PACKED;
+    }
+    
+    /**
+     * @return true if the code is a valid Finnish personal identity code.
+     */
+    public boolean isValid() {
+        return isValid(text);
+    }
+    
+    @Override
+    public int compareTo(IdentityCode other) {
+        if (high == NOT_PACKED || other.high == NOT_PACKED) {
+            return text.compareTo(other.text);
+        }
+        
+        int comparison = Long.compareUnsigned(high, other.high);
+        
+        return comparison != 0 ? comparison : Long.compareUnsigned(low, other.low);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        
+        if (!(o instanceof IdentityCode)) {
+            return false;
+        }
+        
+        IdentityCode other = (IdentityCode) o;
+        
+        return high == other.high && low == other.low && (high != NOT_PACKED || text.equals(other.text));
+    }
+    
+    @Override
+    public int hashCode() {
+        return high != NOT_PACKED ? hash(high, low) : text.hashCode();
+    }
+    
+    /**
+     * @return the code as it was given.
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+    
+    private static long pack(CharSequence identityCode, int start) {
+        int end = Math.min(identityCode.length(), start + CHARACTERS_PER_LONG);
+        long packed = 0;
+        for (int i = start; i < start + CHARACTERS_PER_LONG; i++) {
+            int symbol = i < end ? symbol(identityCode.charAt(i)) : 0;
+            if (symbol < 0) {
+                return NOT_PACKED;
+            }
+            packed = packed * RADIX + symbol;
+        }
+        
+        return packed;
+    }
+    
+    /**
+     * Maps a character to its digit in base 40. The digits follow the character codes, and 0 is
+     * left for the padding after the end of the code, so that packed values sort like strings.
+     */
+    private static int symbol(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 3;
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 13;
+        } else if (c == '+') {
+            return 1;
+        } else if (c == '-') {
+            return 2;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Maps a century sign to the first year of the century, 0 for unknown signs.
+     */
+    private static int century(char sign) {
+        switch (sign) {
+            case '+':
+                return 1800;
+            case '-': case 'U': case 'V': case 'W': case 'X': case 'Y':
+                return 1900;
+            case 'A': case 'B': case 'C': case 'D': case 'E': case 'F':
+                return 2000;
+            default:
+                return 0;
+        }
+    }
+    
+    private static int daysIn(int month, int year) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
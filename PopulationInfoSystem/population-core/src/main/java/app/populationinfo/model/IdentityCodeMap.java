@@ -0,0 +1,203 @@
+package app.populationinfo.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map keyed by identity codes. Packed codes are kept in an open addressing table of primitive
+ * longs, so finding a value by a code string only packs the characters of the code and compares
+ * longs, without creating a key object or hashing the string. Codes that can't be packed are kept
+ * in a separate hash map.
+ * 
+ * <p>The map is not thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ * 
+ * @param <V> type of the values.
+ */
+public final class IdentityCodeMap<V> {
+    private static final int MINIMUM_CAPACITY = 16;
+    
+    /**
+     * Packed codes, the high and the low long of each slot next to each other.
+     */
+    private long[] keys;
+    private Object[] values;
+    private int packedSize;
+    private final Map<String, V> unpacked = new HashMap<>();
+    
+    /**
+     * Constructor.
+     */
+    public IdentityCodeMap() {
+        this(MINIMUM_CAPACITY / 2);
+    }
+    
+    /**
+     * Constructor with expected size.
+     * 
+     * @param expectedSize expected number of values.
+     */
+    public IdentityCodeMap(int expectedSize) {
+        allocate(Math.max(MINIMUM_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) * 2));
+    }
+    
+    /**
+     * Finds a value by an identity code.
+     * 
+     * @param identityCode the code.
+     * @return found value, null if not found.
+     */
+    public V get(CharSequence identityCode) {
+        long high = IdentityCode.packHigh(identityCode);
+        if (high == IdentityCode.NOT_PACKED) {
+            return unpacked.get(identityCode.toString());
+        }
+        
+        int slot = find(high, IdentityCode.packLow(identityCode));
+        
+        return slot >= 0 ? value(slot) : null;
+    }
+    
+    /**
+     * Finds a value by an identity code.
+     * 
+     * @param identityCode the code.
+     * @return found value, null if not found.
+     */
+    public V get(IdentityCode identityCode) {
+        if (!identityCode.isPacked()) {
+            return unpacked.get(identityCode.toString());
+        }
+        
+        int slot = find(identityCode.getHigh(), identityCode.getLow());
+        
+        return slot >= 0 ? value(slot) : null;
+    }
+    
+    /**
+     * Adds a value unless the code already has one.
+     * 
+     * @param identityCode the code.
+     * @param value value to be added, not null.
+     * @return the existing value, null if the value was added.
+     */
+    public V putIfAbsent(IdentityCode identityCode, V value) {
+        if (!identityCode.isPacked()) {
+            return unpacked.putIfAbsent(identityCode.toString(), value);
+        }
+        
+        int slot = find(identityCode.getHigh(), identityCode.getLow());
+        if (slot >= 0) {
+            return value(slot);
+        }
+        
+        insert(identityCode.getHigh(), identityCode.getLow(), value);
+        if (++packedSize * 2 > values.length) {
+            resize();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Removes the value of a code.
+     * 
+     * @param identityCode the code.
+     * @return removed value, null if the code had no value.
+     */
+    public V remove(CharSequence identityCode) {
+        long high = IdentityCode.packHigh(identityCode);
+        if (high == IdentityCode.NOT_PACKED) {
+            return unpacked.remove(identityCode.toString());
+        }
+        
+        int slot = find(high, IdentityCode.packLow(identityCode));
+        if (slot < 0) {
+            return null;
+        }
+        
+        V removed = value(slot);
+        delete(slot);
+        packedSize--;
+        
+        return removed;
+    }
+    
+    /**
+     * @return number of values in the map.
+     */
+    public int size() {
+        return packedSize + unpacked.size();
+    }
+    
+    private int find(long high, long low) {
+        int mask = values.length - 1;
+        int slot = IdentityCode.hash(high, low) & mask;
+        while (values[slot] != null) {
+            if (keys[2 * slot] == high && keys[2 * slot + 1] == low) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Empties a slot and shifts the following entries of the probe sequence back, so that lookups
+     * don't need markers for removed entries.
+     */
+    private void delete(int slot) {
+        int mask = values.length - 1;
+        int empty = slot;
+        int next = (empty + 1) & mask;
+        while (values[next] != null) {
+            int home = IdentityCode.hash(keys[2 * next], keys[2 * next + 1]) & mask;
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                keys[2 * empty] = keys[2 * next];
+                keys[2 * empty + 1] = keys[2 * next + 1];
+                values[empty] = values[next];
+                empty = next;
+            }
+            next = (next + 1) & mask;
+        }
+        
+        values[empty] = null;
+    }
+    
+    private void insert(long high, long low, Object value) {
+        int mask = values.length - 1;
+        int slot = IdentityCode.hash(high, low) & mask;
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        
+        keys[2 * slot] = high;
+        keys[2 * slot + 1] = low;
+        values[slot] = value;
+    }
+    
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldValues.length * 2);
+        
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                insert(oldKeys[2 * i], oldKeys[2 * i + 1], oldValues[i]);
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[2 * capacity];
+        values = new Object[capacity];
+    }
+    
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+}
@@ -0,0 +1,450 @@
+package app.populationinfo.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import app.populationinfo.metrics.Metrics;
+import app.populationinfo.metrics.Operation;
+
+/**
+ * Person class. Holds information about person and takes care of the implemented business logic.
+ * 
+ * <p>A person can be shared between threads. Changes are serialized with the lock of the person,
+ * so a move closes the previous address and adds the new one atomically. Reads don't lock: the
+ * address history and the parents are published as immutable snapshots.</p>
+ * 
+ * <p>Dates are kept as epoch days. The day getters are meant for comparisons on hot paths, the
+ * date getters create the dates when called.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class Person {
+    private volatile IdentityCode identityCode;
+    private volatile String firstName;
+    private volatile String lastName;
+    private volatile int birthDay = EpochDay.NONE;
+    private volatile int deathDay = EpochDay.NONE;
+    private volatile List<Person> parents;
+    private volatile AddressHistory addresses;
+    private volatile List<PersonChangeListener> changeListeners;
+    
+    /**
+     * Constructor for subclasses that keep the data of the person elsewhere and override the
+     * getters and the business logic.
+     */
+    protected Person() {
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param identityCode person's personal identity code.
+     * @param firstName person's first name.
+     * @param lastName person's last name.
+     * @param timeOfBirth date of birth of person.
+     * @param parents parents of person. Can be unknown.
+     */
+    public Person(String identityCode, String firstName, String lastName, LocalDate timeOfBirth, List<Person> parents) {
+        this.identityCode = IdentityCode.of(identityCode);
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.birthDay = EpochDay.of(timeOfBirth, EpochDay.NONE);
+        this.parents = copyOfParents(parents);
+        this.addresses = new AddressHistory();
+    }
+    
+    /**
+     * Constructor with time of death.
+     * 
+     * @param identityCode person's personal identity code.
+     * @param firstName person's first name.
+     * @param lastName person's last name.
+     * @param timeOfBirth date of birth of person.
+     * @param timeOfDeath date of death of person.
+     * @param parents parents of person. Can be unknown.
+     */
+    public Person(String identityCode, String firstName, String lastName, LocalDate timeOfBirth, LocalDate timeOfDeath, List<Person> parents) {
+        this.identityCode = IdentityCode.of(identityCode);
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.birthDay = EpochDay.of(timeOfBirth, EpochDay.NONE);
+        this.deathDay = EpochDay.of(timeOfDeath, EpochDay.NONE);
+        this.parents = copyOfParents(parents);
+        this.addresses = new AddressHistory();
+    }
+    
+    public String getIdentityCode() {
+        IdentityCode code = identityCode;
+        
+        return code != null ? code.toString() : null;
+    }
+    
+    /**
+     * Gets the identity code as a packed key for comparing, hashing and sorting persons.
+     * 
+     * @return identity code of the person, null if the person has none.
+     */
+    public IdentityCode getIdentityCodeKey() {
+        return identityCode;
+    }
+    
+    public synchronized void setIdentityCode(String identityCode) {
+        String oldIdentityCode = getIdentityCode();
+        this.identityCode = IdentityCode.of(identityCode);
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.identityCodeChanged(this, oldIdentityCode);
+            }
+        }
+    }
+    
+    public String getFirstName() {
+        return firstName;
+    }
+    
+    public synchronized void setFirstName(String firstName) {
+        String oldFirstName = this.firstName;
+        this.firstName = firstName;
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.nameChanged(this, oldFirstName, lastName);
+            }
+        }
+    }
+    
+    public String getLastName() {
+        return lastName;
+    }
+    
+    public synchronized void setLastName(String lastName) {
+        String oldLastName = this.lastName;
+        this.lastName = lastName;
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.nameChanged(this, firstName, oldLastName);
+            }
+        }
+    }
+    
+    public LocalDate getTimeOfBirth() {
+        return EpochDay.toLocalDate(birthDay);
+    }
+    
+    /**
+     * @return epoch day of birth, {@link EpochDay#NONE} if unknown.
+     */
+    public int getBirthDay() {
+        return birthDay;
+    }
+    
+    public synchronized void setTimeOfBirth(LocalDate timeOfBirth) {
+        int oldBirthDay = this.birthDay;
+        this.birthDay = EpochDay.of(timeOfBirth, EpochDay.NONE);
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.timeOfBirthChanged(this, EpochDay.toLocalDate(oldBirthDay));
+            }
+        }
+    }
+    
+    public LocalDate getTimeOfDeath() {
+        return EpochDay.toLocalDate(deathDay);
+    }
+    
+    /**
+     * @return epoch day of death, {@link EpochDay#NONE} if the person is alive.
+     */
+    public int getDeathDay() {
+        return deathDay;
+    }
+    
+    public synchronized void setTimeOfDeath(LocalDate timeOfDeath) {
+        int oldDeathDay = this.deathDay;
+        this.deathDay = EpochDay.of(timeOfDeath, EpochDay.NONE);
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.timeOfDeathChanged(this, EpochDay.toLocalDate(oldDeathDay));
+            }
+        }
+    }
+    
+    public List<Person> getParents() {
+        return parents;
+    }
+    
+    public synchronized void setParents(List<Person> parents) {
+        this.parents = copyOfParents(parents);
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.parentsReplaced(this);
+            }
+        }
+    }
+    
+    /**
+     * Gets the address history of the person.
+     * 
+     * @return read-only list of address infos, newest first.
+     */
+    public List<AddressInfo> getAddresses() {
+        return addresses;
+    }
+    
+    /**
+     * Replaces the address history of the person.
+     * 
+     * @param addresses address infos, newest first.
+     */
+    public synchronized void setAddresses(List<AddressInfo> addresses) {
+        AddressHistory history = new AddressHistory(addresses);
+        if (this.addresses != null) {
+            history.keepLent(this.addresses);
+        }
+        this.addresses = history;
+        fireAddressesReplaced();
+    }
+    
+    /**
+     * Adds a new parent for person.
+     * 
+     * @param parent person to be added as a parent
+     */
+    public synchronized void addParent(Person parent) { 
+        // Current law permits only two parents for a person
+        if (parents.size() >= 2) {
+            throw new IllegalArgumentException("Only two parents permitted!");
+        }
+        
+        parents.add(parent);
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.parentAdded(this, parent);
+            }
+        }
+    }
+    
+    /**
+     * Removes given person from the list of parents.
+     * 
+     * @param person person to be removed from the list of parents.
+     * @return true if given person is found and removed, otherwise false.
+     */
+    public synchronized boolean removeParent(Person person) {
+        boolean removed = parents.remove(person);
+        
+        if (removed && changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.parentRemoved(this, person);
+            }
+        }
+        
+        return removed;
+    }
+    
+    /**
+     * Adds a new address for person. Stops the old addresses.
+     * 
+     * @param address new address for person.
+     * @param moveInDate move in date for the new address
+     * @return address info of the added address.
+     */
+    public synchronized AddressInfo addAddress(Address address, LocalDate moveInDate) {
+        long startTime = Metrics.startTime();
+        int moveInDay = Math.toIntExact(moveInDate.toEpochDay());
+        AddressInfo addressInfo = new AddressInfo(address, this, moveInDay, EpochDay.OPEN);
+        
+        // Check if the person has a current active address. The new address is published before the
+        // old one is closed, so lock-free readers always find a current address during the move.
+        AddressInfo currentAddressInfo = addresses.findCurrent();
+        addresses.append(addressInfo);
+        if (currentAddressInfo != null) {
+            currentAddressInfo.closeAt(moveInDay - 1);
+        }
+        
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.addressAdded(this, addressInfo, currentAddressInfo);
+            }
+        }
+        
+        Metrics.recordLatency(Operation.ADD_ADDRESS, startTime);
+        Metrics.recordHistoryLength(addresses.size());
+        
+        return addressInfo;
+    }
+    
+    /**
+     * Adds a listener that gets notified of the changes in the person and in the person's address infos.
+     * 
+     * @param listener listener to be added.
+     */
+    public synchronized void addChangeListener(PersonChangeListener listener) {
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArrayList<>();
+        }
+        
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * Removes a change listener.
+     * 
+     * @param listener listener to be removed.
+     * @return true if the listener was found and removed, otherwise false.
+     */
+    public boolean removeChangeListener(PersonChangeListener listener) {
+        return changeListeners != null && changeListeners.remove(listener);
+    }
+    
+    /**
+     * Notifies the listeners of a changed move out date.
+     * 
+     * @param addressInfo changed address info of the person.
+     * @param oldMoveOutDate move out date before the change.
+     */
+    void fireMoveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.moveOutDateChanged(addressInfo, oldMoveOutDate);
+            }
+        }
+    }
+    
+    /**
+     * Notifies the listeners that the address history has been replaced or that the address or the
+     * move in date of one of its address infos has been changed.
+     */
+    void fireAddressesReplaced() {
+        if (changeListeners != null) {
+            for (PersonChangeListener listener : changeListeners) {
+                listener.addressesReplaced(this);
+            }
+        }
+    }
+    
+    /**
+     * Called with the lock of the person before an address info of the person is changed, so
+     * copies of the person still borrowing the address info keep its old values.
+     * 
+     * @param addressInfo address info about to change.
+     */
+    void beforeAddressInfoChange(AddressInfo addressInfo) {
+        AddressHistory history = addresses;
+        if (history != null) {
+            history.beforeChange(addressInfo);
+        }
+    }
+    
+    private static List<Person> copyOfParents(List<Person> parents) {
+        return parents != null ? new CopyOnWriteArrayList<>(parents) : new CopyOnWriteArrayList<>();
+    }
+    
+    /**
+     * Creates a copy of the person object. The copy is a snapshot of the person: it has its own
+     * list of parents and its own address history with address infos of its own, so the person
+     * and the copy can be changed independently. The parents themselves are not copied.
+     * 
+     * <p>Copying takes constant time. The address history of the copy borrows the entries of the
+     * original and copies them only when the history of the copy is read or changed, see
+     * {@link AddressHistory}.</p>
+     * 
+     * @param person person to be copied.
+     * @return a copy of the person.
+     */
+    public static Person copyOf(Person person) {
+        synchronized (person) {
+            Person copy = new Person(person.getIdentityCode(), 
+                    person.getFirstName(), 
+                    person.getLastName(), 
+                    null, 
+                    person.getParents());
+            copy.birthDay = person.getBirthDay();
+            copy.deathDay = person.getDeathDay();
+            
+            AddressHistory history = person.addresses;
+            if (history != null) {
+                copy.addresses = history.copyFor(copy);
+            } else {
+                // The person keeps its data elsewhere, copy the address infos as they are read.
+                List<AddressInfo> addressInfos = new ArrayList<>();
+                for (AddressInfo addressInfo : person.getAddresses()) {
+                    addressInfos.add(AddressInfo.copyOf(addressInfo, copy));
+                }
+                copy.addresses = new AddressHistory(addressInfos);
+            }
+            
+            return copy;
+        }
+    }
+    
+    @Override
+    public boolean equals(Object p2) {
+        Metrics.recordCall(Operation.PERSON_EQUALS);
+        if (this == p2) {
+            return true;
+        }
+        
+        if (!(p2 instanceof Person)) {
+            return false;
+        }
+        
+        return getIdentityCodeKey().equals(((Person) p2).getIdentityCodeKey());
+    }
+    
+    @Override
+    public int hashCode() {
+        return getIdentityCodeKey().hashCode();
+    }
+    
+    /**
+     * Finds current address.
+     * 
+     * @return found address info if address is found, null if address is not found.
+     */
+    public AddressInfo findCurrentAddress() {
+        long startTime = Metrics.startTime();
+        AddressInfo addressInfo = addresses.findCurrent();
+        Metrics.recordLatency(Operation.FIND_CURRENT_ADDRESS, startTime);
+        
+        return addressInfo;
+    }
+    
+    /**
+     * Gets a person's address info by address.
+     * 
+     * @param address address to be looked for.
+     * @return address info if corresponding address is found, null if not.
+     */
+    public AddressInfo findAddressInfoByAddress(Address address) {
+        long startTime = Metrics.startTime();
+        AddressInfo addressInfo = addresses.findByAddress(address);
+        Metrics.recordLatency(Operation.FIND_ADDRESS_INFO_BY_ADDRESS, startTime);
+        
+        return addressInfo;
+    }
+    
+    /**
+     * Finds the address info that was valid on the given date.
+     * 
+     * @param date date to be looked for.
+     * @return address info if the person had an address on the date, null if not.
+     */
+    public AddressInfo findAddressOn(LocalDate date) {
+        long startTime = Metrics.startTime();
+        AddressInfo addressInfo = addresses.findOn(date);
+        Metrics.recordLatency(Operation.FIND_ADDRESS_ON, startTime);
+        
+        return addressInfo;
+    }
+}
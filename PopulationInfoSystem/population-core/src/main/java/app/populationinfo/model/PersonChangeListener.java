@@ -0,0 +1,106 @@
+package app.populationinfo.model;
+
+import java.time.LocalDate;
+
+/**
+ * Listener for changes in a person and in the person's address infos. All methods are called
+ * after the change has been made. Listeners are added with {@link Person#addChangeListener}.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public interface PersonChangeListener {
+    
+    /**
+     * Called when a new address has been added for a person.
+     * 
+     * @param person person that moved.
+     * @param addressInfo address info of the new address.
+     * @param closedAddressInfo previous current address that got a move out date because of the move,
+     * null if the person had no current address.
+     */
+    default void addressAdded(Person person, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+    }
+    
+    /**
+     * Called when the move out date of an address info has been changed directly.
+     * 
+     * @param addressInfo changed address info.
+     * @param oldMoveOutDate move out date before the change.
+     */
+    default void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+    }
+    
+    /**
+     * Called when the whole address history of a person has been replaced, or when the address or
+     * the move in date of one of its address infos has been changed.
+     * 
+     * @param person changed person.
+     */
+    default void addressesReplaced(Person person) {
+    }
+    
+    /**
+     * Called when the identity code of a person has been changed.
+     * 
+     * @param person changed person.
+     * @param oldIdentityCode identity code before the change.
+     */
+    default void identityCodeChanged(Person person, String oldIdentityCode) {
+    }
+    
+    /**
+     * Called when the first or the last name of a person has been changed.
+     * 
+     * @param person changed person.
+     * @param oldFirstName first name before the change.
+     * @param oldLastName last name before the change.
+     */
+    default void nameChanged(Person person, String oldFirstName, String oldLastName) {
+    }
+    
+    /**
+     * Called when the time of birth of a person has been changed.
+     * 
+     * @param person changed person.
+     * @param oldTimeOfBirth time of birth before the change.
+     */
+    default void timeOfBirthChanged(Person person, LocalDate oldTimeOfBirth) {
+    }
+    
+    /**
+     * Called when the time of death of a person has been changed.
+     * 
+     * @param person changed person.
+     * @param oldTimeOfDeath time of death before the change.
+     */
+    default void timeOfDeathChanged(Person person, LocalDate oldTimeOfDeath) {
+    }
+    
+    /**
+     * Called when a parent has been added for a person.
+     * 
+     * @param person changed person.
+     * @param parent added parent.
+     */
+    default void parentAdded(Person person, Person parent) {
+    }
+    
+    /**
+     * Called when a parent has been removed from a person.
+     * 
+     * @param person changed person.
+     * @param parent removed parent.
+     */
+    default void parentRemoved(Person person, Person parent) {
+    }
+    
+    /**
+     * Called when the whole list of parents of a person has been replaced.
+     * 
+     * @param person changed person.
+     */
+    default void parentsReplaced(Person person) {
+    }
+}
@@ -0,0 +1,312 @@
+package app.populationinfo.query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Reverse index from an address to the address infos of the persons who live or have lived there,
+ * split into the current residents and the past ones. Indexed persons are listened to, so a move
+ * adds the new address info to the current residents of its address and moves the closed one to
+ * the past residents in a single update, made while the moving person is still locked. Queries
+ * cost the number of address infos at the addresses involved, not the size of the population.
+ * 
+ * <p>Address infos are kept by identity, as their equality depends on their move out dates. A
+ * change of the address or the move in date of an address info is notified as a replaced address
+ * history, so the person is indexed again. The index is thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class HouseholdIndex implements PersonChangeListener {
+    private static final Comparator<Person> BY_IDENTITY_CODE = Comparator.comparing(Person::getIdentityCodeKey,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+    
+    /**
+     * Address infos at an address.
+     */
+    private static final class Household {
+        private final Set<AddressInfo> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<AddressInfo> past = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+    
+    private final Map<Person, List<AddressInfo>> indexed = new IdentityHashMap<>();
+    private final Map<Address, Household> households = new HashMap<>();
+    
+    /**
+     * Address each indexed address info is linked under, which differs from the current address of
+     * the address info after the address has been changed and before the person is indexed again.
+     */
+    private final Map<AddressInfo, Address> linkedAddresses = new IdentityHashMap<>();
+    
+    /**
+     * Creates an index of a population.
+     * 
+     * @param population persons to be indexed.
+     * @return new index.
+     */
+    public static HouseholdIndex of(Collection<? extends Person> population) {
+        HouseholdIndex index = new HouseholdIndex();
+        for (Person person : population) {
+            index.add(person);
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Adds a person to the index and starts following the changes of the person.
+     * 
+     * @param person person to be indexed.
+     */
+    public void add(Person person) {
+        synchronized (person) {
+            synchronized (this) {
+                if (indexed.containsKey(person)) {
+                    return;
+                }
+                
+                reindex(person);
+            }
+            
+            person.addChangeListener(this);
+        }
+    }
+    
+    /**
+     * Removes a person from the index.
+     * 
+     * @param person person to be removed.
+     * @return true if the person was indexed, otherwise false.
+     */
+    public boolean remove(Person person) {
+        synchronized (person) {
+            person.removeChangeListener(this);
+            synchronized (this) {
+                List<AddressInfo> addressInfos = indexed.remove(person);
+                if (addressInfos == null) {
+                    return false;
+                }
+                
+                for (AddressInfo addressInfo : addressInfos) {
+                    unlink(addressInfo);
+                }
+                
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * @return number of indexed persons.
+     */
+    public synchronized int size() {
+        return indexed.size();
+    }
+    
+    /**
+     * Counts the persons currently living at an address.
+     * 
+     * @param address the address.
+     * @return number of current residents.
+     */
+    public synchronized int getHouseholdSize(Address address) {
+        Household household = households.get(address);
+        
+        return household != null ? household.current.size() : 0;
+    }
+    
+    /**
+     * Finds the persons currently living at an address.
+     * 
+     * @param address the address.
+     * @return current residents ordered by identity code, empty list if none.
+     */
+    public synchronized List<Person> findCurrentResidents(Address address) {
+        Household household = households.get(address);
+        
+        return household != null ? residentsOf(household.current) : Collections.emptyList();
+    }
+    
+    /**
+     * Finds the persons who have lived at an address and moved out.
+     * 
+     * @param address the address.
+     * @return past residents ordered by identity code, empty list if none.
+     */
+    public synchronized List<Person> findPastResidents(Address address) {
+        Household household = households.get(address);
+        
+        return household != null ? residentsOf(household.past) : Collections.emptyList();
+    }
+    
+    /**
+     * Finds the persons who live or have lived at an address. A person who has lived at the
+     * address more than once is listed once.
+     * 
+     * @param address the address.
+     * @return residents ordered by identity code, empty list if none.
+     */
+    public synchronized List<Person> findAllResidents(Address address) {
+        Household household = households.get(address);
+        if (household == null) {
+            return Collections.emptyList();
+        }
+        
+        List<AddressInfo> addressInfos = new ArrayList<>(household.current);
+        addressInfos.addAll(household.past);
+        
+        return residentsOf(addressInfos);
+    }
+    
+    /**
+     * Finds the persons who have lived at the same address as a person at the same time, on at
+     * least one day.
+     * 
+     * @param person the person.
+     * @return co-residents ordered by identity code, empty list if none or the person is not indexed.
+     */
+    public synchronized List<Person> findCoResidents(Person person) {
+        List<AddressInfo> addressInfos = indexed.get(person);
+        if (addressInfos == null) {
+            return Collections.emptyList();
+        }
+        
+        List<AddressInfo> overlapping = new ArrayList<>();
+        for (AddressInfo addressInfo : addressInfos) {
+            Household household = households.get(addressInfo.getAddress());
+            if (household != null) {
+                addOverlapping(household.current, addressInfo, person, overlapping);
+                addOverlapping(household.past, addressInfo, person, overlapping);
+            }
+        }
+        
+        return residentsOf(overlapping);
+    }
+    
+    @Override
+    public synchronized void addressAdded(Person person, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+        List<AddressInfo> addressInfos = indexed.get(person);
+        if (addressInfos == null) {
+            return;
+        }
+        
+        if (closedAddressInfo != null) {
+            relink(closedAddressInfo);
+        }
+        
+        addressInfos.add(addressInfo);
+        link(addressInfo);
+    }
+    
+    @Override
+    public synchronized void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        if (indexed.containsKey(addressInfo.getResident())) {
+            relink(addressInfo);
+        }
+    }
+    
+    @Override
+    public synchronized void addressesReplaced(Person person) {
+        if (indexed.containsKey(person)) {
+            reindex(person);
+        }
+    }
+    
+    /**
+     * Replaces the entries of a person with the current address history of the person.
+     */
+    private void reindex(Person person) {
+        List<AddressInfo> old = indexed.get(person);
+        if (old != null) {
+            for (AddressInfo addressInfo : old) {
+                unlink(addressInfo);
+            }
+        }
+        
+        List<AddressInfo> addressInfos = new ArrayList<>(person.getAddresses());
+        for (AddressInfo addressInfo : addressInfos) {
+            link(addressInfo);
+        }
+        indexed.put(person, addressInfos);
+    }
+    
+    private void link(AddressInfo addressInfo) {
+        linkedAddresses.put(addressInfo, addressInfo.getAddress());
+        Household household = households.computeIfAbsent(addressInfo.getAddress(), a -> new Household());
+        (isCurrent(addressInfo) ? household.current : household.past).add(addressInfo);
+    }
+    
+    private void unlink(AddressInfo addressInfo) {
+        Address address = linkedAddresses.remove(addressInfo);
+        Household household = address != null ? households.get(address) : null;
+        if (household == null) {
+            return;
+        }
+        
+        if (!household.current.remove(addressInfo)) {
+            household.past.remove(addressInfo);
+        }
+        
+        if (household.current.isEmpty() && household.past.isEmpty()) {
+            households.remove(address);
+        }
+    }
+    
+    /**
+     * Moves an address info between the current and the past residents after its move out date
+     * changed.
+     */
+    private void relink(AddressInfo addressInfo) {
+        Address address = linkedAddresses.get(addressInfo);
+        Household household = address != null ? households.get(address) : null;
+        if (household == null) {
+            link(addressInfo);
+        } else if (isCurrent(addressInfo)) {
+            household.past.remove(addressInfo);
+            household.current.add(addressInfo);
+        } else {
+            household.current.remove(addressInfo);
+            household.past.add(addressInfo);
+        }
+    }
+    
+    private static boolean isCurrent(AddressInfo addressInfo) {
+        return addressInfo.getMoveOutDay() == EpochDay.OPEN;
+    }
+    
+    private static void addOverlapping(Set<AddressInfo> candidates, AddressInfo stay, Person person, List<AddressInfo> overlapping) {
+        for (AddressInfo candidate : candidates) {
+            if (candidate.getResident() != person && candidate.getMoveInDay() <= stay.getMoveOutDay()
+                    && stay.getMoveInDay() <= candidate.getMoveOutDay()) {
+                overlapping.add(candidate);
+            }
+        }
+    }
+    
+    private static List<Person> residentsOf(Collection<AddressInfo> addressInfos) {
+        Set<Person> residents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (AddressInfo addressInfo : addressInfos) {
+            residents.add(addressInfo.getResident());
+        }
+        
+        List<Person> result = new ArrayList<>(residents);
+        result.sort(BY_IDENTITY_CODE);
+        
+        return result;
+    }
+}
@@ -0,0 +1,484 @@
+package app.populationinfo.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Fuzzy search index over the first and last names of persons. Finds the persons whose name is
+ * within a few edits of a misspelled name, like Korhoinen for Korhonen, without going through the
+ * population.
+ * 
+ * <p>Each distinct name is indexed once, by the trigrams of the name and by a phonetic key suited
+ * to Finnish and Nordic names, and the persons are attached to their names. A search takes the
+ * names sharing enough trigrams with the searched name to be within the allowed number of edits,
+ * and the names with the same phonetic key, and verifies them with an edit distance bounded by the
+ * allowed number of edits. The cost of a search depends on the number of distinct names and the
+ * number of persons returned, not on the size of the population.</p>
+ * 
+ * <p>Indexed persons are listened to, so a changed name moves the person to the new name. Names
+ * without persons stay in the index. The index is thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class NameSearchIndex implements PersonChangeListener {
+    private static final Comparator<Person> BY_IDENTITY_CODE = Comparator.comparing(Person::getIdentityCodeKey,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+    
+    /**
+     * Extra edits allowed for names with the same phonetic key as the searched name.
+     */
+    private static final int PHONETIC_EXTRA_DISTANCE = 2;
+    
+    /**
+     * Indexed values of a person.
+     */
+    private record Keys(String firstName, String lastName) {
+    }
+    
+    /**
+     * Name of a person matching a search.
+     */
+    private record Match(int name, int distance, boolean phonetic) {
+    }
+    
+    private final Map<Person, Keys> indexed = new IdentityHashMap<>();
+    private final Names firstNames = new Names();
+    private final Names lastNames = new Names();
+    
+    /**
+     * Creates an index of a population.
+     * 
+     * @param population persons to be indexed.
+     * @return new index.
+     */
+    public static NameSearchIndex of(Collection<? extends Person> population) {
+        NameSearchIndex index = new NameSearchIndex();
+        for (Person person : population) {
+            index.add(person);
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Adds a person to the index and starts following the changes of the person.
+     * 
+     * @param person person to be indexed.
+     */
+    public void add(Person person) {
+        synchronized (person) {
+            synchronized (this) {
+                if (indexed.containsKey(person)) {
+                    return;
+                }
+                
+                reindex(person);
+            }
+            
+            person.addChangeListener(this);
+        }
+    }
+    
+    /**
+     * Removes a person from the index.
+     * 
+     * @param person person to be removed.
+     * @return true if the person was indexed, otherwise false.
+     */
+    public boolean remove(Person person) {
+        synchronized (person) {
+            person.removeChangeListener(this);
+            synchronized (this) {
+                Keys keys = indexed.remove(person);
+                if (keys == null) {
+                    return false;
+                }
+                
+                firstNames.detach(keys.firstName(), person);
+                lastNames.detach(keys.lastName(), person);
+                
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * @return number of indexed persons.
+     */
+    public synchronized int size() {
+        return indexed.size();
+    }
+    
+    /**
+     * Finds the persons whose last name is closest to the given one.
+     * 
+     * @param lastName searched last name, may be misspelled.
+     * @param limit maximum number of persons returned.
+     * @return matching persons, closest names first and by identity code within a name.
+     */
+    public synchronized List<Person> findByLastName(String lastName, int limit) {
+        return top(lastNames, lastNames.search(lastName), limit);
+    }
+    
+    /**
+     * Finds the persons whose first name is closest to the given one.
+     * 
+     * @param firstName searched first name, may be misspelled.
+     * @param limit maximum number of persons returned.
+     * @return matching persons, closest names first and by identity code within a name.
+     */
+    public synchronized List<Person> findByFirstName(String firstName, int limit) {
+        return top(firstNames, firstNames.search(firstName), limit);
+    }
+    
+    /**
+     * Finds the persons whose first and last names are both close to the given ones.
+     * 
+     * @param firstName searched first name, may be misspelled.
+     * @param lastName searched last name, may be misspelled.
+     * @param limit maximum number of persons returned.
+     * @return matching persons, smallest sum of edits first and by identity code within a sum.
+     */
+    public synchronized List<Person> find(String firstName, String lastName, int limit) {
+        Map<Integer, Integer> firstNameDistances = new HashMap<>();
+        for (Match match : firstNames.search(firstName)) {
+            firstNameDistances.put(match.name(), match.distance());
+        }
+        
+        Map<Person, Integer> distances = new IdentityHashMap<>();
+        for (Match match : lastNames.search(lastName)) {
+            for (Person person : lastNames.personsOf(match.name())) {
+                Integer firstNameDistance = firstNameDistances.get(firstNames.idOf(indexed.get(person).firstName()));
+                if (firstNameDistance != null) {
+                    distances.put(person, firstNameDistance + match.distance());
+                }
+            }
+        }
+        
+        return smallest(distances.keySet(), Comparator.<Person>comparingInt(distances::get).thenComparing(BY_IDENTITY_CODE), limit);
+    }
+    
+    @Override
+    public synchronized void nameChanged(Person person, String oldFirstName, String oldLastName) {
+        if (indexed.containsKey(person)) {
+            reindex(person);
+        }
+    }
+    
+    /**
+     * Computes the phonetic key of a name. Letters are folded to the Finnish alphabet without the
+     * Nordic vowels, e.g. w to v and ä to a, doubled letters are written once and a run of vowels
+     * is reduced to its first vowel, so that the common variations of Finnish names in quantity
+     * and diphthongs get the same key.
+     * 
+     * @param name the name.
+     * @return phonetic key of the name.
+     */
+    static String phoneticKey(String name) {
+        String folded = fold(name);
+        StringBuilder key = new StringBuilder(folded.length());
+        char previous = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (c == previous || (isVowel(c) && isVowel(previous))) {
+                continue;
+            }
+            
+            key.append(c);
+            previous = c;
+        }
+        
+        return key.toString();
+    }
+    
+    /**
+     * Counts the edits between two strings, if there are at most the given number of them.
+     * 
+     * @param a first string.
+     * @param b second string.
+     * @param bound maximum number of edits of interest.
+     * @return number of edits, bound + 1 if there are more than bound edits.
+     */
+    static int distance(String a, String b, int bound) {
+        if (Math.abs(a.length() - b.length()) > bound) {
+            return bound + 1;
+        }
+        
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        
+        // Only the cells within the bound from the diagonal can stay within the bound.
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - bound);
+            int to = Math.min(b.length(), i + bound);
+            current[from - 1] = from == 1 ? i : bound + 1;
+            int rowMinimum = current[from - 1];
+            for (int j = from; j <= to; j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                int deletion = previous[j] + 1;
+                int insertion = current[j - 1] + 1;
+                current[j] = Math.min(substitution, Math.min(deletion, insertion));
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            
+            if (to < b.length()) {
+                current[to + 1] = bound + 1;
+            }
+            
+            if (rowMinimum > bound) {
+                return bound + 1;
+            }
+            
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        
+        return Math.min(previous[b.length()], bound + 1);
+    }
+    
+    /**
+     * Number of edits allowed for a searched name of the given length.
+     */
+    static int maxDistance(int length) {
+        return length <= 4 ? 1 : 2;
+    }
+    
+    private void reindex(Person person) {
+        Keys keys = new Keys(person.getFirstName(), person.getLastName());
+        Keys old = indexed.put(person, keys);
+        if (old != null) {
+            firstNames.detach(old.firstName(), person);
+            lastNames.detach(old.lastName(), person);
+        }
+        
+        firstNames.attach(keys.firstName(), person);
+        lastNames.attach(keys.lastName(), person);
+    }
+    
+    private static List<Person> top(Names names, List<Match> matches, int limit) {
+        List<Person> result = new ArrayList<>();
+        for (Match match : matches) {
+            if (result.size() >= limit) {
+                break;
+            }
+            
+            result.addAll(smallest(names.personsOf(match.name()), BY_IDENTITY_CODE, limit - result.size()));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Selects the smallest persons in order without sorting all of them.
+     */
+    private static List<Person> smallest(Collection<Person> persons, Comparator<Person> order, int limit) {
+        PriorityQueue<Person> smallest = new PriorityQueue<>(order.reversed());
+        for (Person person : persons) {
+            smallest.add(person);
+            if (smallest.size() > limit) {
+                smallest.poll();
+            }
+        }
+        
+        List<Person> sorted = new ArrayList<>(smallest);
+        sorted.sort(order);
+        
+        return sorted;
+    }
+    
+    private static String normalize(String name) {
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
+    
+    private static String fold(String name) {
+        String normalized = normalize(name);
+        StringBuilder folded = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            switch (c) {
+                case 'ä': case 'á': case 'à': case 'â': case 'æ':
+                    folded.append('a');
+                    break;
+                case 'ö': case 'ø': case 'å': case 'ó': case 'ò': case 'ô':
+                    folded.append('o');
+                    break;
+                case 'é': case 'è': case 'ê': case 'ë':
+                    folded.append('e');
+                    break;
+                case 'ü':
+                    folded.append('y');
+                    break;
+                case 'w':
+                    folded.append('v');
+                    break;
+                case 'z':
+                    folded.append('s');
+                    break;
+                case 'c': case 'q':
+                    folded.append('k');
+                    break;
+                case 'x':
+                    folded.append("ks");
+                    break;
+                default:
+                    if (Character.isLetter(c)) {
+                        folded.append(c);
+                    }
+            }
+        }
+        
+        return folded.toString();
+    }
+    
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u' || c == 'y';
+    }
+    
+    /**
+     * Distinct values of one name field with the persons having them. A name is identified by its
+     * position in the list of names.
+     */
+    private static final class Names {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<String> normalizedNames = new ArrayList<>();
+        private final List<Set<Person>> persons = new ArrayList<>();
+        private final Map<String, IntList> byTrigram = new HashMap<>();
+        private final Map<String, IntList> byPhoneticKey = new HashMap<>();
+        
+        void attach(String name, Person person) {
+            if (name == null) {
+                return;
+            }
+            
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+                normalizedNames.add(normalize(name));
+                persons.add(Collections.newSetFromMap(new IdentityHashMap<>()));
+                for (String trigram : trigrams(normalizedNames.get(id))) {
+                    byTrigram.computeIfAbsent(trigram, t -> new IntList()).add(id);
+                }
+                byPhoneticKey.computeIfAbsent(phoneticKey(name), k -> new IntList()).add(id);
+            }
+            
+            persons.get(id).add(person);
+        }
+        
+        void detach(String name, Person person) {
+            Integer id = name != null ? ids.get(name) : null;
+            if (id != null) {
+                persons.get(id).remove(person);
+            }
+        }
+        
+        Integer idOf(String name) {
+            return name != null ? ids.get(name) : null;
+        }
+        
+        Set<Person> personsOf(int id) {
+            return persons.get(id);
+        }
+        
+        /**
+         * Finds the names within the allowed number of edits from the searched name, closest
+         * first.
+         */
+        List<Match> search(String searched) {
+            String normalized = normalize(searched);
+            int bound = maxDistance(normalized.length());
+            
+            // Every edit changes at most three trigrams of the name.
+            List<String> trigrams = trigrams(normalized);
+            int required = Math.max(1, trigrams.size() - 3 * bound);
+            int[] shared = new int[names.size()];
+            List<Integer> candidates = new ArrayList<>();
+            for (String trigram : trigrams) {
+                IntList ids = byTrigram.get(trigram);
+                for (int i = 0; ids != null && i < ids.size(); i++) {
+                    if (++shared[ids.get(i)] == required) {
+                        candidates.add(ids.get(i));
+                    }
+                }
+            }
+            
+            boolean[] phonetic = new boolean[names.size()];
+            IntList sameKey = byPhoneticKey.get(phoneticKey(searched));
+            for (int i = 0; sameKey != null && i < sameKey.size(); i++) {
+                phonetic[sameKey.get(i)] = true;
+                if (shared[sameKey.get(i)] < required) {
+                    candidates.add(sameKey.get(i));
+                }
+            }
+            
+            List<Match> matches = new ArrayList<>();
+            for (int id : candidates) {
+                int allowed = phonetic[id] ? bound + PHONETIC_EXTRA_DISTANCE : bound;
+                int distance = distance(normalized, normalizedNames.get(id), allowed);
+                if (distance <= allowed && !persons.get(id).isEmpty()) {
+                    matches.add(new Match(id, distance, phonetic[id]));
+                }
+            }
+            
+            matches.sort(Comparator.comparingInt(Match::distance)
+                    .thenComparing(Match::phonetic, Comparator.reverseOrder())
+                    .thenComparing(m -> names.get(m.name())));
+            
+            return matches;
+        }
+        
+        private static List<String> trigrams(String name) {
+            String padded = "$$" + name + "$";
+            List<String> trigrams = new ArrayList<>(padded.length() - 2);
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+            
+            return trigrams;
+        }
+    }
+    
+    /**
+     * Growable list of ints.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+        
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        int get(int index) {
+            return values[index];
+        }
+        
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package app.populationinfo.query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import app.populationinfo.model.Person;
+
+/**
+ * Query over the persons of a {@link PopulationIndex}. Conditions are added with the chained
+ * methods and all of them must match:
+ * 
+ * <pre>
+ * List&lt;Person&gt; persons = index.query()
+ *         .withLastName("Korhonen")
+ *         .bornBetween(LocalDate.of(1950, 1, 1), LocalDate.of(1959, 12, 31))
+ *         .living()
+ *         .find();
+ * </pre>
+ * 
+ * <p>No condition scans the population. The most selective condition is answered from its index
+ * and the rest are checked against the indexed values of the persons it gives.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PersonQuery {
+    
+    /**
+     * Condition of a query.
+     */
+    interface Condition {
+        
+        /**
+         * @param index index queried.
+         * @return number of indexed persons matching the condition.
+         */
+        int estimate(PopulationIndex index);
+        
+        /**
+         * @param index index queried.
+         * @return indexed persons matching the condition.
+         */
+        Set<Person> findCandidates(PopulationIndex index);
+        
+        /**
+         * @param keys indexed values of a person.
+         * @return true if the person matches the condition.
+         */
+        boolean matches(PopulationIndex.Keys keys);
+    }
+    
+    private record LastName(String lastName) implements Condition {
+        @Override
+        public int estimate(PopulationIndex index) {
+            return index.countByLastName(lastName);
+        }
+        
+        @Override
+        public Set<Person> findCandidates(PopulationIndex index) {
+            return index.findByLastName(lastName);
+        }
+        
+        @Override
+        public boolean matches(PopulationIndex.Keys keys) {
+            return lastName.equals(keys.lastName());
+        }
+    }
+    
+    private record CurrentAreaCode(String areaCode) implements Condition {
+        @Override
+        public int estimate(PopulationIndex index) {
+            return index.countByCurrentAreaCode(areaCode);
+        }
+        
+        @Override
+        public Set<Person> findCandidates(PopulationIndex index) {
+            return index.findByCurrentAreaCode(areaCode);
+        }
+        
+        @Override
+        public boolean matches(PopulationIndex.Keys keys) {
+            return areaCode.equals(keys.areaCode());
+        }
+    }
+    
+    private record BornBetween(LocalDate from, LocalDate to) implements Condition {
+        @Override
+        public int estimate(PopulationIndex index) {
+            return index.countByTimeOfBirth(from, to);
+        }
+        
+        @Override
+        public Set<Person> findCandidates(PopulationIndex index) {
+            return index.findByTimeOfBirth(from, to);
+        }
+        
+        @Override
+        public boolean matches(PopulationIndex.Keys keys) {
+            return isBetween(keys.timeOfBirth(), from, to);
+        }
+    }
+    
+    private record DiedBetween(LocalDate from, LocalDate to) implements Condition {
+        @Override
+        public int estimate(PopulationIndex index) {
+            return index.countByTimeOfDeath(from, to);
+        }
+        
+        @Override
+        public Set<Person> findCandidates(PopulationIndex index) {
+            return index.findByTimeOfDeath(from, to);
+        }
+        
+        @Override
+        public boolean matches(PopulationIndex.Keys keys) {
+            return isBetween(keys.timeOfDeath(), from, to);
+        }
+    }
+    
+    private record Deceased(boolean deceased) implements Condition {
+        @Override
+        public int estimate(PopulationIndex index) {
+            return deceased ? index.countDeceased() : index.countLiving();
+        }
+        
+        @Override
+        public Set<Person> findCandidates(PopulationIndex index) {
+            return deceased ? index.findDeceased() : index.findLiving();
+        }
+        
+        @Override
+        public boolean matches(PopulationIndex.Keys keys) {
+            return (keys.timeOfDeath() != null) == deceased;
+        }
+    }
+    
+    private final PopulationIndex index;
+    private final List<Condition> conditions = new ArrayList<>();
+    
+    /**
+     * Constructor.
+     * 
+     * @param index index queried.
+     */
+    PersonQuery(PopulationIndex index) {
+        this.index = index;
+    }
+    
+    /**
+     * @param lastName last name to be matched.
+     * @return this query.
+     */
+    public PersonQuery withLastName(String lastName) {
+        conditions.add(new LastName(lastName));
+        
+        return this;
+    }
+    
+    /**
+     * @param areaCode area code of the current address to be matched.
+     * @return this query.
+     */
+    public PersonQuery withCurrentAreaCode(String areaCode) {
+        conditions.add(new CurrentAreaCode(areaCode));
+        
+        return this;
+    }
+    
+    /**
+     * @param from first date of birth, inclusive.
+     * @param to last date of birth, inclusive.
+     * @return this query.
+     */
+    public PersonQuery bornBetween(LocalDate from, LocalDate to) {
+        conditions.add(new BornBetween(from, to));
+        
+        return this;
+    }
+    
+    /**
+     * @param from first date of death, inclusive.
+     * @param to last date of death, inclusive.
+     * @return this query.
+     */
+    public PersonQuery diedBetween(LocalDate from, LocalDate to) {
+        conditions.add(new DiedBetween(from, to));
+        
+        return this;
+    }
+    
+    /**
+     * Matches persons without a time of death.
+     * 
+     * @return this query.
+     */
+    public PersonQuery living() {
+        conditions.add(new Deceased(false));
+        
+        return this;
+    }
+    
+    /**
+     * Matches persons with a time of death.
+     * 
+     * @return this query.
+     */
+    public PersonQuery deceased() {
+        conditions.add(new Deceased(true));
+        
+        return this;
+    }
+    
+    /**
+     * Runs the query.
+     * 
+     * @return matching persons ordered by identity code.
+     */
+    public List<Person> find() {
+        return index.find(conditions);
+    }
+    
+    /**
+     * Describes the plan of the query: the conditions in the order they are evaluated, the first
+     * one answered from its index.
+     * 
+     * @return description of the plan.
+     */
+    public String explain() {
+        return index.plan(conditions).stream().map(Object::toString).collect(Collectors.joining(" -> "));
+    }
+    
+    private static boolean isBetween(LocalDate date, LocalDate from, LocalDate to) {
+        return date != null && !date.isBefore(from) && !date.isAfter(to);
+    }
+}
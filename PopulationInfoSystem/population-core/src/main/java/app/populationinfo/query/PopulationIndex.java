@@ -0,0 +1,318 @@
+package app.populationinfo.query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Secondary indexes over the attributes of persons: a hash index on the last name, sorted indexes
+ * on the times of birth and death, a set of the living persons, and an inverted index from an area
+ * code to the persons currently living in the area. Indexed persons are listened to, so the indexes are updated as the persons
+ * change. Queries are made with {@link #query()}.
+ * 
+ * <p>The index keeps the indexed values of every person, and a change of a person only moves the
+ * person between the entries of the values that actually changed. Persons are kept by identity, so
+ * changing the identity code of an indexed person doesn't break the index. The index is thread-safe.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationIndex implements PersonChangeListener {
+    
+    /**
+     * Indexed values of a person.
+     * 
+     * @param lastName last name.
+     * @param timeOfBirth time of birth.
+     * @param timeOfDeath time of death, null if alive.
+     * @param areaCode area code of the current address, null if none.
+     */
+    record Keys(String lastName, LocalDate timeOfBirth, LocalDate timeOfDeath, String areaCode) {
+    }
+    
+    private final Map<Person, Keys> indexed = new IdentityHashMap<>();
+    private final Map<String, Set<Person>> byLastName = new HashMap<>();
+    private final NavigableMap<LocalDate, Set<Person>> byTimeOfBirth = new TreeMap<>();
+    private final NavigableMap<LocalDate, Set<Person>> byTimeOfDeath = new TreeMap<>();
+    private final Map<String, Set<Person>> byCurrentAreaCode = new HashMap<>();
+    private final Set<Person> living = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    /**
+     * Creates an index of a population.
+     * 
+     * @param population persons to be indexed.
+     * @return new index.
+     */
+    public static PopulationIndex of(Collection<? extends Person> population) {
+        PopulationIndex index = new PopulationIndex();
+        for (Person person : population) {
+            index.add(person);
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Adds a person to the index and starts following the changes of the person.
+     * 
+     * @param person person to be indexed.
+     */
+    public void add(Person person) {
+        synchronized (person) {
+            synchronized (this) {
+                if (indexed.containsKey(person)) {
+                    return;
+                }
+                
+                reindex(person);
+            }
+            
+            person.addChangeListener(this);
+        }
+    }
+    
+    /**
+     * Removes a person from the index.
+     * 
+     * @param person person to be removed.
+     * @return true if the person was indexed, otherwise false.
+     */
+    public boolean remove(Person person) {
+        synchronized (person) {
+            person.removeChangeListener(this);
+            synchronized (this) {
+                Keys keys = indexed.remove(person);
+                if (keys == null) {
+                    return false;
+                }
+                
+                update(byLastName, keys.lastName(), null, person);
+                update(byTimeOfBirth, keys.timeOfBirth(), null, person);
+                update(byTimeOfDeath, keys.timeOfDeath(), null, person);
+                update(byCurrentAreaCode, keys.areaCode(), null, person);
+                living.remove(person);
+                
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * @return number of indexed persons.
+     */
+    public synchronized int size() {
+        return indexed.size();
+    }
+    
+    /**
+     * Starts a query over the indexed persons.
+     * 
+     * @return new query without conditions.
+     */
+    public PersonQuery query() {
+        return new PersonQuery(this);
+    }
+    
+    @Override
+    public void addressAdded(Person person, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+        reindex(person);
+    }
+    
+    @Override
+    public void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        reindex(addressInfo.getResident());
+    }
+    
+    @Override
+    public void addressesReplaced(Person person) {
+        reindex(person);
+    }
+    
+    @Override
+    public void nameChanged(Person person, String oldFirstName, String oldLastName) {
+        reindex(person);
+    }
+    
+    @Override
+    public void timeOfBirthChanged(Person person, LocalDate oldTimeOfBirth) {
+        reindex(person);
+    }
+    
+    @Override
+    public void timeOfDeathChanged(Person person, LocalDate oldTimeOfDeath) {
+        reindex(person);
+    }
+    
+    /**
+     * Runs a query. The conditions are ordered by the estimated number of persons matching
+     * them. The persons matching the most selective condition are read from its index, and the
+     * other conditions are checked against the indexed values of those persons only.
+     * 
+     * @param conditions conditions of the query.
+     * @return matching persons ordered by identity code.
+     */
+    synchronized List<Person> find(List<PersonQuery.Condition> conditions) {
+        List<PersonQuery.Condition> plan = plan(conditions);
+        Collection<Person> candidates = plan.isEmpty() ? indexed.keySet() : plan.get(0).findCandidates(this);
+        List<Person> result = new ArrayList<>();
+        for (Person person : candidates) {
+            Keys keys = indexed.get(person);
+            boolean matches = true;
+            for (int i = 1; i < plan.size() && matches; i++) {
+                matches = plan.get(i).matches(keys);
+            }
+            
+            if (matches) {
+                result.add(person);
+            }
+        }
+        
+        result.sort(Comparator.comparing(Person::getIdentityCodeKey, Comparator.nullsFirst(Comparator.naturalOrder())));
+        
+        return result;
+    }
+    
+    /**
+     * Orders the conditions of a query by their estimated number of matching persons.
+     * 
+     * @param conditions conditions of the query.
+     * @return conditions in the order they are evaluated.
+     */
+    synchronized List<PersonQuery.Condition> plan(List<PersonQuery.Condition> conditions) {
+        Map<PersonQuery.Condition, Integer> estimates = new IdentityHashMap<>();
+        for (PersonQuery.Condition condition : conditions) {
+            estimates.put(condition, condition.estimate(this));
+        }
+        
+        List<PersonQuery.Condition> plan = new ArrayList<>(conditions);
+        plan.sort(Comparator.comparing(estimates::get));
+        
+        return plan;
+    }
+    
+    Set<Person> findByLastName(String lastName) {
+        return byLastName.getOrDefault(lastName, Collections.emptySet());
+    }
+    
+    Set<Person> findByCurrentAreaCode(String areaCode) {
+        return byCurrentAreaCode.getOrDefault(areaCode, Collections.emptySet());
+    }
+    
+    Set<Person> findByTimeOfBirth(LocalDate from, LocalDate to) {
+        return union(byTimeOfBirth.subMap(from, true, to, true));
+    }
+    
+    Set<Person> findByTimeOfDeath(LocalDate from, LocalDate to) {
+        return union(byTimeOfDeath.subMap(from, true, to, true));
+    }
+    
+    Set<Person> findDeceased() {
+        return union(byTimeOfDeath);
+    }
+    
+    Set<Person> findLiving() {
+        return living;
+    }
+    
+    Set<Person> findAll() {
+        return indexed.keySet();
+    }
+    
+    int countByLastName(String lastName) {
+        return findByLastName(lastName).size();
+    }
+    
+    int countByCurrentAreaCode(String areaCode) {
+        return findByCurrentAreaCode(areaCode).size();
+    }
+    
+    int countByTimeOfBirth(LocalDate from, LocalDate to) {
+        return count(byTimeOfBirth.subMap(from, true, to, true));
+    }
+    
+    int countByTimeOfDeath(LocalDate from, LocalDate to) {
+        return count(byTimeOfDeath.subMap(from, true, to, true));
+    }
+    
+    int countDeceased() {
+        return count(byTimeOfDeath);
+    }
+    
+    int countLiving() {
+        return living.size();
+    }
+    
+    /**
+     * Updates the entries of a person whose values have changed.
+     */
+    private synchronized void reindex(Person person) {
+        AddressInfo current = person.findCurrentAddress();
+        Keys keys = new Keys(person.getLastName(), person.getTimeOfBirth(), person.getTimeOfDeath(),
+                current != null ? current.getAddress().getAreaCode() : null);
+        Keys old = indexed.put(person, keys);
+        if (old == null) {
+            old = new Keys(null, null, null, null);
+        }
+        
+        update(byLastName, old.lastName(), keys.lastName(), person);
+        update(byTimeOfBirth, old.timeOfBirth(), keys.timeOfBirth(), person);
+        update(byTimeOfDeath, old.timeOfDeath(), keys.timeOfDeath(), person);
+        update(byCurrentAreaCode, old.areaCode(), keys.areaCode(), person);
+        if (keys.timeOfDeath() == null) {
+            living.add(person);
+        } else {
+            living.remove(person);
+        }
+    }
+    
+    private static <K> void update(Map<K, Set<Person>> index, K oldKey, K newKey, Person person) {
+        if (Objects.equals(oldKey, newKey)) {
+            return;
+        }
+        
+        if (oldKey != null) {
+            Set<Person> persons = index.get(oldKey);
+            persons.remove(person);
+            if (persons.isEmpty()) {
+                index.remove(oldKey);
+            }
+        }
+        
+        if (newKey != null) {
+            index.computeIfAbsent(newKey, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(person);
+        }
+    }
+    
+    private static Set<Person> union(Map<LocalDate, Set<Person>> range) {
+        Set<Person> union = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Set<Person> persons : range.values()) {
+            union.addAll(persons);
+        }
+        
+        return union;
+    }
+    
+    private static int count(Map<LocalDate, Set<Person>> range) {
+        int count = 0;
+        for (Set<Person> persons : range.values()) {
+            count += persons.size();
+        }
+        
+        return count;
+    }
+}
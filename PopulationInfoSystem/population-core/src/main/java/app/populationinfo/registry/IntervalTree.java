@@ -0,0 +1,206 @@
+package app.populationinfo.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Interval tree over closed day ranges. Implemented as a treap ordered by the start of the
+ * interval where every node also knows the largest end in its subtree, so that stabbing queries
+ * only visit the branches that can contain the point.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ * 
+ * @param <T> type of the values attached to the intervals.
+ */
+public class IntervalTree<T> {
+    /**
+     * End of an interval that is still open.
+     */
+    public static final long OPEN = Long.MAX_VALUE;
+    
+    private Node<T> root;
+    private int size;
+    
+    /**
+     * Adds an interval.
+     * 
+     * @param start first day of the interval.
+     * @param end last day of the interval, {@link #OPEN} if the interval has no end.
+     * @param value value attached to the interval.
+     */
+    public void add(long start, long end, T value) {
+        Node<T> node = new Node<>(start, end, value, ThreadLocalRandom.current().nextInt());
+        root = insert(root, node);
+        size++;
+    }
+    
+    /**
+     * Removes an interval. The value is compared by reference.
+     * 
+     * @param start first day of the interval.
+     * @param end last day of the interval.
+     * @param value value attached to the interval.
+     * @return true if the interval was found and removed, otherwise false.
+     */
+    public boolean remove(long start, long end, T value) {
+        int sizeBefore = size;
+        root = remove(root, start, end, value);
+        
+        return size < sizeBefore;
+    }
+    
+    /**
+     * Finds the values of all intervals that contain the given day.
+     * 
+     * @param day day to be looked for.
+     * @return values of the matching intervals, empty list if none.
+     */
+    public List<T> findAt(long day) {
+        List<T> result = new ArrayList<>();
+        findAt(root, day, result);
+        
+        return result;
+    }
+    
+    /**
+     * @return number of intervals in the tree.
+     */
+    public int size() {
+        return size;
+    }
+    
+    private static <T> Node<T> insert(Node<T> node, Node<T> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        
+        if (inserted.start < node.start) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        
+        node.update();
+        return node;
+    }
+    
+    private Node<T> remove(Node<T> node, long start, long end, T value) {
+        if (node == null) {
+            return null;
+        }
+        
+        if (start < node.start) {
+            node.left = remove(node.left, start, end, value);
+        } else if (start > node.start) {
+            node.right = remove(node.right, start, end, value);
+        } else if (node.end == end && node.value == value) {
+            size--;
+            return merge(node.left, node.right);
+        } else {
+            // Equal starts can end up on either side after rotations.
+            int sizeBefore = size;
+            node.left = remove(node.left, start, end, value);
+            if (size == sizeBefore) {
+                node.right = remove(node.right, start, end, value);
+            }
+        }
+        
+        node.update();
+        return node;
+    }
+    
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        
+        if (right == null) {
+            return left;
+        }
+        
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+    
+    private static <T> void findAt(Node<T> node, long day, List<T> result) {
+        if (node == null || node.maxEnd < day) {
+            return;
+        }
+        
+        findAt(node.left, day, result);
+        if (node.start <= day) {
+            if (node.end >= day) {
+                result.add(node.value);
+            }
+            
+            findAt(node.right, day, result);
+        }
+    }
+    
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        
+        return left;
+    }
+    
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        
+        return right;
+    }
+    
+    /**
+     * Node of the tree.
+     */
+    private static final class Node<T> {
+        private final long start;
+        private final long end;
+        private final T value;
+        private final int priority;
+        private long maxEnd;
+        private Node<T> left;
+        private Node<T> right;
+        
+        private Node(long start, long end, T value, int priority) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+        
+        private void update() {
+            long max = end;
+            if (left != null && left.maxEnd > max) {
+                max = left.maxEnd;
+            }
+            
+            if (right != null && right.maxEnd > max) {
+                max = right.maxEnd;
+            }
+            
+            maxEnd = max;
+        }
+    }
+}
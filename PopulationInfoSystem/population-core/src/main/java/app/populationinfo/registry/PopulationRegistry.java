@@ -0,0 +1,255 @@
+package app.populationinfo.registry;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.IdentityCodeMap;
+import app.populationinfo.model.Person;
+
+/**
+ * Registry of the population. Keeps persons indexed by identity code and addresses indexed by
+ * name and area code so that both can be looked up in constant time. Stays at each address are
+ * kept in an interval tree so that the residents on a given date can be found without going
+ * through the whole population.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationRegistry {
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+    
+    private final IdentityCodeMap<Person> persons;
+    private final AddressPool addressPool;
+    private final Map<Address, Set<Person>> residents;
+    private final Map<Address, IntervalTree<AddressInfo>> stays;
+    
+    /**
+     * Constructor.
+     */
+    public PopulationRegistry() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+    
+    /**
+     * Constructor with expected population size. Sizing the registry up front avoids rehashing
+     * during bulk loads.
+     * 
+     * @param expectedSize expected number of persons.
+     */
+    public PopulationRegistry(int expectedSize) {
+        this.persons = new IdentityCodeMap<>(expectedSize);
+        this.addressPool = new AddressPool();
+        this.residents = new HashMap<>(capacityFor(expectedSize));
+        this.stays = new HashMap<>(capacityFor(expectedSize));
+    }
+    
+    /**
+     * Adds a person to the registry. Addresses in the person's address history are registered as well
+     * and replaced with the shared instances from the address pool.
+     * 
+     * @param person person to be added.
+     */
+    public void addPerson(Person person) {
+        if (persons.putIfAbsent(person.getIdentityCodeKey(), person) != null) {
+            throw new IllegalArgumentException("Person already registered: " + person.getIdentityCode());
+        }
+        
+        for (AddressInfo addressInfo : person.getAddresses()) {
+            addResident(addressInfo);
+        }
+    }
+    
+    /**
+     * Adds all given persons to the registry.
+     * 
+     * @param population persons to be added.
+     */
+    public void addPersons(Collection<Person> population) {
+        for (Person person : population) {
+            addPerson(person);
+        }
+    }
+    
+    /**
+     * Removes a person from the registry.
+     * 
+     * @param identityCode identity code of the person to be removed.
+     * @return removed person, null if no person was found.
+     */
+    public Person removePerson(String identityCode) {
+        Person person = persons.remove(identityCode);
+        if (person == null) {
+            return null;
+        }
+        
+        for (AddressInfo addressInfo : person.getAddresses()) {
+            Set<Person> addressResidents = residents.get(addressInfo.getAddress());
+            if (addressResidents != null) {
+                addressResidents.remove(person);
+            }
+            
+            removeStay(addressInfo, addressInfo.getMoveOutDay());
+        }
+        
+        return person;
+    }
+    
+    /**
+     * Finds a person by identity code.
+     * 
+     * @param identityCode identity code of the person.
+     * @return found person, null if not found.
+     */
+    public Person findPerson(String identityCode) {
+        return persons.get(identityCode);
+    }
+    
+    /**
+     * Adds an address to the registry. If an equal address has already been registered, the
+     * registered instance is returned instead.
+     * 
+     * @param address address to be added.
+     * @return the registered address.
+     */
+    public Address addAddress(Address address) {
+        return addressPool.intern(address);
+    }
+    
+    /**
+     * Finds a registered address by name and area code.
+     * 
+     * @param name name of the address.
+     * @param areaCode area code of the address.
+     * @return found address, null if not found.
+     */
+    public Address findAddress(String name, String areaCode) {
+        return addressPool.find(name, areaCode);
+    }
+    
+    /**
+     * Finds all persons who live or have lived at the given address.
+     * 
+     * @param address address to be looked for.
+     * @return persons attached to the address, empty set if none.
+     */
+    public Set<Person> findResidents(Address address) {
+        Set<Person> addressResidents = residents.get(address);
+        
+        return addressResidents != null ? Collections.unmodifiableSet(addressResidents) : Collections.emptySet();
+    }
+    
+    /**
+     * Moves a registered person to a new address. Registry indexes are kept up to date.
+     * 
+     * @param person person moving.
+     * @param address new address of the person.
+     * @param moveInDate move in date for the new address.
+     * @return address info of the added address.
+     */
+    public AddressInfo moveTo(Person person, Address address, LocalDate moveInDate) {
+        if (persons.get(person.getIdentityCodeKey()) != person) {
+            throw new IllegalArgumentException("Person not registered: " + person.getIdentityCode());
+        }
+        
+        // The current address gets closed by the move, so its stay needs to be updated as well.
+        AddressInfo currentAddressInfo = person.findCurrentAddress();
+        AddressInfo addressInfo = person.addAddress(addressPool.intern(address), moveInDate);
+        if (currentAddressInfo != null) {
+            removeStay(currentAddressInfo, EpochDay.OPEN);
+            addStay(currentAddressInfo);
+        }
+        
+        addResident(addressInfo);
+        
+        return addressInfo;
+    }
+    
+    /**
+     * Changes the move out date of an address info of a registered person. Registry indexes are
+     * kept up to date.
+     * 
+     * @param addressInfo address info to be changed.
+     * @param moveOutDate new move out date, null if the address is the current address.
+     */
+    public void setMoveOutDate(AddressInfo addressInfo, LocalDate moveOutDate) {
+        Person person = addressInfo.getResident();
+        if (person == null || persons.get(person.getIdentityCodeKey()) != person) {
+            throw new IllegalArgumentException("Resident not registered: " + addressInfo);
+        }
+        
+        removeStay(addressInfo, addressInfo.getMoveOutDay());
+        addressInfo.setMoveOutDate(moveOutDate);
+        addStay(addressInfo);
+    }
+    
+    /**
+     * Finds the persons who lived at the given address on the given date.
+     * 
+     * @param address address to be looked for.
+     * @param date date to be looked for.
+     * @return residents of the address on the date, empty list if none.
+     */
+    public List<Person> residentsOf(Address address, LocalDate date) {
+        IntervalTree<AddressInfo> addressStays = stays.get(address);
+        if (addressStays == null) {
+            return Collections.emptyList();
+        }
+        
+        return addressStays.findAt(date.toEpochDay()).stream()
+                .map(AddressInfo::getResident)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * @return pool of the registered addresses.
+     */
+    public AddressPool getAddressPool() {
+        return addressPool;
+    }
+    
+    /**
+     * @return number of persons in the registry.
+     */
+    public int size() {
+        return persons.size();
+    }
+    
+    private void addResident(AddressInfo addressInfo) {
+        Address registered = addAddress(addressInfo.getAddress());
+        addressInfo.setAddress(registered);
+        residents.computeIfAbsent(registered, a -> new HashSet<>()).add(addressInfo.getResident());
+        addStay(addressInfo);
+    }
+    
+    private void addStay(AddressInfo addressInfo) {
+        stays.computeIfAbsent(addressInfo.getAddress(), a -> new IntervalTree<>())
+                .add(addressInfo.getMoveInDay(), endOf(addressInfo.getMoveOutDay()), addressInfo);
+    }
+    
+    private void removeStay(AddressInfo addressInfo, int moveOutDay) {
+        IntervalTree<AddressInfo> addressStays = stays.get(addressInfo.getAddress());
+        if (addressStays != null) {
+            addressStays.remove(addressInfo.getMoveInDay(), endOf(moveOutDay), addressInfo);
+        }
+    }
+    
+    private static long endOf(int moveOutDay) {
+        return moveOutDay != EpochDay.OPEN ? moveOutDay : IntervalTree.OPEN;
+    }
+    
+    private static int capacityFor(int expectedSize) {
+        return (int) (expectedSize / 0.75f) + 1;
+    }
+}
@@ -0,0 +1,498 @@
+package app.populationinfo.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.model.PersonChangeListener;
+
+/**
+ * Read-through cache in front of another repository. At most the given number of persons are
+ * kept, so a file-backed repository can serve hot lookups from memory without the whole
+ * population on heap.
+ * 
+ * <p>Eviction follows W-TinyLFU. New persons enter a small LRU window. Persons leaving the window
+ * compete with the least recently used person of the probation segment, and the one used less
+ * often according to a {@link FrequencySketch} is evicted. Persons found again in probation are
+ * promoted to the protected segment. This keeps frequently used persons cached through scans of
+ * persons that are used only once.</p>
+ * 
+ * <p>Lookups of cached persons only read a concurrent map and record the access in a buffer. The
+ * buffer is applied to the eviction order with a lock when it fills up, and accesses are dropped
+ * if the buffer is full, as the order doesn't need to be exact.</p>
+ * 
+ * <p>The cache listens to the cached persons. A person that is changed through its setters or
+ * {@link Person#addAddress} is dropped from the cache, so lookups read the repository again. A
+ * person whose identity code changes is dropped under the old code. Saving or removing a person
+ * through the cache also drops it.</p>
+ * 
+ * <p>A person read from the repository on a miss is cached only if no invalidation of the same
+ * identity code happened during the read, so a save or a change racing with the read can't leave
+ * the old person in the cache. Invalidations are tracked by generation counters of hashed stripes
+ * of identity codes, so an unrelated invalidation in the same stripe only skips caching once.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class CachingPersonRepository implements PersonRepository, PersonChangeListener {
+    /**
+     * Default number of cached persons.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+    
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int DRAIN_INTERVAL = 32;
+    private static final int GENERATION_STRIPES = 1024;
+    
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+    
+    /**
+     * Cached person. The links and the segment are guarded by the eviction lock.
+     */
+    private static final class Node {
+        private final String identityCode;
+        private final Person person;
+        private Segment segment;
+        private Node previous;
+        private Node next;
+        private boolean live;
+        
+        private Node(String identityCode, Person person) {
+            this.identityCode = identityCode;
+            this.person = person;
+        }
+    }
+    
+    /**
+     * Doubly linked list of nodes from the least recently used to the most recently used.
+     */
+    private static final class AccessOrder {
+        private Node first;
+        private Node last;
+        private int size;
+        
+        private void addLast(Node node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+        
+        private void remove(Node node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+        
+        private void moveToLast(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+    
+    private final PersonRepository repository;
+    private final int maximumSize;
+    private final int maximumWindowSize;
+    private final int maximumProtectedSize;
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protectedOrder = new AccessOrder();
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong reads = new AtomicLong();
+    private long drainedReads;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+    
+    /**
+     * Constructor with the default maximum size.
+     * 
+     * @param repository repository to read through.
+     */
+    public CachingPersonRepository(PersonRepository repository) {
+        this(repository, DEFAULT_MAXIMUM_SIZE);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param repository repository to read through.
+     * @param maximumSize maximum number of cached persons.
+     */
+    public CachingPersonRepository(PersonRepository repository, int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        
+        this.repository = repository;
+        this.maximumSize = maximumSize;
+        this.maximumWindowSize = Math.max(1, maximumSize / 100);
+        this.maximumProtectedSize = (maximumSize - maximumWindowSize) * 4 / 5;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+    
+    @Override
+    public Person findPerson(String identityCode) {
+        Node node = nodes.get(identityCode);
+        if (node != null) {
+            hitCount.increment();
+            recordRead(node);
+            
+            return node.person;
+        }
+        
+        missCount.increment();
+        long generation = generations.get(stripe(identityCode));
+        Person person = repository.findPerson(identityCode);
+        
+        return person != null ? cache(identityCode, person, generation) : null;
+    }
+    
+    @Override
+    public void savePerson(Person person) {
+        repository.savePerson(person);
+        invalidate(person.getIdentityCode(), null);
+    }
+    
+    @Override
+    public boolean removePerson(String identityCode) {
+        boolean removed = repository.removePerson(identityCode);
+        invalidate(identityCode, null);
+        
+        return removed;
+    }
+    
+    @Override
+    public int size() {
+        return repository.size();
+    }
+    
+    /**
+     * @return number of persons currently cached.
+     */
+    public int getCachedCount() {
+        return nodes.size();
+    }
+    
+    /**
+     * @return number of lookups served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+    
+    /**
+     * @return number of lookups read from the repository.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+    
+    /**
+     * @return share of lookups served from the cache, 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long lookups = hits + missCount.sum();
+        
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+    
+    /**
+     * @return number of persons evicted to keep the cache within its maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+    
+    /**
+     * @return number of persons dropped because they were changed, saved or removed.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+    
+    @Override
+    public void addressAdded(Person person, AddressInfo added, AddressInfo closed) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+        invalidate(addressInfo.getResident().getIdentityCode(), addressInfo.getResident());
+    }
+    
+    @Override
+    public void addressesReplaced(Person person) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void identityCodeChanged(Person person, String oldIdentityCode) {
+        // Cached persons are found by identity code, so the old one is the key of the entry.
+        if (oldIdentityCode != null) {
+            invalidate(oldIdentityCode, person);
+        }
+    }
+    
+    @Override
+    public void nameChanged(Person person, String oldFirstName, String oldLastName) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void timeOfBirthChanged(Person person, LocalDate oldTimeOfBirth) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void timeOfDeathChanged(Person person, LocalDate oldTimeOfDeath) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void parentAdded(Person person, Person parent) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void parentRemoved(Person person, Person parent) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public void parentsReplaced(Person person) {
+        invalidate(person.getIdentityCode(), person);
+    }
+    
+    /**
+     * Caches a person read from the repository.
+     * 
+     * @param identityCode identity code of the person.
+     * @param person the person.
+     * @param generation generation of the stripe of the identity code before the person was read.
+     * @return the cached person, or the given person uncached if it was invalidated during the read.
+     */
+    private Person cache(String identityCode, Person person, long generation) {
+        // The listener is added before the person is visible in the cache and outside the eviction
+        // lock, as the listener is called with the lock of the person and takes the eviction lock.
+        person.addChangeListener(this);
+        
+        Node node = new Node(identityCode, person);
+        Node existing = null;
+        boolean stale;
+        List<Node> evicted = Collections.emptyList();
+        evictionLock.lock();
+        try {
+            // An invalidation during the read means that the person may have been saved or changed.
+            stale = generations.get(stripe(identityCode)) != generation;
+            if (!stale) {
+                existing = nodes.putIfAbsent(identityCode, node);
+            }
+            
+            if (!stale && existing == null) {
+                drainReads();
+                sketch.increment(identityCode);
+                node.live = true;
+                node.segment = Segment.WINDOW;
+                window.addLast(node);
+                evicted = evict();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        
+        if (stale) {
+            person.removeChangeListener(this);
+            
+            return person;
+        }
+        
+        // Another thread cached the person first.
+        if (existing != null) {
+            person.removeChangeListener(this);
+            
+            return existing.person;
+        }
+        
+        for (Node victim : evicted) {
+            victim.person.removeChangeListener(this);
+        }
+        
+        return person;
+    }
+    
+    /**
+     * Drops a person from the cache.
+     * 
+     * @param identityCode identity code of the person.
+     * @param person the changed person, null to drop any person with the identity code.
+     */
+    private void invalidate(String identityCode, Person person) {
+        Node node;
+        evictionLock.lock();
+        try {
+            generations.incrementAndGet(stripe(identityCode));
+            node = nodes.get(identityCode);
+            if (node == null || (person != null && node.person != person)) {
+                return;
+            }
+            
+            unlink(node);
+            invalidationCount.increment();
+        } finally {
+            evictionLock.unlock();
+        }
+        
+        node.person.removeChangeListener(this);
+    }
+    
+    private static int stripe(String identityCode) {
+        int hash = identityCode.hashCode();
+        
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+    
+    private void recordRead(Node node) {
+        long read = reads.getAndIncrement();
+        readBuffer.lazySet((int) read & READ_BUFFER_MASK, node);
+        if ((read + 1) % DRAIN_INTERVAL == 0 && evictionLock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Applies the buffered reads to the eviction order. Reads overwritten in the buffer before
+     * they were drained are lost.
+     */
+    private void drainReads() {
+        long end = reads.get();
+        for (long read = Math.max(drainedReads, end - READ_BUFFER_SIZE); read < end; read++) {
+            Node node = readBuffer.getAndSet((int) read & READ_BUFFER_MASK, null);
+            if (node != null && node.live) {
+                onAccess(node);
+            }
+        }
+        drainedReads = end;
+    }
+    
+    private void onAccess(Node node) {
+        sketch.increment(node.identityCode);
+        switch (node.segment) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.segment = Segment.PROTECTED;
+                protectedOrder.addLast(node);
+                while (protectedOrder.size > maximumProtectedSize) {
+                    Node demoted = protectedOrder.first;
+                    protectedOrder.remove(demoted);
+                    demoted.segment = Segment.PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                protectedOrder.moveToLast(node);
+                break;
+            default:
+                throw new IllegalStateException("Unknown segment: " + node.segment);
+        }
+    }
+    
+    /**
+     * Moves persons over the window size to probation and evicts persons until the cache is within
+     * its maximum size.
+     * 
+     * @return evicted nodes.
+     */
+    private List<Node> evict() {
+        while (window.size > maximumWindowSize) {
+            Node node = window.first;
+            window.remove(node);
+            node.segment = Segment.PROBATION;
+            probation.addLast(node);
+        }
+        
+        List<Node> evicted = Collections.emptyList();
+        while (window.size + probation.size + protectedOrder.size > maximumSize) {
+            Node victim = probation.first != null ? probation.first
+                    : protectedOrder.first != null ? protectedOrder.first : window.first;
+            
+            // The newest person in probation came from the window and competes with the oldest one.
+            Node candidate = probation.last;
+            if (candidate != null && candidate != victim
+                    && sketch.frequency(candidate.identityCode) <= sketch.frequency(victim.identityCode)) {
+                victim = candidate;
+            }
+            
+            unlink(victim);
+            evictionCount.increment();
+            if (evicted.isEmpty()) {
+                evicted = new ArrayList<>(1);
+            }
+            evicted.add(victim);
+        }
+        
+        return evicted;
+    }
+    
+    private void unlink(Node node) {
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedOrder.remove(node);
+                break;
+            default:
+                throw new IllegalStateException("Unknown segment: " + node.segment);
+        }
+        
+        nodes.remove(node.identityCode, node);
+        node.live = false;
+    }
+}
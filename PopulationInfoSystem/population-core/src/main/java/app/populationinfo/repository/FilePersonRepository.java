@@ -0,0 +1,125 @@
+package app.populationinfo.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import app.populationinfo.model.Person;
+import app.populationinfo.store.PopulationFile;
+import app.populationinfo.store.PopulationStore;
+
+/**
+ * Repository keeping the persons in a population file. The file is mapped to memory, so only the
+ * pages of the persons that are looked up are read and the population is not kept on heap.
+ * 
+ * <p>Saved and removed persons are kept in memory until {@link #flush()} writes a new file with
+ * the changes. Persons found from the file are new copies on every lookup, and their parents are
+ * read-only views of the file.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class FilePersonRepository implements PersonRepository, Closeable {
+    private final Path file;
+    private final Map<String, Person> saved = new ConcurrentHashMap<>();
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
+    private volatile PopulationStore store;
+    
+    /**
+     * Constructor. Opens the file if it exists, otherwise the repository starts empty and the
+     * file is created on the first flush.
+     * 
+     * @param file population file of the repository.
+     * @throws IOException if the file exists but can't be read.
+     */
+    public FilePersonRepository(Path file) throws IOException {
+        this.file = file;
+        this.store = Files.exists(file) ? PopulationFile.open(file) : PopulationStore.of(Collections.emptyList());
+    }
+    
+    @Override
+    public Person findPerson(String identityCode) {
+        Person person = saved.get(identityCode);
+        if (person != null || removed.contains(identityCode)) {
+            return person;
+        }
+        
+        Person stored = store.findPerson(identityCode);
+        
+        return stored != null ? Person.copyOf(stored) : null;
+    }
+    
+    @Override
+    public synchronized void savePerson(Person person) {
+        saved.put(person.getIdentityCode(), person);
+        removed.remove(person.getIdentityCode());
+    }
+    
+    @Override
+    public synchronized boolean removePerson(String identityCode) {
+        boolean stored = store.findRow(identityCode) >= 0;
+        boolean found = saved.remove(identityCode) != null || (stored && !removed.contains(identityCode));
+        if (stored) {
+            removed.add(identityCode);
+        }
+        
+        return found;
+    }
+    
+    @Override
+    public synchronized int size() {
+        // Removed persons are always stored ones.
+        int size = store.size() - removed.size();
+        for (String identityCode : saved.keySet()) {
+            if (store.findRow(identityCode) < 0) {
+                size++;
+            }
+        }
+        
+        return size;
+    }
+    
+    /**
+     * Writes the saved and removed persons to the file. The new file is written next to the old
+     * one and moved in place, so a failed flush leaves the old file and the pending changes as
+     * they were.
+     * 
+     * @throws IOException if writing fails.
+     */
+    public synchronized void flush() throws IOException {
+        if (saved.isEmpty() && removed.isEmpty() && Files.exists(file)) {
+            return;
+        }
+        
+        PopulationStore current = store;
+        List<Person> population = new ArrayList<>(current.size() + saved.size());
+        for (int row = 0; row < current.size(); row++) {
+            Person person = current.getPerson(row);
+            if (!saved.containsKey(person.getIdentityCode()) && !removed.contains(person.getIdentityCode())) {
+                population.add(person);
+            }
+        }
+        population.addAll(saved.values());
+        
+        PopulationFile.write(PopulationStore.of(population), file);
+        store = PopulationFile.open(file);
+        saved.clear();
+        removed.clear();
+    }
+    
+    /**
+     * Flushes the pending changes.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
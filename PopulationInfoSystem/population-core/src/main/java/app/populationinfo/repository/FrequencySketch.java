@@ -0,0 +1,101 @@
+package app.populationinfo.repository;
+
+/**
+ * Count-min sketch estimating how often keys have been used, with 4-bit counters. Each key maps
+ * to one counter in each of four rows, and its frequency is the smallest of them. Once enough
+ * keys have been added, all counters are halved, so the frequencies follow recent use.
+ * 
+ * <p>Not thread-safe, {@link CachingPersonRepository} uses it with its own lock.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class FrequencySketch {
+    /**
+     * Largest value of a counter.
+     */
+    static final int MAX_FREQUENCY = 15;
+    
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    
+    private final long[] table;
+    private final int sampleSize;
+    private int additions;
+    
+    /**
+     * Constructor.
+     * 
+     * @param maximumSize number of keys whose frequencies should be told apart, the size of the cache.
+     */
+    FrequencySketch(int maximumSize) {
+        int size = Math.max(maximumSize, 16);
+        this.table = new long[Integer.highestOneBit(size - 1) << 1];
+        this.sampleSize = 10 * size;
+    }
+    
+    /**
+     * Estimates the frequency of a key.
+     * 
+     * @param key the key.
+     * @return estimated frequency, at most {@link #MAX_FREQUENCY}.
+     */
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counter(hash, i));
+        }
+        
+        return frequency;
+    }
+    
+    /**
+     * Adds one use of a key.
+     * 
+     * @param key the key.
+     */
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long slot = slot(hash, i);
+            int index = (int) (slot >>> 32) & (table.length - 1);
+            int shift = ((int) slot & 15) << 2;
+            if (((table[index] >>> shift) & 15) < MAX_FREQUENCY) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+    
+    private int counter(int hash, int row) {
+        long slot = slot(hash, row);
+        int index = (int) (slot >>> 32) & (table.length - 1);
+        int shift = ((int) slot & 15) << 2;
+        
+        return (int) ((table[index] >>> shift) & 15);
+    }
+    
+    /**
+     * Hashes a key for a row. The high half selects the word of the table and the low bits the
+     * counter within the word.
+     */
+    private static long slot(int hash, int row) {
+        long slot = (hash + SEEDS[row]) * SEEDS[row];
+        
+        return slot ^ (slot >>> 29);
+    }
+    
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+}
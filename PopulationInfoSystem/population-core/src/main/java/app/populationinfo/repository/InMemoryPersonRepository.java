@@ -0,0 +1,38 @@
+package app.populationinfo.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import app.populationinfo.model.Person;
+
+/**
+ * Repository keeping the persons in a map. The saved instances are returned as they are, so
+ * changes to a found person are visible to later lookups without saving.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class InMemoryPersonRepository implements PersonRepository {
+    private final Map<String, Person> persons = new ConcurrentHashMap<>();
+    
+    @Override
+    public Person findPerson(String identityCode) {
+        return persons.get(identityCode);
+    }
+    
+    @Override
+    public void savePerson(Person person) {
+        persons.put(person.getIdentityCode(), person);
+    }
+    
+    @Override
+    public boolean removePerson(String identityCode) {
+        return persons.remove(identityCode) != null;
+    }
+    
+    @Override
+    public int size() {
+        return persons.size();
+    }
+}
@@ -0,0 +1,45 @@
+package app.populationinfo.repository;
+
+import app.populationinfo.model.Person;
+
+/**
+ * Storage of persons by identity code. Implementations keep the persons in memory, in a file or
+ * behind a cache, and are safe to use from several threads.
+ * 
+ * <p>A person found from a repository may be changed, but only a repository that keeps the
+ * persons in memory sees the changes before the person is saved again.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public interface PersonRepository {
+    
+    /**
+     * Finds a person by identity code.
+     * 
+     * @param identityCode identity code of the person.
+     * @return the person, null if not found.
+     */
+    Person findPerson(String identityCode);
+    
+    /**
+     * Saves a person. A person with the same identity code is replaced.
+     * 
+     * @param person person to be saved.
+     */
+    void savePerson(Person person);
+    
+    /**
+     * Removes a person.
+     * 
+     * @param identityCode identity code of the person.
+     * @return true if the person was found and removed, otherwise false.
+     */
+    boolean removePerson(String identityCode);
+    
+    /**
+     * @return number of persons in the repository.
+     */
+    int size();
+}
@@ -0,0 +1,112 @@
+package app.populationinfo.shard;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts shard servers as separate processes on the loopback interface, so scaling over shards
+ * can be measured on a single machine. The processes run with the class path of the current
+ * process and stop when the cluster is closed or the current process exits.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class LocalShardCluster implements Closeable {
+    private static final long STOP_TIMEOUT_SECONDS = 10l;
+    
+    private final List<Process> processes = new ArrayList<>();
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+    
+    private LocalShardCluster() {
+    }
+    
+    /**
+     * Starts the shard processes and waits until they accept connections.
+     * 
+     * @param shards number of shards.
+     * @param jvmOptions options for the shard JVMs, like the heap size.
+     * @return running cluster.
+     * @throws IOException if a shard process can't be started.
+     */
+    public static LocalShardCluster start(int shards, String... jvmOptions) throws IOException {
+        LocalShardCluster cluster = new LocalShardCluster();
+        try {
+            for (int i = 0; i < shards; i++) {
+                cluster.startShard(jvmOptions);
+            }
+        } catch (IOException | RuntimeException e) {
+            cluster.close();
+            throw e;
+        }
+        
+        return cluster;
+    }
+    
+    /**
+     * @return addresses of the shards in the order they were started.
+     */
+    public List<InetSocketAddress> getAddresses() {
+        return Collections.unmodifiableList(addresses);
+    }
+    
+    /**
+     * Stops the shard processes. Shards are asked to stop by closing their input and killed if
+     * they don't stop in time.
+     */
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            try {
+                process.getOutputStream().close();
+            } catch (IOException e) {
+                process.destroy();
+            }
+        }
+        
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        processes.clear();
+        addresses.clear();
+    }
+    
+    private void startShard(String... jvmOptions) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardServer.class.getName());
+        
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        processes.add(process);
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null || !line.startsWith(ShardServer.LISTENING)) {
+            throw new IOException("Shard process didn't start: " + line);
+        }
+        
+        int port = Integer.parseInt(line.substring(ShardServer.LISTENING.length()).trim());
+        addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+}
@@ -0,0 +1,151 @@
+package app.populationinfo.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Client of one shard server. Requests from several threads are sent over a pool of connections,
+ * one request at a time per connection, and connections are opened as needed.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class ShardClient implements Closeable {
+    
+    /**
+     * Connection to the server.
+     */
+    private static final class Connection implements Closeable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        
+        private Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(address);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+    
+    private final InetSocketAddress address;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+    
+    /**
+     * Constructor. Connections are opened on the first requests.
+     * 
+     * @param address address of the server.
+     */
+    ShardClient(InetSocketAddress address) {
+        this.address = address;
+    }
+    
+    /**
+     * @return address of the server.
+     */
+    InetSocketAddress getAddress() {
+        return address;
+    }
+    
+    /**
+     * Sends a request and reads the response.
+     * 
+     * @param operation operation code of the request.
+     * @param request writes the arguments of the request.
+     * @param response reads the result of the response, called only if the request succeeded.
+     * @return the result, null if the server didn't find what was asked for.
+     * @throws IllegalArgumentException if the server rejected the request as invalid.
+     * @throws IllegalStateException if the request failed on the server.
+     * @throws UncheckedIOException if the server can't be reached.
+     */
+    <T> T call(byte operation, ShardProtocol.RequestWriter request, ShardProtocol.ResponseReader<T> response) {
+        if (closed) {
+            throw new IllegalStateException("Shard client closed: " + address);
+        }
+        
+        Connection connection = idle.poll();
+        byte status;
+        T result = null;
+        String message = null;
+        try {
+            if (connection == null) {
+                connection = new Connection(address);
+            }
+            
+            connection.out.writeByte(operation);
+            request.write(connection.out);
+            connection.out.flush();
+            
+            status = connection.in.readByte();
+            switch (status) {
+                case ShardProtocol.OK -> result = response.read(connection.in);
+                case ShardProtocol.NOT_FOUND -> result = null;
+                case ShardProtocol.INVALID, ShardProtocol.FAILED -> message = ShardProtocol.readString(connection.in);
+                default -> throw new IOException("Unknown status from shard " + address + ": " + status);
+            }
+        } catch (IOException e) {
+            closeQuietly(connection);
+            throw new UncheckedIOException("Request to shard " + address + " failed", e);
+        } catch (RuntimeException | Error e) {
+            // The request or the response may have been cut short, so the connection is out of step.
+            closeQuietly(connection);
+            throw e;
+        }
+        
+        // The response was read as a whole, so the connection can still be used.
+        release(connection);
+        
+        return switch (status) {
+            case ShardProtocol.INVALID -> throw new IllegalArgumentException(message);
+            case ShardProtocol.FAILED -> throw new IllegalStateException("Shard " + address + " failed: " + message);
+            default -> result;
+        };
+    }
+    
+    /**
+     * Closes the connections. Requests in progress fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Connection connection = idle.poll(); connection != null; connection = idle.poll()) {
+            closeQuietly(connection);
+        }
+    }
+    
+    private void release(Connection connection) {
+        idle.offer(connection);
+        if (closed) {
+            close();
+        }
+    }
+    
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Nothing left to do with the connection.
+        }
+    }
+}
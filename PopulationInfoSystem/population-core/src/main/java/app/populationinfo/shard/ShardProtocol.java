@@ -0,0 +1,185 @@
+package app.populationinfo.shard;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+
+/**
+ * Wire format between shard servers and their clients. A request is an operation code followed by
+ * the arguments of the operation, and a response is a status code followed by the result. Requests
+ * and responses are written with data streams over a socket, one request at a time per connection.
+ * 
+ * <p>Strings are written as a presence flag and modified UTF-8, dates as epoch day ints with
+ * {@link Integer#MIN_VALUE} for null. A person is written with its address history oldest first
+ * and with the identity codes of its parents, as the parents may live on other shards.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class ShardProtocol {
+    static final byte ADD_PERSON = 1;
+    static final byte FIND_PERSON = 2;
+    static final byte ADD_ADDRESS = 3;
+    static final byte FIND_BORN_BETWEEN = 4;
+    static final byte RESIDENTS_OF = 5;
+    static final byte POPULATION_BY_AREA_CODE = 6;
+    static final byte SIZE = 7;
+    
+    static final byte OK = 0;
+    static final byte NOT_FOUND = 1;
+    static final byte INVALID = 2;
+    static final byte FAILED = 3;
+    
+    private static final int NO_DATE = EpochDay.NONE;
+    
+    private ShardProtocol() {
+    }
+    
+    /**
+     * Writes the arguments of a request.
+     */
+    @FunctionalInterface
+    interface RequestWriter {
+        void write(DataOutput out) throws IOException;
+    }
+    
+    /**
+     * Reads the result of a successful response.
+     */
+    @FunctionalInterface
+    interface ResponseReader<T> {
+        T read(DataInput in) throws IOException;
+    }
+    
+    static void writeString(DataOutput out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeInt(date != null ? (int) date.toEpochDay() : NO_DATE);
+    }
+    
+    static LocalDate readDate(DataInput in) throws IOException {
+        int epochDay = in.readInt();
+        
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+    
+    static void writeAddress(DataOutput out, Address address) throws IOException {
+        out.writeUTF(address.getName());
+        out.writeUTF(address.getAreaCode());
+    }
+    
+    static Address readAddress(DataInput in) throws IOException {
+        return new Address(in.readUTF(), in.readUTF());
+    }
+    
+    /**
+     * Writes a person. The caller holds the person still while it is written.
+     * 
+     * @param out output.
+     * @param person person to be written.
+     * @throws IOException if writing fails.
+     */
+    static void writePerson(DataOutput out, Person person) throws IOException {
+        out.writeUTF(person.getIdentityCode());
+        writeString(out, person.getFirstName());
+        writeString(out, person.getLastName());
+        out.writeInt(person.getBirthDay());
+        out.writeInt(person.getDeathDay());
+        
+        List<Person> parents = person.getParents();
+        out.writeByte(parents.size());
+        for (Person parent : parents) {
+            out.writeUTF(parent.getIdentityCode());
+        }
+        
+        List<AddressInfo> addresses = person.getAddresses();
+        out.writeInt(addresses.size());
+        for (int i = addresses.size() - 1; i >= 0; i--) {
+            AddressInfo addressInfo = addresses.get(i);
+            writeAddress(out, addressInfo.getAddress());
+            out.writeInt(addressInfo.getMoveInDay());
+            out.writeInt(addressInfo.getMoveOutDay());
+        }
+    }
+    
+    /**
+     * Reads a person.
+     * 
+     * @param in input.
+     * @param parents resolves the parents of the person by identity code.
+     * @return the person.
+     * @throws IOException if reading fails.
+     */
+    static Person readPerson(DataInput in, Function<String, Person> parents) throws IOException {
+        String identityCode = in.readUTF();
+        String firstName = readString(in);
+        String lastName = readString(in);
+        LocalDate timeOfBirth = readDate(in);
+        LocalDate timeOfDeath = readDate(in);
+        
+        int parentCount = in.readByte();
+        List<Person> personParents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            personParents.add(parents.apply(in.readUTF()));
+        }
+        
+        Person person = new Person(identityCode, firstName, lastName, timeOfBirth, timeOfDeath, personParents);
+        int historySize = in.readInt();
+        if (historySize > 0) {
+            AddressInfo[] addresses = new AddressInfo[historySize];
+            for (int i = historySize - 1; i >= 0; i--) {
+                addresses[i] = new AddressInfo(readAddress(in), person, in.readInt(), in.readInt());
+            }
+            person.setAddresses(List.of(addresses));
+        }
+        
+        return person;
+    }
+    
+    static void writePersons(DataOutput out, List<Person> persons) throws IOException {
+        out.writeInt(persons.size());
+        for (Person person : persons) {
+            writePerson(out, person);
+        }
+    }
+    
+    static List<Person> readPersons(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Person> persons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            persons.add(readPerson(in, ShardProtocol::parentReference));
+        }
+        
+        return persons;
+    }
+    
+    /**
+     * Creates a reference to a parent that lives on another shard or hasn't been looked up. The
+     * reference only holds the identity code, which is all that equality of persons depends on.
+     * 
+     * @param identityCode identity code of the parent.
+     * @return reference to the parent.
+     */
+    static Person parentReference(String identityCode) {
+        return new Person(identityCode, null, null, null, null);
+    }
+}
@@ -0,0 +1,294 @@
+package app.populationinfo.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import app.populationinfo.aggregate.LiveDemographics;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.query.PopulationIndex;
+import app.populationinfo.registry.PopulationRegistry;
+
+/**
+ * Server holding one shard of a population. The shard keeps its persons in a registry, with a
+ * population index for range queries and live demographics for aggregates, and answers requests
+ * of {@link ShardedRegistry} over loopback or network sockets.
+ * 
+ * <p>Every connection is served on its own virtual thread. Lookups and queries share a read lock,
+ * adding persons and addresses takes the write lock, as the registry is not thread-safe. Parents
+ * that live on other shards are kept as references holding only the identity code.</p>
+ * 
+ * <p>Run as a process with {@link #main(String[])}, the server prints the port it listens on and
+ * runs until its standard input is closed, so it stops with the process that started it.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ShardServer implements Closeable {
+    /**
+     * Line printed by {@link #main(String[])} once the server accepts connections, followed by the port.
+     */
+    public static final String LISTENING = "Shard listening on port ";
+    
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PopulationRegistry registry = new PopulationRegistry();
+    private final PopulationIndex index = new PopulationIndex();
+    private final LiveDemographics demographics = new LiveDemographics();
+    
+    /**
+     * Constructor. Binds the server to the loopback address and starts accepting connections.
+     * 
+     * @param port port to listen on, 0 for any free port.
+     * @throws IOException if the port can't be bound.
+     */
+    public ShardServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+    
+    /**
+     * Constructor. Binds the server and starts accepting connections.
+     * 
+     * @param address address to listen on.
+     * @throws IOException if the address can't be bound.
+     */
+    public ShardServer(InetSocketAddress address) throws IOException {
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        executor.execute(this::accept);
+    }
+    
+    /**
+     * @return address the server listens on.
+     */
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+    
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+    
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Closed by close().
+                return;
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            while (!Thread.currentThread().isInterrupted()) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                
+                // The result is buffered, so a failed request can still be answered with an error.
+                result.reset();
+                byte status;
+                String message = null;
+                try {
+                    status = handle(operation, in, new DataOutputStream(result));
+                } catch (IllegalArgumentException e) {
+                    status = ShardProtocol.INVALID;
+                    message = e.getMessage();
+                } catch (RuntimeException e) {
+                    status = ShardProtocol.FAILED;
+                    message = e.toString();
+                }
+                
+                out.writeByte(status);
+                if (message != null) {
+                    ShardProtocol.writeString(out, message);
+                } else {
+                    result.writeTo(out);
+                }
+                out.flush();
+            }
+        } catch (SocketException | EOFException e) {
+            // The client went away.
+        } catch (IOException e) {
+            System.err.println("Shard connection failed: " + e);
+        }
+    }
+    
+    private byte handle(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case ShardProtocol.ADD_PERSON:
+                return addPerson(in);
+            case ShardProtocol.FIND_PERSON:
+                return findPerson(in.readUTF(), out);
+            case ShardProtocol.ADD_ADDRESS:
+                return addAddress(in.readUTF(), ShardProtocol.readAddress(in), ShardProtocol.readDate(in));
+            case ShardProtocol.FIND_BORN_BETWEEN:
+                return findBornBetween(ShardProtocol.readDate(in), ShardProtocol.readDate(in), out);
+            case ShardProtocol.RESIDENTS_OF:
+                return residentsOf(ShardProtocol.readAddress(in), ShardProtocol.readDate(in), out);
+            case ShardProtocol.POPULATION_BY_AREA_CODE:
+                return populationByAreaCode(out);
+            case ShardProtocol.SIZE:
+                return size(out);
+            default:
+                // The rest of the request can't be read, so the connection can't be used anymore.
+                throw new IOException("Unknown operation: " + operation);
+        }
+    }
+    
+    private byte addPerson(DataInputStream in) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Person person = ShardProtocol.readPerson(in, this::findParent);
+            registry.addPerson(person);
+            index.add(person);
+            demographics.add(person);
+            
+            return ShardProtocol.OK;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private byte findPerson(String identityCode, DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            Person person = registry.findPerson(identityCode);
+            if (person == null) {
+                return ShardProtocol.NOT_FOUND;
+            }
+            
+            ShardProtocol.writePerson(out, person);
+            
+            return ShardProtocol.OK;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private byte addAddress(String identityCode, Address address, LocalDate moveInDate) {
+        lock.writeLock().lock();
+        try {
+            Person person = registry.findPerson(identityCode);
+            if (person == null) {
+                return ShardProtocol.NOT_FOUND;
+            }
+            
+            registry.moveTo(person, address, moveInDate);
+            
+            return ShardProtocol.OK;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private byte findBornBetween(LocalDate from, LocalDate to, DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            ShardProtocol.writePersons(out, index.query().bornBetween(from, to).find());
+            
+            return ShardProtocol.OK;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private byte residentsOf(Address address, LocalDate date, DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<Person> residents = new ArrayList<>(registry.residentsOf(address, date));
+            residents.sort(Comparator.comparing(Person::getIdentityCodeKey));
+            ShardProtocol.writePersons(out, residents);
+            
+            return ShardProtocol.OK;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private byte populationByAreaCode(DataOutputStream out) throws IOException {
+        Map<String, Long> population = demographics.getPopulationByAreaCode();
+        out.writeInt(population.size());
+        for (Map.Entry<String, Long> entry : population.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        
+        return ShardProtocol.OK;
+    }
+    
+    private byte size(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(registry.size());
+            
+            return ShardProtocol.OK;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Person findParent(String identityCode) {
+        Person parent = registry.findPerson(identityCode);
+        
+        return parent != null ? parent : ShardProtocol.parentReference(identityCode);
+    }
+    
+    /**
+     * Main method. Starts a shard server and keeps it running until standard input is closed.
+     * 
+     * @param args port to listen on, optional. Any free port is used by default.
+     * @throws IOException if the server can't be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try (ShardServer server = new ShardServer(port)) {
+            System.out.println(LISTENING + server.getAddress().getPort());
+            System.out.flush();
+            
+            InputStream in = System.in;
+            while (in.read() >= 0) {
+                // Wait for the starting process to close the input.
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package app.populationinfo.shard;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+
+/**
+ * Population registry partitioned over shard servers by a hash of the identity code. Lookups and
+ * moves go to the shard owning the person, range and aggregate queries are sent to every shard in
+ * parallel and their results merged.
+ * 
+ * <p>Persons returned by the registry are detached copies: changing them doesn't change the
+ * shards, moves are made with {@link #addAddress(String, Address, LocalDate)}. The parents of a
+ * person found with {@link #findPerson(String)} are looked up from their own shards. Other parent
+ * links, like the parents of the parents or the parents of persons returned by queries, are
+ * references holding only the identity code, to be looked up when needed.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ShardedRegistry implements Closeable {
+    private final ShardClient[] shards;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    /**
+     * Constructor. The order of the shards decides which shard owns which persons, so it must stay
+     * the same for the same data.
+     * 
+     * @param shards addresses of the shard servers.
+     */
+    public ShardedRegistry(List<InetSocketAddress> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard needed");
+        }
+        
+        this.shards = new ShardClient[shards.size()];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new ShardClient(shards.get(i));
+        }
+    }
+    
+    /**
+     * @return number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    /**
+     * Finds the shard owning a person.
+     * 
+     * @param identityCode identity code of the person.
+     * @return index of the shard.
+     */
+    public int findShard(String identityCode) {
+        return Math.floorMod(identityCode.hashCode(), shards.length);
+    }
+    
+    /**
+     * Adds a person to the shard owning it, with its address history and links to its parents.
+     * The parents may be added before or after the person, to any shard.
+     * 
+     * @param person person to be added.
+     * @throws IllegalArgumentException if the person has already been added.
+     */
+    public void addPerson(Person person) {
+        ownerOf(person.getIdentityCode()).call(ShardProtocol.ADD_PERSON, out -> {
+            synchronized (person) {
+                ShardProtocol.writePerson(out, person);
+            }
+        }, in -> Boolean.TRUE);
+    }
+    
+    /**
+     * Finds a person by identity code. The parents of the person are looked up from their shards.
+     * 
+     * @param identityCode identity code of the person.
+     * @return copy of the person, null if not found.
+     */
+    public Person findPerson(String identityCode) {
+        Person person = findPersonWithoutParents(identityCode);
+        if (person == null || person.getParents().isEmpty()) {
+            return person;
+        }
+        
+        List<Person> parents = new ArrayList<>(2);
+        for (Person reference : person.getParents()) {
+            Person parent = findPersonWithoutParents(reference.getIdentityCode());
+            parents.add(parent != null ? parent : reference);
+        }
+        person.setParents(parents);
+        
+        return person;
+    }
+    
+    /**
+     * Moves a person to a new address on the shard owning the person.
+     * 
+     * @param identityCode identity code of the person.
+     * @param address new address of the person.
+     * @param moveInDate move in date for the new address.
+     * @throws IllegalArgumentException if the person is not found.
+     */
+    public void addAddress(String identityCode, Address address, LocalDate moveInDate) {
+        Boolean moved = ownerOf(identityCode).call(ShardProtocol.ADD_ADDRESS, out -> {
+            out.writeUTF(identityCode);
+            ShardProtocol.writeAddress(out, address);
+            ShardProtocol.writeDate(out, moveInDate);
+        }, in -> Boolean.TRUE);
+        
+        if (moved == null) {
+            throw new IllegalArgumentException("Person not registered: " + identityCode);
+        }
+    }
+    
+    /**
+     * Finds the persons born between the given dates from all shards.
+     * 
+     * @param from first date of birth, inclusive.
+     * @param to last date of birth, inclusive.
+     * @return matching persons ordered by identity code.
+     */
+    public List<Person> findBornBetween(LocalDate from, LocalDate to) {
+        return gatherPersons(shard -> shard.call(ShardProtocol.FIND_BORN_BETWEEN, out -> {
+            ShardProtocol.writeDate(out, from);
+            ShardProtocol.writeDate(out, to);
+        }, ShardProtocol::readPersons));
+    }
+    
+    /**
+     * Finds the persons who lived at the given address on the given date from all shards.
+     * 
+     * @param address address to be looked for.
+     * @param date date to be looked for.
+     * @return residents of the address on the date ordered by identity code.
+     */
+    public List<Person> residentsOf(Address address, LocalDate date) {
+        return gatherPersons(shard -> shard.call(ShardProtocol.RESIDENTS_OF, out -> {
+            ShardProtocol.writeAddress(out, address);
+            ShardProtocol.writeDate(out, date);
+        }, ShardProtocol::readPersons));
+    }
+    
+    /**
+     * Counts the living persons per area code of their current address over all shards.
+     * 
+     * @return number of living persons per area code.
+     */
+    public Map<String, Long> getPopulationByAreaCode() {
+        Map<String, Long> population = new HashMap<>();
+        for (Map<String, Long> shardPopulation : scatter(shard -> shard.call(ShardProtocol.POPULATION_BY_AREA_CODE,
+                out -> { }, ShardedRegistry::readCounts))) {
+            shardPopulation.forEach((areaCode, count) -> population.merge(areaCode, count, Long::sum));
+        }
+        
+        return population;
+    }
+    
+    /**
+     * @return number of persons over all shards.
+     */
+    public int size() {
+        int size = 0;
+        for (Integer shardSize : scatter(shard -> shard.call(ShardProtocol.SIZE, out -> { }, DataInput::readInt))) {
+            size += shardSize;
+        }
+        
+        return size;
+    }
+    
+    /**
+     * Closes the connections to the shards. The shard servers keep running.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (ShardClient shard : shards) {
+            shard.close();
+        }
+    }
+    
+    private ShardClient ownerOf(String identityCode) {
+        return shards[findShard(identityCode)];
+    }
+    
+    private Person findPersonWithoutParents(String identityCode) {
+        return ownerOf(identityCode).call(ShardProtocol.FIND_PERSON, out -> out.writeUTF(identityCode),
+                in -> ShardProtocol.readPerson(in, ShardProtocol::parentReference));
+    }
+    
+    private List<Person> gatherPersons(Function<ShardClient, List<Person>> query) {
+        List<Person> persons = new ArrayList<>();
+        for (List<Person> shardPersons : scatter(query)) {
+            persons.addAll(shardPersons);
+        }
+        persons.sort(Comparator.comparing(Person::getIdentityCodeKey));
+        
+        return persons;
+    }
+    
+    /**
+     * Runs a request on every shard in parallel.
+     * 
+     * @param request request to be run.
+     * @return results in the order of the shards.
+     */
+    private <T> List<T> scatter(Function<ShardClient, T> request) {
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (ShardClient shard : shards) {
+            futures.add(executor.submit(() -> request.apply(shard)));
+        }
+        
+        List<T> results = new ArrayList<>(shards.length);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        
+        return results;
+    }
+    
+    private static Map<String, Long> readCounts(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<String, Long> counts = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            counts.put(in.readUTF(), in.readLong());
+        }
+        
+        return counts;
+    }
+}
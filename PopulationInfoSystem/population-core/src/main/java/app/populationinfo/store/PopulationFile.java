@@ -0,0 +1,192 @@
+package app.populationinfo.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes population stores as files. The file is a fixed size header followed by the
+ * data of the store as is, so opening a file only maps it to memory and validates the header. Pages
+ * of the file are read from the disk when the store first touches them.
+ * 
+ * <p>The header contains a magic number, the format version, the length of the store data, a
+ * checksum of the data and a checksum of the header itself. Files are written to a temporary file
+ * that is moved in place once complete, and a file that was still torn is rejected at open time by
+ * its length. The data checksum reads the whole file, so it is checked only by
+ * {@link #verify(Path)}. A single file can hold at most 2 GB of store data.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class PopulationFile {
+    /**
+     * Magic number at the start of every population file, "POPS" in ASCII.
+     */
+    static final int MAGIC = 0x504F5053;
+    
+    /**
+     * Version of the file format.
+     */
+    static final int VERSION = 2;
+    
+    /**
+     * Length of the header in bytes.
+     */
+    static final int HEADER_LENGTH = 64;
+    
+    private static final int HEADER_CHECKSUM_OFFSET = 24;
+    private static final int VERIFY_BUFFER_SIZE = 1 << 20;
+    
+    private PopulationFile() {
+    }
+    
+    /**
+     * Writes a store to a file. An existing file is replaced.
+     * 
+     * @param store store to be written.
+     * @param file file to be written.
+     * @throws IOException if writing fails.
+     */
+    public static void write(PopulationStore store, Path file) throws IOException {
+        ByteBuffer data = store.getData();
+        ByteBuffer header = createHeader(data);
+        
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                
+                channel.force(true);
+            }
+            
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+    
+    /**
+     * Opens a store from a file by mapping the file to memory. Only the header is validated, so
+     * the cost doesn't depend on the size of the file. Use {@link #verify(Path)} to check the data.
+     * 
+     * @param file file to be opened.
+     * @return store reading the mapped file.
+     * @throws IOException if the file can't be read or it is not a valid population file.
+     */
+    public static PopulationStore open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, header.getLong(8));
+        }
+        
+        try {
+            return PopulationStore.wrap(mapped);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid population file data: " + file, e);
+        }
+    }
+    
+    /**
+     * Verifies the data of a file against the checksum in its header. The whole file is read.
+     * 
+     * @param file file to be verified.
+     * @throws IOException if the file can't be read, it is not a valid population file or its
+     * data doesn't match the checksum.
+     */
+    public static void verify(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(VERIFY_BUFFER_SIZE);
+            long position = HEADER_LENGTH;
+            while (channel.read(buffer.clear(), position) > 0) {
+                position += buffer.position();
+                crc.update(buffer.flip());
+            }
+            
+            if (header.getLong(16) != crc.getValue()) {
+                throw new IOException("Corrupted population file data: " + file);
+            }
+        }
+    }
+    
+    /**
+     * Reads and validates the header of a file.
+     * 
+     * @return the header.
+     */
+    private static ByteBuffer readHeader(FileChannel channel, Path file) throws IOException {
+        long fileLength = channel.size();
+        if (fileLength < HEADER_LENGTH) {
+            throw new IOException("Not a population file, too short: " + file);
+        }
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(channel, header, 0l);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a population file: " + file);
+        }
+        
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported population file version " + header.getInt(4) + ": " + file);
+        }
+        
+        if (header.getLong(HEADER_CHECKSUM_OFFSET) != checksum(header.slice(0, HEADER_CHECKSUM_OFFSET))) {
+            throw new IOException("Corrupted population file header: " + file);
+        }
+        
+        long dataLength = header.getLong(8);
+        if (dataLength != fileLength - HEADER_LENGTH) {
+            throw new IOException("Population file is " + (fileLength - HEADER_LENGTH)
+                    + " bytes, expected " + dataLength + ": " + file);
+        }
+        
+        if (dataLength > Integer.MAX_VALUE) {
+            throw new IOException("Population file too large: " + file);
+        }
+        
+        return header;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+    
+    private static ByteBuffer createHeader(ByteBuffer data) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, data.remaining());
+        header.putLong(16, checksum(data.duplicate()));
+        header.putLong(HEADER_CHECKSUM_OFFSET, checksum(header.slice(0, HEADER_CHECKSUM_OFFSET)));
+        
+        return header;
+    }
+    
+    private static long checksum(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate());
+        
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,501 @@
+package app.populationinfo.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.IdentityCode;
+import app.populationinfo.model.Person;
+
+/**
+ * Compact, columnar store for a whole population. Every person is a row, and the attributes of
+ * the persons are kept in int columns indexed by row: dates as epoch days, parents as row indices,
+ * strings as indices to a shared string table and address histories as ranges of shared history
+ * columns. Persons are read through flyweight views, see {@link #getPerson(int)}.
+ * 
+ * <p>All columns live in one buffer using the same layout in memory and on disk, so a store
+ * can be written to a file and mapped back without any conversion, see {@link PopulationFile}.
+ * The buffer holds, in order: the counts (persons, history entries, addresses, strings and string
+ * bytes) padded to eight bytes, the identity codes packed as two longs each in identity code order
+ * (see {@link IdentityCode}), then identity code, first name, last name, birth day, death day,
+ * parent (two per row), identity code order and history offset columns of the persons, the
+ * address, move in day and move out day columns of the history entries, the name and area code
+ * columns of the addresses and finally the string offsets and the UTF-8 bytes of the strings.</p>
+ * 
+ * <p>Lookups by identity code binary search the packed codes, so only codes that can't be packed
+ * are decoded as strings. A store is a single buffer and holds at most 2 GB.</p>
+ * 
+ * <p>The store is read-only once built.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public final class PopulationStore {
+    /**
+     * Epoch day of a date that is not set.
+     */
+    static final int NO_DATE = EpochDay.NONE;
+    
+    /**
+     * Epoch day of the move out date of the current address.
+     */
+    static final int OPEN = EpochDay.OPEN;
+    
+    /**
+     * Row of a parent that is unknown or not in the store.
+     */
+    static final int NO_PARENT = -1;
+    
+    private static final int NO_STRING = -1;
+    private static final int COUNTS_LENGTH = 3 * Long.BYTES;
+    
+    private final ByteBuffer data;
+    private final int size;
+    private final int historySize;
+    private final int addressCount;
+    private final int stringCount;
+    
+    private final int identityCodeKeys;
+    private final int identityCodeIds;
+    private final int firstNameIds;
+    private final int lastNameIds;
+    private final int birthDays;
+    private final int deathDays;
+    private final int parentRows;
+    private final int rowsByIdentityCode;
+    private final int historyOffsets;
+    private final int historyAddresses;
+    private final int moveInDays;
+    private final int moveOutDays;
+    private final int addressNameIds;
+    private final int addressAreaCodeIds;
+    private final int stringOffsets;
+    private final int stringBytes;
+    
+    private final String[] strings;
+    private final Address[] addresses;
+    private volatile Map<Address, Integer> addressIndexes;
+    private volatile BitSet unorderedHistories;
+    
+    private PopulationStore(ByteBuffer data, String[] strings) {
+        this.data = data;
+        this.size = data.getInt(0);
+        this.historySize = data.getInt(Integer.BYTES);
+        this.addressCount = data.getInt(2 * Integer.BYTES);
+        this.stringCount = data.getInt(3 * Integer.BYTES);
+        
+        long length = dataLength(size, historySize, addressCount, stringCount, data.getInt(4 * Integer.BYTES));
+        if (length != data.capacity()) {
+            throw new IllegalArgumentException("Store data is " + data.capacity() + " bytes, expected " + length);
+        }
+        
+        identityCodeKeys = COUNTS_LENGTH;
+        identityCodeIds = identityCodeKeys + 2 * size * Long.BYTES;
+        firstNameIds = identityCodeIds + size * Integer.BYTES;
+        lastNameIds = firstNameIds + size * Integer.BYTES;
+        birthDays = lastNameIds + size * Integer.BYTES;
+        deathDays = birthDays + size * Integer.BYTES;
+        parentRows = deathDays + size * Integer.BYTES;
+        rowsByIdentityCode = parentRows + 2 * size * Integer.BYTES;
+        historyOffsets = rowsByIdentityCode + size * Integer.BYTES;
+        historyAddresses = historyOffsets + (size + 1) * Integer.BYTES;
+        moveInDays = historyAddresses + historySize * Integer.BYTES;
+        moveOutDays = moveInDays + historySize * Integer.BYTES;
+        addressNameIds = moveOutDays + historySize * Integer.BYTES;
+        addressAreaCodeIds = addressNameIds + addressCount * Integer.BYTES;
+        stringOffsets = addressAreaCodeIds + addressCount * Integer.BYTES;
+        stringBytes = stringOffsets + (stringCount + 1) * Integer.BYTES;
+        
+        this.strings = strings;
+        this.addresses = new Address[addressCount];
+    }
+    
+    /**
+     * Builds a store from the given persons. Parents that are not part of the population are
+     * dropped.
+     * 
+     * @param population persons to be stored.
+     * @return a new store.
+     * @throws IllegalArgumentException if the population doesn't fit into a single store.
+     */
+    public static PopulationStore of(Collection<? extends Person> population) {
+        int size = population.size();
+        long totalHistorySize = 0;
+        for (Person person : population) {
+            totalHistorySize += person.getAddresses().size();
+        }
+        if (totalHistorySize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many address infos for a store: " + totalHistorySize);
+        }
+        int historySize = (int) totalHistorySize;
+        
+        Map<String, Integer> rows = new HashMap<>();
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<Address, Integer> addressIds = new HashMap<>();
+        List<Address> addresses = new ArrayList<>();
+        
+        int[] identityCodes = new int[size];
+        int[] firstNames = new int[size];
+        int[] lastNames = new int[size];
+        int[] births = new int[size];
+        int[] deaths = new int[size];
+        int[] parents = new int[2 * size];
+        int[] offsets = new int[size + 1];
+        int[] historyAddresses = new int[historySize];
+        int[] moveIns = new int[historySize];
+        int[] moveOuts = new int[historySize];
+        
+        int row = 0;
+        int historyIndex = 0;
+        for (Person person : population) {
+            if (rows.putIfAbsent(person.getIdentityCode(), row) != null) {
+                throw new IllegalArgumentException("Duplicate identity code: " + person.getIdentityCode());
+            }
+            
+            identityCodes[row] = stringId(stringIds, strings, person.getIdentityCode());
+            firstNames[row] = stringId(stringIds, strings, person.getFirstName());
+            lastNames[row] = stringId(stringIds, strings, person.getLastName());
+            births[row] = person.getBirthDay();
+            deaths[row] = person.getDeathDay();
+            
+            // Histories are stored oldest first.
+            offsets[row] = historyIndex;
+            List<AddressInfo> history = person.getAddresses();
+            for (int i = history.size() - 1; i >= 0; i--) {
+                AddressInfo addressInfo = history.get(i);
+                Integer addressId = addressIds.get(addressInfo.getAddress());
+                if (addressId == null) {
+                    addressId = addresses.size();
+                    addresses.add(addressInfo.getAddress());
+                    addressIds.put(addressInfo.getAddress(), addressId);
+                }
+                
+                historyAddresses[historyIndex] = addressId;
+                moveIns[historyIndex] = addressInfo.getMoveInDay();
+                moveOuts[historyIndex] = addressInfo.getMoveOutDay();
+                historyIndex++;
+            }
+            
+            row++;
+        }
+        offsets[size] = historyIndex;
+        
+        row = 0;
+        for (Person person : population) {
+            List<Person> personParents = person.getParents();
+            for (int i = 0; i < 2; i++) {
+                Integer parentRow = personParents != null && i < personParents.size()
+                        ? rows.get(personParents.get(i).getIdentityCode()) : null;
+                parents[2 * row + i] = parentRow != null ? parentRow : NO_PARENT;
+            }
+            
+            row++;
+        }
+        
+        int[] addressNames = new int[addresses.size()];
+        int[] addressAreaCodes = new int[addresses.size()];
+        for (int i = 0; i < addresses.size(); i++) {
+            addressNames[i] = stringId(stringIds, strings, addresses.get(i).getName());
+            addressAreaCodes[i] = stringId(stringIds, strings, addresses.get(i).getAreaCode());
+        }
+        
+        int[] order = IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparing(r -> strings.get(identityCodes[r])))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        
+        long[] keys = new long[2 * size];
+        for (int i = 0; i < size; i++) {
+            String identityCode = strings.get(identityCodes[order[i]]);
+            keys[2 * i] = IdentityCode.packHigh(identityCode);
+            keys[2 * i + 1] = keys[2 * i] != IdentityCode.NOT_PACKED ? IdentityCode.packLow(identityCode) : IdentityCode.NOT_PACKED;
+        }
+        
+        List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+        int[] stringOffsets = new int[strings.size() + 1];
+        for (int i = 0; i < strings.size(); i++) {
+            byte[] encoded = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            encodedStrings.add(encoded);
+            if (stringOffsets[i] > Integer.MAX_VALUE - encoded.length) {
+                throw new IllegalArgumentException("Too many string bytes for a store");
+            }
+            stringOffsets[i + 1] = stringOffsets[i] + encoded.length;
+        }
+        
+        long length = dataLength(size, historySize, addresses.size(), strings.size(), stringOffsets[strings.size()]);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Population needs " + length + " bytes, a store can hold at most "
+                    + Integer.MAX_VALUE);
+        }
+        
+        ByteBuffer data = ByteBuffer.allocate((int) length);
+        data.putInt(size).putInt(historySize).putInt(addresses.size()).putInt(strings.size())
+                .putInt(stringOffsets[strings.size()]);
+        data.position(COUNTS_LENGTH);
+        data.asLongBuffer().put(keys);
+        data.position(data.position() + keys.length * Long.BYTES);
+        for (int[] column : new int[][] { identityCodes, firstNames, lastNames, births, deaths, parents, order,
+                offsets, historyAddresses, moveIns, moveOuts, addressNames, addressAreaCodes, stringOffsets }) {
+            data.asIntBuffer().put(column);
+            data.position(data.position() + column.length * Integer.BYTES);
+        }
+        for (byte[] encoded : encodedStrings) {
+            data.put(encoded);
+        }
+        data.clear();
+        
+        return new PopulationStore(data, strings.toArray(new String[0]));
+    }
+    
+    /**
+     * Creates a store over existing store data, for example a mapped file. Strings are decoded
+     * from the data when they are needed.
+     * 
+     * @param data store data.
+     * @return store reading the given data.
+     */
+    static PopulationStore wrap(ByteBuffer data) {
+        return new PopulationStore(data, null);
+    }
+    
+    /**
+     * @return the data of the store, positioned at the start. Changes to the position of the
+     * returned buffer don't affect the store.
+     */
+    ByteBuffer getData() {
+        return data.duplicate().clear();
+    }
+    
+    /**
+     * @return number of persons in the store.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Gets a view of the person on the given row. The view reads its data from the store, so
+     * creating one only allocates the view itself. Views are read-only.
+     * 
+     * @param row row of the person.
+     * @return view of the person.
+     */
+    public Person getPerson(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+        }
+        
+        return new StoredPerson(this, row);
+    }
+    
+    /**
+     * Finds a person by identity code.
+     * 
+     * @param identityCode identity code of the person.
+     * @return view of the person, null if not found.
+     */
+    public Person findPerson(String identityCode) {
+        int row = findRow(identityCode);
+        
+        return row >= 0 ? new StoredPerson(this, row) : null;
+    }
+    
+    /**
+     * Finds the row of a person by identity code.
+     * 
+     * @param identityCode identity code of the person.
+     * @return row of the person, -1 if not found.
+     */
+    public int findRow(String identityCode) {
+        long keyHigh = IdentityCode.packHigh(identityCode);
+        long keyLow = keyHigh != IdentityCode.NOT_PACKED ? IdentityCode.packLow(identityCode) : IdentityCode.NOT_PACKED;
+        
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleHigh = data.getLong(identityCodeKeys + 2 * middle * Long.BYTES);
+            int comparison;
+            if (keyHigh != IdentityCode.NOT_PACKED && middleHigh != IdentityCode.NOT_PACKED) {
+                // Packed codes sort like the strings, so they can be compared without decoding.
+                comparison = Long.compareUnsigned(middleHigh, keyHigh);
+                if (comparison == 0) {
+                    comparison = Long.compareUnsigned(data.getLong(identityCodeKeys + (2 * middle + 1) * Long.BYTES), keyLow);
+                }
+            } else {
+                comparison = getIdentityCode(column(rowsByIdentityCode, middle)).compareTo(identityCode);
+            }
+            
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return column(rowsByIdentityCode, middle);
+            }
+        }
+        
+        return -1;
+    }
+    
+    String getIdentityCode(int row) {
+        return getString(column(identityCodeIds, row));
+    }
+    
+    String getFirstName(int row) {
+        return getString(column(firstNameIds, row));
+    }
+    
+    String getLastName(int row) {
+        return getString(column(lastNameIds, row));
+    }
+    
+    int getBirthDay(int row) {
+        return column(birthDays, row);
+    }
+    
+    int getDeathDay(int row) {
+        return column(deathDays, row);
+    }
+    
+    int getParentRow(int row, int index) {
+        return column(parentRows, 2 * row + index);
+    }
+    
+    int getHistoryStart(int row) {
+        return column(historyOffsets, row);
+    }
+    
+    int getHistoryEnd(int row) {
+        return column(historyOffsets, row + 1);
+    }
+    
+    /**
+     * Tells if the move in days of the history of a row never decrease. The rows whose histories
+     * don't are found on first use with a single pass over the history columns.
+     * 
+     * @param row row of the person.
+     * @return true if the history of the row is in chronological order.
+     */
+    boolean isChronological(int row) {
+        BitSet unordered = unorderedHistories;
+        if (unordered == null) {
+            unordered = new BitSet();
+            for (int i = 0; i < size; i++) {
+                for (int j = getHistoryStart(i) + 1; j < getHistoryEnd(i); j++) {
+                    if (getMoveInDay(j) < getMoveInDay(j - 1)) {
+                        unordered.set(i);
+                        break;
+                    }
+                }
+            }
+            unorderedHistories = unordered;
+        }
+        
+        return !unordered.get(row);
+    }
+    
+    Address getAddress(int historyIndex) {
+        int addressId = getAddressIndex(historyIndex);
+        Address address = addresses[addressId];
+        if (address == null) {
+            address = new Address(getString(column(addressNameIds, addressId)),
+                    getString(column(addressAreaCodeIds, addressId)));
+            addresses[addressId] = address;
+        }
+        
+        return address;
+    }
+    
+    int getAddressIndex(int historyIndex) {
+        return column(historyAddresses, historyIndex);
+    }
+    
+    int findAddressIndex(Address address) {
+        Map<Address, Integer> indexes = addressIndexes;
+        if (indexes == null) {
+            indexes = new HashMap<>();
+            for (int i = 0; i < addressCount; i++) {
+                indexes.put(new Address(getString(column(addressNameIds, i)), getString(column(addressAreaCodeIds, i))), i);
+            }
+            addressIndexes = indexes;
+        }
+        
+        Integer addressIndex = indexes.get(address);
+        return addressIndex != null ? addressIndex : -1;
+    }
+    
+    int getMoveInDay(int historyIndex) {
+        return column(moveInDays, historyIndex);
+    }
+    
+    int getMoveOutDay(int historyIndex) {
+        return column(moveOutDays, historyIndex);
+    }
+    
+    static LocalDate toLocalDate(int epochDay) {
+        return EpochDay.toLocalDate(epochDay);
+    }
+    
+    /**
+     * Computes the length of store data. Counts read from a file may be anything, so the length is
+     * computed in longs, and negative counts give a negative length.
+     */
+    private static long dataLength(int size, int historySize, int addressCount, int stringCount, int stringByteCount) {
+        if (size < 0 || historySize < 0 || addressCount < 0 || stringCount < 0 || stringByteCount < 0) {
+            return -1l;
+        }
+        
+        return COUNTS_LENGTH + 2l * size * Long.BYTES
+                + (long) Integer.BYTES * (9l * size + 1 + 3l * historySize + 2l * addressCount + stringCount + 1)
+                + stringByteCount;
+    }
+    
+    private int column(int columnOffset, int index) {
+        return data.getInt(columnOffset + index * Integer.BYTES);
+    }
+    
+    private String getString(int stringId) {
+        if (stringId == NO_STRING) {
+            return null;
+        }
+        
+        if (strings != null) {
+            return strings[stringId];
+        }
+        
+        int start = column(stringOffsets, stringId);
+        byte[] bytes = new byte[column(stringOffsets, stringId + 1) - start];
+        data.get(stringBytes + start, bytes);
+        
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static int stringId(Map<String, Integer> stringIds, List<String> strings, String string) {
+        if (string == null) {
+            return NO_STRING;
+        }
+        
+        Integer stringId = stringIds.get(string);
+        if (stringId == null) {
+            stringId = strings.size();
+            strings.add(string);
+            stringIds.put(string, stringId);
+        }
+        
+        return stringId;
+    }
+}
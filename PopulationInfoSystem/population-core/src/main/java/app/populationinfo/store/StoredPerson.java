@@ -0,0 +1,209 @@
+package app.populationinfo.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.IdentityCode;
+import app.populationinfo.model.Person;
+
+/**
+ * Read-only view of a person stored in a {@link PopulationStore}. The view only holds the store
+ * and the row, every getter reads the store. Address infos are created when they are asked for.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+final class StoredPerson extends Person {
+    private static final String READ_ONLY = "Stored persons are read-only";
+    
+    private final PopulationStore store;
+    private final int row;
+    
+    /**
+     * Constructor.
+     * 
+     * @param store store holding the person.
+     * @param row row of the person.
+     */
+    StoredPerson(PopulationStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+    
+    @Override
+    public String getIdentityCode() {
+        return store.getIdentityCode(row);
+    }
+    
+    @Override
+    public IdentityCode getIdentityCodeKey() {
+        return IdentityCode.of(store.getIdentityCode(row));
+    }
+    
+    @Override
+    public String getFirstName() {
+        return store.getFirstName(row);
+    }
+    
+    @Override
+    public String getLastName() {
+        return store.getLastName(row);
+    }
+    
+    @Override
+    public LocalDate getTimeOfBirth() {
+        return PopulationStore.toLocalDate(store.getBirthDay(row));
+    }
+    
+    @Override
+    public LocalDate getTimeOfDeath() {
+        return PopulationStore.toLocalDate(store.getDeathDay(row));
+    }
+    
+    @Override
+    public int getBirthDay() {
+        return store.getBirthDay(row);
+    }
+    
+    @Override
+    public int getDeathDay() {
+        return store.getDeathDay(row);
+    }
+    
+    @Override
+    public List<Person> getParents() {
+        List<Person> parents = new ArrayList<>(2);
+        for (int i = 0; i < 2; i++) {
+            int parentRow = store.getParentRow(row, i);
+            if (parentRow != PopulationStore.NO_PARENT) {
+                parents.add(new StoredPerson(store, parentRow));
+            }
+        }
+        
+        return parents;
+    }
+    
+    @Override
+    public List<AddressInfo> getAddresses() {
+        int start = store.getHistoryStart(row);
+        List<AddressInfo> addresses = new ArrayList<>(store.getHistoryEnd(row) - start);
+        for (int i = store.getHistoryEnd(row) - 1; i >= start; i--) {
+            addresses.add(createAddressInfo(i));
+        }
+        
+        return addresses;
+    }
+    
+    @Override
+    public AddressInfo findCurrentAddress() {
+        int last = store.getHistoryEnd(row) - 1;
+        if (last < store.getHistoryStart(row) || store.getMoveOutDay(last) != PopulationStore.OPEN) {
+            return null;
+        }
+        
+        return createAddressInfo(last);
+    }
+    
+    @Override
+    public AddressInfo findAddressInfoByAddress(Address address) {
+        int addressIndex = store.findAddressIndex(address);
+        if (addressIndex < 0) {
+            return null;
+        }
+        
+        for (int i = store.getHistoryEnd(row) - 1; i >= store.getHistoryStart(row); i--) {
+            if (store.getAddressIndex(i) == addressIndex) {
+                return createAddressInfo(i);
+            }
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public AddressInfo findAddressOn(LocalDate date) {
+        long day = date.toEpochDay();
+        int low = store.getHistoryStart(row);
+        int high = store.getHistoryEnd(row) - 1;
+        int start = low;
+        if (!store.isChronological(row)) {
+            for (int i = high; i >= start; i--) {
+                if (store.getMoveInDay(i) <= day && store.getMoveOutDay(i) >= day) {
+                    return createAddressInfo(i);
+                }
+            }
+            
+            return null;
+        }
+        
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (store.getMoveInDay(middle) > day) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        
+        return high >= start && store.getMoveOutDay(high) >= day ? createAddressInfo(high) : null;
+    }
+    
+    @Override
+    public void setIdentityCode(String identityCode) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void setFirstName(String firstName) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void setLastName(String lastName) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void setTimeOfBirth(LocalDate timeOfBirth) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void setTimeOfDeath(LocalDate timeOfDeath) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void setParents(List<Person> parents) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void setAddresses(List<AddressInfo> addresses) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public void addParent(Person parent) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public boolean removeParent(Person person) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    @Override
+    public AddressInfo addAddress(Address address, LocalDate moveInDate) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+    
+    private AddressInfo createAddressInfo(int historyIndex) {
+        return new AddressInfo(store.getAddress(historyIndex), this,
+                store.getMoveInDay(historyIndex), store.getMoveOutDay(historyIndex));
+    }
+}
@@ -0,0 +1,98 @@
+package app.populationinfo.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import app.populationinfo.bulk.BulkImporter;
+import app.populationinfo.bulk.DelimitedRecordParser;
+import app.populationinfo.bulk.ImportResult;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.registry.PopulationRegistry;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Simple load test. Imports a generated population from an extract file, loads it into a registry
+ * and then runs moves and lookups against it, reporting the throughput of each phase.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class LoadTest {
+    private static final long SEED = 27012023l;
+    private static final int DEFAULT_POPULATION_SIZE = 100000;
+    private static final int DEFAULT_OPERATIONS = 1000000;
+    private static final int MOVES_PER_PERSON = 5;
+    
+    /**
+     * Main method.
+     * 
+     * @param args population size and number of operations, both optional.
+     * @throws IOException if the extract file can't be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        int populationSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_POPULATION_SIZE;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATIONS;
+        
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        List<Address> addresses = generator.createAddresses(populationSize / 2, 100);
+        List<Person> population = generator.createPopulation(populationSize, MOVES_PER_PERSON, addresses);
+        
+        Path extract = Files.createTempFile("population", ".csv");
+        long start;
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(extract, StandardCharsets.UTF_8)) {
+                TestDataGenerator.writeExtract(population, writer);
+            }
+            
+            start = System.nanoTime();
+            ImportResult result = new BulkImporter(new DelimitedRecordParser()).importFrom(extract);
+            report("import", (int) result.getRecords(), System.nanoTime() - start);
+        } finally {
+            Files.delete(extract);
+        }
+        
+        start = System.nanoTime();
+        PopulationRegistry registry = new PopulationRegistry(populationSize);
+        registry.addPersons(population);
+        report("load", populationSize, System.nanoTime() - start);
+        
+        Random random = new Random(SEED);
+        LocalDate moveInDate = LocalDate.now();
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            Person person = population.get(random.nextInt(populationSize));
+            registry.moveTo(person, addresses.get(random.nextInt(addresses.size())), moveInDate.plusDays(i));
+        }
+        report("move", operations, System.nanoTime() - start);
+        
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < operations; i++) {
+            Person person = registry.findPerson(population.get(random.nextInt(populationSize)).getIdentityCode());
+            if (person.findCurrentAddress() != null) {
+                found++;
+            }
+        }
+        report("lookup", found, System.nanoTime() - start);
+    }
+    
+    /**
+     * Prints the throughput of a phase.
+     * 
+     * @param phase name of the phase.
+     * @param operations number of operations run.
+     * @param nanos duration of the phase.
+     */
+    static void report(String phase, int operations, long nanos) {
+        System.out.printf("%-8s %,12d ops %,10d ms %,14.0f ops/s%n", phase, operations, nanos / 1000000,
+                operations / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,114 @@
+package app.populationinfo.loadtest;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.shard.LocalShardCluster;
+import app.populationinfo.shard.ShardedRegistry;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Load test for a sharded registry. Starts clusters of 1, 2, 4 and so on shard processes on the
+ * loopback interface up to the given number of shards, and runs the same load, lookups, moves and
+ * a scatter-gather query against each, reporting the throughput per cluster size.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ShardLoadTest {
+    private static final long SEED = 27012023l;
+    private static final int DEFAULT_POPULATION_SIZE = 100000;
+    private static final int DEFAULT_OPERATIONS = 200000;
+    private static final int DEFAULT_MAX_SHARDS = 4;
+    private static final int DEFAULT_CLIENTS = 16;
+    private static final int MOVES_PER_PERSON = 5;
+    private static final String[] SHARD_JVM_OPTIONS = { "-Xmx1g", "-XX:+UseParallelGC" };
+    
+    /**
+     * Main method.
+     * 
+     * @param args population size, number of operations, maximum number of shards and number of
+     * client threads, all optional.
+     * @throws IOException if the shard processes can't be started.
+     * @throws InterruptedException if interrupted while waiting for the clients.
+     * @throws ExecutionException if a client fails.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int populationSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_POPULATION_SIZE;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATIONS;
+        int maxShards = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_SHARDS;
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CLIENTS;
+        
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        List<Address> addresses = generator.createAddresses(populationSize / 2, 100);
+        List<Person> population = generator.createPopulation(populationSize, MOVES_PER_PERSON, addresses);
+        generator.linkGenerations(population, 4);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            for (int shards = 1; shards <= maxShards; shards *= 2) {
+                try (LocalShardCluster cluster = LocalShardCluster.start(shards, SHARD_JVM_OPTIONS);
+                        ShardedRegistry registry = new ShardedRegistry(cluster.getAddresses())) {
+                    String suffix = "/" + shards;
+                    
+                    long start = System.nanoTime();
+                    run(executor, clients, populationSize, i -> registry.addPerson(population.get(i)));
+                    LoadTest.report("load" + suffix, populationSize, System.nanoTime() - start);
+                    
+                    start = System.nanoTime();
+                    run(executor, clients, operations, i -> registry.findPerson(randomPerson(population).getIdentityCode()));
+                    LoadTest.report("lookup" + suffix, operations, System.nanoTime() - start);
+                    
+                    LocalDate moveInDate = LocalDate.now();
+                    start = System.nanoTime();
+                    run(executor, clients, operations, i -> registry.addAddress(randomPerson(population).getIdentityCode(),
+                            addresses.get(ThreadLocalRandom.current().nextInt(addresses.size())), moveInDate.plusDays(i)));
+                    LoadTest.report("move" + suffix, operations, System.nanoTime() - start);
+                    
+                    int queries = Math.max(1, operations / 1000);
+                    start = System.nanoTime();
+                    run(executor, clients, queries, i -> registry.getPopulationByAreaCode());
+                    LoadTest.report("gather" + suffix, queries, System.nanoTime() - start);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static Person randomPerson(List<Person> population) {
+        return population.get(ThreadLocalRandom.current().nextInt(population.size()));
+    }
+    
+    /**
+     * Runs operations split evenly over the clients and waits for them to finish.
+     */
+    private static void run(ExecutorService executor, int clients, int operations, IntConsumer operation)
+            throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(clients);
+        for (int client = 0; client < clients; client++) {
+            int first = (int) ((long) operations * client / clients);
+            int last = (int) ((long) operations * (client + 1) / clients);
+            futures.add(executor.submit(() -> {
+                for (int i = first; i < last; i++) {
+                    operation.accept(i);
+                }
+            }));
+        }
+        
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
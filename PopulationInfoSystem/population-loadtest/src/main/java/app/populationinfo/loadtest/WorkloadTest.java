@@ -0,0 +1,217 @@
+package app.populationinfo.loadtest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import app.populationinfo.metrics.Histogram;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.registry.PopulationRegistry;
+import app.populationinfo.util.PopulationGenerator;
+
+/**
+ * End-to-end load test with a mixed workload. Generates a realistic population with
+ * {@link PopulationGenerator}, loads it into a registry and runs lookups, address history
+ * queries, moves and deaths against it from several threads, reporting the throughput and the
+ * latency percentiles of each kind of operation.
+ * 
+ * <p>Each thread draws its operations from its own random generator split from the seed and works
+ * on its own slice of the population with its own day counter, so no person is changed by two
+ * threads and runs with the same arguments replay the same workload however the threads
+ * interleave. The registry is not thread-safe, so lookups hold a read lock and changes a write
+ * lock.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class WorkloadTest {
+    private static final long SEED = 27012023l;
+    private static final int DEFAULT_POPULATION_SIZE = 1000000;
+    private static final int DEFAULT_OPERATIONS = 2000000;
+    private static final int DEFAULT_THREADS = 4;
+    private static final int AREAS = 300;
+    
+    /**
+     * Kinds of operations with their shares of the workload in percent.
+     */
+    private enum Operation {
+        LOOKUP(60),
+        HISTORY(20),
+        MOVE(17),
+        DEATH(3);
+        
+        private final int share;
+        
+        Operation(int share) {
+            this.share = share;
+        }
+    }
+    
+    private final List<Person> population;
+    private final List<Address> addresses;
+    private final PopulationRegistry registry;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+    
+    private WorkloadTest(List<Person> population, List<Address> addresses, PopulationRegistry registry) {
+        this.population = population;
+        this.addresses = addresses;
+        this.registry = registry;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Histogram();
+        }
+    }
+    
+    /**
+     * Main method.
+     * 
+     * @param args population size, number of operations and number of threads, all optional.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     * @throws ExecutionException if a thread fails.
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int populationSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_POPULATION_SIZE;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATIONS;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_THREADS;
+        
+        long start = System.nanoTime();
+        PopulationGenerator generator = new PopulationGenerator(SEED);
+        List<Address> addresses = generator.createAddresses(populationSize / 2, AREAS);
+        List<Person> population = generator.createPopulation(populationSize, addresses);
+        LoadTest.report("generate", populationSize, System.nanoTime() - start);
+        
+        start = System.nanoTime();
+        PopulationRegistry registry = new PopulationRegistry(populationSize);
+        registry.addPersons(population);
+        LoadTest.report("load", populationSize, System.nanoTime() - start);
+        
+        WorkloadTest test = new WorkloadTest(population, addresses, registry);
+        start = System.nanoTime();
+        test.run(operations, threads);
+        test.report(System.nanoTime() - start);
+    }
+    
+    private void run(int operations, int threads) throws InterruptedException, ExecutionException {
+        if (threads > population.size()) {
+            throw new IllegalArgumentException("More threads than persons: " + threads);
+        }
+        
+        SplittableRandom root = new SplittableRandom(SEED);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                SplittableRandom random = root.split();
+                int client = i;
+                int count = operations / threads + (i < operations % threads ? 1 : 0);
+                futures.add(executor.submit(() -> runClient(client, threads, count, random)));
+            }
+            
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Runs the operations of one client on the persons whose index modulo the number of clients
+     * is the index of the client.
+     */
+    private void runClient(int client, int clients, int operations, SplittableRandom random) {
+        LocalDate today = PopulationGenerator.TODAY;
+        int sliceSize = (population.size() - client + clients - 1) / clients;
+        int days = 0;
+        for (int i = 0; i < operations; i++) {
+            Operation operation = pick(random.nextInt(100));
+            Person person = population.get(client + clients * random.nextInt(sliceSize));
+            long start = System.nanoTime();
+            switch (operation) {
+                case LOOKUP -> {
+                    lock.readLock().lock();
+                    try {
+                        registry.findPerson(person.getIdentityCode()).findCurrentAddress();
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                case HISTORY -> {
+                    LocalDate date = person.getTimeOfBirth().plusDays(random.nextInt(36525));
+                    lock.readLock().lock();
+                    try {
+                        registry.findPerson(person.getIdentityCode()).findAddressOn(date);
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                case MOVE -> {
+                    Address address = addresses.get(random.nextInt(addresses.size()));
+                    lock.writeLock().lock();
+                    try {
+                        // The dead don't move. Every move of the client gets a later day than its moves
+                        // before it, so histories stay chronological.
+                        if (person.getTimeOfDeath() == null) {
+                            registry.moveTo(person, address, today.plusDays(++days));
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+                case DEATH -> {
+                    lock.writeLock().lock();
+                    try {
+                        if (person.getTimeOfDeath() == null) {
+                            LocalDate date = today.plusDays(++days);
+                            person.setTimeOfDeath(date);
+                            AddressInfo current = person.findCurrentAddress();
+                            if (current != null) {
+                                registry.setMoveOutDate(current, date);
+                            }
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            }
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+    
+    private static Operation pick(int percent) {
+        for (Operation operation : Operation.values()) {
+            percent -= operation.share;
+            if (percent < 0) {
+                return operation;
+            }
+        }
+        
+        throw new IllegalStateException("Operation shares don't add up to 100");
+    }
+    
+    private void report(long nanos) {
+        long total = 0l;
+        System.out.printf("%-8s %12s %14s %9s %9s %9s %9s %9s%n", "", "ops", "ops/s", "p50 us", "p90 us",
+                "p99 us", "p99.9 us", "max us");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies[operation.ordinal()];
+            total += histogram.getCount();
+            System.out.printf("%-8s %,12d %,14.0f %9.1f %9.1f %9.1f %9.1f %9.1f%n", operation.name().toLowerCase(),
+                    histogram.getCount(), histogram.getCount() / (nanos / 1e9),
+                    histogram.getValueAtPercentile(50.0) / 1e3, histogram.getValueAtPercentile(90.0) / 1e3,
+                    histogram.getValueAtPercentile(99.0) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+                    histogram.getMax() / 1e3);
+        }
+        LoadTest.report("total", (int) total, nanos);
+    }
+}
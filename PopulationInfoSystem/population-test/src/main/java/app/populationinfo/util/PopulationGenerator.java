@@ -0,0 +1,343 @@
+package app.populationinfo.util;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.EpochDay;
+import app.populationinfo.model.Person;
+
+/**
+ * Generates realistic populations of production size. Where {@link TestDataGenerator} gives every
+ * person the same number of moves between evenly used addresses, this generator follows the shape
+ * of a real population:
+ * 
+ * <ul>
+ * <li>ages follow a population pyramid and the old are more often dead,</li>
+ * <li>persons have valid personal identity codes for their dates of birth,</li>
+ * <li>names are drawn from skewed distributions of common names, with a long tail of rare last
+ * names,</li>
+ * <li>parents are persons born 18 to 45 years before the child and alive at the birth,</li>
+ * <li>area codes are skewed, a few big areas have most of the addresses, and</li>
+ * <li>the number of moves has a long tail, and most moves stay within the area.</li>
+ * </ul>
+ * 
+ * <p>The population is generated in chunks in parallel, in phases. Each phase of each chunk has a
+ * random generator split from a single root in phase and chunk order, so the same seed always
+ * produces the same population regardless of the number of threads. Dates are relative to a fixed day, not the current day.</p>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationGenerator {
+    /**
+     * Day the ages of the population are counted to.
+     */
+    public static final LocalDate TODAY = LocalDate.of(2023, 1, 27);
+    
+    private static final String[] FIRST_NAMES = { "Maria", "Juhani", "Helena", "Johannes", "Johanna", "Mikael",
+        "Anneli", "Olavi", "Kaarina", "Antero", "Marjatta", "Tapani", "Anna", "Kalevi", "Sofia", "Tapio", "Aino",
+        "Matti", "Emilia", "Mikko", "Liisa", "Timo", "Kristiina", "Pekka", "Eveliina", "Juha", "Hannele", "Kari",
+        "Aleksi", "Helmi" };
+    private static final String[] LAST_NAMES = { "Korhonen", "Virtanen", "Mäkinen", "Nieminen", "Mäkelä",
+        "Hämäläinen", "Laine", "Heikkinen", "Koskinen", "Järvinen", "Lehtonen", "Lehtinen", "Saarinen", "Salminen",
+        "Heinonen", "Niemi", "Heikkilä", "Kinnunen", "Salonen", "Turunen", "Salo", "Laitinen", "Tuominen",
+        "Rantanen", "Karjalainen", "Jokinen", "Mattila", "Savolainen", "Lahtinen", "Ahonen" };
+    private static final String[] SYLLABLES = { "ko", "hei", "mä", "vir", "lai", "nie", "sal", "ta", "ru", "pek",
+        "kal", "jär", "tuo", "lu", "haa", "mi", "ran", "sep", "vä", "oks" };
+    private static final String[] SUFFIXES = { "nen", "la", "lä", "mäki", "aho", "salo", "vaara", "niemi" };
+    private static final String[] STREETS = { "Kauppakatu", "Koulukatu", "Rantatie", "Myllytie", "Kirkkokatu",
+        "Puistokatu", "Asemantie", "Koivukuja", "Pajatie", "Satamakatu" };
+    
+    /**
+     * Share of the population in each ten year age band, from 0-9 up to 100-109 years.
+     */
+    private static final double[] AGE_BANDS = { 10.5, 11.0, 11.5, 12.5, 12.5, 12.5, 13.0, 10.5, 4.5, 1.4, 0.1 };
+    
+    /**
+     * Century signs of personal identity codes in order of use, for births in the 1800s, 1900s and 2000s.
+     */
+    private static final String[] CENTURY_SIGNS = { "+", "-YXWVU", "ABCDEF" };
+    private static final String CHECK_CHARACTERS = "0123456789ABCDEFHJKLMNPRSTUVWXY";
+    private static final int INDIVIDUAL_NUMBERS = 898;
+    
+    private static final double RARE_LAST_NAME_SHARE = 0.3;
+    private static final double SAME_AREA_MOVE_SHARE = 0.75;
+    private static final int MAX_MOVES = 100;
+    private static final int CHUNK_SIZE = 1 << 14;
+    
+    private final long seed;
+    
+    /**
+     * Constructor.
+     * 
+     * @param seed seed for the generated data.
+     */
+    public PopulationGenerator(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Creates addresses over the given number of areas. The areas get addresses in proportion to
+     * 1 / n for the nth area, like cities of a country.
+     * 
+     * @param count number of addresses.
+     * @param areas number of distinct area codes.
+     * @return list of new addresses.
+     */
+    public List<Address> createAddresses(int count, int areas) {
+        double[] areaWeights = new double[areas];
+        for (int i = 0; i < areas; i++) {
+            areaWeights[i] = 1.0 / (i + 1);
+        }
+        double[] cumulative = cumulative(areaWeights);
+        
+        SplittableRandom random = new SplittableRandom(seed);
+        AddressPool pool = new AddressPool();
+        int[] streetNumbers = new int[areas];
+        String[] areaCodes = new String[areas];
+        for (int i = 0; i < areas; i++) {
+            areaCodes[i] = String.format("%05d", i * 10);
+        }
+        
+        List<Address> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int area = sample(cumulative, random);
+            int number = streetNumbers[area]++;
+            String name = STREETS[number % STREETS.length] + " " + (number / STREETS.length + 1);
+            addresses.add(pool.intern(name, areaCodes[area]));
+        }
+        
+        return addresses;
+    }
+    
+    /**
+     * Creates a population living at the given addresses. Persons are in the order of their dates
+     * of birth, so parents come before their children.
+     * 
+     * @param size number of persons.
+     * @param addresses addresses to live at.
+     * @return list of new persons.
+     * @throws IllegalArgumentException if more persons would be born on a single day than there
+     * are personal identity codes for the day.
+     */
+    public List<Person> createPopulation(int size, List<Address> addresses) {
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        // All phases split from one root, so every phase and chunk gets a stream of its own.
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] birthRandoms = split(root, chunks);
+        SplittableRandom[] personRandoms = split(root, chunks);
+        SplittableRandom[] familyRandoms = split(root, chunks);
+        
+        int today = (int) TODAY.toEpochDay();
+        double[] ageBands = cumulative(AGE_BANDS);
+        int[] birthDays = new int[size];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = birthRandoms[chunk];
+            for (int i = chunk * CHUNK_SIZE; i < Math.min(size, (chunk + 1) * CHUNK_SIZE); i++) {
+                birthDays[i] = today - (int) ((sample(ageBands, random) + random.nextDouble()) * 3652.5);
+            }
+        });
+        Arrays.parallelSort(birthDays);
+        
+        double[] firstNames = cumulative(zipf(FIRST_NAMES.length));
+        double[] lastNames = cumulative(zipf(LAST_NAMES.length));
+        Person[] persons = new Person[size];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = personRandoms[chunk];
+            int start = chunk * CHUNK_SIZE;
+            int firstOfDay = lowerBound(birthDays, birthDays[Math.min(start, size - 1)]);
+            for (int i = start; i < Math.min(size, start + CHUNK_SIZE); i++) {
+                if (birthDays[i] != birthDays[firstOfDay]) {
+                    firstOfDay = i;
+                }
+                
+                String lastName = random.nextDouble() < RARE_LAST_NAME_SHARE ? rareLastName(random)
+                        : LAST_NAMES[sample(lastNames, random)];
+                persons[i] = new Person(identityCode(birthDays[i], i - firstOfDay),
+                        FIRST_NAMES[sample(firstNames, random)], lastName,
+                        LocalDate.ofEpochDay(birthDays[i]), deathDate(birthDays[i], today, random), null);
+            }
+        });
+        
+        Map<String, List<Address>> areas = new LinkedHashMap<>();
+        for (Address address : addresses) {
+            areas.computeIfAbsent(address.getAreaCode(), a -> new ArrayList<>()).add(address);
+        }
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = familyRandoms[chunk];
+            for (int i = chunk * CHUNK_SIZE; i < Math.min(size, (chunk + 1) * CHUNK_SIZE); i++) {
+                addParents(persons, birthDays, i, random);
+                addAddresses(persons[i], today, addresses, areas, random);
+            }
+        });
+        
+        return Arrays.asList(persons);
+    }
+    
+    private void addParents(Person[] persons, int[] birthDays, int child, SplittableRandom random) {
+        // Older records have fewer parents in the registry.
+        int birthDay = birthDays[child];
+        double knownShare = birthDay > LocalDate.of(1960, 1, 1).toEpochDay() ? 0.95 : 0.3;
+        int from = lowerBound(birthDays, birthDay - 45 * 365);
+        int to = lowerBound(birthDays, birthDay - 18 * 365);
+        if (to <= from) {
+            return;
+        }
+        
+        Person first = null;
+        for (int i = 0; i < 2; i++) {
+            if (random.nextDouble() >= knownShare) {
+                continue;
+            }
+            
+            Person parent = persons[random.nextInt(from, to)];
+            if (parent != first && (parent.getDeathDay() == EpochDay.NONE || parent.getDeathDay() >= birthDay)) {
+                persons[child].addParent(parent);
+                first = parent;
+            }
+        }
+    }
+    
+    private static void addAddresses(Person person, int today, List<Address> addresses,
+            Map<String, List<Address>> areas, SplittableRandom random) {
+        int birthDay = person.getBirthDay();
+        int end = person.getDeathDay() != EpochDay.NONE ? person.getDeathDay() : today;
+        
+        // Pareto distributed number of moves: most persons move a few times, some dozens of times.
+        double pareto = 2.0 * (Math.pow(1.0 - random.nextDouble(), -1.0 / 1.5) - 1.0);
+        int moves = (int) Math.min(MAX_MOVES, 1 + Math.floor(pareto));
+        int[] moveInDays = new int[moves];
+        moveInDays[0] = birthDay;
+        for (int i = 1; i < moves; i++) {
+            moveInDays[i] = birthDay + 1 + random.nextInt(Math.max(1, end - birthDay));
+        }
+        Arrays.sort(moveInDays);
+        
+        Address address = addresses.get(random.nextInt(addresses.size()));
+        int previousDay = Integer.MIN_VALUE;
+        for (int moveInDay : moveInDays) {
+            if (moveInDay <= previousDay || moveInDay > end) {
+                continue;
+            }
+            
+            if (previousDay != Integer.MIN_VALUE) {
+                List<Address> area = areas.get(address.getAreaCode());
+                address = random.nextDouble() < SAME_AREA_MOVE_SHARE ? area.get(random.nextInt(area.size()))
+                        : addresses.get(random.nextInt(addresses.size()));
+            }
+            person.addAddress(address, LocalDate.ofEpochDay(moveInDay));
+            previousDay = moveInDay;
+        }
+        
+        AddressInfo current = person.findCurrentAddress();
+        if (person.getDeathDay() != EpochDay.NONE && current != null) {
+            current.setMoveOutDate(person.getTimeOfDeath());
+        }
+    }
+    
+    private static LocalDate deathDate(int birthDay, int today, SplittableRandom random) {
+        // The chance of having died grows with the age, most deaths are late in life.
+        double age = (today - birthDay) / 365.25;
+        double deathShare = age < 50 ? 0.01 : Math.min(0.95, 0.01 + Math.pow((age - 50) / 55, 2));
+        if (random.nextDouble() >= deathShare) {
+            return null;
+        }
+        
+        int lived = today - birthDay;
+        
+        return LocalDate.ofEpochDay(birthDay + (int) (lived * (0.6 + 0.4 * random.nextDouble())));
+    }
+    
+    private static String identityCode(int birthDay, int rank) {
+        LocalDate date = LocalDate.ofEpochDay(birthDay);
+        String signs = CENTURY_SIGNS[date.getYear() / 100 - 18];
+        if (rank >= signs.length() * INDIVIDUAL_NUMBERS) {
+            throw new IllegalArgumentException("Too many persons born on " + date);
+        }
+        
+        int individual = 2 + rank % INDIVIDUAL_NUMBERS;
+        int number = date.getDayOfMonth() * 10000000 + date.getMonthValue() * 100000 + date.getYear() % 100 * 1000 + individual;
+        char[] code = new char[11];
+        code[10] = CHECK_CHARACTERS.charAt(number % 31);
+        for (int i = 9; i >= 0; i--) {
+            if (i == 6) {
+                code[i] = signs.charAt(rank / INDIVIDUAL_NUMBERS);
+                continue;
+            }
+            code[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        
+        return new String(code);
+    }
+    
+    private static String rareLastName(SplittableRandom random) {
+        String name = SYLLABLES[random.nextInt(SYLLABLES.length)] + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                + SUFFIXES[random.nextInt(SUFFIXES.length)];
+        
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+    
+    private static SplittableRandom[] split(SplittableRandom root, int count) {
+        SplittableRandom[] randoms = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) {
+            randoms[i] = root.split();
+        }
+        
+        return randoms;
+    }
+    
+    private static double[] zipf(int count) {
+        double[] weights = new double[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = 1.0 / (i + 1);
+        }
+        
+        return weights;
+    }
+    
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double total = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            cumulative[i] /= total;
+        }
+        
+        return cumulative;
+    }
+    
+    private static int sample(double[] cumulative, SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+    
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        
+        return low;
+    }
+}
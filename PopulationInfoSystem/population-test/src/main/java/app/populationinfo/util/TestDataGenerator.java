@@ -0,0 +1,166 @@
+package app.populationinfo.util;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.Person;
+
+/**
+ * Generates larger amounts of test data than {@link TestUtil}. The data is generated from a seed,
+ * so the same seed always produces the same population.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class TestDataGenerator {
+    private static final String[] FIRST_NAMES = { "Aino", "Eino", "Helmi", "Juhani", "Maria", "Mikael", "Sofia", "Veikko" };
+    private static final String[] LAST_NAMES = { "Korhonen", "Virtanen", "Mäkinen", "Nieminen", "Hämäläinen", "Laine" };
+    private static final String[] STREETS = { "Kauppakatu", "Koulukatu", "Rantatie", "Myllytie", "Kirkkokatu" };
+    private static final LocalDate FIRST_BIRTH_TIME = LocalDate.of(1930, 1, 1);
+    private static final int BIRTH_TIME_RANGE_DAYS = 90 * 365;
+    
+    private final Random random;
+    
+    /**
+     * Constructor.
+     * 
+     * @param seed seed for the generated data.
+     */
+    public TestDataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Creates addresses with area codes spread over the given number of areas. Area code strings are
+     * shared between the addresses.
+     * 
+     * @param count number of addresses.
+     * @param areas number of distinct area codes.
+     * @return list of new addresses.
+     */
+    public List<Address> createAddresses(int count, int areas) {
+        List<Address> addresses = new ArrayList<>(count);
+        AddressPool pool = new AddressPool();
+        for (int i = 0; i < count; i++) {
+            String name = STREETS[i % STREETS.length] + " " + (i / STREETS.length + 1);
+            String areaCode = String.format("%05d", (i % areas) * 10);
+            addresses.add(pool.intern(name, areaCode));
+        }
+        
+        return addresses;
+    }
+    
+    /**
+     * Creates a population. Every person moves the given number of times between the given addresses.
+     * 
+     * @param size number of persons.
+     * @param moves number of moves per person.
+     * @param addresses addresses to move between.
+     * @return list of new persons.
+     */
+    public List<Person> createPopulation(int size, int moves, List<Address> addresses) {
+        List<Person> population = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Person person = createPerson(i);
+            addAddresses(person, moves, addresses);
+            population.add(person);
+        }
+        
+        return population;
+    }
+    
+    /**
+     * Creates a person with a generated identity code, name and birth time.
+     * 
+     * @param index running number of the person, used for the identity code.
+     * @return a new instance of person.
+     */
+    public Person createPerson(int index) {
+        String identityCode = String.format("%08d-%s", index, "AAAA");
+        LocalDate birthTime = FIRST_BIRTH_TIME.plusDays(random.nextInt(BIRTH_TIME_RANGE_DAYS));
+        LocalDate deathTime = random.nextInt(10) == 0 ? birthTime.plusYears(60l + random.nextInt(30)) : null;
+        
+        return TestUtil.createPerson(identityCode,
+                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                birthTime,
+                deathTime);
+    }
+    
+    /**
+     * Adds moves for a person in chronological order, starting from the time of birth.
+     * 
+     * @param person person moving.
+     * @param moves number of moves.
+     * @param addresses addresses to move between.
+     */
+    public void addAddresses(Person person, int moves, List<Address> addresses) {
+        LocalDate moveInDate = person.getTimeOfBirth();
+        for (int i = 0; i < moves; i++) {
+            person.addAddress(addresses.get(random.nextInt(addresses.size())), moveInDate);
+            moveInDate = moveInDate.plusDays(1l + random.nextInt(365));
+        }
+    }
+    
+    /**
+     * Links a population into families. The population is split into generations of equal size
+     * in list order, and every person after the first generation gets two parents from the
+     * previous generation.
+     * 
+     * @param population persons to be linked, without parents.
+     * @param generations number of generations.
+     */
+    public void linkGenerations(List<Person> population, int generations) {
+        int generationSize = population.size() / generations;
+        for (int i = generationSize; i < population.size(); i++) {
+            int previousStart = (i / generationSize - 1) * generationSize;
+            int first = previousStart + random.nextInt(generationSize);
+            int second = previousStart + random.nextInt(generationSize);
+            population.get(i).addParent(population.get(first));
+            if (second != first) {
+                population.get(i).addParent(population.get(second));
+            }
+        }
+    }
+    
+    /**
+     * Writes a population as a delimited extract that can be read with the bulk importer. Moves are
+     * written newest first after the person, and a move out date is written only when it is not the
+     * day before the next move in date.
+     * 
+     * @param population persons to be written.
+     * @param out output for the lines of the extract.
+     * @throws IOException if writing fails.
+     */
+    public static void writeExtract(List<Person> population, Appendable out) throws IOException {
+        for (Person person : population) {
+            out.append("P;").append(person.getIdentityCode())
+                    .append(';').append(person.getFirstName())
+                    .append(';').append(person.getLastName())
+                    .append(';').append(Objects.toString(person.getTimeOfBirth(), ""))
+                    .append(';').append(Objects.toString(person.getTimeOfDeath(), ""))
+                    .append('\n');
+            
+            LocalDate nextMoveInDate = null;
+            for (AddressInfo addressInfo : person.getAddresses()) {
+                LocalDate moveOutDate = addressInfo.getMoveOutDate();
+                boolean implied = nextMoveInDate != null && nextMoveInDate.minusDays(1l).equals(moveOutDate);
+                out.append("A;").append(person.getIdentityCode())
+                        .append(';').append(addressInfo.getAddress().getName())
+                        .append(';').append(addressInfo.getAddress().getAreaCode())
+                        .append(';').append(addressInfo.getMoveInDate().toString())
+                        .append(';').append(implied ? "" : Objects.toString(moveOutDate, ""))
+                        .append('\n');
+                nextMoveInDate = addressInfo.getMoveInDate();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package app.populationinfo.aggregate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Demographics test class. Tests both the figures computed from a population and the live figures.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class DemographicsTest {
+    private static final LocalDate DATE = LocalDate.of(2100, 1, 1);
+    
+    /**
+     * Test verifies the figures of a small population against counts made by hand.
+     */
+    @Test
+    public void computeFigures() {
+        Person child = TestUtil.createPerson("1", "Lapsi", "Laine", LocalDate.of(2020, 6, 15), null);
+        child.addAddress(new Address("Kotikatu 1", "00100"), LocalDate.of(2020, 6, 15));
+        Person adult = TestUtil.createPerson("2", "Aikuinen", "Laine", LocalDate.of(1990, 1, 1), null);
+        adult.addAddress(new Address("Kotikatu 2", "00100"), LocalDate.of(2010, 1, 1));
+        Person deceased = TestUtil.createPerson("3", "Vainaja", "Laine", LocalDate.of(1920, 1, 1), LocalDate.of(2000, 5, 5));
+        deceased.addAddress(new Address("Kotikatu 3", "00200"), LocalDate.of(1950, 1, 1));
+        
+        Demographics demographics = Demographics.of(List.of(child, adult, deceased), LocalDate.of(2023, 6, 14));
+        
+        assertEquals(2l, demographics.getPopulation("00100"));
+        assertEquals(0l, demographics.getPopulation("00200"));
+        assertEquals(1l, demographics.getAgeCount(2));
+        assertEquals(1l, demographics.getAgeCount(33));
+        assertEquals(1l, demographics.getDeaths(2000));
+        assertEquals(1, demographics.getDeathsByYear().size());
+        assertEquals(1l, demographics.getAgePyramid(10)[0]);
+        assertEquals(1l, demographics.getAgePyramid(10)[3]);
+    }
+    
+    /**
+     * Test verifies that parallel and sequential figures and the live figures of the same
+     * population are equal.
+     */
+    @Test
+    public void parallelSequentialAndLiveAgree() {
+        TestDataGenerator generator = new TestDataGenerator(14l);
+        List<Address> addresses = generator.createAddresses(100, 20);
+        List<Person> population = generator.createPopulation(5000, 3, addresses);
+        for (Person person : population) {
+            if (person.getTimeOfDeath() != null && person.getTimeOfDeath().isAfter(DATE)) {
+                person.setTimeOfDeath(null);
+            }
+        }
+        
+        Demographics parallel = Demographics.of(population, DATE);
+        Demographics sequential = population.stream().collect(Demographics.collector(DATE));
+        Demographics live = LiveDemographics.of(population).snapshot(DATE);
+        
+        assertEquals(sequential.getPopulationByAreaCode(), parallel.getPopulationByAreaCode());
+        assertEquals(sequential.getPopulationByAreaCode(), live.getPopulationByAreaCode());
+        assertArrayEquals(sequential.getAgePyramid(1), parallel.getAgePyramid(1));
+        assertArrayEquals(sequential.getAgePyramid(1), live.getAgePyramid(1));
+        assertEquals(sequential.getDeathsByYear(), parallel.getDeathsByYear());
+        assertEquals(sequential.getDeathsByYear(), live.getDeathsByYear());
+    }
+    
+    /**
+     * Test verifies that the live figures follow moves and deaths.
+     */
+    @Test
+    public void updateLiveFigures() {
+        Person person = TestUtil.createPerson("1", "Muuttaja", "Laine", LocalDate.of(1990, 1, 1), null);
+        AddressInfo first = person.addAddress(new Address("Kotikatu 1", "00100"), LocalDate.of(2010, 1, 1));
+        LiveDemographics demographics = LiveDemographics.of(List.of(person));
+        
+        assertEquals(1l, demographics.getPopulation("00100"));
+        assertEquals(1l, demographics.getLivingCount());
+        
+        person.addAddress(new Address("Kotikatu 2", "00200"), LocalDate.of(2020, 1, 1));
+        
+        assertEquals(0l, demographics.getPopulation("00100"));
+        assertEquals(1l, demographics.getPopulation("00200"));
+        
+        person.setTimeOfDeath(LocalDate.of(2023, 1, 27));
+        first.setMoveOutDate(LocalDate.of(2019, 12, 1));
+        
+        assertEquals(0l, demographics.getPopulation("00200"));
+        assertEquals(0l, demographics.getLivingCount());
+        assertEquals(1l, demographics.getDeaths(2023));
+        
+        demographics.remove(person);
+        
+        assertEquals(0l, demographics.getDeaths(2023));
+    }
+    
+    /**
+     * Test verifies that dates outside the counted years are accepted, also when they are set on
+     * a person that is already followed by live figures.
+     */
+    @Test
+    public void countDatesOutsideYears() {
+        Person ancient = TestUtil.createPerson("1", "Muinainen", "Laine", LocalDate.of(1700, 1, 1), LocalDate.of(1790, 1, 1));
+        Person future = TestUtil.createPerson("2", "Tuleva", "Laine", LocalDate.of(2190, 1, 1), null);
+        future.addAddress(new Address("Kotikatu 1", "00100"), LocalDate.of(2190, 1, 1));
+        LiveDemographics live = LiveDemographics.of(List.of(ancient, future));
+        
+        future.setTimeOfBirth(LocalDate.of(2250, 1, 1));
+        future.setTimeOfDeath(LocalDate.of(2300, 1, 1));
+        
+        assertEquals(2l, live.getDeathsInOtherYears());
+        assertEquals(0l, live.getLivingCount());
+        assertEquals(0l, live.getPopulation("00100"));
+        
+        Demographics demographics = Demographics.of(List.of(ancient, future), LocalDate.of(2023, 1, 27));
+        
+        assertEquals(2l, demographics.getDeathsInOtherYears());
+        assertEquals(0, demographics.getDeathsByYear().size());
+        assertEquals(demographics.getDeathsInOtherYears(), live.snapshot(LocalDate.of(2023, 1, 27)).getDeathsInOtherYears());
+        
+        future.setTimeOfDeath(null);
+        
+        assertEquals(1l, live.getDeathsInOtherYears());
+        assertEquals(1l, live.getPopulation("00100"));
+    }
+}
@@ -0,0 +1,113 @@
+package app.populationinfo.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressPool;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Bulk importer test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class BulkImporterTest {
+    
+    /**
+     * Test verifies that an imported extract gives the same persons and address histories as
+     * adding the moves one by one. Small batches and queues make the stages wait for each other.
+     * 
+     * @throws IOException if reading the extract fails.
+     */
+    @Test
+    public void importExtract() throws IOException {
+        TestDataGenerator generator = new TestDataGenerator(11l);
+        List<Address> addresses = generator.createAddresses(100, 5);
+        List<Person> population = generator.createPopulation(2000, 6, addresses);
+        population.get(0).findCurrentAddress().setMoveOutDate(LocalDate.of(2022, 12, 31));
+        StringBuilder extract = new StringBuilder();
+        TestDataGenerator.writeExtract(population, extract);
+        
+        BulkImporter importer = new BulkImporter(new DelimitedRecordParser(), new AddressPool(), 3, 4, 16, 2);
+        ImportResult result = importer.importFrom(new BufferedReader(new StringReader(extract.toString())));
+        
+        assertEquals(2000l * 7, result.getRecords());
+        assertEquals(0l, result.getRejectedRecords());
+        assertEquals(population.size(), result.getPersons().size());
+        
+        Map<String, Person> imported = result.getPersons().stream()
+                .collect(Collectors.toMap(Person::getIdentityCode, Function.identity()));
+        for (Person person : population) {
+            Person importedPerson = imported.get(person.getIdentityCode());
+            
+            assertEquals(person.getLastName(), importedPerson.getLastName());
+            assertEquals(person.getTimeOfDeath(), importedPerson.getTimeOfDeath());
+            assertEquals(person.getAddresses(), importedPerson.getAddresses());
+            assertEquals(person.findCurrentAddress(), importedPerson.findCurrentAddress());
+        }
+    }
+    
+    /**
+     * Test verifies that moves are sorted, addresses are pooled, and invalid records, duplicates
+     * and moves of unknown persons are rejected without stopping the import.
+     * 
+     * @throws IOException if reading the extract fails.
+     */
+    @Test
+    public void rejectInvalidRecords() throws IOException {
+        String extract = String.join("\n",
+                "A;010101-123N;Kotikatu 2;00100;2010-01-01;",
+                "A;010101-123N;Kotikatu 1;00100;2000-01-01;",
+                "P;010101-123N;Maija;Meikäläinen;2001-01-01;",
+                "",
+                "P;010101-123N;Maija;Meikäläinen;2001-01-01;",
+                "A;020202-456P;Kotikatu 1;00100;2000-01-01;",
+                "X;010101-123N;Unknown",
+                "A;010101-123N;Kotikatu 3;00100;2020-13-01;");
+        AddressPool addressPool = new AddressPool();
+        
+        ImportResult result = new BulkImporter(new DelimitedRecordParser(), addressPool, 2, 2, 2, 1)
+                .importFrom(new BufferedReader(new StringReader(extract)));
+        
+        assertEquals(7l, result.getRecords());
+        assertEquals(4l, result.getRejectedRecords());
+        assertEquals(4, result.getErrors().size());
+        
+        Person person = result.getPersons().get(0);
+        
+        assertEquals(2, person.getAddresses().size());
+        assertEquals("Kotikatu 2", person.findCurrentAddress().getAddress().getName());
+        assertEquals(LocalDate.of(2009, 12, 31), person.getAddresses().get(1).getMoveOutDate());
+        assertSame(addressPool.find("Kotikatu 1", "00100"), person.getAddresses().get(1).getAddress());
+    }
+    
+    /**
+     * Test verifies that an empty extract gives an empty result.
+     * 
+     * @throws IOException if reading the extract fails.
+     */
+    @Test
+    public void importEmptyExtract() throws IOException {
+        ImportResult result = new BulkImporter(new DelimitedRecordParser())
+                .importFrom(new BufferedReader(new StringReader("")));
+        
+        assertEquals(0l, result.getRecords());
+        assertEquals(Collections.emptyList(), result.getPersons());
+    }
+}
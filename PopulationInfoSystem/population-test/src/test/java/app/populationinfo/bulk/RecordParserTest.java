@@ -0,0 +1,66 @@
+package app.populationinfo.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Record parser test class. Tests the delimited and the fixed-width parsers.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class RecordParserTest {
+    
+    /**
+     * Test verifies that delimited person and move records are parsed, with missing trailing dates as null.
+     */
+    @Test
+    public void parseDelimited() {
+        RecordParser parser = new DelimitedRecordParser(',');
+        
+        assertEquals(new ImportRecord.PersonRecord("010101-123N", "Maija", "Meikäläinen", LocalDate.of(2001, 1, 1), null),
+                parser.parse("P,010101-123N,Maija,Meikäläinen,2001-01-01"));
+        assertEquals(new ImportRecord.MoveRecord("010101-123N", "Kotikatu 1", "00100", LocalDate.of(2001, 1, 1),
+                LocalDate.of(2002, 2, 28)), parser.parse("A,010101-123N,Kotikatu 1,00100,20010101,2002-02-28"));
+    }
+    
+    /**
+     * Test verifies that fixed-width records are parsed and padding is removed.
+     */
+    @Test
+    public void parseFixedWidth() {
+        RecordParser parser = new FixedWidthRecordParser();
+        String person = "P" + pad("010101-123N", 11) + pad("Maija", 30) + pad("Meikäläinen", 30) + "20010101" + pad("", 8);
+        String move = "A" + pad("010101-123N", 11) + pad("Kotikatu 1", 40) + "00100" + "20010101";
+        
+        assertEquals(new ImportRecord.PersonRecord("010101-123N", "Maija", "Meikäläinen", LocalDate.of(2001, 1, 1), null),
+                parser.parse(person));
+        assertEquals(new ImportRecord.MoveRecord("010101-123N", "Kotikatu 1", "00100", LocalDate.of(2001, 1, 1), null),
+                parser.parse(move));
+    }
+    
+    /**
+     * Test verifies that invalid records are rejected.
+     */
+    @Test
+    public void parseInvalid() {
+        RecordParser parser = new DelimitedRecordParser();
+        
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("P;010101-123N;Maija"));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("A;010101-123N;Kotikatu 1;00100;;"));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("A;010101-123N;Kotikatu 1;00100;2001-02-30"));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("A;010101-123N;Kotikatu 1;00100;2001-0a-01"));
+        assertThrows(IllegalArgumentException.class, () -> new FixedWidthRecordParser().parse("Q010101-123N"));
+        assertNull(RecordParser.parseDate("P;    ;", 2, 6));
+    }
+    
+    private static String pad(String value, int width) {
+        return String.format("%-" + width + "s", value);
+    }
+}
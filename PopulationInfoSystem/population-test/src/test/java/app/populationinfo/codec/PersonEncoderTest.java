@@ -0,0 +1,138 @@
+package app.populationinfo.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Person encoder test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PersonEncoderTest {
+    
+    /**
+     * Test verifies that decoded persons equal the encoded ones with their names, dates, parents
+     * and address histories, and that parents encoded earlier are decoded as the same instances.
+     */
+    @Test
+    public void encodeAndDecode() {
+        TestDataGenerator generator = new TestDataGenerator(24l);
+        List<Address> addresses = generator.createAddresses(30, 3);
+        List<Person> population = generator.createPopulation(300, 4, addresses);
+        generator.linkGenerations(population, 3);
+        population.get(5).getAddresses().get(1).setMoveOutDate(population.get(5).getAddresses().get(1).getMoveInDate());
+        population.get(6).findCurrentAddress().setMoveOutDate(LocalDate.of(2100, 1, 1));
+        population.get(7).setFirstName(null);
+        population.add(new Person("01010100-BBBB", null, null, null, null));
+        
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        PersonEncoder encoder = new PersonEncoder();
+        for (Person person : population.subList(50, population.size())) {
+            encoder.encode(person, buffer);
+        }
+        buffer.flip();
+        
+        PersonDecoder decoder = new PersonDecoder();
+        List<Person> decoded = new ArrayList<>();
+        for (Person person : population.subList(50, population.size())) {
+            decoded.add(decoder.decode(buffer));
+            assertSamePerson(person, decoded.get(decoded.size() - 1));
+        }
+        assertNull(decoder.decode(buffer));
+        assertEquals(population.size() - 50, decoder.size());
+        
+        Person child = decoded.stream().filter(p -> p.getParents().contains(decoded.get(0))).findFirst().orElseThrow();
+        assertSame(decoded.get(0), child.getParents().stream().filter(decoded.get(0)::equals).findFirst().orElseThrow());
+    }
+    
+    /**
+     * Test verifies that a person encoded again keeps the parent references of the later records
+     * pointing at the right persons.
+     */
+    @Test
+    public void encodeSamePersonAgain() {
+        Person x = new Person("010180-002A", "Eka", "Laine", LocalDate.of(1980, 1, 1), null);
+        Person y = new Person("020280-002B", "Toka", "Laine", LocalDate.of(1980, 2, 2), null);
+        Person child = new Person("030310-002C", "Lapsi", "Laine", LocalDate.of(2010, 3, 3), List.of(y));
+        
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        PersonEncoder encoder = new PersonEncoder();
+        for (Person person : List.of(x, x, y, child, x, child)) {
+            encoder.encode(person, buffer);
+        }
+        assertEquals(6, encoder.size());
+        buffer.flip();
+        
+        PersonDecoder decoder = new PersonDecoder();
+        List<Person> decoded = new ArrayList<>();
+        for (Person person = decoder.decode(buffer); person != null; person = decoder.decode(buffer)) {
+            decoded.add(person);
+        }
+        assertEquals(6, decoded.size());
+        assertSame(decoded.get(2), decoded.get(3).getParents().get(0));
+        assertSame(decoded.get(2), decoded.get(5).getParents().get(0));
+        assertSamePerson(child, decoded.get(5));
+    }
+    
+    /**
+     * Test verifies that a person that doesn't fit into the buffer leaves the buffer and the
+     * stream unchanged and can be encoded into the next buffer.
+     */
+    @Test
+    public void overflowLeavesStreamUnchanged() {
+        TestDataGenerator generator = new TestDataGenerator(24l);
+        List<Address> addresses = generator.createAddresses(100, 10);
+        List<Person> population = generator.createPopulation(2, 60, addresses);
+        
+        PersonEncoder encoder = new PersonEncoder();
+        ByteBuffer small = ByteBuffer.allocate(100);
+        assertThrows(BufferOverflowException.class, () -> encoder.encode(population.get(0), small));
+        assertEquals(0, small.position());
+        
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encoder.encode(population.get(0), buffer);
+        encoder.encode(population.get(1), buffer);
+        assertEquals(2, encoder.size());
+        
+        PersonDecoder decoder = new PersonDecoder();
+        int end = buffer.position();
+        buffer.flip().limit(end - 1);
+        assertSamePerson(population.get(0), decoder.decode(buffer));
+        int position = buffer.position();
+        assertNull(decoder.decode(buffer));
+        assertEquals(position, buffer.position());
+        assertSamePerson(population.get(1), decoder.decode(buffer.limit(end)));
+    }
+    
+    /**
+     * Checks that a decoded person has the state of the encoded one.
+     * 
+     * @param expected encoded person.
+     * @param actual decoded person.
+     */
+    static void assertSamePerson(Person expected, Person actual) {
+        assertEquals(expected.getIdentityCode(), actual.getIdentityCode());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getTimeOfBirth(), actual.getTimeOfBirth());
+        assertEquals(expected.getTimeOfDeath(), actual.getTimeOfDeath());
+        assertEquals(expected.getParents(), actual.getParents());
+        assertEquals(expected.getAddresses(), actual.getAddresses());
+    }
+}
@@ -0,0 +1,85 @@
+package app.populationinfo.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Person reader test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PersonReaderTest {
+    @TempDir
+    Path directory;
+    
+    /**
+     * Test verifies that a batch written to a file in several buffers is read back person by
+     * person, and that a truncated file fails at the last record.
+     * 
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void readBatchFromFile() throws IOException {
+        TestDataGenerator generator = new TestDataGenerator(24l);
+        List<Address> addresses = generator.createAddresses(200, 10);
+        List<Person> population = generator.createPopulation(5000, 5, addresses);
+        generator.linkGenerations(population, 4);
+        
+        Path file = directory.resolve("batch");
+        PersonEncoder encoder = new PersonEncoder();
+        long length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            for (Person person : population) {
+                try {
+                    encoder.encode(person, buffer);
+                } catch (BufferOverflowException e) {
+                    channel.write(buffer.flip());
+                    buffer.clear();
+                    encoder.encode(person, buffer);
+                }
+            }
+            channel.write(buffer.flip());
+            length = channel.size();
+        }
+        
+        try (PersonReader reader = new PersonReader(FileChannel.open(file), new PersonDecoder())) {
+            for (Person person : population) {
+                PersonEncoderTest.assertSamePerson(person, reader.next());
+            }
+            assertFalse(reader.hasNext());
+        }
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length - 1);
+        }
+        
+        try (PersonReader reader = new PersonReader(FileChannel.open(file), new PersonDecoder())) {
+            for (int i = 0; i < population.size() - 1; i++) {
+                reader.next();
+            }
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, reader::hasNext);
+            assertEquals(EOFException.class, e.getCause().getClass());
+        }
+    }
+}
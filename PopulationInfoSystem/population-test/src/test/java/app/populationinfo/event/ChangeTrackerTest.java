@@ -0,0 +1,126 @@
+package app.populationinfo.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Change tracker test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ChangeTrackerTest {
+    
+    /**
+     * Test verifies that an export has a delta for each person changed since the given version,
+     * with only the changed parts of the person.
+     */
+    @Test
+    public void exportChangedParts() {
+        TestDataGenerator generator = new TestDataGenerator(23l);
+        List<Address> addresses = generator.createAddresses(20, 2);
+        List<Person> population = generator.createPopulation(100, 3, addresses);
+        ChangeTracker tracker = new ChangeTracker();
+        for (Person person : population) {
+            tracker.track(person);
+        }
+        
+        assertEquals(0l, tracker.export(0l, d -> { throw new AssertionError(d); }));
+        
+        LocalDate date = LocalDate.of(2100, 1, 1);
+        population.get(0).setLastName("Virtanen");
+        AddressInfo closed = population.get(1).findCurrentAddress();
+        AddressInfo added = population.get(1).addAddress(addresses.get(0), date);
+        population.get(2).setTimeOfDeath(date);
+        population.get(3).addParent(population.get(4));
+        added.setMoveOutDate(date.plusDays(10l));
+        
+        List<PersonDelta> deltas = new ArrayList<>();
+        long watermark = tracker.export(0l, deltas::add);
+        assertEquals(5l, watermark);
+        assertEquals(List.of(population.get(0).getIdentityCode(), population.get(2).getIdentityCode(),
+                population.get(3).getIdentityCode(), population.get(1).getIdentityCode()),
+                deltas.stream().map(PersonDelta::identityCode).toList());
+        
+        PersonDelta name = deltas.get(0);
+        assertEquals(PersonDelta.NAME, name.changes());
+        assertEquals("Virtanen", name.lastName());
+        assertEquals(population.get(0).getFirstName(), name.firstName());
+        assertNull(name.timeOfDeath());
+        assertTrue(name.addresses().isEmpty());
+        assertEquals(date, deltas.get(1).timeOfDeath());
+        assertEquals(List.of(population.get(4).getIdentityCode()), deltas.get(2).parentIdentityCodes());
+        
+        PersonDelta moved = deltas.get(3);
+        assertEquals(PersonDelta.ADDRESSES, moved.changes());
+        assertEquals(5l, moved.version());
+        assertEquals(List.of(closed.getMoveInDate(), date), moved.addresses().stream().map(PersonDelta.AddressChange::moveInDate).toList());
+        assertEquals(date.minusDays(1l), moved.addresses().get(0).moveOutDate());
+        assertEquals(date.plusDays(10l), moved.addresses().get(1).moveOutDate());
+        
+        population.get(0).setFirstName("Aino");
+        deltas.clear();
+        assertEquals(6l, tracker.export(watermark, deltas::add));
+        assertEquals(1, deltas.size());
+        assertEquals("Aino", deltas.get(0).firstName());
+        
+        population.get(5).setParents(List.of(population.get(6), population.get(7)));
+        deltas.clear();
+        assertEquals(7l, tracker.export(6l, deltas::add));
+        assertEquals(PersonDelta.PARENTS, deltas.get(0).changes());
+        assertEquals(List.of(population.get(6).getIdentityCode(), population.get(7).getIdentityCode()),
+                deltas.get(0).parentIdentityCodes());
+    }
+    
+    /**
+     * Test verifies that new persons are exported whole and that discarded changes are no longer
+     * exported.
+     */
+    @Test
+    public void newPersonsAndDiscard() {
+        TestDataGenerator generator = new TestDataGenerator(23l);
+        List<Address> addresses = generator.createAddresses(20, 2);
+        List<Person> population = generator.createPopulation(10, 3, addresses);
+        ChangeTracker tracker = new ChangeTracker();
+        tracker.track(population.get(0));
+        tracker.trackNew(population.get(1));
+        
+        List<PersonDelta> deltas = new ArrayList<>();
+        long watermark = tracker.export(0l, deltas::add);
+        PersonDelta created = deltas.get(0);
+        assertTrue(created.has(PersonDelta.CREATED) && created.has(PersonDelta.ADDRESSES_REPLACED));
+        assertEquals(population.get(1).getFirstName(), created.firstName());
+        assertEquals(population.get(1).getTimeOfBirth(), created.timeOfBirth());
+        assertEquals(3, created.addresses().size());
+        assertEquals(population.get(1).findCurrentAddress().getMoveInDate(), created.addresses().get(2).moveInDate());
+        
+        population.get(0).addAddress(addresses.get(0), LocalDate.of(2100, 1, 1));
+        population.get(1).setLastName("Laine");
+        tracker.discard(watermark);
+        assertEquals(2, tracker.size());
+        
+        tracker.discard(tracker.getVersion() - 1);
+        assertEquals(1, tracker.size());
+        deltas.clear();
+        tracker.export(0l, deltas::add);
+        assertEquals(1, deltas.size());
+        assertEquals(PersonDelta.NAME, deltas.get(0).changes());
+        
+        assertTrue(tracker.untrack(population.get(0)));
+        population.get(0).setLastName("Laine");
+        assertEquals(1, tracker.size());
+    }
+}
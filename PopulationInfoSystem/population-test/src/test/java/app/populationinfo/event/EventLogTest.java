@@ -0,0 +1,157 @@
+package app.populationinfo.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Event log test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class EventLogTest {
+    @TempDir
+    Path directory;
+    
+    /**
+     * Test verifies that appended events are replayed in order with their contents.
+     * 
+     * @throws IOException if the log can't be written or read.
+     */
+    @Test
+    public void appendAndReplay() throws IOException {
+        List<PopulationEvent> events = createEvents(6);
+        List<PopulationEvent> replayed = new ArrayList<>();
+        try (EventLog log = new EventLog(directory)) {
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(i, log.append(events.get(i)));
+            }
+            
+            assertEquals(events.size(), log.replay(0l, replayed::add));
+        }
+        
+        assertEquals(events, replayed);
+    }
+    
+    /**
+     * Test verifies that a reopened log continues from the next offset and replays from a given offset.
+     * 
+     * @throws IOException if the log can't be written or read.
+     */
+    @Test
+    public void reopenAndReplayFromOffset() throws IOException {
+        List<PopulationEvent> events = createEvents(10);
+        try (EventLog log = new EventLog(directory)) {
+            for (PopulationEvent event : events.subList(0, 5)) {
+                log.append(event);
+            }
+        }
+        
+        List<PopulationEvent> replayed = new ArrayList<>();
+        try (EventLog log = new EventLog(directory)) {
+            assertEquals(5l, log.getNextOffset());
+            for (PopulationEvent event : events.subList(5, 10)) {
+                log.append(event);
+            }
+            
+            log.replay(3l, replayed::add);
+        }
+        
+        assertEquals(events.subList(3, 10), replayed);
+    }
+    
+    /**
+     * Test verifies that events are split into several segments and replayed across them.
+     * 
+     * @throws IOException if the log can't be written or read.
+     */
+    @Test
+    public void replayAcrossSegments() throws IOException {
+        List<PopulationEvent> events = createEvents(20000);
+        List<PopulationEvent> replayed = new ArrayList<>();
+        try (EventLog log = new EventLog(directory, 100, 256 * 1024)) {
+            for (PopulationEvent event : events) {
+                log.append(event);
+            }
+            
+            log.replay(12345l, replayed::add);
+        }
+        
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(true, files.count() > 1);
+        }
+        
+        assertEquals(events.subList(12345, events.size()), replayed);
+    }
+    
+    /**
+     * Test verifies that a torn event at the end of the log is cut off when the log is opened.
+     * 
+     * @throws IOException if the log can't be written or read.
+     */
+    @Test
+    public void truncateTornTail() throws IOException {
+        List<PopulationEvent> events = createEvents(3);
+        try (EventLog log = new EventLog(directory)) {
+            for (PopulationEvent event : events) {
+                log.append(event);
+            }
+        }
+        
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().get();
+        }
+        
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+        
+        List<PopulationEvent> replayed = new ArrayList<>();
+        try (EventLog log = new EventLog(directory)) {
+            assertEquals(2l, log.getNextOffset());
+            log.append(events.get(2));
+            log.replay(0l, replayed::add);
+        }
+        
+        assertEquals(events, replayed);
+    }
+    
+    private static List<PopulationEvent> createEvents(int count) {
+        List<PopulationEvent> events = new ArrayList<>(count);
+        LocalDate date = LocalDate.of(1950, 1, 1);
+        for (int i = 0; i < count; i++) {
+            String identityCode = String.format("%08d-AAAA", i);
+            events.add(switch (i % 10) {
+                case 0 -> new PopulationEvent.PersonAdded(identityCode, "Äijä", "Mäkinen", date.plusDays(i), null);
+                case 1 -> new PopulationEvent.AddressAdded(identityCode, "Kotikatu " + i, "00100", date.plusDays(i));
+                case 2 -> new PopulationEvent.MoveOutDateChanged(identityCode, "Kotikatu " + i, "00100",
+                        date, date.plusDays(i));
+                case 3 -> new PopulationEvent.TimeOfDeathChanged(identityCode, date.plusYears(80l));
+                case 4 -> new PopulationEvent.ParentAdded(identityCode, "00000000-AAAA");
+                case 5 -> new PopulationEvent.ParentRemoved(identityCode, "00000000-AAAA");
+                case 6 -> new PopulationEvent.NameChanged(identityCode, "Äijä", null);
+                case 7 -> new PopulationEvent.TimeOfBirthChanged(identityCode, date.minusDays(i));
+                case 8 -> new PopulationEvent.ParentsReplaced(identityCode, List.of("00000000-AAAA", "00000000-BBBB"));
+                default -> new PopulationEvent.AddressesReplaced(identityCode, List.of(
+                        new PopulationEvent.Stay("Kotikatu " + i, "00100", date.plusDays(i), null),
+                        new PopulationEvent.Stay("Kotikatu 1", "00100", date, date.plusDays(i - 1))));
+            });
+        }
+        
+        return events;
+    }
+}
@@ -0,0 +1,179 @@
+package app.populationinfo.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.registry.PopulationRegistry;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Event recorder test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class EventRecorderTest {
+    @TempDir
+    Path directory;
+    
+    /**
+     * Test verifies that a registry replayed from the log has the recorded persons and their changes.
+     * 
+     * @throws IOException if the log can't be written or read.
+     */
+    @Test
+    public void replayRecordedPersons() throws IOException {
+        TestDataGenerator generator = new TestDataGenerator(9l);
+        List<Address> addresses = generator.createAddresses(20, 3);
+        List<Person> population = generator.createPopulation(50, 5, addresses);
+        
+        try (EventLog log = new EventLog(directory)) {
+            EventRecorder recorder = new EventRecorder(log);
+            for (Person person : population) {
+                recorder.record(person);
+            }
+            
+            Person child = population.get(10);
+            child.addParent(population.get(0));
+            child.addParent(population.get(1));
+            child.removeParent(population.get(0));
+            child.addAddress(addresses.get(0), LocalDate.of(2023, 1, 27));
+            child.findCurrentAddress().setMoveOutDate(LocalDate.of(2023, 3, 1));
+            child.setTimeOfDeath(LocalDate.of(2023, 3, 1));
+            
+            Person renamed = population.get(11);
+            renamed.setFirstName("Uusi");
+            renamed.setLastName("Nimi");
+            renamed.setTimeOfBirth(LocalDate.of(1999, 12, 31));
+            renamed.setParents(List.of(population.get(2), population.get(3)));
+            renamed.setAddresses(List.of(
+                    new AddressInfo(addresses.get(1), renamed, LocalDate.of(2020, 5, 1)),
+                    new AddressInfo(addresses.get(0), renamed, LocalDate.of(2010, 1, 1), LocalDate.of(2019, 12, 31))));
+        }
+        
+        PopulationRegistry registry = new PopulationRegistry();
+        try (EventLog log = new EventLog(directory)) {
+            log.replay(0l, new RegistryReplayer(registry));
+        }
+        
+        assertEquals(population.size(), registry.size());
+        for (Person person : population) {
+            Person replayed = registry.findPerson(person.getIdentityCode());
+            
+            assertEquals(person.getFirstName(), replayed.getFirstName());
+            assertEquals(person.getLastName(), replayed.getLastName());
+            assertEquals(person.getTimeOfBirth(), replayed.getTimeOfBirth());
+            assertEquals(person.getTimeOfDeath(), replayed.getTimeOfDeath());
+            assertEquals(person.getParents(), replayed.getParents());
+            assertEquals(person.getAddresses(), replayed.getAddresses());
+        }
+        
+        Person child = registry.findPerson(population.get(10).getIdentityCode());
+        AddressInfo last = child.getAddresses().get(0);
+        
+        assertEquals(List.of(child), registry.residentsOf(last.getAddress(), LocalDate.of(2023, 2, 1)));
+        assertEquals(List.of(), registry.residentsOf(last.getAddress(), LocalDate.of(2023, 3, 2)));
+        
+        Person renamed = registry.findPerson(population.get(11).getIdentityCode());
+        
+        assertTrue(registry.residentsOf(addresses.get(0), LocalDate.of(2015, 1, 1)).contains(renamed));
+        assertTrue(registry.residentsOf(addresses.get(1), LocalDate.of(2023, 1, 1)).contains(renamed));
+    }
+    
+    /**
+     * Test verifies that a move-out date correction is replayed to the right address info when
+     * the person moved twice on the same day.
+     * 
+     * @throws IOException if the log can't be written or read.
+     */
+    @Test
+    public void replaySameDayMoves() throws IOException {
+        TestDataGenerator generator = new TestDataGenerator(9l);
+        List<Address> addresses = generator.createAddresses(20, 3);
+        List<Person> population = generator.createPopulation(5, 1, addresses);
+        
+        Person person = population.get(0);
+        LocalDate date = LocalDate.of(2023, 1, 27);
+        try (EventLog log = new EventLog(directory)) {
+            EventRecorder recorder = new EventRecorder(log);
+            for (Person p : population) {
+                recorder.record(p);
+            }
+            
+            AddressInfo first = person.addAddress(addresses.get(0), date);
+            person.addAddress(addresses.get(1), date);
+            first.setMoveOutDate(date);
+        }
+        
+        PopulationRegistry registry = new PopulationRegistry();
+        try (EventLog log = new EventLog(directory)) {
+            log.replay(0l, new RegistryReplayer(registry));
+        }
+        
+        assertEquals(person.getAddresses(), registry.findPerson(person.getIdentityCode()).getAddresses());
+    }
+    
+    /**
+     * Test verifies that persons changed from several threads at the same time are all recorded
+     * and replayed to the same state.
+     * 
+     * @throws Exception if the log can't be written or read or a thread fails.
+     */
+    @Test
+    public void recordConcurrentChanges() throws Exception {
+        TestDataGenerator generator = new TestDataGenerator(9l);
+        List<Address> addresses = generator.createAddresses(20, 3);
+        List<Person> population = generator.createPopulation(8, 1, addresses);
+        
+        long events;
+        try (EventLog log = new EventLog(directory, 100000, 256l * 1024)) {
+            EventRecorder recorder = new EventRecorder(log);
+            for (Person person : population) {
+                recorder.record(person);
+            }
+            
+            ExecutorService executor = Executors.newFixedThreadPool(population.size());
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Person person : population) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 2000; i++) {
+                            person.addAddress(addresses.get(i % addresses.size()), LocalDate.of(2030, 1, 1).plusDays(i));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            events = log.getNextOffset();
+        }
+        
+        PopulationRegistry registry = new PopulationRegistry();
+        try (EventLog log = new EventLog(directory)) {
+            assertEquals(events, log.replay(0l, new RegistryReplayer(registry)));
+        }
+        
+        for (Person person : population) {
+            assertEquals(person.getAddresses(), registry.findPerson(person.getIdentityCode()).getAddresses());
+        }
+    }
+}
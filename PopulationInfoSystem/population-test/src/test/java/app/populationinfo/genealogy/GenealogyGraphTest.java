@@ -0,0 +1,192 @@
+package app.populationinfo.genealogy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Genealogy graph test class. Most tests use a family of two sets of grandparents, their children
+ * and grandchildren:
+ * 
+ * <pre>
+ * G1 + G2          G3 + G4
+ *   |     \            |
+ *   P1     P3          P2
+ *   |       |
+ *   C1, C2  C3
+ * 
+ * P1 and P2 are the parents of C1 and C2, P3 is the only known parent of C3.
+ * </pre>
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class GenealogyGraphTest {
+    
+    /**
+     * Test verifies the parents, children and depths of the family.
+     */
+    @Test
+    public void buildLinks() {
+        GenealogyGraph graph = GenealogyGraph.of(createFamily());
+        int p1 = graph.findId("P1");
+        
+        assertEquals(10, graph.size());
+        assertEquals(graph.findId("G1"), graph.getParent(p1, 0));
+        assertEquals(graph.findId("G2"), graph.getParent(p1, 1));
+        assertArrayEquals(ids(graph, "C1", "C2"), sorted(graph.getChildren(p1)));
+        assertEquals(0, graph.getDepth(graph.findId("G3")));
+        assertEquals(2, graph.getDepth(graph.findId("C1")));
+        assertEquals(GenealogyGraph.NONE, graph.findId("X"));
+    }
+    
+    /**
+     * Test verifies that ancestors and descendants are found nearest generations first.
+     */
+    @Test
+    public void findAncestorsAndDescendants() {
+        GenealogyGraph graph = GenealogyGraph.of(createFamily());
+        int[] ancestors = graph.findAncestors(graph.findId("C1"));
+        
+        assertArrayEquals(ids(graph, "G1", "G2", "G3", "G4", "P1", "P2"), sorted(ancestors));
+        assertArrayEquals(ids(graph, "P1", "P2"), sorted(Arrays.copyOfRange(ancestors, 0, 2)));
+        assertArrayEquals(ids(graph, "C1", "C2", "C3", "P1", "P3"), sorted(graph.findDescendants(graph.findId("G1"))));
+        assertArrayEquals(new int[0], graph.findDescendants(graph.findId("C3")));
+    }
+    
+    /**
+     * Test verifies the lowest common ancestors and the degrees of kinship.
+     */
+    @Test
+    public void findKinship() {
+        GenealogyGraph graph = GenealogyGraph.of(createFamily());
+        int c1 = graph.findId("C1");
+        
+        assertArrayEquals(ids(graph, "P1", "P2"), graph.findLowestCommonAncestors(c1, graph.findId("C2")));
+        assertArrayEquals(ids(graph, "G1", "G2"), graph.findLowestCommonAncestors(c1, graph.findId("C3")));
+        assertArrayEquals(ids(graph, "G1"), graph.findLowestCommonAncestors(c1, graph.findId("G1")));
+        assertEquals(0, graph.findKinship(c1, c1));
+        assertEquals(1, graph.findKinship(c1, graph.findId("P2")));
+        assertEquals(2, graph.findKinship(c1, graph.findId("C2")));
+        assertEquals(3, graph.findKinship(c1, graph.findId("P3")));
+        assertEquals(4, graph.findKinship(c1, graph.findId("C3")));
+        assertEquals(-1, graph.findKinship(graph.findId("G1"), graph.findId("G3")));
+    }
+    
+    /**
+     * Test verifies lineage queries and that a long line of ancestors doesn't exhaust the stack.
+     */
+    @Test
+    public void findInLongLineage() {
+        List<Person> line = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            Person person = TestUtil.createPerson(String.format("%06d", i), "Suku", "Polvi", false);
+            if (i > 0) {
+                person.addParent(line.get(i - 1));
+            }
+            line.add(person);
+        }
+        
+        Person branch = TestUtil.createPerson("B", "Suku", "Haara", false);
+        branch.addParent(line.get(500));
+        line.add(branch);
+        GenealogyGraph graph = GenealogyGraph.of(line);
+        int last = graph.findId("099999");
+        
+        assertEquals(99999, graph.getDepth(last));
+        assertEquals(99999, graph.findAncestors(last).length);
+        assertEquals(100000, graph.findDescendants(graph.findId("000000")).length);
+        assertEquals(graph.findId("012345"), graph.findLineageAncestor(last, 0, 99999 - 12345));
+        assertEquals(GenealogyGraph.NONE, graph.findLineageAncestor(last, 0, 100000));
+        assertEquals(graph.findId("000500"), graph.findLineageLowestCommonAncestor(last, graph.findId("B"), 0));
+        assertEquals(GenealogyGraph.NONE, graph.findLineageLowestCommonAncestor(last, graph.findId("B"), 1));
+        assertEquals(99500, graph.findKinship(last, graph.findId("B")));
+    }
+    
+    /**
+     * Test verifies that the degree of kinship is the shortest path also when the search finds a
+     * longer path first and the shorter one closes only on a later level.
+     */
+    @Test
+    public void findKinshipClosingLate() {
+        List<Person> family = new ArrayList<>();
+        for (String identityCode : new String[] { "Q", "R", "S", "P", "F" }) {
+            family.add(TestUtil.createPerson(identityCode, "Suku", "Mutka", false));
+        }
+        
+        link(family, "R", "Q");
+        link(family, "S", "R");
+        link(family, "P", "S");
+        link(family, "F", "P", "Q");
+        GenealogyGraph graph = GenealogyGraph.of(family);
+        
+        assertEquals(2, graph.findKinship(graph.findId("F"), graph.findId("S")));
+        assertEquals(2, graph.findKinship(graph.findId("S"), graph.findId("F")));
+        assertEquals(1, graph.findKinship(graph.findId("F"), graph.findId("Q")));
+    }
+    
+    /**
+     * Test verifies that a cycle in the parent links is rejected.
+     */
+    @Test
+    public void rejectCycle() {
+        Person first = TestUtil.createPerson("1", "Eka", "Kierre", false);
+        Person second = TestUtil.createPerson("2", "Toka", "Kierre", false);
+        first.addParent(second);
+        second.addParent(first);
+        
+        assertThrows(IllegalArgumentException.class, () -> GenealogyGraph.of(List.of(first, second)));
+    }
+    
+    private static List<Person> createFamily() {
+        List<Person> family = new ArrayList<>();
+        for (String identityCode : new String[] { "G1", "G2", "G3", "G4", "P1", "P2", "P3", "C1", "C2", "C3" }) {
+            family.add(TestUtil.createPerson(identityCode, "Suku", "Laine", false));
+        }
+        
+        link(family, "P1", "G1", "G2");
+        link(family, "P3", "G1", "G2");
+        link(family, "P2", "G3", "G4");
+        link(family, "C1", "P1", "P2");
+        link(family, "C2", "P1", "P2");
+        link(family, "C3", "P3");
+        
+        return family;
+    }
+    
+    private static void link(List<Person> family, String child, String... parents) {
+        for (String parent : parents) {
+            find(family, child).addParent(find(family, parent));
+        }
+    }
+    
+    private static Person find(List<Person> family, String identityCode) {
+        return family.stream().filter(p -> p.getIdentityCode().equals(identityCode)).findFirst().orElse(null);
+    }
+    
+    private static int[] ids(GenealogyGraph graph, String... identityCodes) {
+        int[] ids = new int[identityCodes.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.findId(identityCodes[i]);
+        }
+        
+        return sorted(ids);
+    }
+    
+    private static int[] sorted(int[] ids) {
+        int[] copy = ids.clone();
+        Arrays.sort(copy);
+        
+        return copy;
+    }
+}
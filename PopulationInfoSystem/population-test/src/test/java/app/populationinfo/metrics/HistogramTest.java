@@ -0,0 +1,58 @@
+package app.populationinfo.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Histogram test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class HistogramTest {
+    
+    /**
+     * Test verifies that percentiles are within the precision of the buckets.
+     */
+    @Test
+    public void percentilesAreWithinPrecision() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(27012023l);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 25);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double percentile : new double[] { 1.0, 50.0, 90.0, 99.0, 99.9, 100.0 }) {
+            long expected = values[(int) Math.ceil(percentile / 100.0 * values.length) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + actual + " vs " + expected,
+                    actual >= expected && actual <= expected + expected / 32 + 1);
+        }
+        
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101.0));
+    }
+    
+    /**
+     * Test verifies that the buckets cover all values without gaps.
+     */
+    @Test
+    public void bucketsAreContinuous() {
+        for (int bucket = 0; bucket < Histogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            assertEquals(bucket + 1, Histogram.bucketOf(Histogram.highestValueOf(bucket) + 1));
+        }
+        
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+}
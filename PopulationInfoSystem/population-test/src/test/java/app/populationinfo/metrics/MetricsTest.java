@@ -0,0 +1,103 @@
+package app.populationinfo.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestUtil;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Metrics test class. The tests are run with the measurements switched on.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class MetricsTest {
+    @TempDir
+    Path directory;
+    
+    /**
+     * Clears the recorder after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        Metrics.setRecorder(null);
+    }
+    
+    /**
+     * Test verifies that the model operations are recorded and exposed through JMX.
+     * 
+     * @throws Exception if reading the attributes fails.
+     */
+    @Test
+    public void operationsAreRecordedAndExported() throws Exception {
+        assertTrue(Metrics.ENABLED);
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Metrics.setRecorder(metrics);
+        
+        Person person = TestUtil.createPerson();
+        LocalDate date = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            person.addAddress(TestUtil.createAddress("TestAddress " + i), date.plusYears(i));
+        }
+        person.findCurrentAddress();
+        person.findAddressOn(date);
+        person.equals(TestUtil.createPerson());
+        
+        assertEquals(10l, metrics.getCount(Operation.ADD_ADDRESS));
+        assertEquals(1l, metrics.getCount(Operation.FIND_CURRENT_ADDRESS));
+        assertEquals(1l, metrics.getCount(Operation.FIND_ADDRESS_ON));
+        assertEquals(1l, metrics.getCount(Operation.PERSON_EQUALS));
+        assertEquals(10l, metrics.getLatencies(Operation.ADD_ADDRESS).getCount());
+        assertEquals(10l, metrics.getHistoryLengths().getMax());
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try (JmxMetricsExporter exporter = JmxMetricsExporter.register(metrics)) {
+            assertEquals(10l, server.getAttribute(exporter.getName(), "MaxHistoryLength"));
+            assertTrue(server.getAttribute(exporter.getName(), "Counts") instanceof TabularData);
+            Map<String, Long> counts = exporter.getCounts();
+            assertEquals(Long.valueOf(10l), counts.get(Operation.ADD_ADDRESS.name()));
+        }
+        assertFalse(server.isRegistered(new ObjectName(JmxMetricsExporter.DEFAULT_NAME)));
+    }
+    
+    /**
+     * Test verifies that timed operations are committed as flight recorder events.
+     * 
+     * @throws Exception if the recording fails.
+     */
+    @Test
+    public void operationsAreRecordedAsFlightRecorderEvents() throws Exception {
+        Metrics.setRecorder(new JfrMetricsRecorder());
+        Path file = directory.resolve("metrics.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("app.populationinfo.ModelOperation");
+            recording.start();
+            TestUtil.createPerson().addAddress(TestUtil.createAddress("TestAddress"), LocalDate.of(2000, 1, 1));
+            recording.stop();
+            recording.dump(file);
+        }
+        
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertTrue(events.stream().anyMatch(e -> Operation.ADD_ADDRESS.name().equals(e.getString("operation"))));
+    }
+}
@@ -0,0 +1,157 @@
+package app.populationinfo.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Address history test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class AddressHistoryTest {
+    
+    /**
+     * Test verifies that addresses are listed newest first.
+     */
+    @Test
+    public void addressesAreListedNewestFirst() {
+        Person person = TestUtil.createPerson();
+        LocalDate date = LocalDate.now().minusYears(10l);
+        for (int i = 0; i < 20; i++) {
+            person.addAddress(TestUtil.createAddress("TestAddress " + i), date.plusMonths(i));
+        }
+        
+        List<AddressInfo> addresses = person.getAddresses();
+        assertEquals(20, addresses.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("TestAddress " + (19 - i), addresses.get(i).getAddress().getName());
+        }
+    }
+    
+    /**
+     * Test verifies that the current address is no longer returned once it has a move out date.
+     */
+    @Test
+    public void currentAddressWithMoveOutDate() {
+        Person person = TestUtil.createPerson();
+        AddressInfo addressInfo = person.addAddress(TestUtil.createAddress(), LocalDate.now());
+        
+        assertSame(addressInfo, person.findCurrentAddress());
+        
+        addressInfo.setMoveOutDate(LocalDate.now().plusDays(1l));
+        
+        assertNull(person.findCurrentAddress());
+    }
+    
+    /**
+     * Test verifies that the newest entry is returned for an address that has been lived at twice.
+     */
+    @Test
+    public void findNewestEntryByAddress() {
+        Person person = TestUtil.createPerson();
+        Address address = TestUtil.createAddress();
+        person.addAddress(address, LocalDate.now().minusYears(2l));
+        person.addAddress(TestUtil.createAddress("TestAddress2"), LocalDate.now().minusYears(1l));
+        AddressInfo newest = person.addAddress(Address.copyOf(address), LocalDate.now());
+        
+        assertSame(newest, person.findAddressInfoByAddress(address));
+    }
+    
+    /**
+     * Test verifies that a history set from a list keeps its order and current address.
+     */
+    @Test
+    public void setAddressesFromList() {
+        Person person = TestUtil.createPerson();
+        person.addAddress(TestUtil.createAddress(), LocalDate.now().minusYears(1l));
+        AddressInfo current = person.addAddress(TestUtil.createAddress("TestAddress2"), LocalDate.now());
+        
+        Person person2 = Person.copyOf(person);
+        person2.setAddresses(person.getAddresses());
+        
+        assertEquals(person.getAddresses(), person2.getAddresses());
+        assertSame(current, person2.findCurrentAddress());
+    }
+    
+    /**
+     * Test verifies that the history can't be modified through the list view.
+     */
+    @Test
+    public void historyIsReadOnly() {
+        Person person = TestUtil.createPerson();
+        AddressInfo addressInfo = person.addAddress(TestUtil.createAddress(), LocalDate.now());
+        
+        assertThrows(UnsupportedOperationException.class, () -> {
+            person.getAddresses().add(addressInfo);
+        });
+    }
+    
+    /**
+     * Test verifies that a copy keeps the history as it was when the copy was made, even if the
+     * original changes entries the copy hasn't read yet.
+     */
+    @Test
+    public void copyKeepsHistoryOfCopyTime() {
+        Person person = TestUtil.createPerson();
+        LocalDate date = LocalDate.now().minusYears(3l);
+        AddressInfo oldest = person.addAddress(TestUtil.createAddress("TestAddress 0"), date);
+        person.addAddress(TestUtil.createAddress("TestAddress 1"), date.plusYears(1l));
+        AddressInfo current = person.addAddress(TestUtil.createAddress("TestAddress 2"), date.plusYears(2l));
+        LocalDate oldestMoveOutDate = oldest.getMoveOutDate();
+        
+        Person copy = Person.copyOf(person);
+        Person copyOfCopy = Person.copyOf(copy);
+        oldest.setMoveOutDate(oldestMoveOutDate.minusDays(10l));
+        oldest.setAddress(TestUtil.createAddress("TestAddress 3"));
+        person.addAddress(TestUtil.createAddress("TestAddress 4"), date.plusYears(3l));
+        
+        for (Person snapshot : List.of(copy, copyOfCopy)) {
+            assertEquals(3, snapshot.getAddresses().size());
+            assertEquals("TestAddress 2", snapshot.findCurrentAddress().getAddress().getName());
+            assertNull(snapshot.findCurrentAddress().getMoveOutDate());
+            AddressInfo copiedOldest = snapshot.getAddresses().get(2);
+            assertEquals("TestAddress 0", copiedOldest.getAddress().getName());
+            assertEquals(oldestMoveOutDate, copiedOldest.getMoveOutDate());
+            assertSame(snapshot, copiedOldest.getResident());
+            assertSame(copiedOldest, snapshot.findAddressOn(date));
+        }
+        
+        assertEquals(4, person.getAddresses().size());
+        assertSame(oldest, person.getAddresses().get(3));
+        assertSame(current, person.findAddressOn(date.plusYears(2l)));
+    }
+    
+    /**
+     * Test verifies that changes to a copy don't show in the original.
+     */
+    @Test
+    public void changesToCopyStayInCopy() {
+        Person person = TestUtil.createPerson();
+        LocalDate date = LocalDate.now().minusYears(2l);
+        AddressInfo oldest = person.addAddress(TestUtil.createAddress("TestAddress 0"), date);
+        AddressInfo current = person.addAddress(TestUtil.createAddress("TestAddress 1"), date.plusYears(1l));
+        
+        Person copy = Person.copyOf(person);
+        copy.addAddress(TestUtil.createAddress("TestAddress 2"), date.plusYears(2l));
+        copy.getAddresses().get(2).setMoveOutDate(date);
+        
+        assertEquals(2, person.getAddresses().size());
+        assertSame(current, person.findCurrentAddress());
+        assertEquals(date.plusYears(1l).minusDays(1l), oldest.getMoveOutDate());
+        assertNull(current.getMoveOutDate());
+        assertEquals(3, copy.getAddresses().size());
+        assertEquals(date.plusYears(2l).minusDays(1l), copy.getAddresses().get(1).getMoveOutDate());
+        assertEquals(date, copy.getAddresses().get(2).getMoveOutDate());
+    }
+}
@@ -43,4 +43,16 @@ public class AddressInfoTest {
         
         assertEquals(false, addressInfo.equals(addressInfo2));
     }
+    
+    /**
+     * Test verifies that copied address infos have the same hash code.
+     */
+    @Test
+    public void testCopiedAddressInfoHashCode() {
+        Person person = TestUtil.createPerson();
+        AddressInfo addressInfo = person.addAddress(TestUtil.createAddress(), LocalDate.now());
+        AddressInfo addressInfo2 = AddressInfo.copyOf(addressInfo);
+        
+        assertEquals(addressInfo.hashCode(), addressInfo2.hashCode());
+    }
 }
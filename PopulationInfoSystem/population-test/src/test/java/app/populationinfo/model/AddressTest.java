@@ -0,0 +1,109 @@
+package app.populationinfo.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Address test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class AddressTest {
+    
+    /**
+     * Test verifies that two addresses are copied and compared successfully.
+     */
+    @Test
+    public void compareAddresses() {
+        Address address = TestUtil.createAddress();
+        Address address2 = Address.copyOf(address);
+        
+        assertEquals(address2, address);
+    }
+    
+    /**
+     * Test verifies that addresses with different area codes are not equal.
+     */
+    @Test
+    public void compareAddressesWithDifferentAreaCodes() {
+        Address address = TestUtil.createAddress();
+        Address address2 = address.withAreaCode("40100");
+        
+        assertEquals(false, address.equals(address2));
+    }
+    
+    /**
+     * Test verifies that addresses are not equal if all the attributes don't match.
+     */
+    @Test
+    public void compareAddressesWithDifferentNames() {
+        Address address = TestUtil.createAddress();
+        Address address2 = address.withName("FoofooAddress");
+        
+        assertEquals(false, address.equals(address2));
+    }
+    
+    /**
+     * Test verifies that equal addresses have the same hash code and are deduplicated in hash sets.
+     */
+    @Test
+    public void equalAddressesHaveSameHashCode() {
+        Address address = TestUtil.createAddress();
+        Address address2 = TestUtil.createAddress();
+        
+        assertEquals(address.hashCode(), address2.hashCode());
+        
+        Set<Address> addresses = new HashSet<>();
+        addresses.add(address);
+        addresses.add(address2);
+        
+        assertEquals(1, addresses.size());
+    }
+    
+    /**
+     * Test verifies that street numbers and numeric area codes don't cancel out in hash codes,
+     * so nearly all addresses of a large, regular address set have distinct hash codes.
+     */
+    @Test
+    public void addressHashCodesRarelyCollide() {
+        Set<Integer> hashCodes = new HashSet<>();
+        int count = 0;
+        for (int street = 0; street < 50; street++) {
+            for (int number = 1; number <= 50; number++) {
+                for (int area = 0; area < 100; area++) {
+                    hashCodes.add(new Address("Katu" + street + " " + number, String.format("%05d", area * 10)).hashCode());
+                    count++;
+                }
+            }
+        }
+        
+        assertTrue(hashCodes.size() > count * 0.99);
+        assertNotEquals(new Address("Kauppakatu 12", "00010").hashCode(), new Address("Kauppakatu 21", "00100").hashCode());
+    }
+    
+    /**
+     * Test verifies that the address pool returns one shared instance for equal addresses.
+     */
+    @Test
+    public void internAddresses() {
+        AddressPool pool = new AddressPool();
+        Address address = pool.intern(TestUtil.createAddress());
+        Address address2 = pool.intern(new String("TestAddress 1 A1"), new String("00100"));
+        Address address3 = pool.intern("TestAddress2", new String("00100"));
+        
+        assertSame(address, address2);
+        assertSame(address.getAreaCode(), address3.getAreaCode());
+        assertEquals(2, pool.size());
+    }
+}
@@ -0,0 +1,57 @@
+package app.populationinfo.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Epoch day test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class EpochDayTest {
+    
+    /**
+     * Test verifies that years and ages counted from days match the dates, leap days included.
+     */
+    @Test
+    public void yearsMatchDates() {
+        Random random = new Random(27012023l);
+        int first = (int) LocalDate.of(1600, 1, 1).toEpochDay();
+        for (int i = 0; i < 100000; i++) {
+            int from = first + random.nextInt(200000);
+            int to = from + random.nextInt(50000);
+            LocalDate fromDate = LocalDate.ofEpochDay(from);
+            
+            assertEquals(fromDate.getYear(), EpochDay.yearOf(from));
+            assertEquals(Period.between(fromDate, LocalDate.ofEpochDay(to)).getYears(), EpochDay.yearsBetween(from, to));
+        }
+        
+        int leapDay = EpochDay.of(LocalDate.of(2000, 2, 29), EpochDay.NONE);
+        assertEquals(0, EpochDay.yearsBetween(leapDay, EpochDay.of(LocalDate.of(2001, 2, 28), EpochDay.NONE)));
+        assertEquals(1, EpochDay.yearsBetween(leapDay, EpochDay.of(LocalDate.of(2001, 3, 1), EpochDay.NONE)));
+    }
+    
+    /**
+     * Test verifies that missing dates convert to the sentinels and back.
+     */
+    @Test
+    public void missingDatesUseSentinels() {
+        assertEquals(EpochDay.NONE, EpochDay.of(null, EpochDay.NONE));
+        assertEquals(EpochDay.OPEN, EpochDay.of(null, EpochDay.OPEN));
+        assertNull(EpochDay.toLocalDate(EpochDay.NONE));
+        assertNull(EpochDay.toLocalDate(EpochDay.OPEN));
+        assertEquals(LocalDate.of(1970, 1, 2), EpochDay.toLocalDate(1));
+        
+        AddressInfo addressInfo = new AddressInfo(new Address("Katu 1", "00100"), null, LocalDate.of(1970, 1, 2));
+        assertEquals(EpochDay.OPEN, addressInfo.getMoveOutDay());
+        assertNull(addressInfo.getMoveOutDate());
+    }
+}
@@ -0,0 +1,51 @@
+package app.populationinfo.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Identity code map test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class IdentityCodeMapTest {
+    
+    /**
+     * Test verifies that the map stays in line with a hash map through random additions and
+     * removals of packed and unpacked codes.
+     */
+    @Test
+    public void mapMatchesHashMap() {
+        IdentityCodeMap<String> map = new IdentityCodeMap<>();
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(42l);
+        for (int i = 0; i < 20000; i++) {
+            String code = String.format(random.nextInt(10) == 0 ? "%04d-x" : "%04d-X", random.nextInt(2000));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(code), map.remove(code));
+            } else {
+                String value = "value " + i;
+                assertEquals(expected.putIfAbsent(code, value), map.putIfAbsent(IdentityCode.of(code), value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        
+        for (int i = 0; i < 2000; i++) {
+            for (String code : new String[] { String.format("%04d-X", i), String.format("%04d-x", i) }) {
+                assertSame(expected.get(code), map.get(code));
+                assertSame(expected.get(code), map.get(IdentityCode.of(code)));
+            }
+        }
+        
+        assertNull(map.get("missing"));
+    }
+}
@@ -0,0 +1,77 @@
+package app.populationinfo.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Identity code test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class IdentityCodeTest {
+    
+    /**
+     * Test verifies that personal identity codes are validated by date and check character.
+     */
+    @Test
+    public void personalIdentityCodesAreValidated() {
+        assertTrue(IdentityCode.isValid("131052-308T"));
+        assertTrue(IdentityCode.isValid("010101A123N"));
+        assertTrue(IdentityCode.isValid("290200A123N".substring(0, 10) + checkCharacter("290200123")));
+        
+        assertFalse(IdentityCode.isValid("131052-308U"));
+        assertFalse(IdentityCode.isValid("131052Q308T"));
+        assertFalse(IdentityCode.isValid("131352-308T"));
+        assertFalse(IdentityCode.isValid("290201A123" + checkCharacter("290201123")));
+        assertFalse(IdentityCode.isValid("010101A001" + checkCharacter("010101001")));
+        assertFalse(IdentityCode.isValid("131052-308"));
+        assertFalse(IdentityCode.isValid("00000001-AAAA"));
+        assertFalse(IdentityCode.isValid(null));
+        
+        assertEquals("131052-308T", IdentityCode.parse("131052-308T").toString());
+        assertThrows(IllegalArgumentException.class, () -> IdentityCode.parse("131052-308U"));
+    }
+    
+    /**
+     * Test verifies that packed codes are equal, hash and sort like the code strings.
+     */
+    @Test
+    public void packedCodesBehaveLikeStrings() {
+        List<String> codes = List.of("131052-308T", "131052+308T", "131052A308T", "00000001-AAAA", "00000001-AAA",
+                "0000000100000000000000ZZ", "-1", "", "Z", "a-1", "1234567890123456789012345");
+        List<IdentityCode> identityCodes = new ArrayList<>();
+        for (String code : codes) {
+            IdentityCode identityCode = IdentityCode.of(code);
+            assertEquals(code, identityCode.toString());
+            assertEquals(IdentityCode.of(code), identityCode);
+            assertEquals(IdentityCode.of(code).hashCode(), identityCode.hashCode());
+            identityCodes.add(identityCode);
+        }
+        
+        assertTrue(IdentityCode.of("131052-308T").isPacked());
+        assertTrue(IdentityCode.of("0000000100000000000000ZZ").isPacked());
+        assertFalse(IdentityCode.of("a-1").isPacked());
+        assertFalse(IdentityCode.of("1234567890123456789012345").isPacked());
+        assertNotEquals(IdentityCode.of("00000001-AAAA"), IdentityCode.of("00000001-AAA"));
+        
+        identityCodes.sort(Comparator.naturalOrder());
+        assertEquals(codes.stream().sorted().collect(Collectors.toList()),
+                identityCodes.stream().map(IdentityCode::toString).collect(Collectors.toList()));
+    }
+    
+    private static char checkCharacter(String digits) {
+        return IdentityCode.CHECK_CHARACTERS.charAt(Integer.parseInt(digits) % 31);
+    }
+}
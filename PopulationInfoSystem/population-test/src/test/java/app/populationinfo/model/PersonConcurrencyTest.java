@@ -0,0 +1,111 @@
+package app.populationinfo.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Person concurrency test class. Runs many concurrent writers against a few hot persons while
+ * readers check the histories without locking.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PersonConcurrencyTest {
+    private static final int PERSONS = 4;
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int MOVES_PER_WRITER = 5000;
+    
+    /**
+     * Test verifies that concurrent moves leave every person with exactly one open address and
+     * a complete history, and that readers always find a current address during the moves.
+     * 
+     * @throws Exception if a writer or a reader fails.
+     */
+    @Test
+    public void concurrentMovesToHotPersons() throws Exception {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < PERSONS; i++) {
+            Person person = TestUtil.createPerson("0000" + i, "Hot", "Person", false);
+            person.addAddress(new Address("Alkukatu 1", "00100"), LocalDate.of(1900, 1, 1));
+            persons.add(person);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < MOVES_PER_WRITER; i++) {
+                        Person person = persons.get(i % PERSONS);
+                        LocalDate moveInDate = LocalDate.of(1950, 1, 1).plusDays((long) i * WRITERS + writer);
+                        person.addAddress(new Address("Katu " + writer, "00" + i % 1000), moveInDate);
+                    }
+                    
+                    return null;
+                }));
+            }
+            
+            for (int r = 0; r < READERS; r++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        for (Person person : persons) {
+                            assertNotNull(person.findCurrentAddress());
+                            
+                            int size = 0;
+                            for (AddressInfo addressInfo : person.getAddresses()) {
+                                assertNotNull(addressInfo);
+                                size++;
+                            }
+                            assertTrue(size >= 1);
+                        }
+                    }
+                    
+                    return null;
+                }));
+            }
+            
+            start.countDown();
+            for (Future<?> future : writers) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            
+            writing.set(false);
+            for (Future<?> future : readers) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        for (Person person : persons) {
+            List<AddressInfo> history = person.getAddresses();
+            
+            assertEquals(1 + WRITERS * MOVES_PER_WRITER / PERSONS, history.size());
+            assertEquals(1l, history.stream().filter(a -> a.getMoveOutDate() == null).count());
+            assertEquals(history.get(0), person.findCurrentAddress());
+        }
+    }
+}
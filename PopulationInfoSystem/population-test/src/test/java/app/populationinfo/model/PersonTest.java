@@ -2,12 +2,17 @@ package app.populationinfo.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -21,7 +26,7 @@ import app.populationinfo.util.TestUtil;
  *
  */
 public class PersonTest {
-   
+    
     /**
      * Test verifies that copying person will result a person that's considered an equal because
      * of the identity code.
@@ -47,6 +52,45 @@ public class PersonTest {
         assertEquals(false, person.equals(person2));
     }
     
+    /**
+     * Test verifies that persons with the same identity code are treated as the same key in hash maps.
+     */
+    @Test
+    public void testPersonAsHashMapKey() {
+        Person person = TestUtil.createPerson();
+        Person person2 = Person.copyOf(person);
+        
+        Map<Person, String> map = new HashMap<>();
+        map.put(person, "first");
+        map.put(person2, "second");
+        
+        assertEquals(1, map.size());
+        assertEquals("second", map.get(person));
+    }
+    
+    /**
+     * Test verifies that a copy has its own parents and address history.
+     */
+    @Test
+    public void copyIsIndependentOfOriginal() {
+        Person person = TestUtil.createPerson();
+        Person parent = TestUtil.createPerson("010101-1234", "Parent", "Person", false);
+        person.addParent(parent);
+        AddressInfo current = person.addAddress(TestUtil.createAddress(), LocalDate.now().minusYears(1l));
+        
+        Person person2 = Person.copyOf(person);
+        person2.removeParent(parent);
+        person.addAddress(TestUtil.createAddress("TestAddress2"), LocalDate.now());
+        
+        assertEquals(List.of(parent), person.getParents());
+        assertTrue(person2.getParents().isEmpty());
+        assertEquals(1, person2.getAddresses().size());
+        assertNotSame(current, person2.findCurrentAddress());
+        assertSame(person2, person2.findCurrentAddress().getResident());
+        assertEquals(current.getAddress(), person2.findCurrentAddress().getAddress());
+        assertNotNull(current.getMoveOutDate());
+    }
+    
     /**
      * Assert that the new address is successfully added as the current address.
      */
@@ -79,6 +123,24 @@ public class PersonTest {
         assertNotNull(info.getMoveOutDate());
     }
     
+    /**
+     * Test verifies that the address valid on a given date is found from the history.
+     */
+    @Test
+    public void findAddressOnDate() {
+        Person person = TestUtil.createPerson();
+        LocalDate date = LocalDate.now().minusYears(10l);
+        for (int i = 0; i < 10; i++) {
+            person.addAddress(TestUtil.createAddress("TestAddress " + i), date.plusYears(i));
+        }
+        
+        assertNull(person.findAddressOn(date.minusDays(1l)));
+        assertEquals("TestAddress 0", person.findAddressOn(date).getAddress().getName());
+        assertEquals("TestAddress 3", person.findAddressOn(date.plusYears(4l).minusDays(1l)).getAddress().getName());
+        assertEquals("TestAddress 4", person.findAddressOn(date.plusYears(4l)).getAddress().getName());
+        assertEquals("TestAddress 9", person.findAddressOn(LocalDate.now().plusYears(1l)).getAddress().getName());
+    }
+    
     /**
      * Tests adding parent successfully. Verifies that parent is added to the list of parents.
      */
@@ -132,4 +194,31 @@ public class PersonTest {
         person.removeParent(parent);
         assertEquals(0, result.size());
     }
+    
+    /**
+     * Verifies that change listeners are notified of a move, and that closing the previous address
+     * is reported as a part of the move.
+     */
+    @Test
+    public void notifyChangeListeners() {
+        Person person = TestUtil.createPerson();
+        AddressInfo first = person.addAddress(new Address("Kotikatu 1", "00100"), LocalDate.of(2020, 1, 1));
+        List<String> changes = new ArrayList<>();
+        person.addChangeListener(new PersonChangeListener() {
+            @Override
+            public void addressAdded(Person changed, AddressInfo addressInfo, AddressInfo closedAddressInfo) {
+                changes.add("added " + addressInfo.getAddress().getName() + " closed " + closedAddressInfo.getMoveOutDate());
+            }
+            
+            @Override
+            public void moveOutDateChanged(AddressInfo addressInfo, LocalDate oldMoveOutDate) {
+                changes.add("moved out " + addressInfo.getMoveOutDate() + " was " + oldMoveOutDate);
+            }
+        });
+        
+        person.addAddress(new Address("Kotikatu 2", "00100"), LocalDate.of(2021, 1, 1));
+        first.setMoveOutDate(LocalDate.of(2020, 6, 30));
+        
+        assertEquals(List.of("added Kotikatu 2 closed 2020-12-31", "moved out 2020-06-30 was 2020-12-31"), changes);
+    }
 }
@@ -0,0 +1,129 @@
+package app.populationinfo.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Household index test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class HouseholdIndexTest {
+    
+    /**
+     * Test verifies that the residents of an address match scanning the whole population, also
+     * after moves made once the persons were indexed.
+     */
+    @Test
+    public void residentsMatchScan() {
+        TestDataGenerator generator = new TestDataGenerator(21l);
+        List<Address> addresses = generator.createAddresses(50, 5);
+        List<Person> population = generator.createPopulation(1000, 3, addresses);
+        HouseholdIndex index = HouseholdIndex.of(population);
+        for (int i = 0; i < 100; i++) {
+            generator.addAddresses(population.get(i), 2, addresses);
+        }
+        
+        assertEquals(1000, index.size());
+        for (Address address : addresses) {
+            List<Person> current = scan(population, p -> p.findCurrentAddress() != null && p.findCurrentAddress().getAddress().equals(address));
+            assertEquals(current, index.findCurrentResidents(address));
+            assertEquals(current.size(), index.getHouseholdSize(address));
+            assertEquals(scan(population, p -> p.getAddresses().stream()
+                    .anyMatch(a -> a.getAddress().equals(address) && a.getMoveOutDate() != null)),
+                    index.findPastResidents(address));
+            assertEquals(scan(population, p -> p.findAddressInfoByAddress(address) != null), index.findAllResidents(address));
+        }
+    }
+    
+    /**
+     * Test verifies that co-residents are the persons whose stays overlapped at the same address.
+     */
+    @Test
+    public void coResidentsHaveOverlappingStays() {
+        TestDataGenerator generator = new TestDataGenerator(21l);
+        List<Address> addresses = generator.createAddresses(20, 2);
+        List<Person> population = generator.createPopulation(300, 4, addresses);
+        HouseholdIndex index = HouseholdIndex.of(population);
+        Person person = population.get(0);
+        
+        assertEquals(scan(population, p -> p != person && overlaps(person, p)), index.findCoResidents(person));
+        
+        Address moveTo = addresses.get(0);
+        LocalDate date = LocalDate.of(2100, 1, 1);
+        person.addAddress(moveTo, date);
+        population.get(1).addAddress(moveTo, date);
+        assertTrue(index.findCurrentResidents(moveTo).containsAll(List.of(person, population.get(1))));
+        assertTrue(index.findCoResidents(person).contains(population.get(1)));
+        
+        index.remove(person);
+        assertEquals(List.of(population.get(1)), scan(index.findCurrentResidents(moveTo), p -> p == population.get(1)));
+        assertEquals(List.of(), index.findCoResidents(person));
+    }
+    
+    /**
+     * Test verifies that changing the address or the move in date of an indexed address info
+     * moves the person to the new household.
+     */
+    @Test
+    public void addressInfoChangesReindex() {
+        TestDataGenerator generator = new TestDataGenerator(21l);
+        List<Address> addresses = generator.createAddresses(20, 2);
+        List<Person> population = generator.createPopulation(100, 1, addresses);
+        HouseholdIndex index = HouseholdIndex.of(population);
+        Person person = population.get(0);
+        Person other = population.get(1);
+        AddressInfo current = person.addAddress(addresses.get(0), LocalDate.of(2100, 1, 1));
+        other.addAddress(addresses.get(1), LocalDate.of(2100, 1, 1));
+        
+        current.setAddress(addresses.get(1));
+        
+        assertTrue(index.findCurrentResidents(addresses.get(1)).contains(person));
+        assertFalse(index.findAllResidents(addresses.get(0)).contains(person));
+        assertTrue(index.findCoResidents(person).contains(other));
+        
+        other.findCurrentAddress().setMoveOutDate(LocalDate.of(2100, 6, 1));
+        current.setMoveInDate(LocalDate.of(2100, 7, 1));
+        
+        assertFalse(index.findCurrentResidents(addresses.get(1)).contains(other));
+        assertTrue(index.findPastResidents(addresses.get(1)).contains(other));
+        assertFalse(index.findCoResidents(person).contains(other));
+        
+        index.remove(person);
+        assertFalse(index.findAllResidents(addresses.get(1)).contains(person));
+    }
+    
+    private static boolean overlaps(Person first, Person second) {
+        for (AddressInfo a : first.getAddresses()) {
+            for (AddressInfo b : second.getAddresses()) {
+                if (a.getAddress().equals(b.getAddress()) && a.getMoveInDay() <= b.getMoveOutDay() && b.getMoveInDay() <= a.getMoveOutDay()) {
+                    return true;
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    private static List<Person> scan(List<Person> population, Predicate<Person> condition) {
+        return population.stream().filter(condition)
+                .sorted(Comparator.comparing(Person::getIdentityCodeKey))
+                .collect(Collectors.toList());
+    }
+}
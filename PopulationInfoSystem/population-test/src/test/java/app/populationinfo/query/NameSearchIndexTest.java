@@ -0,0 +1,113 @@
+package app.populationinfo.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Name search index test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class NameSearchIndexTest {
+    
+    /**
+     * Test verifies that common variations of Finnish names get the same phonetic key and that the
+     * bounded edit distance agrees with the full edit distance.
+     */
+    @Test
+    public void phoneticKeysAndDistances() {
+        assertEquals(NameSearchIndex.phoneticKey("Korhonen"), NameSearchIndex.phoneticKey("Korhoinen"));
+        assertEquals(NameSearchIndex.phoneticKey("Virtanen"), NameSearchIndex.phoneticKey("Wirtanen"));
+        assertEquals(NameSearchIndex.phoneticKey("Mäkinen"), NameSearchIndex.phoneticKey("Makkinen"));
+        assertEquals(NameSearchIndex.phoneticKey("Matti"), NameSearchIndex.phoneticKey("Mati"));
+        assertTrue(!NameSearchIndex.phoneticKey("Laine").equals(NameSearchIndex.phoneticKey("Nieminen")));
+        
+        Random random = new Random(22l);
+        for (int i = 0; i < 2000; i++) {
+            String a = randomName(random);
+            String b = randomName(random);
+            int bound = random.nextInt(4);
+            assertEquals(a + " " + b, Math.min(levenshtein(a, b), bound + 1), NameSearchIndex.distance(a, b, bound));
+        }
+    }
+    
+    /**
+     * Test verifies that misspelled names find the persons with the closest names, also after the
+     * names of indexed persons have changed.
+     */
+    @Test
+    public void misspelledNamesFindPersons() {
+        TestDataGenerator generator = new TestDataGenerator(22l);
+        List<Address> addresses = generator.createAddresses(10, 2);
+        List<Person> population = generator.createPopulation(1000, 1, addresses);
+        NameSearchIndex index = NameSearchIndex.of(population);
+        
+        assertEquals(1000, index.size());
+        List<Person> korhonens = scan(population, p -> p.getLastName().equals("Korhonen"));
+        assertEquals(korhonens.subList(0, 10), index.findByLastName("Korhoinen", 10));
+        assertEquals(korhonens, index.findByLastName("korhonen", 1000));
+        assertEquals(scan(population, p -> p.getLastName().equals("Mäkinen")), index.findByLastName("Makinen", 1000));
+        assertEquals(scan(population, p -> p.getFirstName().equals("Veikko")), index.findByFirstName("Weiko", 1000));
+        assertEquals(scan(population, p -> p.getFirstName().equals("Aino") && p.getLastName().equals("Virtanen")).subList(0, 3),
+                index.find("Ainoo", "Virtnen", 3));
+        assertEquals(List.of(), index.findByLastName("Xyzzy", 10));
+        
+        Person person = korhonens.get(500 % korhonens.size());
+        person.setLastName("Korhoinen");
+        assertEquals(List.of(person), index.findByLastName("Korhoinen", 1));
+        assertEquals(korhonens.size(), index.findByLastName("Korhoinen", 1000).size());
+        assertTrue(!index.findByLastName("Korhonen", 1).contains(person));
+        
+        assertTrue(index.remove(person));
+        assertTrue(!index.findByLastName("Korhoinen", 1000).contains(person));
+        person.setLastName("Laine");
+        assertTrue(!index.findByLastName("Laine", 1000).contains(person));
+    }
+    
+    private static List<Person> scan(List<Person> persons, Predicate<Person> predicate) {
+        return persons.stream()
+                .filter(predicate)
+                .sorted(Comparator.comparing(Person::getIdentityCodeKey))
+                .collect(Collectors.toList());
+    }
+    
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            name.append("aeiknorst".charAt(random.nextInt(9)));
+        }
+        
+        return name.toString();
+    }
+    
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                } else {
+                    d[i][j] = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                            Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                }
+            }
+        }
+        
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,116 @@
+package app.populationinfo.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Population index test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationIndexTest {
+    private static final LocalDate FROM = LocalDate.of(1950, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1969, 12, 31);
+    
+    /**
+     * Test verifies that queries give the same persons as filtering the whole population.
+     */
+    @Test
+    public void queryMatchesScan() {
+        TestDataGenerator generator = new TestDataGenerator(13l);
+        List<Address> addresses = generator.createAddresses(200, 10);
+        List<Person> population = generator.createPopulation(3000, 3, addresses);
+        PopulationIndex index = PopulationIndex.of(population);
+        String areaCode = addresses.get(0).getAreaCode();
+        
+        assertEquals(3000, index.size());
+        assertEquals(scan(population, p -> p.getLastName().equals("Laine") && isBornBetween(p) && p.getTimeOfDeath() == null),
+                index.query().withLastName("Laine").bornBetween(FROM, TO).living().find());
+        assertEquals(scan(population, p -> isCurrentlyIn(p, areaCode) && p.getTimeOfDeath() != null),
+                index.query().deceased().withCurrentAreaCode(areaCode).find());
+        assertEquals(scan(population, p -> p.getTimeOfDeath() != null && !p.getTimeOfDeath().isAfter(LocalDate.of(2030, 1, 1))),
+                index.query().diedBetween(LocalDate.MIN, LocalDate.of(2030, 1, 1)).find());
+        assertEquals(scan(population, p -> p.getTimeOfDeath() == null), index.query().living().find());
+        assertEquals(scan(population, p -> true), index.query().find());
+    }
+    
+    /**
+     * Test verifies that the indexes follow the changes of the persons.
+     */
+    @Test
+    public void updateOnChanges() {
+        TestDataGenerator generator = new TestDataGenerator(13l);
+        List<Address> addresses = generator.createAddresses(10, 2);
+        List<Person> population = generator.createPopulation(100, 2, addresses);
+        PopulationIndex index = PopulationIndex.of(population);
+        Person person = population.get(0);
+        
+        person.setLastName("Uusinimi");
+        person.setTimeOfDeath(null);
+        person.addAddress(new Address("Uusikatu 1", "99999"), LocalDate.of(2023, 1, 27));
+        
+        assertEquals(List.of(person), index.query().withLastName("Uusinimi").withCurrentAreaCode("99999").find());
+        assertTrue(index.query().living().find().contains(person));
+        
+        person.findCurrentAddress().setMoveOutDate(LocalDate.of(2023, 2, 1));
+        person.setTimeOfDeath(LocalDate.of(2023, 2, 1));
+        
+        assertEquals(List.of(), index.query().withCurrentAreaCode("99999").find());
+        assertEquals(List.of(person), index.query().diedBetween(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 1)).find());
+        assertFalse(index.query().living().find().contains(person));
+        
+        index.remove(person);
+        person.setLastName("Toinen");
+        
+        assertEquals(List.of(), index.query().withLastName("Uusinimi").find());
+        assertEquals(99, index.size());
+    }
+    
+    /**
+     * Test verifies that the most selective condition is evaluated first.
+     */
+    @Test
+    public void planMostSelectiveFirst() {
+        TestDataGenerator generator = new TestDataGenerator(13l);
+        List<Person> population = generator.createPopulation(1000, 0, List.of());
+        population.get(0).setLastName("Harvinainen");
+        PopulationIndex index = PopulationIndex.of(population);
+        
+        String plan = index.query().living().bornBetween(FROM, TO).withLastName("Harvinainen").explain();
+        
+        assertTrue(plan, plan.startsWith("LastName"));
+    }
+    
+    private static List<Person> scan(List<Person> population, Predicate<Person> condition) {
+        return population.stream()
+                .filter(condition)
+                .sorted(Comparator.comparing(Person::getIdentityCode))
+                .collect(Collectors.toList());
+    }
+    
+    private static boolean isBornBetween(Person person) {
+        return !person.getTimeOfBirth().isBefore(FROM) && !person.getTimeOfBirth().isAfter(TO);
+    }
+    
+    private static boolean isCurrentlyIn(Person person, String areaCode) {
+        AddressInfo current = person.findCurrentAddress();
+        
+        return current != null && current.getAddress().getAreaCode().equals(areaCode);
+    }
+}
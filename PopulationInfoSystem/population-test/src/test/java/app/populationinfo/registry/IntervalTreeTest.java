@@ -0,0 +1,71 @@
+package app.populationinfo.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Interval tree test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class IntervalTreeTest {
+    
+    /**
+     * Test verifies that stabbing queries match a brute force search, also after removals.
+     */
+    @Test
+    public void findAtMatchesBruteForce() {
+        Random random = new Random(42);
+        IntervalTree<long[]> tree = new IntervalTree<>();
+        List<long[]> intervals = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(1000);
+            long end = random.nextInt(10) == 0 ? IntervalTree.OPEN : start + random.nextInt(100);
+            long[] interval = { start, end };
+            intervals.add(interval);
+            tree.add(start, end, interval);
+        }
+        
+        for (int i = 0; i < 500; i++) {
+            long[] interval = intervals.remove(random.nextInt(intervals.size()));
+            assertTrue(tree.remove(interval[0], interval[1], interval));
+        }
+        
+        assertEquals(intervals.size(), tree.size());
+        for (long day = -1; day <= 1100; day++) {
+            List<long[]> expected = new ArrayList<>();
+            for (long[] interval : intervals) {
+                if (interval[0] <= day && interval[1] >= day) {
+                    expected.add(interval);
+                }
+            }
+            
+            List<long[]> found = tree.findAt(day);
+            assertEquals(expected.size(), found.size());
+            assertTrue(found.containsAll(expected));
+        }
+    }
+    
+    /**
+     * Test verifies that removing an interval that doesn't exist leaves the tree intact.
+     */
+    @Test
+    public void removeMissingInterval() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.add(1, 10, "a");
+        
+        assertFalse(tree.remove(1, 11, "a"));
+        assertFalse(tree.remove(1, 10, "b"));
+        assertEquals(Collections.singletonList("a"), tree.findAt(5));
+    }
+}
@@ -0,0 +1,122 @@
+package app.populationinfo.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Population registry test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationRegistryTest {
+    
+    /**
+     * Test verifies that a person can be found by identity code.
+     */
+    @Test
+    public void findPersonByIdentityCode() {
+        PopulationRegistry registry = new PopulationRegistry();
+        Person person = TestUtil.createPerson();
+        registry.addPerson(person);
+        
+        assertSame(person, registry.findPerson(person.getIdentityCode()));
+        assertNull(registry.findPerson("-1"));
+    }
+    
+    /**
+     * Test verifies that the same identity code can't be registered twice.
+     */
+    @Test
+    public void addDuplicatePerson() {
+        PopulationRegistry registry = new PopulationRegistry();
+        registry.addPerson(TestUtil.createPerson());
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            registry.addPerson(TestUtil.createPerson());
+        });
+    }
+    
+    /**
+     * Test verifies that equal addresses are registered only once.
+     */
+    @Test
+    public void addressesAreDeduplicated() {
+        PopulationRegistry registry = new PopulationRegistry();
+        Address address = registry.addAddress(TestUtil.createAddress());
+        
+        assertSame(address, registry.addAddress(TestUtil.createAddress()));
+        assertSame(address, registry.findAddress(address.getName(), address.getAreaCode()));
+    }
+    
+    /**
+     * Test verifies that residents are indexed by address when a person moves.
+     */
+    @Test
+    public void findResidentsAfterMove() {
+        PopulationRegistry registry = new PopulationRegistry();
+        Person person = TestUtil.createPerson();
+        Person person2 = TestUtil.createPerson("11111", "Polly", "Parent", false);
+        registry.addPerson(person);
+        registry.addPerson(person2);
+        
+        registry.moveTo(person, TestUtil.createAddress(), LocalDate.now());
+        registry.moveTo(person2, TestUtil.createAddress(), LocalDate.now());
+        
+        assertEquals(2, registry.findResidents(TestUtil.createAddress()).size());
+        assertTrue(registry.findResidents(TestUtil.createAddress("TestAddress2")).isEmpty());
+    }
+    
+    /**
+     * Test verifies that a removed person is no longer found.
+     */
+    @Test
+    public void removePerson() {
+        PopulationRegistry registry = new PopulationRegistry();
+        Person person = TestUtil.createPerson();
+        registry.addPerson(person);
+        registry.moveTo(person, TestUtil.createAddress(), LocalDate.now());
+        
+        assertSame(person, registry.removePerson(person.getIdentityCode()));
+        assertNull(registry.findPerson(person.getIdentityCode()));
+        assertTrue(registry.findResidents(TestUtil.createAddress()).isEmpty());
+        assertEquals(0, registry.size());
+    }
+    
+    /**
+     * Test verifies that residents of an address are found by date, including the ones who have moved out.
+     */
+    @Test
+    public void residentsOfAddressOnDate() {
+        PopulationRegistry registry = new PopulationRegistry();
+        Person person = TestUtil.createPerson();
+        Person person2 = TestUtil.createPerson("11111", "Polly", "Parent", false);
+        registry.addPerson(person);
+        registry.addPerson(person2);
+        
+        Address address = TestUtil.createAddress();
+        LocalDate date = LocalDate.now().minusYears(2l);
+        registry.moveTo(person, address, date);
+        registry.moveTo(person2, address, date.plusYears(1l));
+        registry.moveTo(person, TestUtil.createAddress("TestAddress2"), date.plusYears(1l).plusMonths(1l));
+        
+        assertTrue(registry.residentsOf(address, date.minusDays(1l)).isEmpty());
+        assertEquals(List.of(person), registry.residentsOf(address, date));
+        assertEquals(2, registry.residentsOf(address, date.plusYears(1l)).size());
+        assertEquals(List.of(person2), registry.residentsOf(address, LocalDate.now()));
+        assertEquals(List.of(person), registry.residentsOf(TestUtil.createAddress("TestAddress2"), LocalDate.now()));
+    }
+}
@@ -0,0 +1,202 @@
+package app.populationinfo.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Caching person repository test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class CachingPersonRepositoryTest {
+    private static final long SEED = 16l;
+    
+    /**
+     * Test verifies that the first lookup reads the repository and the next one is served from
+     * the cache.
+     */
+    @Test
+    public void readThroughAndCountHits() {
+        List<Person> population = createPopulation(10);
+        CachingPersonRepository cache = new CachingPersonRepository(createRepository(population), 100);
+        Person person = population.get(3);
+        
+        assertSame(person, cache.findPerson(person.getIdentityCode()));
+        assertSame(person, cache.findPerson(person.getIdentityCode()));
+        assertNull(cache.findPerson("-1"));
+        
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getCachedCount());
+        assertEquals(10, cache.size());
+    }
+    
+    /**
+     * Test verifies that the cache stays within its maximum size and keeps the frequently used
+     * persons through a scan of the whole population.
+     */
+    @Test
+    public void frequentPersonsSurviveScan() {
+        List<Person> population = createPopulation(1000);
+        CachingPersonRepository cache = new CachingPersonRepository(createRepository(population), 100);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.findPerson(population.get(i).getIdentityCode());
+            }
+        }
+        
+        for (Person person : population) {
+            cache.findPerson(person.getIdentityCode());
+        }
+        
+        assertTrue(cache.getCachedCount() <= 100);
+        assertTrue(cache.getEvictionCount() >= 900);
+        
+        long hits = cache.getHitCount();
+        for (int i = 0; i < 50; i++) {
+            cache.findPerson(population.get(i).getIdentityCode());
+        }
+        
+        assertEquals(50, cache.getHitCount() - hits);
+    }
+    
+    /**
+     * Test verifies that a changed person is dropped from the cache and read again from the
+     * repository.
+     */
+    @Test
+    public void changedPersonIsInvalidated() {
+        List<Person> population = createPopulation(10);
+        CachingPersonRepository cache = new CachingPersonRepository(createRepository(population), 100);
+        Person person = cache.findPerson(population.get(0).getIdentityCode());
+        
+        person.addAddress(TestUtil.createAddress("TestAddress2"), LocalDate.now());
+        
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(0, cache.getCachedCount());
+        
+        cache.findPerson(person.getIdentityCode());
+        person.setLastName("Changed");
+        cache.findPerson(person.getIdentityCode());
+        cache.savePerson(person);
+        
+        assertEquals(3, cache.getInvalidationCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0, cache.getCachedCount());
+    }
+    
+    /**
+     * Test verifies that a person whose identity code changes is dropped under the old code, so
+     * a lookup by the old code doesn't return a person with another code.
+     */
+    @Test
+    public void changedIdentityCodeIsInvalidated() {
+        List<Person> population = createPopulation(10);
+        PersonRepository repository = createRepository(population);
+        CachingPersonRepository cache = new CachingPersonRepository(repository, 100);
+        Person person = population.get(0);
+        String oldIdentityCode = person.getIdentityCode();
+        cache.findPerson(oldIdentityCode);
+        
+        repository.removePerson(oldIdentityCode);
+        person.setIdentityCode("010101-999X");
+        
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(0, cache.getCachedCount());
+        assertNull(cache.findPerson(oldIdentityCode));
+    }
+    
+    /**
+     * Test verifies that replacing the parents of a cached person drops the person.
+     */
+    @Test
+    public void replacedParentsAreInvalidated() {
+        List<Person> population = createPopulation(10);
+        CachingPersonRepository cache = new CachingPersonRepository(createRepository(population), 100);
+        Person person = cache.findPerson(population.get(0).getIdentityCode());
+        
+        person.setParents(List.of(population.get(1), population.get(2)));
+        
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(0, cache.getCachedCount());
+    }
+    
+    /**
+     * Test verifies that a person saved while the cache is reading the old person from the
+     * repository is not left in the cache as the old person.
+     */
+    @Test
+    public void saveDuringReadIsNotCachedStale() {
+        List<Person> population = createPopulation(10);
+        Person old = population.get(0);
+        Person saved = Person.copyOf(old);
+        saved.setLastName("Saved");
+        
+        PersonRepository repository = createRepository(population);
+        CachingPersonRepository[] cache = new CachingPersonRepository[1];
+        PersonRepository racing = new PersonRepository() {
+            
+            @Override
+            public Person findPerson(String identityCode) {
+                Person found = repository.findPerson(identityCode);
+                if (found == old) {
+                    cache[0].savePerson(saved);
+                }
+                
+                return found;
+            }
+            
+            @Override
+            public void savePerson(Person person) {
+                repository.savePerson(person);
+            }
+            
+            @Override
+            public boolean removePerson(String identityCode) {
+                return repository.removePerson(identityCode);
+            }
+            
+            @Override
+            public int size() {
+                return repository.size();
+            }
+        };
+        cache[0] = new CachingPersonRepository(racing, 100);
+        
+        assertSame(old, cache[0].findPerson(old.getIdentityCode()));
+        assertEquals(0, cache[0].getCachedCount());
+        assertSame(saved, cache[0].findPerson(old.getIdentityCode()));
+        assertSame(saved, cache[0].findPerson(old.getIdentityCode()));
+        assertEquals(1, cache[0].getHitCount());
+    }
+    
+    private static List<Person> createPopulation(int size) {
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        List<Address> addresses = generator.createAddresses(20, 5);
+        
+        return generator.createPopulation(size, 3, addresses);
+    }
+    
+    private static PersonRepository createRepository(List<Person> population) {
+        PersonRepository repository = new InMemoryPersonRepository();
+        for (Person person : population) {
+            repository.savePerson(person);
+        }
+        
+        return repository;
+    }
+}
@@ -0,0 +1,104 @@
+package app.populationinfo.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * File-backed person repository test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class FilePersonRepositoryTest {
+    @TempDir
+    Path directory;
+    
+    /**
+     * Test verifies that saved persons are found from the file after a flush and that found
+     * persons can be changed and saved again.
+     * 
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void saveFlushAndReopen() throws IOException {
+        List<Person> population = createPopulation();
+        Path file = directory.resolve("persons.bin");
+        try (FilePersonRepository repository = new FilePersonRepository(file)) {
+            for (Person person : population) {
+                repository.savePerson(person);
+            }
+        }
+        
+        FilePersonRepository repository = new FilePersonRepository(file);
+        assertEquals(population.size(), repository.size());
+        for (Person person : population) {
+            Person found = repository.findPerson(person.getIdentityCode());
+            
+            assertEquals(person.getLastName(), found.getLastName());
+            assertEquals(person.getAddresses(), found.getAddresses());
+            assertNotSame(found, repository.findPerson(person.getIdentityCode()));
+        }
+        
+        Person changed = repository.findPerson(population.get(0).getIdentityCode());
+        changed.addAddress(TestUtil.createAddress("TestAddress2"), LocalDate.now());
+        repository.savePerson(changed);
+        repository.flush();
+        
+        assertEquals("TestAddress2", new FilePersonRepository(file).findPerson(changed.getIdentityCode())
+                .findCurrentAddress().getAddress().getName());
+    }
+    
+    /**
+     * Test verifies that removed persons are not found before or after a flush.
+     * 
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void removePersons() throws IOException {
+        List<Person> population = createPopulation();
+        Path file = directory.resolve("persons.bin");
+        FilePersonRepository repository = new FilePersonRepository(file);
+        repository.savePerson(population.get(0));
+        repository.savePerson(population.get(1));
+        repository.flush();
+        repository.savePerson(population.get(2));
+        
+        assertTrue(repository.removePerson(population.get(0).getIdentityCode()));
+        assertTrue(repository.removePerson(population.get(2).getIdentityCode()));
+        assertFalse(repository.removePerson(population.get(0).getIdentityCode()));
+        assertNull(repository.findPerson(population.get(0).getIdentityCode()));
+        assertEquals(1, repository.size());
+        
+        repository.flush();
+        
+        FilePersonRepository reopened = new FilePersonRepository(file);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.findPerson(population.get(2).getIdentityCode()));
+        assertEquals(population.get(1).getFirstName(),
+                reopened.findPerson(population.get(1).getIdentityCode()).getFirstName());
+    }
+    
+    private static List<Person> createPopulation() {
+        TestDataGenerator generator = new TestDataGenerator(16l);
+        List<Address> addresses = generator.createAddresses(20, 5);
+        
+        return generator.createPopulation(50, 4, addresses);
+    }
+}
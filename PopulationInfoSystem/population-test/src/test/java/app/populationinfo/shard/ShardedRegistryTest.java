@@ -0,0 +1,207 @@
+package app.populationinfo.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.aggregate.LiveDemographics;
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.registry.PopulationRegistry;
+import app.populationinfo.util.TestDataGenerator;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Sharded registry test class. Most tests run the shard servers in the test process, one test
+ * starts them as separate processes.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class ShardedRegistryTest {
+    private static final long SEED = 17l;
+    private static final int SHARDS = 3;
+    
+    private final List<ShardServer> servers = new ArrayList<>();
+    private List<Address> addresses;
+    private List<Person> population;
+    private ShardedRegistry registry;
+    
+    /**
+     * Starts the shard servers and adds a population linked into generations.
+     * 
+     * @throws IOException if a server can't be started.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        List<InetSocketAddress> shardAddresses = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            ShardServer server = new ShardServer(0);
+            servers.add(server);
+            shardAddresses.add(server.getAddress());
+        }
+        
+        TestDataGenerator generator = new TestDataGenerator(SEED);
+        addresses = generator.createAddresses(10, 3);
+        population = generator.createPopulation(60, 3, addresses);
+        generator.linkGenerations(population, 3);
+        
+        registry = new ShardedRegistry(shardAddresses);
+        for (Person person : population) {
+            registry.addPerson(person);
+        }
+    }
+    
+    /**
+     * Stops the shard servers.
+     * 
+     * @throws IOException if a server can't be stopped.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        registry.close();
+        for (ShardServer server : servers) {
+            server.close();
+        }
+    }
+    
+    /**
+     * Test verifies that persons are found from their shards with their parents from other shards.
+     */
+    @Test
+    public void findPersonsWithParentsFromOtherShards() {
+        assertEquals(population.size(), registry.size());
+        
+        int crossShardParents = 0;
+        for (Person person : population) {
+            Person found = registry.findPerson(person.getIdentityCode());
+            
+            assertEquals(person.getFirstName(), found.getFirstName());
+            assertEquals(person.getTimeOfBirth(), found.getTimeOfBirth());
+            assertEquals(person.getAddresses(), found.getAddresses());
+            assertEquals(person.getParents(), found.getParents());
+            for (int i = 0; i < found.getParents().size(); i++) {
+                Person parent = found.getParents().get(i);
+                assertEquals(person.getParents().get(i).getLastName(), parent.getLastName());
+                if (registry.findShard(parent.getIdentityCode()) != registry.findShard(person.getIdentityCode())) {
+                    crossShardParents++;
+                }
+            }
+        }
+        
+        assertTrue(crossShardParents > 0);
+        assertNull(registry.findPerson("-1"));
+    }
+    
+    /**
+     * Test verifies that moves go to the owning shard and that range and aggregate queries over all
+     * shards give the same answers as a single registry.
+     */
+    @Test
+    public void movesAndQueriesOverShards() {
+        LocalDate moveInDate = LocalDate.now();
+        for (int i = 0; i < population.size(); i += 7) {
+            Person person = population.get(i);
+            Address address = addresses.get(i % addresses.size());
+            registry.addAddress(person.getIdentityCode(), address, moveInDate);
+            person.addAddress(address, moveInDate);
+        }
+        
+        PopulationRegistry local = new PopulationRegistry();
+        local.addPersons(population);
+        
+        assertEquals(moveInDate, registry.findPerson(population.get(7).getIdentityCode())
+                .findCurrentAddress().getMoveInDate());
+        
+        LocalDate from = LocalDate.of(1950, 1, 1);
+        LocalDate to = LocalDate.of(1980, 12, 31);
+        assertEquals(population.stream()
+                .filter(p -> !p.getTimeOfBirth().isBefore(from) && !p.getTimeOfBirth().isAfter(to))
+                .map(Person::getIdentityCode).sorted().collect(Collectors.toList()),
+                identityCodes(registry.findBornBetween(from, to)));
+        
+        for (Address address : addresses) {
+            assertEquals(identityCodes(local.residentsOf(address, moveInDate)).stream().sorted().collect(Collectors.toList()),
+                    identityCodes(registry.residentsOf(address, moveInDate)));
+        }
+        
+        assertEquals(LiveDemographics.of(population).getPopulationByAreaCode(), registry.getPopulationByAreaCode());
+    }
+    
+    /**
+     * Test verifies that invalid requests are answered with exceptions and don't break the
+     * connections.
+     */
+    @Test
+    public void invalidRequests() {
+        assertThrows(IllegalArgumentException.class, () -> registry.addPerson(population.get(0)));
+        assertThrows(IllegalArgumentException.class, () -> registry.addAddress("-1", addresses.get(0), LocalDate.now()));
+        
+        assertEquals(population.get(0).getLastName(), registry.findPerson(population.get(0).getIdentityCode()).getLastName());
+    }
+    
+    /**
+     * Test verifies that a request or a response failing part way through doesn't leave a
+     * connection out of step with the server, and that an answered error keeps it usable.
+     */
+    @Test
+    public void failedCallsKeepConnectionsInStep() {
+        try (ShardClient client = new ShardClient(servers.get(0).getAddress())) {
+            int size = client.call(ShardProtocol.SIZE, out -> { }, DataInput::readInt);
+            
+            assertThrows(IllegalStateException.class, () -> client.call(ShardProtocol.FIND_PERSON, out -> {
+                out.writeShort(100);
+                throw new IllegalStateException("Request cut short");
+            }, in -> null));
+            assertEquals(size, (int) client.call(ShardProtocol.SIZE, out -> { }, DataInput::readInt));
+            
+            assertThrows(IllegalStateException.class, () -> client.call(ShardProtocol.SIZE, out -> { }, in -> {
+                throw new IllegalStateException("Response cut short");
+            }));
+            assertEquals(size, (int) client.call(ShardProtocol.SIZE, out -> { }, DataInput::readInt));
+            
+            Person person = TestUtil.createPerson("010101-999X", "Uusi", "Asukas", false);
+            client.call(ShardProtocol.ADD_PERSON, out -> ShardProtocol.writePerson(out, person), in -> Boolean.TRUE);
+            assertThrows(IllegalArgumentException.class, () -> client.call(ShardProtocol.ADD_PERSON,
+                    out -> ShardProtocol.writePerson(out, person), in -> Boolean.TRUE));
+            assertEquals(size + 1, (int) client.call(ShardProtocol.SIZE, out -> { }, DataInput::readInt));
+        }
+    }
+    
+    /**
+     * Test verifies that a cluster of shard processes can be started, used and stopped.
+     * 
+     * @throws IOException if the processes can't be started.
+     */
+    @Test
+    public void shardProcesses() throws IOException {
+        try (LocalShardCluster cluster = LocalShardCluster.start(2, "-Xmx64m");
+                ShardedRegistry processRegistry = new ShardedRegistry(cluster.getAddresses())) {
+            for (Person person : population.subList(0, 20)) {
+                processRegistry.addPerson(person);
+            }
+            
+            assertEquals(20, processRegistry.size());
+            assertEquals(population.get(5).getFirstName(),
+                    processRegistry.findPerson(population.get(5).getIdentityCode()).getFirstName());
+        }
+    }
+    
+    private static List<String> identityCodes(List<Person> persons) {
+        return persons.stream().map(Person::getIdentityCode).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,113 @@
+package app.populationinfo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+
+/**
+ * Population file test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationFileTest {
+    @TempDir
+    Path directory;
+    
+    /**
+     * Test verifies that a store read from a file returns the same persons that were written.
+     * 
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void writeAndOpenStore() throws IOException {
+        List<Person> population = createPopulation();
+        Path file = directory.resolve("population.bin");
+        PopulationFile.write(PopulationStore.of(population), file);
+        
+        PopulationStore store = PopulationFile.open(file);
+        PopulationFile.verify(file);
+        
+        assertEquals(population.size(), store.size());
+        for (Person person : population) {
+            Person stored = store.findPerson(person.getIdentityCode());
+            
+            assertEquals(person.getFirstName(), stored.getFirstName());
+            assertEquals(person.getTimeOfBirth(), stored.getTimeOfBirth());
+            assertEquals(person.getTimeOfDeath(), stored.getTimeOfDeath());
+            assertEquals(person.getParents(), stored.getParents());
+            assertEquals(person.findCurrentAddress().getAddress(), stored.findCurrentAddress().getAddress());
+            assertEquals(person.getAddresses().size(), stored.getAddresses().size());
+        }
+    }
+    
+    /**
+     * Test verifies that a file with a changed data byte opens, but fails verification, and that a
+     * file with a changed header byte is rejected at open.
+     * 
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void openCorruptedFile() throws IOException {
+        Path file = directory.resolve("population.bin");
+        PopulationFile.write(PopulationStore.of(createPopulation()), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        
+        assertEquals(100, PopulationFile.open(file).size());
+        assertThrows(IOException.class, () -> {
+            PopulationFile.verify(file);
+        });
+        
+        bytes[bytes.length / 2] ^= 1;
+        bytes[17] ^= 1;
+        Files.write(file, bytes);
+        
+        assertThrows(IOException.class, () -> {
+            PopulationFile.open(file);
+        });
+        assertThrows(IOException.class, () -> {
+            PopulationFile.verify(file);
+        });
+    }
+    
+    /**
+     * Test verifies that a file that has been cut short is rejected.
+     * 
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void openTornFile() throws IOException {
+        Path file = directory.resolve("population.bin");
+        PopulationFile.write(PopulationStore.of(createPopulation()), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 100));
+        
+        assertThrows(IOException.class, () -> {
+            PopulationFile.open(file);
+        });
+    }
+    
+    private static List<Person> createPopulation() {
+        TestDataGenerator generator = new TestDataGenerator(2l);
+        List<Address> addresses = generator.createAddresses(50, 5);
+        List<Person> population = generator.createPopulation(100, 3, addresses);
+        population.get(0).addParent(population.get(1));
+        
+        return population;
+    }
+}
@@ -0,0 +1,163 @@
+package app.populationinfo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.Person;
+import app.populationinfo.util.TestDataGenerator;
+import app.populationinfo.util.TestUtil;
+
+/**
+ * Population store test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationStoreTest {
+    
+    /**
+     * Test verifies that stored persons return the same data as the original persons.
+     */
+    @Test
+    public void storedPersonsMatchOriginals() {
+        TestDataGenerator generator = new TestDataGenerator(1l);
+        List<Address> addresses = generator.createAddresses(50, 5);
+        List<Person> population = generator.createPopulation(200, 8, addresses);
+        population.get(0).addParent(population.get(1));
+        population.get(0).addParent(population.get(2));
+        
+        PopulationStore store = PopulationStore.of(population);
+        
+        assertEquals(population.size(), store.size());
+        for (Person person : population) {
+            Person stored = store.findPerson(person.getIdentityCode());
+            
+            assertEquals(person, stored);
+            assertEquals(person.getFirstName(), stored.getFirstName());
+            assertEquals(person.getLastName(), stored.getLastName());
+            assertEquals(person.getTimeOfBirth(), stored.getTimeOfBirth());
+            assertEquals(person.getTimeOfDeath(), stored.getTimeOfDeath());
+            assertEquals(person.getParents(), stored.getParents());
+            assertEquals(person.getAddresses().size(), stored.getAddresses().size());
+            for (int i = 0; i < person.getAddresses().size(); i++) {
+                assertEquals(person.getAddresses().get(i).getAddress(), stored.getAddresses().get(i).getAddress());
+                assertEquals(person.getAddresses().get(i).getMoveInDate(), stored.getAddresses().get(i).getMoveInDate());
+                assertEquals(person.getAddresses().get(i).getMoveOutDate(), stored.getAddresses().get(i).getMoveOutDate());
+            }
+            
+            assertEquals(person.findCurrentAddress().getAddress(), stored.findCurrentAddress().getAddress());
+            LocalDate middle = person.getAddresses().get(4).getMoveInDate();
+            assertEquals(person.findAddressOn(middle).getAddress(), stored.findAddressOn(middle).getAddress());
+            Address oldest = person.getAddresses().get(7).getAddress();
+            assertEquals(person.findAddressInfoByAddress(oldest).getMoveInDate(),
+                    stored.findAddressInfoByAddress(oldest).getMoveInDate());
+        }
+    }
+    
+    /**
+     * Test verifies that addresses on given dates are found the same way as in the original person
+     * when the history is not in chronological order.
+     */
+    @Test
+    public void findAddressOnInNonChronologicalHistory() {
+        Person person = TestUtil.createPerson();
+        Address older = new Address("Vanhakatu 1", "00100");
+        Address newer = new Address("Uusikatu 1", "00200");
+        person.setAddresses(List.of(
+                new AddressInfo(older, person, LocalDate.of(2010, 1, 1), LocalDate.of(2019, 12, 31)),
+                new AddressInfo(newer, person, LocalDate.of(2020, 5, 1))));
+        
+        Person stored = PopulationStore.of(List.of(person)).getPerson(0);
+        
+        for (LocalDate date : List.of(LocalDate.of(2009, 1, 1), LocalDate.of(2015, 1, 1), LocalDate.of(2020, 2, 1),
+                LocalDate.of(2021, 1, 1))) {
+            AddressInfo expected = person.findAddressOn(date);
+            AddressInfo actual = stored.findAddressOn(date);
+            
+            assertEquals(expected != null ? expected.getAddress() : null, actual != null ? actual.getAddress() : null);
+        }
+        assertEquals(older, stored.findAddressOn(LocalDate.of(2015, 1, 1)).getAddress());
+    }
+    
+    /**
+     * Test verifies that a person without addresses or parents can be stored and found.
+     */
+    @Test
+    public void storePersonWithoutHistory() {
+        Person person = TestUtil.createPerson(true);
+        PopulationStore store = PopulationStore.of(List.of(person));
+        Person stored = store.getPerson(0);
+        
+        assertEquals(person.getTimeOfDeath(), stored.getTimeOfDeath());
+        assertNull(stored.findCurrentAddress());
+        assertNull(stored.findAddressOn(LocalDate.now()));
+        assertEquals(0, stored.getParents().size());
+        assertNull(store.findPerson("-1"));
+    }
+    
+    /**
+     * Test verifies that stored persons can't be modified.
+     */
+    @Test
+    public void storedPersonsAreReadOnly() {
+        PopulationStore store = PopulationStore.of(List.of(TestUtil.createPerson()));
+        Person stored = store.getPerson(0);
+        
+        assertThrows(UnsupportedOperationException.class, () -> {
+            stored.addAddress(TestUtil.createAddress(), LocalDate.now());
+        });
+    }
+    
+    /**
+     * Test verifies that persons are found by identity code when packed and unpacked codes are
+     * mixed in the store.
+     */
+    @Test
+    public void findRowsWithMixedCodes() {
+        List<String> identityCodes = List.of("010101-123N", "abc", "Ä-1", "ZZZ", "+", "-1", "0123456789012345678901234",
+                "010101-123", "010101-123NA");
+        List<Person> population = new ArrayList<>();
+        for (String identityCode : identityCodes) {
+            population.add(TestUtil.createPerson(identityCode, "Etu", "Suku", false));
+        }
+        
+        PopulationStore store = PopulationStore.of(population);
+        
+        for (int i = 0; i < identityCodes.size(); i++) {
+            assertEquals(i, store.findRow(identityCodes.get(i)));
+        }
+        assertEquals(-1, store.findRow("010101-123M"));
+        assertEquals(-1, store.findRow("abd"));
+        assertEquals(-1, store.findRow(""));
+    }
+    
+    /**
+     * Test verifies that data with counts that don't match its length is rejected, also when the
+     * columns of the counts wouldn't fit into an int.
+     */
+    @Test
+    public void rejectInvalidCounts() {
+        ByteBuffer data = PopulationStore.of(List.of(TestUtil.createPerson())).getData();
+        data.putInt(0, Integer.MAX_VALUE);
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            PopulationStore.wrap(data);
+        });
+        
+        data.putInt(0, -1);
+        assertThrows(IllegalArgumentException.class, () -> {
+            PopulationStore.wrap(data);
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package app.populationinfo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import app.populationinfo.model.Address;
+import app.populationinfo.model.AddressInfo;
+import app.populationinfo.model.IdentityCode;
+import app.populationinfo.model.Person;
+
+/**
+ * Population generator test class.
+ * 
+ * @author Saana Korhonen
+ * @version 27 Jan 2023
+ *
+ */
+public class PopulationGeneratorTest {
+    
+    /**
+     * Test verifies that the same seed produces the same population with one thread and with
+     * several threads.
+     * 
+     * @throws ExecutionException if generating fails.
+     * @throws InterruptedException if interrupted while generating.
+     */
+    @Test
+    public void sameSeedSamePopulation() throws InterruptedException, ExecutionException {
+        List<String> single = describe(new ForkJoinPool(1).submit(() -> generate(25l, 40000)).get());
+        List<String> parallel = describe(new ForkJoinPool(4).submit(() -> generate(25l, 40000)).get());
+        
+        assertEquals(single, parallel);
+        assertTrue(!single.equals(describe(generate(26l, 40000))));
+    }
+    
+    /**
+     * Test verifies that the generated persons have unique valid identity codes, parents of a
+     * plausible age and address histories within their lifetimes.
+     */
+    @Test
+    public void populationIsPlausible() {
+        PopulationGenerator generator = new PopulationGenerator(25l);
+        List<Address> addresses = generator.createAddresses(2000, 50);
+        List<Person> population = generator.createPopulation(20000, addresses);
+        
+        assertEquals(20000, population.size());
+        Set<String> identityCodes = new HashSet<>();
+        int withParents = 0;
+        int dead = 0;
+        int maxMoves = 0;
+        for (Person person : population) {
+            assertTrue(person.getIdentityCode(), IdentityCode.isValid(person.getIdentityCode()));
+            assertTrue(identityCodes.add(person.getIdentityCode()));
+            
+            for (Person parent : person.getParents()) {
+                long age = parent.getTimeOfBirth().until(person.getTimeOfBirth()).toTotalMonths() / 12;
+                assertTrue(age >= 17 && age <= 45);
+                withParents++;
+            }
+            
+            List<AddressInfo> history = person.getAddresses();
+            assertTrue(!history.isEmpty());
+            assertEquals(person.getTimeOfBirth(), history.get(history.size() - 1).getMoveInDate());
+            LocalDate end = person.getTimeOfDeath() != null ? person.getTimeOfDeath() : PopulationGenerator.TODAY;
+            assertTrue(!history.get(0).getMoveInDate().isAfter(end));
+            assertEquals(person.getTimeOfDeath(), history.get(0).getMoveOutDate());
+            dead += person.getTimeOfDeath() != null ? 1 : 0;
+            maxMoves = Math.max(maxMoves, history.size());
+        }
+        
+        assertTrue(withParents > population.size());
+        assertTrue(dead > 0 && dead < population.size() / 4);
+        assertTrue(maxMoves > 20);
+        
+        long bigArea = addresses.stream().filter(a -> a.getAreaCode().equals("00000")).count();
+        long smallArea = addresses.stream().filter(a -> a.getAreaCode().equals("00490")).count();
+        assertTrue(bigArea > 10 * smallArea);
+    }
+    
+    private static List<Person> generate(long seed, int size) {
+        PopulationGenerator generator = new PopulationGenerator(seed);
+        
+        return generator.createPopulation(size, generator.createAddresses(size / 10, 20));
+    }
+    
+    private static List<String> describe(List<Person> population) {
+        return population.stream()
+                .map(p -> p.getIdentityCode() + " " + p.getFirstName() + " " + p.getLastName() + " " + p.getTimeOfDeath()
+                        + " " + p.getParents().stream().map(Person::getIdentityCode).toList()
+                        + " " + p.getAddresses().stream().map(a -> a.getAddress().getName() + " " + a.getAddress().getAreaCode()
+                                + " " + a.getMoveInDate() + " " + a.getMoveOutDate()).toList())
+                .toList();
+    }
+}